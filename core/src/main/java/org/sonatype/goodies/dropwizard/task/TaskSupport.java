@@ -56,7 +56,7 @@ public abstract class TaskSupport
     public String value(final String name) {
       checkNotNull(name);
       Collection<String> values = parameters.get(name);
-      if (!values.isEmpty()) {
+      if (values != null && !values.isEmpty()) {
         return values.iterator().next();
       }
       return null;
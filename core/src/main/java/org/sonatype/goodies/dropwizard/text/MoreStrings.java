@@ -60,6 +60,95 @@ public final class MoreStrings
     return value.toUpperCase(Locale.ENGLISH);
   }
 
+  //
+  // Case-insensitive matching; same results as lower-casing the string first, but without allocating for US-ASCII
+  //
+
+  /**
+   * Returns {@code true} if {@code lower(string).contains(value)}; where value is already {@link #lower(String)}.
+   *
+   * Allocation-free if string is US-ASCII.
+   *
+   * @since ???
+   */
+  public static boolean containsIgnoreCase(final String string, final String value) {
+    checkNotNull(string);
+    checkNotNull(value);
+    int length = string.length();
+    if (!isAscii(string, 0, length)) {
+      return lower(string).contains(value);
+    }
+    int count = value.length();
+    for (int offset = 0; offset <= length - count; offset++) {
+      if (regionMatchesAscii(string, offset, value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns {@code true} if {@code lower(string).startsWith(value)}; where value is already {@link #lower(String)}.
+   *
+   * Allocation-free if the leading region of string is US-ASCII.
+   *
+   * @since ???
+   */
+  public static boolean startsWithIgnoreCase(final String string, final String value) {
+    checkNotNull(string);
+    checkNotNull(value);
+    int length = string.length();
+    int count = value.length();
+    if (!isAscii(string, 0, Math.min(count, length))) {
+      return lower(string).startsWith(value);
+    }
+    return count <= length && regionMatchesAscii(string, 0, value);
+  }
+
+  /**
+   * Returns {@code true} if {@code lower(string).endsWith(value)}; where value is already {@link #lower(String)}.
+   *
+   * Allocation-free if the trailing region of string is US-ASCII.
+   *
+   * @since ???
+   */
+  public static boolean endsWithIgnoreCase(final String string, final String value) {
+    checkNotNull(string);
+    checkNotNull(value);
+    int length = string.length();
+    int count = value.length();
+    if (!isAscii(string, Math.max(length - count, 0), length)) {
+      return lower(string).endsWith(value);
+    }
+    return count <= length && regionMatchesAscii(string, length - count, value);
+  }
+
+  private static boolean isAscii(final String string, final int start, final int end) {
+    for (int i = start; i < end; i++) {
+      if (string.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compare US-ASCII region of string, folded to lower-case, with value.
+   */
+  private static boolean regionMatchesAscii(final String string, final int offset, final String value) {
+    int count = value.length();
+    for (int i = 0; i < count; i++) {
+      char c = string.charAt(offset + i);
+      if (c >= 'A' && c <= 'Z') {
+        c += 'a' - 'A';
+      }
+      if (c != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Quote given value with token if non-null.
    *
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Allocation-free IP address parser.
+ *
+ * Parses IPv4 dotted-quad and IPv6 (including compressed {@code ::} forms, embedded IPv4, brackets and zone-ids)
+ * addresses into a 128-bit value held in two {@code long}s.  IPv4 addresses are represented as IPv4-mapped IPv6
+ * addresses ({@code ::ffff:a.b.c.d}); the returned family keeps them distinct from IPv6 addresses.
+ *
+ * @since ???
+ */
+public final class IpAddressParser
+{
+  /**
+   * Returned when address is malformed.
+   */
+  public static final int INVALID = 0;
+
+  public static final int IPV4 = 4;
+
+  public static final int IPV6 = 6;
+
+  /**
+   * High-order bits of an IPv4-mapped IPv6 address low word.
+   */
+  private static final long IPV4_MAPPED = 0xFFFF_0000_0000L;
+
+  private IpAddressParser() {
+    // empty
+  }
+
+  /**
+   * Parse address.
+   *
+   * @param address   Address to parse.
+   * @param result    Receives high-order (index 0) and low-order (index 1) 64 bits of address; undefined if invalid.
+   * @return          {@link #IPV4}, {@link #IPV6} or {@link #INVALID}.
+   */
+  public static int parse(final CharSequence address, final long[] result) {
+    checkNotNull(address);
+    checkNotNull(result);
+    checkArgument(result.length >= 2);
+    return parse(address, 0, address.length(), result);
+  }
+
+  /**
+   * Parse address from given region of characters.
+   *
+   * @see #parse(CharSequence, long[])
+   */
+  public static int parse(final CharSequence address, final int start, final int end, final long[] result) {
+    int from = start;
+    int to = end;
+
+    // strip brackets and zone-id
+    if (to - from >= 2 && address.charAt(from) == '[' && address.charAt(to - 1) == ']') {
+      from++;
+      to--;
+    }
+    for (int i = from; i < to; i++) {
+      if (address.charAt(i) == '%') {
+        to = i;
+        break;
+      }
+    }
+    for (int i = from; i < to; i++) {
+      if (address.charAt(i) == ':') {
+        return parseIpv6(address, from, to, result);
+      }
+    }
+
+    long ipv4 = parseIpv4(address, from, to);
+    if (ipv4 < 0) {
+      return INVALID;
+    }
+    result[0] = 0;
+    result[1] = IPV4_MAPPED | ipv4;
+    return IPV4;
+  }
+
+  /**
+   * Parse address or CIDR block ({@code address/prefix}).
+   *
+   * @param address   Address or block to parse.
+   * @param result    Receives address as {@link #parse(CharSequence, long[])} and prefix length at index 2;
+   *                  prefix length is in bits of the address family and is the full width for plain addresses.
+   * @return          {@link #IPV4}, {@link #IPV6} or {@link #INVALID}.
+   *
+   * @since ???
+   */
+  public static int parseCidr(final CharSequence address, final long[] result) {
+    checkNotNull(address);
+    checkNotNull(result);
+    checkArgument(result.length >= 3);
+
+    int length = address.length();
+    int slash = -1;
+    for (int i = length - 1; i >= 0; i--) {
+      if (address.charAt(i) == '/') {
+        slash = i;
+        break;
+      }
+    }
+    if (slash == -1) {
+      int family = parse(address, 0, length, result);
+      result[2] = family == IPV4 ? 32 : 128;
+      return family;
+    }
+
+    int prefix = 0;
+    if (slash + 1 == length || length - slash > 4) {
+      return INVALID;
+    }
+    for (int i = slash + 1; i < length; i++) {
+      char c = address.charAt(i);
+      if (c < '0' || c > '9') {
+        return INVALID;
+      }
+      prefix = prefix * 10 + (c - '0');
+    }
+
+    int family = parse(address, 0, slash, result);
+    if (family == INVALID || prefix > (family == IPV4 ? 32 : 128)) {
+      return INVALID;
+    }
+    result[2] = prefix;
+    return family;
+  }
+
+  /**
+   * Returns 32-bit address value; or {@code -1} if malformed.
+   */
+  private static long parseIpv4(final CharSequence address, final int from, final int to) {
+    long value = 0;
+    int octets = 0;
+    int i = from;
+    while (i < to) {
+      int octet = 0;
+      int digits = 0;
+      while (i < to) {
+        char c = address.charAt(i);
+        if (c < '0' || c > '9') {
+          break;
+        }
+        octet = octet * 10 + (c - '0');
+        if (++digits > 3) {
+          return -1;
+        }
+        i++;
+      }
+      if (digits == 0 || octet > 255) {
+        return -1;
+      }
+      value = (value << 8) | octet;
+      octets++;
+
+      if (i < to) {
+        if (address.charAt(i) != '.' || octets == 4) {
+          return -1;
+        }
+        i++;
+        if (i == to) {
+          return -1;
+        }
+      }
+    }
+    return octets == 4 ? value : -1;
+  }
+
+  private static int parseIpv6(final CharSequence address, final int from, final int to, final long[] result) {
+    // groups before and after '::' accumulated separately as 128-bit values
+    long headHi = 0;
+    long headLo = 0;
+    long tailHi = 0;
+    long tailLo = 0;
+    int headCount = 0;
+    int tailCount = 0;
+    boolean compressed = false;
+
+    int i = from;
+    if (to - i >= 2 && address.charAt(i) == ':' && address.charAt(i + 1) == ':') {
+      compressed = true;
+      i += 2;
+    }
+    else if (i < to && address.charAt(i) == ':') {
+      return INVALID;
+    }
+
+    while (i < to) {
+      int groupStart = i;
+      int group = 0;
+      int digits = 0;
+      while (i < to) {
+        int digit = Character.digit(address.charAt(i), 16);
+        if (digit < 0) {
+          break;
+        }
+        group = (group << 4) | digit;
+        if (++digits > 4) {
+          return INVALID;
+        }
+        i++;
+      }
+
+      int groups = 1;
+      if (i < to && address.charAt(i) == '.') {
+        // trailing embedded IPv4 counts as 2 groups
+        long ipv4 = parseIpv4(address, groupStart, to);
+        if (ipv4 < 0) {
+          return INVALID;
+        }
+        i = to;
+        groups = 2;
+        group = (int) ipv4;
+      }
+      else if (digits == 0) {
+        return INVALID;
+      }
+
+      int bits = groups * 16;
+      long value = groups == 2 ? (group & 0xFFFF_FFFFL) : group;
+      if (compressed) {
+        tailHi = (tailHi << bits) | (tailLo >>> (64 - bits));
+        tailLo = (tailLo << bits) | value;
+        tailCount += groups;
+      }
+      else {
+        headHi = (headHi << bits) | (headLo >>> (64 - bits));
+        headLo = (headLo << bits) | value;
+        headCount += groups;
+      }
+      if (headCount + tailCount > 8) {
+        return INVALID;
+      }
+
+      if (i < to) {
+        if (address.charAt(i) != ':') {
+          return INVALID;
+        }
+        i++;
+        if (i < to && address.charAt(i) == ':') {
+          if (compressed) {
+            return INVALID;
+          }
+          compressed = true;
+          i++;
+        }
+        else if (i == to) {
+          return INVALID;
+        }
+      }
+    }
+
+    int total = headCount + tailCount;
+    if (compressed ? total > 7 : total != 8) {
+      return INVALID;
+    }
+
+    // shift head into the high-order groups and combine with tail
+    int shift = (8 - headCount) * 16;
+    long hi;
+    long lo;
+    if (shift == 0) {
+      hi = headHi;
+      lo = headLo;
+    }
+    else if (shift == 128) {
+      hi = 0;
+      lo = 0;
+    }
+    else if (shift >= 64) {
+      hi = headLo << (shift - 64);
+      lo = 0;
+    }
+    else {
+      hi = (headHi << shift) | (headLo >>> (64 - shift));
+      lo = headLo << shift;
+    }
+    result[0] = hi | tailHi;
+    result[1] = lo | tailLo;
+    return IPV6;
+  }
+}
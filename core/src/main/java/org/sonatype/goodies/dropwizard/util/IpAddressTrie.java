@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Immutable binary radix trie of IP addresses and CIDR blocks.
+ *
+ * IPv4 and IPv6 entries are held in separate tries, so IPv4 blocks never match IPv6 candidates (or vice versa).
+ * Lookup walks at most one node per address bit and stops at the first (shortest) matching prefix; so cost is
+ * independent of the number of entries.  Entries which are not addresses are matched by exact string.
+ *
+ * Tries {@link #builder() built} with slots associate each entry with slots; {@link #collect collecting} accumulates
+ * the slots of every entry containing an address in one walk of the same nodes.
+ *
+ * @since ???
+ * @see IpAddresses
+ */
+public final class IpAddressTrie
+{
+  private static final Logger log = LoggerFactory.getLogger(IpAddressTrie.class);
+
+  public static final IpAddressTrie EMPTY = compile(ImmutableSet.of());
+
+  /**
+   * Node index meaning no child; index 0 is never a real node.
+   */
+  private static final int NONE = 0;
+
+  private static final int IPV4_ROOT = 1;
+
+  private static final int IPV6_ROOT = 2;
+
+  /**
+   * IPv4 addresses are held by the parser as IPv4-mapped IPv6; their bits start after the 96-bit prefix.
+   */
+  private static final int IPV4_OFFSET = 96;
+
+  private static final ThreadLocal<long[]> BUFFER = ThreadLocal.withInitial(() -> new long[3]);
+
+  /**
+   * Child node indexes for bit {@code 0} and {@code 1}, by node index.
+   */
+  private final int[] zero;
+
+  private final int[] one;
+
+  /**
+   * Nodes at which a prefix ends; any address reaching such a node matches.
+   */
+  private final BitSet terminal;
+
+  /**
+   * Slots of prefixes ending at node, by node index; or {@code null} if built without slots.
+   */
+  @Nullable
+  private final BitSet[] slots;
+
+  /**
+   * Entries which are not addresses or CIDR blocks, and their slots.
+   */
+  private final Map<String, BitSet> exact;
+
+  private final int size;
+
+  private IpAddressTrie(final int[] zero,
+                        final int[] one,
+                        final BitSet terminal,
+                        @Nullable final BitSet[] slots,
+                        final Map<String, BitSet> exact,
+                        final int size)
+  {
+    this.zero = zero;
+    this.one = one;
+    this.terminal = terminal;
+    this.slots = slots;
+    this.exact = exact;
+    this.size = size;
+  }
+
+  /**
+   * Number of trie nodes; for diagnostics.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Check if candidate matches any entry.
+   */
+  public boolean match(final String candidate) {
+    checkNotNull(candidate);
+
+    long[] address = BUFFER.get();
+    int family = IpAddressParser.parse(candidate, address);
+    if (family == IpAddressParser.INVALID) {
+      return !exact.isEmpty() && exact.containsKey(candidate);
+    }
+    return family == IpAddressParser.IPV4
+        ? match(IPV4_ROOT, address[0], address[1], IPV4_OFFSET)
+        : match(IPV6_ROOT, address[0], address[1], 0);
+  }
+
+  private boolean match(final int root, final long hi, final long lo, final int offset) {
+    int node = root;
+    for (int bit = offset; bit < 128; bit++) {
+      if (terminal.get(node)) {
+        return true;
+      }
+      node = bit(hi, lo, bit) == 0 ? zero[node] : one[node];
+      if (node == NONE) {
+        return false;
+      }
+    }
+    return terminal.get(node);
+  }
+
+  /**
+   * Add slots of all entries matching candidate to given set.
+   *
+   * @throws IllegalStateException  Trie was not built with slots.
+   */
+  public void collect(final String candidate, final BitSet into) {
+    checkNotNull(candidate);
+    checkNotNull(into);
+    checkState(slots != null, "Trie built without slots");
+
+    long[] address = BUFFER.get();
+    int family = IpAddressParser.parse(candidate, address);
+    if (family == IpAddressParser.INVALID) {
+      BitSet matched = exact.get(candidate);
+      if (matched != null) {
+        into.or(matched);
+      }
+      return;
+    }
+
+    long hi = address[0];
+    long lo = address[1];
+    int node = family == IpAddressParser.IPV4 ? IPV4_ROOT : IPV6_ROOT;
+    for (int bit = family == IpAddressParser.IPV4 ? IPV4_OFFSET : 0; ; bit++) {
+      if (slots[node] != null) {
+        into.or(slots[node]);
+      }
+      if (bit == 128) {
+        return;
+      }
+      node = bit(hi, lo, bit) == 0 ? zero[node] : one[node];
+      if (node == NONE) {
+        return;
+      }
+    }
+  }
+
+  private static int bit(final long hi, final long lo, final int bit) {
+    return bit < 64 ? (int) (hi >>> (63 - bit)) & 1 : (int) (lo >>> (127 - bit)) & 1;
+  }
+
+  /**
+   * Compile entries; malformed CIDR blocks are ignored.
+   */
+  public static IpAddressTrie compile(final Iterable<String> entries) {
+    checkNotNull(entries);
+
+    Builder builder = new Builder(false);
+    for (String entry : entries) {
+      builder.add(entry, -1);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns builder of a trie associating each entry with slots.
+   */
+  public static Builder builder() {
+    return new Builder(true);
+  }
+
+  /**
+   * Builder of {@link IpAddressTrie}.
+   */
+  public static final class Builder
+  {
+    private final boolean slotted;
+
+    private int[] zero = new int[64];
+
+    private int[] one = new int[64];
+
+    private final BitSet terminal = new BitSet();
+
+    @Nullable
+    private BitSet[] slots;
+
+    private final Map<String, BitSet> exact = new HashMap<>();
+
+    private final long[] address = new long[3];
+
+    private int next = IPV6_ROOT + 1;
+
+    private Builder(final boolean slotted) {
+      this.slotted = slotted;
+      this.slots = slotted ? new BitSet[64] : null;
+    }
+
+    /**
+     * Add address, CIDR block or other string associated with given slot; malformed CIDR blocks are ignored.
+     */
+    public Builder add(final String entry, final int slot) {
+      checkNotNull(entry);
+      checkArgument(!slotted || slot >= 0, "Invalid slot: %s", slot);
+
+      int family = IpAddressParser.parseCidr(entry, address);
+      if (family == IpAddressParser.IPV4) {
+        insert(IPV4_ROOT, address[0], address[1], IPV4_OFFSET, IPV4_OFFSET + (int) address[2], slot);
+      }
+      else if (family == IpAddressParser.IPV6) {
+        insert(IPV6_ROOT, address[0], address[1], 0, (int) address[2], slot);
+      }
+      else if (entry.indexOf('/') != -1) {
+        log.debug("Ignoring malformed CIDR address: {}", entry);
+      }
+      else {
+        BitSet entrySlots = exact.computeIfAbsent(entry, key -> new BitSet());
+        if (slotted) {
+          entrySlots.set(slot);
+        }
+      }
+      return this;
+    }
+
+    private void insert(final int root, final long hi, final long lo, final int from, final int to, final int slot) {
+      int node = root;
+      for (int bit = from; bit < to; bit++) {
+        // already covered by a shorter prefix; unless longer prefixes hold other slots
+        if (!slotted && terminal.get(node)) {
+          return;
+        }
+        boolean set = bit(hi, lo, bit) == 1;
+        int child = set ? one[node] : zero[node];
+        if (child == NONE) {
+          child = allocate();
+          if (set) {
+            one[node] = child;
+          }
+          else {
+            zero[node] = child;
+          }
+        }
+        node = child;
+      }
+      terminal.set(node);
+      if (slotted) {
+        if (slots[node] == null) {
+          slots[node] = new BitSet();
+        }
+        slots[node].set(slot);
+      }
+    }
+
+    private int allocate() {
+      if (next == zero.length) {
+        zero = Arrays.copyOf(zero, next * 2);
+        one = Arrays.copyOf(one, next * 2);
+        if (slotted) {
+          slots = Arrays.copyOf(slots, next * 2);
+        }
+      }
+      return next++;
+    }
+
+    public IpAddressTrie build() {
+      return new IpAddressTrie(Arrays.copyOf(zero, next), Arrays.copyOf(one, next), terminal,
+          slotted ? Arrays.copyOf(slots, next) : null, ImmutableMap.copyOf(exact), next - 1);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("size", size)
+        .add("exact", exact.size())
+        .toString();
+  }
+}
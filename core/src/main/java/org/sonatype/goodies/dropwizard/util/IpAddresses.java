@@ -28,6 +28,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * IP address/pattern list.
  *
+ * Entries are compiled into an {@link IpAddressTrie} on each change; matching uses the latest compiled trie.
+ *
  * @since 1.2.0
  * @see IpMatcher
  */
@@ -41,6 +43,11 @@ public class IpAddresses
    */
   private final List<String> addresses = new CopyOnWriteArrayList<>();
 
+  /**
+   * Compiled {@link #addresses}; replaced on change.
+   */
+  private volatile IpAddressTrie trie = IpAddressTrie.EMPTY;
+
   public IpAddresses(final List<String> addresses) {
     setAddresses(addresses);
   }
@@ -57,7 +64,7 @@ public class IpAddresses
     return addresses.isEmpty();
   }
 
-  public void setAddresses(final List<String> addresses) {
+  public synchronized void setAddresses(final List<String> addresses) {
     checkNotNull(addresses);
 
     List<String> _addresses = addresses.stream().map(String::trim).collect(Collectors.toList());
@@ -66,37 +73,41 @@ public class IpAddresses
     // add all entries, then retain all to purge older entries to avoid tiny window where list would be empty
     this.addresses.addAll(_addresses);
     this.addresses.retainAll(_addresses);
+    compile();
   }
 
   public List<String> getAddresses() {
     return ImmutableList.copyOf(addresses);
   }
 
-  public boolean addAddress(final String address) {
+  public synchronized boolean addAddress(final String address) {
     checkNotNull(address);
     String _address = address.trim();
     if (Strings.emptyToNull(_address) != null) {
       boolean result = addresses.add(_address);
       if (result) {
         log.trace("Added IP: {}", _address);
+        compile();
       }
       return result;
     }
     return false;
   }
 
-  public boolean removeAddress(final String address) {
+  public synchronized boolean removeAddress(final String address) {
     checkNotNull(address);
     String _address = address.trim();
     boolean result = addresses.remove(_address);
     if (result) {
       log.trace("Removed IP: {}", _address);
+      compile();
     }
     return result;
   }
 
-  public void clear() {
+  public synchronized void clear() {
     addresses.clear();
+    trie = IpAddressTrie.EMPTY;
     log.trace("Cleared");
   }
 
@@ -105,9 +116,26 @@ public class IpAddresses
     return Iterators.unmodifiableIterator(addresses.iterator());
   }
 
+  /**
+   * Returns the currently compiled addresses; replaced by a new instance on each change.
+   *
+   * @since ???
+   */
+  public IpAddressTrie getTrie() {
+    return trie;
+  }
+
   public boolean match(final String address) {
     checkNotNull(address);
-    return IpMatcher.match(address, addresses);
+    return trie.match(address);
+  }
+
+  /**
+   * Compile addresses; callers must hold lock so compiled tries are replaced in order of change.
+   */
+  private void compile() {
+    trie = IpAddressTrie.compile(addresses);
+    log.trace("Compiled: {}", trie);
   }
 
   @Override
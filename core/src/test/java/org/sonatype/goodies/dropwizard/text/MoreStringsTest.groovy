@@ -45,6 +45,31 @@ class MoreStringsTest
     assert MoreStrings.upper(value) == 'FOOBAR'
   }
 
+  @Test
+  void 'containsIgnoreCase'() {
+    assert MoreStrings.containsIgnoreCase('Foo Bar Baz', 'bar')
+    assert MoreStrings.containsIgnoreCase('Foo Bar Baz', '')
+    assert !MoreStrings.containsIgnoreCase('Foo Bar Baz', 'qux')
+    assert !MoreStrings.containsIgnoreCase('Foo', 'foo bar')
+    assert MoreStrings.containsIgnoreCase('\u00C4RGER', '\u00e4rger')
+  }
+
+  @Test
+  void 'startsWithIgnoreCase'() {
+    assert MoreStrings.startsWithIgnoreCase('FooBar', 'foo')
+    assert !MoreStrings.startsWithIgnoreCase('FooBar', 'bar')
+    assert !MoreStrings.startsWithIgnoreCase('Foo', 'foobar')
+    assert MoreStrings.startsWithIgnoreCase('\u00C4rger', '\u00e4r')
+  }
+
+  @Test
+  void 'endsWithIgnoreCase'() {
+    assert MoreStrings.endsWithIgnoreCase('FooBar', 'bar')
+    assert !MoreStrings.endsWithIgnoreCase('FooBar', 'foo')
+    assert !MoreStrings.endsWithIgnoreCase('Bar', 'foobar')
+    assert MoreStrings.endsWithIgnoreCase('\u00C4RGER', 'rger')
+  }
+
   @Test
   void 'dquote string value'() {
     assert MoreStrings.dquote('foo') == '"foo"'
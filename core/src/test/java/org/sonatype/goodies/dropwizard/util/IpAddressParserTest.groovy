@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.util
+
+import org.junit.jupiter.api.Test
+
+import static org.sonatype.goodies.dropwizard.util.IpAddressParser.INVALID
+import static org.sonatype.goodies.dropwizard.util.IpAddressParser.IPV4
+import static org.sonatype.goodies.dropwizard.util.IpAddressParser.IPV6
+
+/**
+ * Tests for {@link IpAddressParser}.
+ */
+class IpAddressParserTest
+{
+  private final long[] result = new long[2]
+
+  private void assertParsed(final String address, final int family, final long hi, final long lo) {
+    assert IpAddressParser.parse(address, result) == family
+    assert result[0] == hi
+    assert result[1] == lo
+  }
+
+  @Test
+  void 'parse ipv4'() {
+    assertParsed('1.2.3.4', IPV4, 0L, 0xFFFF_0102_0304L)
+    assertParsed('255.255.255.255', IPV4, 0L, 0xFFFF_FFFF_FFFFL)
+  }
+
+  @Test
+  void 'parse ipv6'() {
+    assertParsed('1:2:3:4:5:6:7:8', IPV6, 0x0001_0002_0003_0004L, 0x0005_0006_0007_0008L)
+    assertParsed('::1', IPV6, 0L, 1L)
+    assertParsed('::', IPV6, 0L, 0L)
+    assertParsed('2001:db8::ff00:42:8329', IPV6, 0x2001_0db8_0000_0000L, 0x0000_ff00_0042_8329L)
+    assertParsed('::ffff:1.2.3.4', IPV6, 0L, 0xFFFF_0102_0304L)
+    assertParsed('[fe80::1%eth0]', IPV6, 0xfe80_0000_0000_0000L, 1L)
+  }
+
+  @Test
+  void 'parse invalid'() {
+    ['', 'x', '1.2.3', '1.2.3.4.5', '256.1.1.1', '1..2.3', '1.2.3.', ':::', '1::2::3', '1:2:3:4:5:6:7:8:9',
+     '12345::', ':1:2', '1.2.3.4:80'].each {
+      assert IpAddressParser.parse(it, result) == INVALID
+    }
+  }
+
+  @Test
+  void 'parse cidr'() {
+    def block = new long[3]
+    assert IpAddressParser.parseCidr('1.2.3.0/24', block) == IPV4
+    assert block[1] == 0xFFFF_0102_0300L
+    assert block[2] == 24
+    assert IpAddressParser.parseCidr('1.2.3.4', block) == IPV4
+    assert block[2] == 32
+    assert IpAddressParser.parseCidr('2001:db8::/32', block) == IPV6
+    assert block[0] == 0x2001_0DB8_0000_0000L
+    assert block[2] == 32
+    assert IpAddressParser.parseCidr('::1', block) == IPV6
+    assert block[2] == 128
+
+    assert IpAddressParser.parseCidr('1.2.3.0/33', block) == INVALID
+    assert IpAddressParser.parseCidr('::/129', block) == INVALID
+    assert IpAddressParser.parseCidr('1.2.3.0/', block) == INVALID
+    assert IpAddressParser.parseCidr('1.2.3.0/x', block) == INVALID
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.util
+
+import org.junit.jupiter.api.Test
+
+import static org.junit.jupiter.api.Assertions.fail
+
+/**
+ * Tests for {@link IpAddressTrie}.
+ */
+class IpAddressTrieTest
+{
+  @Test
+  void 'empty matches nothing'() {
+    assert !IpAddressTrie.EMPTY.match('1.2.3.4')
+    assert !IpAddressTrie.EMPTY.match('::1')
+    assert !IpAddressTrie.EMPTY.match('foo')
+  }
+
+  @Test
+  void 'shortest prefix wins'() {
+    def underTest = IpAddressTrie.compile([ '10.1.2.3/32', '10.0.0.0/8', '1.2.3.4/31' ])
+    assert underTest.match('10.1.2.3')
+    assert underTest.match('10.200.0.1')
+    assert !underTest.match('11.0.0.1')
+    assert underTest.match('1.2.3.5')
+    assert !underTest.match('1.2.3.6')
+  }
+
+  @Test
+  void 'many entries'() {
+    def entries = (0..<5000).collect { "10.${it.intdiv(256)}.${it % 256}.0/24".toString() }
+    def underTest = IpAddressTrie.compile(entries)
+    assert underTest.match('10.19.135.7')
+    assert !underTest.match('10.20.0.0')
+  }
+
+  @Test
+  void 'malformed entries are ignored and others match exactly'() {
+    def underTest = IpAddressTrie.compile([ '1.2.3.0/33', 'localhost' ])
+    assert !underTest.match('1.2.3.4')
+    assert underTest.match('localhost')
+    assert !underTest.match('1.2.3.0/33')
+  }
+
+  @Test
+  void 'collect slots of all containing entries'() {
+    def underTest = IpAddressTrie.builder()
+        .add('10.0.0.0/8', 0)
+        .add('10.1.2.3', 1)
+        .add('10.1.0.0/16', 2)
+        .add('::1', 3)
+        .add('foo', 4)
+        .add('10.0.0.0/8', 5)
+        .build()
+
+    def collect = { String candidate ->
+      def slots = new BitSet()
+      underTest.collect(candidate, slots)
+      return slots.stream().toArray() as List
+    }
+    assert collect('10.1.2.3') == [ 0, 1, 2, 5 ]
+    assert collect('10.1.9.9') == [ 0, 2, 5 ]
+    assert collect('10.200.0.1') == [ 0, 5 ]
+    assert collect('11.0.0.1') == []
+    assert collect('::1') == [ 3 ]
+    assert collect('foo') == [ 4 ]
+
+    assert underTest.match('10.1.2.3')
+    assert !underTest.match('11.0.0.1')
+  }
+
+  @Test
+  void 'collect requires slots'() {
+    try {
+      IpAddressTrie.EMPTY.collect('1.2.3.4', new BitSet())
+      fail()
+    }
+    catch (IllegalStateException expected) {
+      println expected
+    }
+  }
+}
@@ -67,4 +67,14 @@ class IpAddressesTest
     assert underTest.match('1.2.3.4')
     assert !underTest.match('5.6.7.8')
   }
+
+  @Test
+  void 'subnet match ipv6'() {
+    assert underTest.addAddress('2001:db8::/32')
+    assert underTest.match('2001:db8::1')
+    assert !underTest.match('::1')
+
+    assert underTest.removeAddress('2001:db8::/32')
+    assert !underTest.match('2001:db8::1')
+  }
 }
@@ -30,4 +30,23 @@ class IpMatcherTest
     assert IpMatcher.match('1.2.3.4', [ '1.2.3.0/24', '5.6.7.0/24' ])
     assert !IpMatcher.match('6.6.6.0', [ '1.2.3.0/24', '5.6.7.0/24' ])
   }
+
+  @Test
+  void 'match ipv6'() {
+    assert IpMatcher.match('::1', [ '0:0:0:0:0:0:0:1' ])
+    assert IpMatcher.match('0:0:0:0:0:0:0:1', [ '::1' ])
+    assert !IpMatcher.match('::2', [ '::1' ])
+  }
+
+  @Test
+  void 'match ipv6 subnet'() {
+    assert IpMatcher.match('2001:db8::42', [ '2001:db8::/32' ])
+    assert !IpMatcher.match('2001:db9::42', [ '2001:db8::/32' ])
+  }
+
+  @Test
+  void 'families do not match each other'() {
+    assert !IpMatcher.match('::1', [ '0.0.0.0/0' ])
+    assert !IpMatcher.match('1.2.3.4', [ '::/0' ])
+  }
 }
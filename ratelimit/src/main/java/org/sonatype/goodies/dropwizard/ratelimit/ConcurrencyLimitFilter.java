@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Concurrency;
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy;
+import org.sonatype.goodies.dropwizard.servlet.HttpFilterSupport;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Adaptive concurrency limit filter.
+ *
+ * Limits in-flight requests per {@link RequestStrategy}; the limit adapts to observed latency so excess requests are
+ * rejected before they queue for worker threads when downstream dependencies slow down.
+ *
+ * @since ???
+ * @see ConcurrencyLimiter
+ */
+@Named
+@Singleton
+public class ConcurrencyLimitFilter
+    extends HttpFilterSupport
+{
+  /**
+   * Attribute marking a request which has acquired a permit.
+   */
+  private static final String PERMIT_ATTR = ConcurrencyLimitFilter.class.getName() + ".permit";
+
+  private final RatelimitService ratelimitService;
+
+  private final Ticker ticker = Ticker.systemTicker();
+
+  /**
+   * Limiter per request-strategy; strategies are matched by identity.
+   */
+  private final Map<RequestStrategy, ConcurrencyLimiter> limiters = new IdentityHashMap<>();
+
+  private final int rejectStatus;
+
+  private final Meter rejected;
+
+  @Inject
+  public ConcurrencyLimitFilter(final RatelimitConfiguration config,
+                                final RatelimitService ratelimitService,
+                                final MetricRegistry metricRegistry)
+  {
+    checkNotNull(config);
+    this.ratelimitService = checkNotNull(ratelimitService);
+    checkNotNull(metricRegistry);
+
+    Concurrency concurrency = config.getConcurrency();
+    this.rejectStatus = concurrency.getRejectStatus();
+    this.rejected = metricRegistry.meter("service.ratelimit.concurrency.rejected");
+
+    Set<String> names = new HashSet<>();
+    for (RequestStrategy strategy : config.getRequestStrategies()) {
+      ConcurrencyLimiter limiter = new ConcurrencyLimiter(ticker, concurrency);
+      limiters.put(strategy, limiter);
+
+      // metrics are named by strategy; first strategy wins for duplicate names
+      if (!names.add(strategy.getName())) {
+        log.warn("Duplicate request-strategy name: {}; concurrency metrics only for first", strategy.getName());
+        continue;
+      }
+      String prefix = MetricRegistry.name("service.ratelimit.concurrency", strategy.getName());
+      metricRegistry.register(MetricRegistry.name(prefix, "limit"), (Gauge<Integer>) limiter::getLimit);
+      metricRegistry.register(MetricRegistry.name(prefix, "inflight"), (Gauge<Integer>) limiter::getInflight);
+      metricRegistry.register(MetricRegistry.name(prefix, "rtt.nanos"), (Gauge<Long>) limiter::getRttNanos);
+      metricRegistry.register(MetricRegistry.name(prefix, "rtt.baseline.nanos"),
+          (Gauge<Long>) limiter::getBaselineRttNanos);
+    }
+  }
+
+  /**
+   * Filter request.
+   *
+   * If whitelisted or no request-strategy matches allow; otherwise allow only if a permit can be acquired.
+   * The permit is released when the request completes, including asynchronous requests.
+   *
+   * Async dispatches only acquire a permit if the request does not hold one already; such as requests delayed by
+   * {@link RatelimitFilter}, which are suspended before reaching this filter and admitted by async dispatch.
+   */
+  @Override
+  protected void filter(final HttpServletRequest request, final HttpServletResponse response, final FilterChain chain)
+      throws IOException, ServletException
+  {
+    // permit held from an earlier dispatch of the same request
+    if (request.getAttribute(PERMIT_ATTR) != null) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    ConcurrencyLimiter limiter = null;
+    if (!ratelimitService.isWhitelisted(request.getRemoteAddr())) {
+      RequestStrategy strategy = ratelimitService.strategy(request);
+      if (strategy != null) {
+        limiter = limiters.get(strategy);
+      }
+    }
+
+    if (limiter == null) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    if (!limiter.tryAcquire()) {
+      log.trace("Rejected: {}", limiter);
+      rejected.mark();
+      response.sendError(rejectStatus);
+      return;
+    }
+
+    Permit permit = new Permit(limiter, ticker.read());
+    request.setAttribute(PERMIT_ATTR, Boolean.TRUE);
+    boolean failed = true;
+    try {
+      chain.doFilter(request, response);
+      failed = false;
+    }
+    finally {
+      if (!failed && request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(permit);
+      }
+      else {
+        permit.release(failed);
+      }
+    }
+  }
+
+  /**
+   * Acquired permit; released exactly once when request completes.
+   */
+  private class Permit
+      implements AsyncListener
+  {
+    private final ConcurrencyLimiter limiter;
+
+    private final long start;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(final ConcurrencyLimiter limiter, final long start) {
+      this.limiter = limiter;
+      this.start = start;
+    }
+
+    private void release(final boolean dropped) {
+      if (released.compareAndSet(false, true)) {
+        limiter.release(ticker.read() - start, dropped);
+      }
+    }
+
+    @Override
+    public void onComplete(final AsyncEvent event) {
+      release(false);
+    }
+
+    @Override
+    public void onTimeout(final AsyncEvent event) {
+      release(true);
+    }
+
+    @Override
+    public void onError(final AsyncEvent event) {
+      release(true);
+    }
+
+    @Override
+    public void onStartAsync(final AsyncEvent event) {
+      // listeners are not carried over when async is restarted
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Concurrency;
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.LimitAlgorithm;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Adaptive limit of in-flight requests.
+ *
+ * Requests {@link #tryAcquire() acquire} a permit while in-flight is below the limit and {@link #release release} it
+ * with the observed latency.  Samples are aggregated per window; when a window closes the limit is adjusted by the
+ * configured {@link LimitAlgorithm}.
+ *
+ * Acquire and release are lock-free; window aggregation is approximate under concurrent release.
+ *
+ * @since ???
+ */
+class ConcurrencyLimiter
+{
+  private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+  /**
+   * Weight of each window when drifting the baseline latency upwards.
+   */
+  private static final double BASELINE_SMOOTHING = 0.05;
+
+  private final Ticker ticker;
+
+  private final LimitAlgorithm algorithm;
+
+  private final int minLimit;
+
+  private final int maxLimit;
+
+  private final long windowNanos;
+
+  private final int minWindowSamples;
+
+  private final double smoothing;
+
+  private final double backoffRatio;
+
+  private final long latencyThresholdNanos;
+
+  private final AtomicInteger inflight = new AtomicInteger();
+
+  private volatile int limit;
+
+  /**
+   * Average latency of the last window.
+   */
+  private volatile long rttNanos;
+
+  /**
+   * Latency without queuing; tracks the lowest recent window average and drifts slowly upwards.
+   */
+  private volatile long baselineRttNanos;
+
+  //
+  // Current window
+  //
+
+  private final AtomicLong windowStart;
+
+  private final LongAdder windowRttNanos = new LongAdder();
+
+  private final LongAdder windowSamples = new LongAdder();
+
+  private final LongAdder windowDrops = new LongAdder();
+
+  private final AtomicInteger windowMaxInflight = new AtomicInteger();
+
+  ConcurrencyLimiter(final Ticker ticker, final Concurrency config) {
+    this.ticker = checkNotNull(ticker);
+    checkNotNull(config);
+    this.algorithm = checkNotNull(config.getAlgorithm());
+    this.minLimit = config.getMinLimit();
+    this.maxLimit = config.getMaxLimit();
+    checkArgument(minLimit > 0 && minLimit <= maxLimit, "Invalid limits: %s-%s", minLimit, maxLimit);
+    this.windowNanos = config.getWindow().toNanoseconds();
+    this.minWindowSamples = config.getMinWindowSamples();
+    this.smoothing = config.getSmoothing();
+    checkArgument(smoothing > 0 && smoothing <= 1, "Invalid smoothing: %s", smoothing);
+    this.backoffRatio = config.getBackoffRatio();
+    checkArgument(backoffRatio > 0 && backoffRatio < 1, "Invalid back-off ratio: %s", backoffRatio);
+    this.latencyThresholdNanos = config.getLatencyThreshold().toNanoseconds();
+    this.limit = clamp(config.getInitialLimit());
+    this.windowStart = new AtomicLong(ticker.read());
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getInflight() {
+    return inflight.get();
+  }
+
+  public long getRttNanos() {
+    return rttNanos;
+  }
+
+  public long getBaselineRttNanos() {
+    return baselineRttNanos;
+  }
+
+  /**
+   * Attempt to acquire a permit.
+   *
+   * @return {@code true} if acquired; caller must {@link #release}.
+   */
+  public boolean tryAcquire() {
+    while (true) {
+      int current = inflight.get();
+      if (current >= limit) {
+        return false;
+      }
+      if (inflight.compareAndSet(current, current + 1)) {
+        if (current + 1 > windowMaxInflight.get()) {
+          windowMaxInflight.accumulateAndGet(current + 1, Math::max);
+        }
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Release an acquired permit.
+   *
+   * @param rttNanos  Observed latency of the request.
+   * @param dropped   {@code true} if the request failed or timed out.
+   */
+  public void release(final long rttNanos, final boolean dropped) {
+    inflight.decrementAndGet();
+
+    windowRttNanos.add(rttNanos);
+    windowSamples.increment();
+    if (dropped) {
+      windowDrops.increment();
+    }
+
+    long now = ticker.read();
+    long start = windowStart.get();
+    if (now - start >= windowNanos && windowSamples.sum() >= minWindowSamples && windowStart.compareAndSet(start, now)) {
+      // only the thread which closed the window adjusts
+      adjust();
+    }
+  }
+
+  private void adjust() {
+    long samples = windowSamples.sumThenReset();
+    long total = windowRttNanos.sumThenReset();
+    long drops = windowDrops.sumThenReset();
+    int maxInflight = windowMaxInflight.getAndSet(inflight.get());
+    if (samples == 0) {
+      return;
+    }
+
+    long rtt = Math.max(1, total / samples);
+    this.rttNanos = rtt;
+
+    long baseline = baselineRttNanos;
+    baseline = baseline == 0 ? rtt : Math.min(rtt, (long) (baseline + (rtt - baseline) * BASELINE_SMOOTHING));
+    this.baselineRttNanos = baseline;
+
+    int current = limit;
+    // only grow if the limit was actually being used; otherwise latency says nothing about a higher limit
+    boolean utilized = maxInflight * 2 >= current;
+    double updated;
+
+    switch (algorithm) {
+      case AIMD:
+        if (drops > 0 || rtt > latencyThresholdNanos) {
+          updated = Math.floor(current * backoffRatio);
+        }
+        else if (utilized) {
+          updated = current + 1;
+        }
+        else {
+          updated = current;
+        }
+        break;
+
+      case GRADIENT: {
+        double gradient = Math.max(0.5, Math.min(1.0, baseline / (double) rtt));
+        if (drops > 0) {
+          gradient = Math.min(gradient, backoffRatio);
+        }
+        // allow some queuing so the limit can probe upwards
+        double target = current * gradient + Math.sqrt(current);
+        if (target > current && !utilized) {
+          target = current;
+        }
+        // round towards target so small limits still move
+        updated = current * (1 - smoothing) + target * smoothing;
+        updated = target > current ? Math.ceil(updated) : Math.floor(updated);
+        break;
+      }
+
+      default:
+        throw new IllegalStateException("Unsupported algorithm: " + algorithm);
+    }
+
+    int next = clamp((long) updated);
+    if (next != current) {
+      limit = next;
+      log.debug("Limit: {} -> {}; rtt: {}, baseline: {}, samples: {}, drops: {}",
+          current, next, rtt, baseline, samples, drops);
+    }
+  }
+
+  private int clamp(final long value) {
+    return (int) Math.max(minLimit, Math.min(maxLimit, value));
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("algorithm", algorithm)
+        .add("limit", limit)
+        .add("inflight", inflight.get())
+        .add("rttNanos", rttNanos)
+        .add("baselineRttNanos", baselineRttNanos)
+        .toString();
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.google.common.base.MoreObjects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fixed-size Count-Min sketch of approximate counts keyed by 64-bit hash.
+ *
+ * Estimates never under-count; collisions may over-count.  Counts are {@link #decay() halved} periodically so
+ * estimates reflect recent activity.
+ *
+ * Updates are lock-free; {@link #decay()} is not atomic with respect to concurrent updates.
+ *
+ * @since ???
+ */
+class CountMinSketch
+{
+  private final int depth;
+
+  private final int width;
+
+  private final int mask;
+
+  /**
+   * Counters; row-major, {@link #depth} rows of {@link #width}.
+   */
+  private final AtomicIntegerArray counters;
+
+  CountMinSketch(final int depth, final int width) {
+    checkArgument(depth > 0, "Invalid depth: %s", depth);
+    checkArgument(width > 0 && Integer.bitCount(width) == 1, "Width must be a power of 2: %s", width);
+    checkArgument((long) depth * width <= Integer.MAX_VALUE, "Too large: %s x %s", depth, width);
+    this.depth = depth;
+    this.width = width;
+    this.mask = width - 1;
+    this.counters = new AtomicIntegerArray(depth * width);
+  }
+
+  /**
+   * Returns counter index for row; rows are derived from two halves of the hash.
+   */
+  private int index(final long hash, final int row) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    return row * width + ((h1 + row * h2) & mask);
+  }
+
+  /**
+   * Increment count for hash.
+   *
+   * @return Estimated count, including this increment.
+   */
+  public int increment(final long hash) {
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      int index = index(hash, row);
+      int value = counters.getAndUpdate(index, v -> v == Integer.MAX_VALUE ? v : v + 1);
+      estimate = Math.min(estimate, value == Integer.MAX_VALUE ? value : value + 1);
+    }
+    return estimate;
+  }
+
+  /**
+   * Returns estimated count for hash.
+   */
+  public int estimate(final long hash) {
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters.get(index(hash, row)));
+    }
+    return estimate;
+  }
+
+  /**
+   * Halve all counts.
+   */
+  public void decay() {
+    for (int i = 0, length = counters.length(); i < length; i++) {
+      if (counters.get(i) != 0) {
+        counters.getAndUpdate(i, v -> v >>> 1);
+      }
+    }
+  }
+
+  public void clear() {
+    for (int i = 0, length = counters.length(); i < length; i++) {
+      counters.set(i, 0);
+    }
+  }
+
+  /**
+   * Mix bits of a 64-bit value; suitable to derive sketch hashes from identity values.
+   */
+  static long mix(long value) {
+    // murmur3 64-bit finalizer
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("depth", depth)
+        .add("width", width)
+        .toString();
+  }
+}
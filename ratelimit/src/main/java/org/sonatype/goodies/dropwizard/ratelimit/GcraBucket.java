@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Ticker;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Generic cell rate algorithm.
+ *
+ * Drops are admitted at an {@link #emissionIntervalNanos emission interval} derived from the drain count-per-period,
+ * with bursts of up to {@link #capacity} drops.  Rather than a size and drain period the only state is the
+ * theoretical arrival time (TAT) of the next drop; it advances by one interval per admitted drop and drops are
+ * rejected while it is more than {@link #toleranceNanos} ahead of now.
+ *
+ * Unlike {@link LeakyBucket} drops are released continuously instead of in whole periods, so admitted traffic is
+ * paced smoothly and the delay until a drop would be admitted is exact.
+ *
+ * Bucket is thread-safe and lock-free.  Sub-classes may keep the TAT elsewhere by overriding {@link #loadState()},
+ * {@link #compareAndSetState} and {@link #storeState}.
+ *
+ * @since ???
+ */
+public class GcraBucket
+    implements RatelimitBucket
+{
+  private static final Logger log = LoggerFactory.getLogger(GcraBucket.class);
+
+  private static final VarHandle TAT;
+
+  static {
+    try {
+      TAT = MethodHandles.lookup().findVarHandle(GcraBucket.class, "tat", long.class);
+    }
+    catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /**
+   * Ticker to track time.
+   */
+  private final Ticker ticker;
+
+  /**
+   * The total capacity of the bucket; the maximum burst.
+   */
+  private final long capacity;
+
+  private final long drainCountPerPeriod;
+
+  private final long drainPeriodNanos;
+
+  /**
+   * Nano-seconds between admitted drops at the sustained rate.
+   */
+  private final long emissionIntervalNanos;
+
+  /**
+   * How far the TAT may run ahead of now; {@link #capacity} intervals.
+   */
+  private final long toleranceNanos;
+
+  /**
+   * Time {@link #tat} is relative to; by default the time the bucket was created.
+   */
+  private final long origin;
+
+  /**
+   * Theoretical arrival time of the next drop, relative to {@link #origin}.
+   */
+  @SuppressWarnings("unused")
+  private volatile long tat;
+
+  public GcraBucket(final Ticker ticker,
+                    final long capacity,
+                    final long drainCountPerPeriod,
+                    final Duration drainPeriod)
+  {
+    this(ticker, capacity, drainCountPerPeriod, drainPeriod, ticker.read());
+  }
+
+  /**
+   * @param origin  Time the TAT is relative to.
+   */
+  protected GcraBucket(final Ticker ticker,
+                       final long capacity,
+                       final long drainCountPerPeriod,
+                       final Duration drainPeriod,
+                       final long origin)
+  {
+    this.ticker = checkNotNull(ticker);
+    checkArgument(capacity > 0);
+    this.capacity = capacity;
+    checkArgument(drainCountPerPeriod > 0);
+    this.drainCountPerPeriod = drainCountPerPeriod;
+    this.drainPeriodNanos = checkNotNull(drainPeriod).toNanoseconds();
+    checkArgument(drainPeriodNanos > 0);
+    this.emissionIntervalNanos = Math.max(1, drainPeriodNanos / drainCountPerPeriod);
+    checkArgument(capacity <= Long.MAX_VALUE / 2 / emissionIntervalNanos, "Capacity too large: %s", capacity);
+    this.toleranceNanos = capacity * emissionIntervalNanos;
+    this.origin = origin;
+  }
+
+  //
+  // State
+  //
+
+  protected long loadState() {
+    return tat;
+  }
+
+  protected boolean compareAndSetState(final long expected, final long updated) {
+    return TAT.compareAndSet(this, expected, updated);
+  }
+
+  protected void storeState(final long updated) {
+    TAT.setVolatile(this, updated);
+  }
+
+  @Override
+  public long getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public long getDrainCountPerPeriod() {
+    return drainCountPerPeriod;
+  }
+
+  @Override
+  public long getDrainPeriodNanos() {
+    return drainPeriodNanos;
+  }
+
+  private long now() {
+    return ticker.read() - origin;
+  }
+
+  @Override
+  public long getSize() {
+    long backlog = loadState() - now();
+    if (backlog <= 0) {
+      return 0;
+    }
+    // drops still pending release; rounded up so a partially released drop still counts
+    return (backlog + emissionIntervalNanos - 1) / emissionIntervalNanos;
+  }
+
+  @Override
+  public void restore(final long size, final long elapsedNanos) {
+    checkArgument(size >= 0 && size <= capacity);
+    checkArgument(elapsedNanos >= 0);
+    long backlog = size * emissionIntervalNanos - elapsedNanos;
+    storeState(backlog > 0 ? now() + backlog : 0L);
+  }
+
+  @Override
+  public boolean fill(final long count) {
+    checkArgument(count > 0);
+    if (count > capacity) {
+      return true;
+    }
+    long now = now();
+    long increment = count * emissionIntervalNanos;
+
+    while (true) {
+      long current = loadState();
+      long updated = Math.max(current, now) + increment;
+      if (updated - now > toleranceNanos) {
+        return true;
+      }
+      if (compareAndSetState(current, updated)) {
+        log.trace("Fill: {}; tat: {}", count, updated);
+        return false;
+      }
+    }
+  }
+
+  @Override
+  public long add(final long count) {
+    checkArgument(count > 0);
+    long now = now();
+
+    while (true) {
+      long current = loadState();
+      long base = Math.max(current, now);
+      long room = Math.max(0, (now + toleranceNanos - base) / emissionIntervalNanos);
+      long added = Math.min(count, room);
+      if (added == 0) {
+        return 0;
+      }
+      if (compareAndSetState(current, base + added * emissionIntervalNanos)) {
+        return added;
+      }
+    }
+  }
+
+  @Override
+  public long delayNanos(final long count) {
+    checkArgument(count > 0);
+    if (count > capacity) {
+      return Long.MAX_VALUE;
+    }
+    long now = now();
+    long updated = Math.max(loadState(), now) + count * emissionIntervalNanos;
+    return Math.max(0, updated - now - toleranceNanos);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("capacity", capacity)
+        .add("emissionIntervalNanos", emissionIntervalNanos)
+        .add("size", getSize())
+        .add("tat", origin + loadState())
+        .toString();
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.util.List;
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitTracker.Identifier;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Consumption deltas observed by a node since its previous message.
+ *
+ * @since ???
+ * @see GossipTransport
+ */
+public class GossipMessage
+{
+  /**
+   * Drops admitted for an identity and request-strategy.
+   */
+  public static class Delta
+  {
+    private final Identifier id;
+
+    private final String strategy;
+
+    private final long count;
+
+    public Delta(final Identifier id, final String strategy, final long count) {
+      this.id = checkNotNull(id);
+      this.strategy = checkNotNull(strategy);
+      this.count = count;
+    }
+
+    public Identifier getId() {
+      return id;
+    }
+
+    /**
+     * Request-strategy name.
+     */
+    public String getStrategy() {
+      return strategy;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("id", id)
+          .add("strategy", strategy)
+          .add("count", count)
+          .toString();
+    }
+  }
+
+  private final String node;
+
+  private final long timestamp;
+
+  private final List<Delta> deltas;
+
+  public GossipMessage(final String node, final long timestamp, final List<Delta> deltas) {
+    this.node = checkNotNull(node);
+    this.timestamp = timestamp;
+    this.deltas = ImmutableList.copyOf(deltas);
+  }
+
+  /**
+   * Node which sent the message.
+   */
+  public String getNode() {
+    return node;
+  }
+
+  /**
+   * Time message was sent in epoch millis.
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public List<Delta> getDeltas() {
+    return deltas;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("node", node)
+        .add("timestamp", timestamp)
+        .add("deltas", deltas.size())
+        .toString();
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport exchanging {@link GossipMessage consumption deltas} between nodes.
+ *
+ * Messages are delivered best-effort; implementations must not block callers of {@link #send} for long.
+ *
+ * @since ???
+ * @see InMemoryGossipTransport
+ */
+public interface GossipTransport
+{
+  /**
+   * Start receiving messages from peers.
+   *
+   * @param node      Name of this node; messages from this node should not be delivered back.
+   * @param receiver  Receives messages from peers; thread-safe.
+   */
+  void start(String node, Consumer<GossipMessage> receiver) throws Exception;
+
+  /**
+   * Send message to all peers.
+   */
+  void send(GossipMessage message) throws Exception;
+
+  void stop() throws Exception;
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.util.function.Predicate;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Ticker;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hashed timing-wheel to expire idle {@link RatelimitTracker trackers}.
+ *
+ * The idle-period is divided into {@link #TICKS_PER_PERIOD} ticks and the wheel has twice as many slots, so any
+ * deadline within one idle-period lands in a distinct slot without tracking rounds.  Each slot is an intrusive list
+ * linked through the trackers themselves; scheduling is a constant-time append, and {@link #unschedule unscheduling}
+ * a tracker evicted for size is a constant-time unlink, so the wheel never retains trackers no longer tracked.  Each
+ * {@link #run() sweep} only visits trackers whose deadline falls in the elapsed ticks.  Trackers which were touched
+ * since scheduled are re-queued at their new deadline instead of expired.
+ *
+ * Trackers expire between one idle-period and one idle-period plus one tick after last touched.
+ *
+ * Sweeping is expected to be driven by a single thread.  Slots are guarded by {@code this}; the remover is called
+ * without holding it, as removal from tracker stores may unschedule trackers while holding their own locks.
+ *
+ * @since ???
+ */
+class IdleTrackerSweeper
+    implements Runnable
+{
+  private static final Logger log = LoggerFactory.getLogger(IdleTrackerSweeper.class);
+
+  static final int TICKS_PER_PERIOD = 16;
+
+  private static final int SLOTS = TICKS_PER_PERIOD * 2;
+
+  private static final int MASK = SLOTS - 1;
+
+  private final Ticker ticker;
+
+  private final long idlePeriodNanos;
+
+  private final long tickNanos;
+
+  /**
+   * Removes expired tracker; returns {@code true} if tracker was removed.
+   */
+  private final Predicate<RatelimitTracker> remover;
+
+  private final long origin;
+
+  /**
+   * First tracker of each slot; guarded by {@code this}.
+   */
+  private final RatelimitTracker[] heads = new RatelimitTracker[SLOTS];
+
+  /**
+   * Last tracker of each slot; guarded by {@code this}.
+   */
+  private final RatelimitTracker[] tails = new RatelimitTracker[SLOTS];
+
+  /**
+   * Number of scheduled trackers; guarded by {@code this}.
+   */
+  private int size;
+
+  /**
+   * Next tick to sweep; only accessed by sweeping thread.
+   */
+  private long nextTick;
+
+  private volatile long lastSweepNanos;
+
+  private volatile int lastEvicted;
+
+  IdleTrackerSweeper(final Ticker ticker, final Duration idlePeriod, final Predicate<RatelimitTracker> remover) {
+    this.ticker = checkNotNull(ticker);
+    this.idlePeriodNanos = checkNotNull(idlePeriod).toNanoseconds();
+    checkArgument(idlePeriodNanos > 0);
+    this.tickNanos = Math.max(1, idlePeriodNanos / TICKS_PER_PERIOD);
+    this.remover = checkNotNull(remover);
+    this.origin = ticker.read();
+  }
+
+  /**
+   * Duration between sweeps.
+   */
+  long getTickNanos() {
+    return tickNanos;
+  }
+
+  /**
+   * Duration of the last sweep in nano-seconds.
+   */
+  long getLastSweepNanos() {
+    return lastSweepNanos;
+  }
+
+  /**
+   * Number of trackers evicted by the last sweep.
+   */
+  int getLastEvicted() {
+    return lastEvicted;
+  }
+
+  /**
+   * Number of scheduled trackers.
+   */
+  synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Schedule newly created tracker to be checked for expiration after idle-period.
+   */
+  void schedule(final RatelimitTracker tracker) {
+    checkNotNull(tracker);
+    enqueue(tracker, ticker.read() + idlePeriodNanos);
+  }
+
+  /**
+   * Stop checking tracker for expiration; for trackers removed from their store other than by this sweeper.
+   *
+   * Tracker will not be scheduled again.
+   */
+  synchronized void unschedule(final RatelimitTracker tracker) {
+    checkNotNull(tracker);
+    tracker.sweepRetired = true;
+    if (tracker.sweepSlot != -1) {
+      unlink(tracker);
+    }
+  }
+
+  private synchronized void enqueue(final RatelimitTracker tracker, final long deadline) {
+    // evicted while sweeping; already unscheduled
+    if (tracker.sweepRetired) {
+      return;
+    }
+
+    long elapsed = Math.max(0, deadline - origin);
+    long tick = (elapsed + tickNanos - 1) / tickNanos;
+    int slot = (int) (tick & MASK);
+
+    RatelimitTracker tail = tails[slot];
+    tracker.sweepPrev = tail;
+    tracker.sweepNext = null;
+    if (tail == null) {
+      heads[slot] = tracker;
+    }
+    else {
+      tail.sweepNext = tracker;
+    }
+    tails[slot] = tracker;
+    tracker.sweepSlot = slot;
+    size++;
+  }
+
+  private void unlink(final RatelimitTracker tracker) {
+    int slot = tracker.sweepSlot;
+    RatelimitTracker prev = tracker.sweepPrev;
+    RatelimitTracker next = tracker.sweepNext;
+    if (prev == null) {
+      heads[slot] = next;
+    }
+    else {
+      prev.sweepNext = next;
+    }
+    if (next == null) {
+      tails[slot] = prev;
+    }
+    else {
+      next.sweepPrev = prev;
+    }
+    tracker.sweepPrev = null;
+    tracker.sweepNext = null;
+    tracker.sweepSlot = -1;
+    size--;
+  }
+
+  /**
+   * Detach all trackers of slot; returns the first, linked to the rest through {@link RatelimitTracker#sweepNext}.
+   */
+  private synchronized RatelimitTracker detach(final int slot) {
+    RatelimitTracker head = heads[slot];
+    heads[slot] = null;
+    tails[slot] = null;
+    for (RatelimitTracker tracker = head; tracker != null; tracker = tracker.sweepNext) {
+      tracker.sweepSlot = -1;
+      size--;
+    }
+    return head;
+  }
+
+  /**
+   * Discard all scheduled trackers.
+   */
+  synchronized void clear() {
+    for (int slot = 0; slot < SLOTS; slot++) {
+      RatelimitTracker tracker = heads[slot];
+      while (tracker != null) {
+        RatelimitTracker next = tracker.sweepNext;
+        tracker.sweepPrev = null;
+        tracker.sweepNext = null;
+        tracker.sweepSlot = -1;
+        tracker = next;
+      }
+      heads[slot] = null;
+      tails[slot] = null;
+    }
+    size = 0;
+  }
+
+  /**
+   * Sweep all ticks elapsed since last sweep.
+   */
+  @Override
+  public void run() {
+    try {
+      sweep();
+    }
+    catch (Exception e) {
+      log.warn("Sweep failed", e);
+    }
+  }
+
+  private void sweep() {
+    long start = ticker.read();
+    long currentTick = Math.max(0, start - origin) / tickNanos;
+
+    // when lagging by more than a full rotation every slot is due; visit each once
+    if (currentTick - nextTick >= SLOTS) {
+      nextTick = currentTick - SLOTS + 1;
+    }
+
+    int evicted = 0;
+    while (nextTick <= currentTick) {
+      evicted += sweep((int) (nextTick & MASK), start);
+      nextTick++;
+    }
+
+    long duration = ticker.read() - start;
+    lastSweepNanos = duration;
+    lastEvicted = evicted;
+    if (evicted != 0) {
+      log.debug("Evicted {} idle trackers in {} ns", evicted, duration);
+    }
+  }
+
+  private int sweep(final int slot, final long now) {
+    int evicted = 0;
+
+    // detached trackers are only linked again when re-queued, which is always to a later tick
+    RatelimitTracker next = detach(slot);
+    while (next != null) {
+      RatelimitTracker tracker = next;
+      next = tracker.sweepNext;
+      tracker.sweepNext = null;
+
+      long touched = tracker.getTimestamp();
+      long delta = now - touched;
+
+      // tracker is expired, never touched (ie. 0) or delta from last touch and now exceeds idle-period
+      if (touched == 0 || delta >= idlePeriodNanos) {
+        if (remover.test(tracker)) {
+          evicted++;
+          log.trace("Removed idle ({} seconds) tracker: {}", Duration.nanoseconds(delta).toSeconds(), tracker);
+        }
+      }
+      else {
+        enqueue(tracker, touched + idlePeriodNanos);
+      }
+    }
+
+    return evicted;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("idlePeriodNanos", idlePeriodNanos)
+        .add("tickNanos", tickNanos)
+        .toString();
+  }
+}
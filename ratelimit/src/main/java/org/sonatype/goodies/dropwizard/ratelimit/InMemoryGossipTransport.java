@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * In-memory {@link GossipTransport}; delivers messages synchronously to all other transports of the same {@link Hub}.
+ *
+ * Intended for testing.
+ *
+ * @since ???
+ */
+public class InMemoryGossipTransport
+    implements GossipTransport
+{
+  /**
+   * Connects in-memory transports.
+   */
+  public static class Hub
+  {
+    private final Map<String, Consumer<GossipMessage>> receivers = new ConcurrentHashMap<>();
+  }
+
+  private final Hub hub;
+
+  private volatile String node;
+
+  public InMemoryGossipTransport(final Hub hub) {
+    this.hub = checkNotNull(hub);
+  }
+
+  @Override
+  public void start(final String node, final Consumer<GossipMessage> receiver) {
+    checkNotNull(node);
+    checkNotNull(receiver);
+    checkState(hub.receivers.putIfAbsent(node, receiver) == null, "Duplicate node: %s", node);
+    this.node = node;
+  }
+
+  @Override
+  public void send(final GossipMessage message) {
+    checkNotNull(message);
+    for (Entry<String, Consumer<GossipMessage>> entry : hub.receivers.entrySet()) {
+      if (!entry.getKey().equals(message.getNode())) {
+        entry.getValue().accept(message);
+      }
+    }
+  }
+
+  @Override
+  public void stop() {
+    String current = node;
+    if (current != null) {
+      hub.receivers.remove(current);
+      node = null;
+    }
+  }
+}
@@ -12,6 +12,9 @@
  */
 package org.sonatype.goodies.dropwizard.ratelimit;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Ticker;
 import io.dropwizard.util.Duration;
@@ -33,12 +36,29 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * If the bucket is ever filled with more drops than {@link #capacity} then the bucket is considered overflown.
  * Overflown drops are all discarded, even if a portion of drops could fit before overflowing with {@link #fill(long)}.
  *
+ * Bucket is thread-safe and lock-free.  The current size and the index of the last drained period (relative to the
+ * time the bucket was created) are packed into a single {@code long} which is updated with compare-and-set.
+ * Sub-classes may keep the state elsewhere by overriding {@link #loadState()}, {@link #compareAndSetState} and
+ * {@link #storeState}.
+ *
  * @since 1.2.0
  */
 public class LeakyBucket
+    implements RatelimitBucket
 {
   private static final Logger log = LoggerFactory.getLogger(LeakyBucket.class);
 
+  private static final VarHandle STATE;
+
+  static {
+    try {
+      STATE = MethodHandles.lookup().findVarHandle(LeakyBucket.class, "state", long.class);
+    }
+    catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
   /**
    * Ticker to track time.
    */
@@ -62,24 +82,41 @@ public class LeakyBucket
   private final long drainPeriodNanos;
 
   /**
-   * The current number of drops in the bucket.
+   * Time periods are counted from; by default the time the bucket was created.
    */
-  private long size = 0;
+  private final long origin;
 
   /**
-   * The time the bucket was last drained.
+   * Number of low-order bits of {@link #state} holding the size.
    */
-  private long lastDrainTime;
+  private final int sizeBits;
+
+  private final long sizeMask;
+
+  private final long periodMask;
 
   /**
-   * The next time the bucket may be drained.
+   * Packed bucket state; high-order bits hold the index of the last drained period, low-order bits hold the size.
    */
-  private long nextDrainTime;
+  @SuppressWarnings("unused")
+  private volatile long state;
 
   public LeakyBucket(final Ticker ticker,
                      final long capacity,
                      final long drainCountPerPeriod,
                      final Duration drainPeriod)
+  {
+    this(ticker, capacity, drainCountPerPeriod, drainPeriod, ticker.read());
+  }
+
+  /**
+   * @param origin  Time periods are counted from.
+   */
+  protected LeakyBucket(final Ticker ticker,
+                        final long capacity,
+                        final long drainCountPerPeriod,
+                        final Duration drainPeriod,
+                        final long origin)
   {
     this.ticker = checkNotNull(ticker);
     checkArgument(capacity > 0);
@@ -87,25 +124,106 @@ public class LeakyBucket
     checkArgument(drainCountPerPeriod > 0);
     this.drainCountPerPeriod = drainCountPerPeriod;
     this.drainPeriodNanos = checkNotNull(drainPeriod).toNanoseconds();
+    checkArgument(drainPeriodNanos > 0);
 
-    // set initial last+next drain-times
-    long now = ticker.read();
-    lastDrainTime = now;
-    nextDrainTime = now + drainPeriodNanos;
+    // size needs enough bits to hold capacity; the remaining bits are used for the period index
+    this.sizeBits = Long.SIZE - Long.numberOfLeadingZeros(capacity);
+    checkArgument(sizeBits <= Integer.SIZE, "Capacity too large: %s", capacity);
+    this.sizeMask = (1L << sizeBits) - 1;
+    this.periodMask = -1L >>> sizeBits;
+
+    // initial state is empty, last drained at period 0
+    this.origin = origin;
   }
 
-  /**
-   * Returns bucket capacity.
-   */
+  //
+  // State
+  //
+
+  protected long loadState() {
+    return state;
+  }
+
+  protected boolean compareAndSetState(final long expected, final long updated) {
+    return STATE.compareAndSet(this, expected, updated);
+  }
+
+  protected void storeState(final long updated) {
+    STATE.setVolatile(this, updated);
+  }
+
+  @Override
   public long getCapacity() {
     return capacity;
   }
 
+  @Override
+  public long getDrainCountPerPeriod() {
+    return drainCountPerPeriod;
+  }
+
+  @Override
+  public long getDrainPeriodNanos() {
+    return drainPeriodNanos;
+  }
+
+  @Override
+  public long getSize() {
+    return size(loadState());
+  }
+
+  @Override
+  public void restore(final long size, final long elapsedNanos) {
+    checkArgument(size >= 0 && size <= capacity);
+    checkArgument(elapsedNanos >= 0);
+    long periods = elapsedNanos / drainPeriodNanos;
+    long drained = periods > size / drainCountPerPeriod ? size : periods * drainCountPerPeriod;
+    storeState(state(currentPeriod(ticker.read()), size - drained));
+  }
+
+  private long size(final long state) {
+    return state & sizeMask;
+  }
+
+  private long period(final long state) {
+    return state >>> sizeBits;
+  }
+
+  private long state(final long period, final long size) {
+    return (period << sizeBits) | size;
+  }
+
   /**
-   * Get current size (number of drops) in bucket.
+   * Returns the index of the period containing given time.
+   *
+   * Index is truncated to the bits available in the packed state; periods are always compared modulo that width, so
+   * buckets idle for more than half that many periods may not drain.
    */
-  public long getSize() {
-    return size;
+  private long currentPeriod(final long now) {
+    long elapsed = Math.max(0, now - origin);
+    return (elapsed / drainPeriodNanos) & periodMask;
+  }
+
+  /**
+   * Returns state drained up to given time; or the same state if no periods have been missed.
+   *
+   * Time read before another thread (or process, sharing state) recorded a later period is behind the recorded period;
+   * differences in the upper half of the period range are such negative differences, so count as no missed periods and
+   * the recorded period is kept.
+   */
+  private long drained(final long state, final long now) {
+    long current = currentPeriod(now);
+    long missedPeriods = (current - period(state)) & periodMask;
+
+    // skip if not ready to drain yet, or if given time is behind the recorded period
+    if (missedPeriods == 0 || missedPeriods > periodMask >>> 1) {
+      return state;
+    }
+
+    // calculate how many to drain (adjusted for max available to drain); avoid overflow on long idle
+    long size = size(state);
+    long drainCount = missedPeriods > size / drainCountPerPeriod ? size : missedPeriods * drainCountPerPeriod;
+    return state(current, size - drainCount);
   }
 
   /**
@@ -116,26 +234,18 @@ public class LeakyBucket
   public long drain() {
     long now = ticker.read();
 
-    // skip if not ready to drain yet
-    if (now < nextDrainTime) {
-      return 0;
+    while (true) {
+      long current = loadState();
+      long updated = drained(current, now);
+      if (updated == current) {
+        return 0;
+      }
+      if (compareAndSetState(current, updated)) {
+        long drainCount = size(current) - size(updated);
+        log.trace("Drained: {}; new-size: {}", drainCount, size(updated));
+        return drainCount;
+      }
     }
-
-    // calculate how many periods have been missed
-    long missedPeriods = Math.max(0, (now - lastDrainTime) / drainPeriodNanos);
-
-    // adjust last drain-time; calculate the target time based on now many periods we missed since last drained
-    lastDrainTime += missedPeriods * drainPeriodNanos;
-
-    // adjust next drain-time
-    nextDrainTime = lastDrainTime + drainPeriodNanos;
-
-    // calculate how many to drain (adjusted for max available to drain)
-    long drainCount = Math.min(size, missedPeriods * drainCountPerPeriod);
-    size -= drainCount;
-    log.trace("Drained: {}; new-size: {}", drainCount, size);
-
-    return drainCount;
   }
 
   /**
@@ -147,42 +257,86 @@ public class LeakyBucket
    * @return        {@code true} if adding count drops to bucket would overflow.
    *                All (including non-overflowing) drops are discarded.
    */
+  @Override
   public boolean fill(final long count) {
     checkArgument(count > 0);
+    long now = ticker.read();
+
+    while (true) {
+      long current = loadState();
+
+      // first attempt to drain
+      long drained = drained(current, now);
 
-    // first attempt to drain
-    drain();
+      // calculate the target updated size with count drops
+      long updated = size(drained) + count;
+      if (updated > capacity) {
+        // bucket would overflow if count drops were added; still record any drainage
+        if (drained == current || compareAndSetState(current, drained)) {
+          return true;
+        }
+        continue;
+      }
 
-    // calculate the target updated size with count drops
-    long updated = size + count;
-    if (updated > capacity) {
-      // bucket would overflow if count drops were added
-      return true;
+      if (compareAndSetState(current, state(period(drained), updated))) {
+        log.trace("Fill: {}", updated);
+        return false;
+      }
     }
+  }
+
+  @Override
+  public long add(final long count) {
+    checkArgument(count > 0);
+    long now = ticker.read();
 
-    log.trace("Fill: {}", updated);
-    size = updated;
-    return false;
+    while (true) {
+      long current = loadState();
+      long drained = drained(current, now);
+      long size = size(drained);
+      long added = Math.min(count, capacity - size);
+      if (added == 0 && drained == current) {
+        return 0;
+      }
+      if (compareAndSetState(current, state(period(drained), size + added))) {
+        return added;
+      }
+    }
   }
 
   /**
-   * Attempt to fill bucket by one.
-   *
-   * @see #fill(long)
+   * Drops only drain at period boundaries; so the delay is until the start of the first period by which enough drops
+   * have drained.
    */
-  public boolean fill() {
-    return fill(1);
+  @Override
+  public long delayNanos(final long count) {
+    checkArgument(count > 0);
+    if (count > capacity) {
+      return Long.MAX_VALUE;
+    }
+    long now = ticker.read();
+    long excess = size(drained(loadState(), now)) + count - capacity;
+    if (excess <= 0) {
+      return 0;
+    }
+
+    long periods = (excess + drainCountPerPeriod - 1) / drainCountPerPeriod;
+    long elapsed = Math.max(0, now - origin);
+    long periodStart = origin + elapsed / drainPeriodNanos * drainPeriodNanos;
+    return periodStart + periods * drainPeriodNanos - now;
   }
 
   @Override
   public String toString() {
+    long current = loadState();
+    long lastDrainTime = origin + period(current) * drainPeriodNanos;
     return MoreObjects.toStringHelper(this)
         .add("capacity", capacity)
         .add("drainCountPerPeriod", drainCountPerPeriod)
         .add("drainPeriodNanos", drainPeriodNanos)
-        .add("size", size)
+        .add("size", size(current))
         .add("lastDrainTime", lastDrainTime)
-        .add("nextDrainTime", nextDrainTime)
+        .add("nextDrainTime", lastDrainTime + drainPeriodNanos)
         .toString();
   }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.MoreObjects;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link RatelimitBucket} which records fills to the metrics of its strategy and bucket role.
+ *
+ * @since ???
+ */
+final class MeteredBucket
+    implements RatelimitBucket
+{
+  /**
+   * Metrics of one strategy and bucket role; shared by all buckets of the same strategy and role.
+   */
+  static final class Metrics
+  {
+    /**
+     * One in this many fills is sampled into the fill-ratio histogram; histogram updates are far more costly than
+     * marking a meter.
+     */
+    private static final int FILL_SAMPLE = 16;
+
+    private final Meter accepted;
+
+    private final Meter rejected;
+
+    private final Histogram fillRatio;
+
+    Metrics(final MetricRegistry metricRegistry, final String strategy, final String role) {
+      String prefix = MetricRegistry.name("service.ratelimit.strategy", strategy, role);
+      this.accepted = metricRegistry.meter(MetricRegistry.name(prefix, "accepted"));
+      this.rejected = metricRegistry.meter(MetricRegistry.name(prefix, "rejected"));
+      this.fillRatio = metricRegistry.histogram(MetricRegistry.name(prefix, "fill-ratio"));
+    }
+
+    void reject() {
+      rejected.mark();
+    }
+
+    /**
+     * Record fill; the fill-ratio is recorded as a percentage of capacity.
+     */
+    void update(final RatelimitBucket bucket, final boolean overflown) {
+      if (overflown) {
+        rejected.mark();
+      }
+      else {
+        accepted.mark();
+      }
+      if (ThreadLocalRandom.current().nextInt(FILL_SAMPLE) == 0) {
+        long capacity = bucket.getCapacity();
+        fillRatio.update(capacity == 0 ? 100 : bucket.getSize() * 100 / capacity);
+      }
+    }
+  }
+
+  private final RatelimitBucket delegate;
+
+  private final Metrics metrics;
+
+  MeteredBucket(final RatelimitBucket delegate, final Metrics metrics) {
+    this.delegate = checkNotNull(delegate);
+    this.metrics = checkNotNull(metrics);
+  }
+
+  RatelimitBucket getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public long getCapacity() {
+    return delegate.getCapacity();
+  }
+
+  @Override
+  public long getDrainCountPerPeriod() {
+    return delegate.getDrainCountPerPeriod();
+  }
+
+  @Override
+  public long getDrainPeriodNanos() {
+    return delegate.getDrainPeriodNanos();
+  }
+
+  @Override
+  public long getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void restore(final long size, final long elapsedNanos) {
+    delegate.restore(size, elapsedNanos);
+  }
+
+  @Override
+  public boolean fill(final long count) {
+    boolean overflown = delegate.fill(count);
+    metrics.update(delegate, overflown);
+    return overflown;
+  }
+
+  /**
+   * Fill; an overflow is not recorded until {@link #reject() rejected}, as the request may yet be admitted.
+   */
+  boolean fillDelayable(final long count) {
+    boolean overflown = delegate.fill(count);
+    if (!overflown) {
+      metrics.update(delegate, false);
+    }
+    return overflown;
+  }
+
+  /**
+   * Record rejection of request after {@link #fillDelayable} overflowed.
+   */
+  void reject() {
+    metrics.reject();
+  }
+
+  @Override
+  public long add(final long count) {
+    return delegate.add(count);
+  }
+
+  @Override
+  public long delayNanos(final long count) {
+    return delegate.delayNanos(count);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("delegate", delegate)
+        .toString();
+  }
+}
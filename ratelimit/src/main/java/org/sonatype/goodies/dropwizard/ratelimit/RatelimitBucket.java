@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+/**
+ * Rate-limit bucket; tracks drops (units of work or requests or whatever) for one identity and request-strategy.
+ *
+ * Implementations must be thread-safe.
+ *
+ * @since ???
+ * @see LeakyBucket
+ * @see GcraBucket
+ */
+public interface RatelimitBucket
+{
+  /**
+   * Returns bucket capacity.
+   */
+  long getCapacity();
+
+  /**
+   * Returns how many drops drain per-period.
+   */
+  long getDrainCountPerPeriod();
+
+  /**
+   * Returns the drain period in nano-seconds.
+   */
+  long getDrainPeriodNanos();
+
+  /**
+   * Get current size (number of drops) in bucket.
+   */
+  long getSize();
+
+  /**
+   * Restore size of a new bucket, as observed some time ago; the size is drained by the elapsed time.
+   *
+   * @param size          Size observed; up to capacity.
+   * @param elapsedNanos  Nano-seconds since size was observed.
+   */
+  void restore(long size, long elapsedNanos);
+
+  /**
+   * Attempt to fill bucket.
+   *
+   * @param count   Number of drops to add to bucket.
+   * @return        {@code true} if adding count drops to bucket would overflow.
+   *                All (including non-overflowing) drops are discarded.
+   */
+  boolean fill(long count);
+
+  /**
+   * Attempt to fill bucket by one.
+   *
+   * @see #fill(long)
+   */
+  default boolean fill() {
+    return fill(1);
+  }
+
+  /**
+   * Add drops without overflowing; drops which do not fit are discarded.
+   *
+   * Used to account for drops admitted elsewhere.
+   *
+   * @return Drops added.
+   */
+  long add(long count);
+
+  /**
+   * Returns nano-seconds until count drops could be added without overflowing; {@code 0} if they fit now, or
+   * {@link Long#MAX_VALUE} if they never fit.
+   */
+  long delayNanos(long count);
+}
@@ -12,13 +12,19 @@
  */
 package org.sonatype.goodies.dropwizard.ratelimit;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
 import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
@@ -87,11 +93,31 @@ public class RatelimitConfiguration
     }
   }
 
+  /**
+   * Bucket algorithm.
+   */
+  public enum Algorithm
+  {
+    /**
+     * {@link LeakyBucket}; drains in whole periods.
+     */
+    LEAKY,
+
+    /**
+     * {@link GcraBucket}; releases drops continuously at the drain rate.
+     */
+    GCRA
+  }
+
   /**
    * Bucket configuration.
    */
   public static class Bucket
   {
+    @NotNull
+    @JsonProperty
+    private Algorithm algorithm = Algorithm.LEAKY;
+
     @Min(1)
     @JsonProperty
     private int capacity;
@@ -100,6 +126,14 @@ public class RatelimitConfiguration
     @JsonProperty
     private DrainRate drainRate;
 
+    public Algorithm getAlgorithm() {
+      return algorithm;
+    }
+
+    public void setAlgorithm(@NotNull final Algorithm algorithm) {
+      this.algorithm = checkNotNull(algorithm);
+    }
+
     public int getCapacity() {
       return capacity;
     }
@@ -119,6 +153,7 @@ public class RatelimitConfiguration
     @Override
     public String toString() {
       return MoreObjects.toStringHelper(this)
+          .add("algorithm", algorithm)
           .add("capacity", capacity)
           .add("drainRate", drainRate)
           .toString();
@@ -135,11 +170,34 @@ public class RatelimitConfiguration
    */
   public static final String AUTHENTICATED = "authenticated";
 
+  /**
+   * How requests are handled when a bucket overflows.
+   */
+  public enum Mode
+  {
+    /**
+     * Reject immediately.
+     */
+    REJECT,
+
+    /**
+     * Suspend until the bucket has room, up to {@link RequestStrategy#getMaxDelay()}; then reject.
+     */
+    DELAY
+  }
+
   /**
    * Maps request pattern to map of role-based bucket configurations.
    */
   public static class RequestStrategy
   {
+    /**
+     * Optional name; used for metrics.  Defaults to the pattern.
+     */
+    @Nullable
+    @JsonProperty
+    private String name;
+
     @NotNull
     @JsonProperty
     private Pattern pattern;
@@ -149,6 +207,25 @@ public class RatelimitConfiguration
     @JsonProperty
     private LinkedHashMap<String,Bucket> buckets = new LinkedHashMap<>();
 
+    @NotNull
+    @JsonProperty
+    private Mode mode = Mode.REJECT;
+
+    /**
+     * Maximum time a request is suspended in {@link Mode#DELAY}.
+     */
+    @NotNull
+    @JsonProperty
+    private Duration maxDelay = Duration.seconds(5);
+
+    public String getName() {
+      return name != null ? name : pattern.pattern();
+    }
+
+    public void setName(@Nullable final String name) {
+      this.name = name;
+    }
+
     public Pattern getPattern() {
       return pattern;
     }
@@ -166,11 +243,30 @@ public class RatelimitConfiguration
       this.buckets = checkNotNull(buckets);
     }
 
+    public Mode getMode() {
+      return mode;
+    }
+
+    public void setMode(@NotNull final Mode mode) {
+      this.mode = checkNotNull(mode);
+    }
+
+    public Duration getMaxDelay() {
+      return maxDelay;
+    }
+
+    public void setMaxDelay(@NotNull final Duration maxDelay) {
+      this.maxDelay = checkNotNull(maxDelay);
+    }
+
     @Override
     public String toString() {
       return MoreObjects.toStringHelper(this)
+          .add("name", name)
           .add("pattern", pattern)
           .add("buckets", buckets)
+          .add("mode", mode)
+          .add("maxDelay", maxDelay)
           .toString();
     }
   }
@@ -188,6 +284,21 @@ public class RatelimitConfiguration
     this.requestStrategies = checkNotNull(requestStrategies);
   }
 
+  /**
+   * Maximum number of recent request path to strategy results to cache; {@code 0} to disable.
+   */
+  @Min(0)
+  @JsonProperty
+  private int strategyCacheSize = 1024;
+
+  public int getStrategyCacheSize() {
+    return strategyCacheSize;
+  }
+
+  public void setStrategyCacheSize(final int strategyCacheSize) {
+    this.strategyCacheSize = strategyCacheSize;
+  }
+
   /**
    * Period of no activity when tracker is considered idle and removed.
    */
@@ -203,4 +314,567 @@ public class RatelimitConfiguration
   public void setIdlePeriod(@NotNull final Duration idlePeriod) {
     this.idlePeriod = checkNotNull(idlePeriod);
   }
+
+  /**
+   * Maximum number of trackers.
+   *
+   * When exceeded, trackers are evicted by frequency and recency; infrequent identities are dropped first.
+   * Split evenly between username and remote-ip trackers.
+   */
+  @Min(2)
+  @JsonProperty
+  private long maxTrackers = 100_000;
+
+  public long getMaxTrackers() {
+    return maxTrackers;
+  }
+
+  public void setMaxTrackers(final long maxTrackers) {
+    this.maxTrackers = maxTrackers;
+  }
+
+  /**
+   * Reject anonymous requests with a Jetty handler ahead of the servlet context.
+   *
+   * @see RatelimitHandler
+   */
+  @JsonProperty
+  private boolean earlyRejection = false;
+
+  public boolean isEarlyRejection() {
+    return earlyRejection;
+  }
+
+  public void setEarlyRejection(final boolean earlyRejection) {
+    this.earlyRejection = earlyRejection;
+  }
+
+  /**
+   * Names of cookies which may authenticate a request; such as session and remember-me cookies.
+   *
+   * Requests with any of these are left to {@link RatelimitFilter} by {@link RatelimitHandler}.
+   *
+   * @since ???
+   */
+  @NotNull
+  @JsonProperty
+  private List<String> credentialCookies = new ArrayList<>(Arrays.asList("JSESSIONID", "rememberMe"));
+
+  public List<String> getCredentialCookies() {
+    return credentialCookies;
+  }
+
+  public void setCredentialCookies(@NotNull final List<String> credentialCookies) {
+    this.credentialCookies = checkNotNull(credentialCookies);
+  }
+
+  /**
+   * Adaptive concurrency limit algorithm.
+   */
+  public enum LimitAlgorithm
+  {
+    /**
+     * Additive-increase; multiplicative-decrease when latency exceeds a threshold or requests fail.
+     */
+    AIMD,
+
+    /**
+     * Scale the limit by the ratio of baseline to recent latency; grows while latency stays near baseline.
+     */
+    GRADIENT
+  }
+
+  /**
+   * Adaptive concurrency limit configuration; applied per request-strategy.
+   *
+   * @see ConcurrencyLimitFilter
+   */
+  public static class Concurrency
+  {
+    @JsonProperty
+    private boolean enabled = false;
+
+    @NotNull
+    @JsonProperty
+    private LimitAlgorithm algorithm = LimitAlgorithm.GRADIENT;
+
+    @Min(1)
+    @JsonProperty
+    private int initialLimit = 20;
+
+    @Min(1)
+    @JsonProperty
+    private int minLimit = 1;
+
+    @Min(1)
+    @JsonProperty
+    private int maxLimit = 1000;
+
+    /**
+     * Minimum period samples are collected before the limit is adjusted.
+     */
+    @NotNull
+    @JsonProperty
+    private Duration window = Duration.seconds(1);
+
+    /**
+     * Minimum number of samples collected before the limit is adjusted.
+     */
+    @Min(1)
+    @JsonProperty
+    private int minWindowSamples = 10;
+
+    /**
+     * Weight of each adjustment for {@link LimitAlgorithm#GRADIENT}.
+     */
+    @DecimalMin(value = "0.0", inclusive = false)
+    @DecimalMax("1.0")
+    @JsonProperty
+    private double smoothing = 0.2;
+
+    /**
+     * Ratio the limit is reduced by on back-off.
+     */
+    @DecimalMin(value = "0.0", inclusive = false)
+    @DecimalMax(value = "1.0", inclusive = false)
+    @JsonProperty
+    private double backoffRatio = 0.9;
+
+    /**
+     * Average latency above which {@link LimitAlgorithm#AIMD} backs off.
+     */
+    @NotNull
+    @JsonProperty
+    private Duration latencyThreshold = Duration.seconds(1);
+
+    /**
+     * Response status for requests rejected over the limit.
+     */
+    @Min(400)
+    @Max(599)
+    @JsonProperty
+    private int rejectStatus = 503;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public LimitAlgorithm getAlgorithm() {
+      return algorithm;
+    }
+
+    public void setAlgorithm(@NotNull final LimitAlgorithm algorithm) {
+      this.algorithm = checkNotNull(algorithm);
+    }
+
+    public int getInitialLimit() {
+      return initialLimit;
+    }
+
+    public void setInitialLimit(final int initialLimit) {
+      this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+      return minLimit;
+    }
+
+    public void setMinLimit(final int minLimit) {
+      this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+      return maxLimit;
+    }
+
+    public void setMaxLimit(final int maxLimit) {
+      this.maxLimit = maxLimit;
+    }
+
+    public Duration getWindow() {
+      return window;
+    }
+
+    public void setWindow(@NotNull final Duration window) {
+      this.window = checkNotNull(window);
+    }
+
+    public int getMinWindowSamples() {
+      return minWindowSamples;
+    }
+
+    public void setMinWindowSamples(final int minWindowSamples) {
+      this.minWindowSamples = minWindowSamples;
+    }
+
+    public double getSmoothing() {
+      return smoothing;
+    }
+
+    public void setSmoothing(final double smoothing) {
+      this.smoothing = smoothing;
+    }
+
+    public double getBackoffRatio() {
+      return backoffRatio;
+    }
+
+    public void setBackoffRatio(final double backoffRatio) {
+      this.backoffRatio = backoffRatio;
+    }
+
+    public Duration getLatencyThreshold() {
+      return latencyThreshold;
+    }
+
+    public void setLatencyThreshold(@NotNull final Duration latencyThreshold) {
+      this.latencyThreshold = checkNotNull(latencyThreshold);
+    }
+
+    public int getRejectStatus() {
+      return rejectStatus;
+    }
+
+    public void setRejectStatus(final int rejectStatus) {
+      this.rejectStatus = rejectStatus;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("enabled", enabled)
+          .add("algorithm", algorithm)
+          .add("initialLimit", initialLimit)
+          .add("minLimit", minLimit)
+          .add("maxLimit", maxLimit)
+          .add("window", window)
+          .add("minWindowSamples", minWindowSamples)
+          .add("smoothing", smoothing)
+          .add("backoffRatio", backoffRatio)
+          .add("latencyThreshold", latencyThreshold)
+          .add("rejectStatus", rejectStatus)
+          .toString();
+    }
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty
+  private Concurrency concurrency = new Concurrency();
+
+  public Concurrency getConcurrency() {
+    return concurrency;
+  }
+
+  public void setConcurrency(@NotNull final Concurrency concurrency) {
+    this.concurrency = checkNotNull(concurrency);
+  }
+
+  /**
+   * Pre-admission configuration.
+   *
+   * Identities are counted approximately in a fixed-size sketch; only identities whose recent request count reaches
+   * the {@link #threshold} are tracked and rate-limited.
+   */
+  public static class Admission
+  {
+    /**
+     * Estimated requests before an identity is tracked; {@code 0} tracks all identities.
+     */
+    @Min(0)
+    @JsonProperty
+    private int threshold = 0;
+
+    /**
+     * Counters per sketch row; rounded up to a power of 2.
+     */
+    @Min(1)
+    @JsonProperty
+    private int width = 16384;
+
+    /**
+     * Sketch rows.
+     */
+    @Min(1)
+    @Max(16)
+    @JsonProperty
+    private int depth = 4;
+
+    /**
+     * Period after which counts are halved.
+     */
+    @NotNull
+    @JsonProperty
+    private Duration decayPeriod = Duration.minutes(1);
+
+    public int getThreshold() {
+      return threshold;
+    }
+
+    public void setThreshold(final int threshold) {
+      this.threshold = threshold;
+    }
+
+    public int getWidth() {
+      return width;
+    }
+
+    public void setWidth(final int width) {
+      this.width = width;
+    }
+
+    public int getDepth() {
+      return depth;
+    }
+
+    public void setDepth(final int depth) {
+      this.depth = depth;
+    }
+
+    public Duration getDecayPeriod() {
+      return decayPeriod;
+    }
+
+    public void setDecayPeriod(@NotNull final Duration decayPeriod) {
+      this.decayPeriod = checkNotNull(decayPeriod);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("threshold", threshold)
+          .add("width", width)
+          .add("depth", depth)
+          .add("decayPeriod", decayPeriod)
+          .toString();
+    }
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty
+  private Admission admission = new Admission();
+
+  public Admission getAdmission() {
+    return admission;
+  }
+
+  public void setAdmission(@NotNull final Admission admission) {
+    this.admission = checkNotNull(admission);
+  }
+
+  /**
+   * Tracker snapshot configuration.
+   *
+   * When configured, bucket levels are written at stop and periodically, and restored at start; aged by the time
+   * elapsed since written.
+   */
+  public static class Snapshot
+  {
+    /**
+     * Snapshot file; {@code null} to disable.
+     */
+    @Nullable
+    @JsonProperty
+    private File file;
+
+    /**
+     * Period between snapshots while running.
+     */
+    @NotNull
+    @JsonProperty
+    private Duration period = Duration.minutes(1);
+
+    @Nullable
+    public File getFile() {
+      return file;
+    }
+
+    public void setFile(@Nullable final File file) {
+      this.file = file;
+    }
+
+    public Duration getPeriod() {
+      return period;
+    }
+
+    public void setPeriod(@NotNull final Duration period) {
+      this.period = checkNotNull(period);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("file", file)
+          .add("period", period)
+          .toString();
+    }
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty
+  private Snapshot snapshot = new Snapshot();
+
+  public Snapshot getSnapshot() {
+    return snapshot;
+  }
+
+  public void setSnapshot(@NotNull final Snapshot snapshot) {
+    this.snapshot = checkNotNull(snapshot);
+  }
+
+  /**
+   * Host-wide shared bucket configuration.
+   *
+   * When configured, bucket state is kept in a memory-mapped file shared by all processes on the host using the same
+   * file; so the processes enforce one combined limit.
+   */
+  public static class Shared
+  {
+    /**
+     * Shared table file; {@code null} to disable.
+     */
+    @Nullable
+    @JsonProperty
+    private File file;
+
+    /**
+     * Number of bucket slots; only applies when the file is created.
+     */
+    @Min(1)
+    @JsonProperty
+    private int slots = 65536;
+
+    @Nullable
+    public File getFile() {
+      return file;
+    }
+
+    public void setFile(@Nullable final File file) {
+      this.file = file;
+    }
+
+    public int getSlots() {
+      return slots;
+    }
+
+    public void setSlots(final int slots) {
+      this.slots = slots;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("file", file)
+          .add("slots", slots)
+          .toString();
+    }
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty
+  private Shared shared = new Shared();
+
+  public Shared getShared() {
+    return shared;
+  }
+
+  public void setShared(@NotNull final Shared shared) {
+    this.shared = checkNotNull(shared);
+  }
+
+  /**
+   * Cluster gossip configuration.
+   *
+   * When enabled, nodes periodically exchange consumption deltas through the bound {@link GossipTransport} and add
+   * peer consumption to local buckets; so limits apply approximately across the cluster.
+   */
+  public static class Gossip
+  {
+    @JsonProperty
+    private boolean enabled = false;
+
+    /**
+     * Name of this node; defaults to a random name.
+     */
+    @Nullable
+    @JsonProperty
+    private String node;
+
+    /**
+     * Period between sending deltas to peers.
+     */
+    @NotNull
+    @JsonProperty
+    private Duration interval = Duration.seconds(1);
+
+    /**
+     * Maximum deltas pending and sent per message; further buckets are not shared until the next interval.
+     */
+    @Min(1)
+    @JsonProperty
+    private int maxDeltas = 10000;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    @Nullable
+    public String getNode() {
+      return node;
+    }
+
+    public void setNode(@Nullable final String node) {
+      this.node = node;
+    }
+
+    public Duration getInterval() {
+      return interval;
+    }
+
+    public void setInterval(@NotNull final Duration interval) {
+      this.interval = checkNotNull(interval);
+    }
+
+    public int getMaxDeltas() {
+      return maxDeltas;
+    }
+
+    public void setMaxDeltas(final int maxDeltas) {
+      this.maxDeltas = maxDeltas;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("enabled", enabled)
+          .add("node", node)
+          .add("interval", interval)
+          .add("maxDeltas", maxDeltas)
+          .toString();
+    }
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty
+  private Gossip gossip = new Gossip();
+
+  public Gossip getGossip() {
+    return gossip;
+  }
+
+  public void setGossip(@NotNull final Gossip gossip) {
+    this.gossip = checkNotNull(gossip);
+  }
 }
@@ -15,6 +15,7 @@ package org.sonatype.goodies.dropwizard.ratelimit;
 import java.util.EnumSet;
 import java.util.List;
 
+import javax.annotation.Nullable;
 import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.FilterRegistration;
@@ -42,10 +43,22 @@ public abstract class RatelimitCustomizer<T extends ApplicationSupport<C>, C ext
 
   protected abstract RatelimitConfiguration getRatelimitConfiguration(final C config);
 
+  /**
+   * Transport for cluster gossip; required if gossip is enabled.
+   *
+   * @since ???
+   */
+  @Nullable
+  protected GossipTransport getGossipTransport(final C config) {
+    return null;
+  }
+
   @Override
   public List<Module> modules(final C config, final Environment environment) {
+    GossipTransport gossipTransport = getGossipTransport(config);
     return ImmutableList.of(
-        binder -> binder.bind(RatelimitConfiguration.class).toInstance(getRatelimitConfiguration(config))
+        binder -> binder.bind(RatelimitConfiguration.class).toInstance(getRatelimitConfiguration(config)),
+        binder -> binder.bind(GossipTransport.class).toProvider(() -> gossipTransport)
     );
   }
 
@@ -54,12 +67,34 @@ public abstract class RatelimitCustomizer<T extends ApplicationSupport<C>, C ext
                         final C config,
                         final Environment environment)
   {
-    Class<? extends Filter> type = RatelimitFilter.class;
+    RatelimitConfiguration ratelimitConfiguration = getRatelimitConfiguration(config);
+
+    // handler rejects anonymous traffic early; filter still applies to everything handler leaves alone
+    if (ratelimitConfiguration.isEarlyRejection()) {
+      RatelimitHandler handler = application.getInstance(RatelimitHandler.class);
+      environment.getApplicationContext().insertHandler(handler);
+      log.debug("Added handler: {}", handler);
+    }
+
+    addFilter(application, environment, RatelimitFilter.class, EnumSet.allOf(DispatcherType.class));
+
+    // concurrency limit applies after rate-limit; also to async dispatch of delayed requests, which only reach it then
+    if (ratelimitConfiguration.getConcurrency().isEnabled()) {
+      addFilter(application, environment, ConcurrencyLimitFilter.class,
+          EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
+    }
+  }
+
+  private void addFilter(final T application,
+                         final Environment environment,
+                         final Class<? extends Filter> type,
+                         final EnumSet<DispatcherType> dispatcherTypes)
+  {
     Filter filter = application.getInstance(type);
     String urlPattern = "/*";
 
     FilterRegistration.Dynamic registration = environment.servlets().addFilter(type.getSimpleName(), filter);
-    registration.addMappingForUrlPatterns(EnumSet.allOf(DispatcherType.class), true, urlPattern);
+    registration.addMappingForUrlPatterns(dispatcherTypes, true, urlPattern);
     log.debug("Added filter: {} -> {}", type.getSimpleName(), urlPattern);
   }
 }
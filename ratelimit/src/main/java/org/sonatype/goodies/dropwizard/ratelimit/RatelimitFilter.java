@@ -13,20 +13,39 @@
 package org.sonatype.goodies.dropwizard.ratelimit;
 
 import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response.StatusType;
 
 import org.sonatype.goodies.dropwizard.jaxrs.StatusTypeFactory;
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Mode;
 import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy;
 import org.sonatype.goodies.dropwizard.servlet.HttpFilterSupport;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -42,11 +61,80 @@ public class RatelimitFilter
 {
   public static final StatusType TOO_MANY_REQUESTS = StatusTypeFactory.create(429, "Too many requests");
 
+  /**
+   * Attribute marking a delayed request which has been admitted and re-dispatched.
+   */
+  private static final String PERMIT_ATTR = RatelimitFilter.class.getName() + ".permit";
+
+  /**
+   * Attribute marking a request already rate-limited by {@link RatelimitHandler}.
+   */
+  static final String CHECKED_ATTR = RatelimitFilter.class.getName() + ".checked";
+
+  /**
+   * Minimum delay between attempts to admit a delayed request.
+   */
+  private static final long MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * Extra time allowed for async timeout beyond the maximum delay; the timer normally completes first.
+   */
+  private static final long TIMEOUT_GRACE_MILLIS = 1000;
+
   private final RatelimitService ratelimitService;
 
+  private final Ticker ticker = Ticker.systemTicker();
+
+  private final Meter delayed;
+
+  private final Meter delayExpired;
+
+  /**
+   * Time to decide if request is allowed; excludes the rest of the filter chain.
+   */
+  private final Timer decisions;
+
+  /**
+   * Shared timer for all delayed requests.
+   */
+  private volatile ScheduledThreadPoolExecutor timer;
+
+  /**
+   * Requests currently delayed.
+   */
+  private final Set<DelayedRequest> pending = ConcurrentHashMap.newKeySet();
+
   @Inject
-  public RatelimitFilter(final RatelimitService ratelimitService) {
+  public RatelimitFilter(final RatelimitService ratelimitService, final MetricRegistry metricRegistry) {
     this.ratelimitService = checkNotNull(ratelimitService);
+    this.delayed = metricRegistry.meter("service.ratelimit.delayed");
+    this.delayExpired = metricRegistry.meter("service.ratelimit.delay-expired");
+    this.decisions = metricRegistry.timer("service.ratelimit.filter");
+  }
+
+  @Override
+  public void init(final FilterConfig config) throws ServletException {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+        .setNameFormat("ratelimit-delay-%d")
+        .setDaemon(true)
+        .build());
+    executor.setRemoveOnCancelPolicy(true);
+    timer = executor;
+    super.init(config);
+  }
+
+  @Override
+  public void destroy() {
+    ScheduledThreadPoolExecutor executor = timer;
+    if (executor != null) {
+      timer = null;
+      executor.shutdownNow();
+    }
+    // pending delayed requests are rejected rather than left suspended
+    for (DelayedRequest request : pending) {
+      request.reject();
+    }
+    super.destroy();
   }
 
   /**
@@ -54,11 +142,30 @@ public class RatelimitFilter
    *
    * If whitelisted allow; otherwise resolve if a request-strategy for request exists.
    * If a strategy exists, then apply rate-limiting; else allow.
+   * Rejected requests include {@code Retry-After} when the bucket can tell when the next request would be allowed.
+   *
+   * Strategies in {@link Mode#DELAY} suspend overflowing requests until admitted or the maximum delay has elapsed.
+   * Admitted requests are re-dispatched asynchronously; filters ahead of this one only apply again if mapped for
+   * {@link javax.servlet.DispatcherType#ASYNC}.  Delayed requests are counted as rejected once, when finally rejected.
    */
   @Override
   protected void filter(final HttpServletRequest request, final HttpServletResponse response, final FilterChain chain)
       throws IOException, ServletException
   {
+    // delayed request which has been admitted
+    if (request.getAttribute(PERMIT_ATTR) != null) {
+      request.removeAttribute(PERMIT_ATTR);
+      chain.doFilter(request, response);
+      return;
+    }
+
+    // request already rate-limited ahead of servlet context
+    if (request.getAttribute(CHECKED_ATTR) != null) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    long start = ticker.read();
     boolean allow = true;
     boolean whitelisted = ratelimitService.isWhitelisted(request.getRemoteAddr());
 
@@ -68,15 +175,34 @@ public class RatelimitFilter
       log.trace("Strategy: {}", strategy);
 
       if (strategy != null) {
-        // resolve user tracker for request
+        // resolve user tracker for request; identities not yet tracked are allowed
         RatelimitTracker tracker = ratelimitService.tracker(request);
         log.trace("Tracker: {}", tracker);
 
-        boolean overflown = ratelimitService.tick(tracker, strategy);
-        allow = !overflown;
+        if (tracker != null) {
+          boolean delayable = strategy.getMode() == Mode.DELAY;
+          boolean overflown = delayable
+              ? ratelimitService.tickDelayable(tracker, strategy)
+              : ratelimitService.tick(tracker, strategy);
+          allow = !overflown;
+
+          if (overflown) {
+            long retryAfter = ratelimitService.retryAfter(tracker, strategy);
+            if (delayable) {
+              if (delay(request, tracker, strategy, retryAfter)) {
+                decisions.update(ticker.read() - start, TimeUnit.NANOSECONDS);
+                return;
+              }
+              ratelimitService.reject(tracker, strategy);
+            }
+            retryAfter(response, retryAfter);
+          }
+        }
       }
     }
 
+    decisions.update(ticker.read() - start, TimeUnit.NANOSECONDS);
+
     if (allow) {
       chain.doFilter(request, response);
     }
@@ -84,4 +210,166 @@ public class RatelimitFilter
       response.sendError(TOO_MANY_REQUESTS.getStatusCode(), TOO_MANY_REQUESTS.getReasonPhrase());
     }
   }
+
+  /**
+   * Attempt to suspend request until the bucket has room.
+   *
+   * @return {@code true} if request was suspended; else caller should reject.
+   */
+  private boolean delay(final HttpServletRequest request,
+                        final RatelimitTracker tracker,
+                        final RequestStrategy strategy,
+                        final long delayNanos)
+  {
+    long maxDelayNanos = strategy.getMaxDelay().toNanoseconds();
+    if (delayNanos > maxDelayNanos || !request.isAsyncSupported() || timer == null) {
+      return false;
+    }
+
+    AsyncContext context = request.startAsync();
+    context.setTimeout(TimeUnit.NANOSECONDS.toMillis(maxDelayNanos) + TIMEOUT_GRACE_MILLIS);
+    DelayedRequest task = new DelayedRequest(context, tracker, strategy, ticker.read() + maxDelayNanos);
+    context.addListener(task);
+    pending.add(task);
+    delayed.mark();
+    log.trace("Delaying: {}ns", delayNanos);
+    task.schedule(delayNanos);
+    return true;
+  }
+
+  /**
+   * Set {@code Retry-After} header in whole seconds, rounded up.
+   */
+  static void retryAfter(final HttpServletResponse response, final long nanos) {
+    if (nanos == Long.MAX_VALUE) {
+      return;
+    }
+    long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+  }
+
+  /**
+   * Suspended request; re-ticks when the bucket is expected to have room, until admitted or deadline.
+   */
+  private class DelayedRequest
+      implements Runnable, AsyncListener
+  {
+    private final AsyncContext context;
+
+    private final RatelimitTracker tracker;
+
+    private final RequestStrategy strategy;
+
+    private final long deadline;
+
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private volatile ScheduledFuture<?> future;
+
+    private DelayedRequest(final AsyncContext context,
+                           final RatelimitTracker tracker,
+                           final RequestStrategy strategy,
+                           final long deadline)
+    {
+      this.context = context;
+      this.tracker = tracker;
+      this.strategy = strategy;
+      this.deadline = deadline;
+    }
+
+    private void schedule(final long delayNanos) {
+      ScheduledThreadPoolExecutor executor = timer;
+      try {
+        if (executor != null) {
+          future = executor.schedule(this, Math.max(MIN_DELAY_NANOS, delayNanos), TimeUnit.NANOSECONDS);
+          return;
+        }
+      }
+      catch (RejectedExecutionException e) {
+        log.trace("Timer stopped", e);
+      }
+      reject();
+    }
+
+    @Override
+    public void run() {
+      if (done.get()) {
+        return;
+      }
+      try {
+        if (!ratelimitService.tickDelayable(tracker, strategy)) {
+          if (done.compareAndSet(false, true)) {
+            pending.remove(this);
+            context.getRequest().setAttribute(PERMIT_ATTR, Boolean.TRUE);
+            context.dispatch();
+          }
+          return;
+        }
+
+        long delayNanos = ratelimitService.retryAfter(tracker, strategy);
+        if (delayNanos != Long.MAX_VALUE && ticker.read() + delayNanos <= deadline) {
+          schedule(delayNanos);
+          return;
+        }
+      }
+      catch (Exception e) {
+        log.warn("Failed to admit delayed request", e);
+      }
+      reject();
+    }
+
+    /**
+     * Reject request, unless already admitted or completed.
+     */
+    private void reject() {
+      if (!done.compareAndSet(false, true)) {
+        return;
+      }
+      pending.remove(this);
+      delayExpired.mark();
+      try {
+        ratelimitService.reject(tracker, strategy);
+        HttpServletResponse response = (HttpServletResponse) context.getResponse();
+        retryAfter(response, ratelimitService.retryAfter(tracker, strategy));
+        response.sendError(TOO_MANY_REQUESTS.getStatusCode(), TOO_MANY_REQUESTS.getReasonPhrase());
+      }
+      catch (Exception e) {
+        log.debug("Failed to reject delayed request", e);
+      }
+      finally {
+        context.complete();
+      }
+    }
+
+    private void cancel() {
+      pending.remove(this);
+      ScheduledFuture<?> scheduled = future;
+      if (scheduled != null) {
+        scheduled.cancel(false);
+      }
+    }
+
+    @Override
+    public void onTimeout(final AsyncEvent event) {
+      cancel();
+      reject();
+    }
+
+    @Override
+    public void onComplete(final AsyncEvent event) {
+      done.set(true);
+      cancel();
+    }
+
+    @Override
+    public void onError(final AsyncEvent event) {
+      done.set(true);
+      cancel();
+    }
+
+    @Override
+    public void onStartAsync(final AsyncEvent event) {
+      // ignore
+    }
+  }
 }
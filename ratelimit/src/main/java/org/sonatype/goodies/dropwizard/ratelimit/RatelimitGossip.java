@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+import org.sonatype.goodies.dropwizard.ratelimit.GossipMessage.Delta;
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy;
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitTracker.Identifier;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.MoreObjects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Exchanges consumption deltas with peer nodes.
+ *
+ * Drops admitted locally are {@link #record recorded} per bucket and periodically {@link #sync() sent} to peers;
+ * deltas received from peers are added to the matching local bucket, if the identity is tracked locally.
+ * Nothing is exchanged on the request path, so limits are only approximately global; the error is bound by the sync
+ * interval.
+ *
+ * @since ???
+ */
+class RatelimitGossip
+{
+  private static final Logger log = LoggerFactory.getLogger(RatelimitGossip.class);
+
+  /**
+   * Drops recorded for a bucket since last sync.
+   */
+  private static class Pending
+  {
+    private final Identifier id;
+
+    private final String strategy;
+
+    private final LongAdder count = new LongAdder();
+
+    private Pending(final Identifier id, final String strategy) {
+      this.id = id;
+      this.strategy = strategy;
+    }
+  }
+
+  private final String node;
+
+  private final GossipTransport transport;
+
+  private final int maxDeltas;
+
+  /**
+   * Resolves local bucket for identity and strategy name; {@code null} if not tracked.
+   */
+  private final BiFunction<Identifier, String, RatelimitBucket> resolver;
+
+  /**
+   * Pending deltas keyed by bucket identity; bounded by {@link #maxDeltas}.
+   */
+  private final Map<RatelimitBucket, Pending> pending = new ConcurrentHashMap<>();
+
+  private final Meter sent;
+
+  private final Meter received;
+
+  private final Meter applied;
+
+  private final Meter discarded;
+
+  private final Meter dropped;
+
+  private volatile long lastReceived;
+
+  RatelimitGossip(final String node,
+                  final GossipTransport transport,
+                  final int maxDeltas,
+                  final BiFunction<Identifier, String, RatelimitBucket> resolver,
+                  final MetricRegistry metricRegistry)
+  {
+    this.node = checkNotNull(node);
+    this.transport = checkNotNull(transport);
+    checkArgument(maxDeltas > 0);
+    this.maxDeltas = maxDeltas;
+    this.resolver = checkNotNull(resolver);
+
+    this.sent = metricRegistry.meter("service.ratelimit.gossip.sent");
+    this.received = metricRegistry.meter("service.ratelimit.gossip.received");
+    this.applied = metricRegistry.meter("service.ratelimit.gossip.applied");
+    this.discarded = metricRegistry.meter("service.ratelimit.gossip.discarded");
+    this.dropped = metricRegistry.meter("service.ratelimit.gossip.dropped");
+    metricRegistry.register("service.ratelimit.gossip.pending", (Gauge<Long>) this::pendingCount);
+    metricRegistry.register("service.ratelimit.gossip.lag.millis", (Gauge<Long>) this::lagMillis);
+  }
+
+  public String getNode() {
+    return node;
+  }
+
+  void start() throws Exception {
+    transport.start(node, this::receive);
+    log.info("Started; node: {}", node);
+  }
+
+  void stop() throws Exception {
+    transport.stop();
+    pending.clear();
+  }
+
+  /**
+   * Record drops admitted locally.
+   */
+  void record(final RatelimitTracker tracker, final RequestStrategy strategy, final RatelimitBucket bucket) {
+    Pending entry = pending.get(bucket);
+    if (entry == null) {
+      if (pending.size() >= maxDeltas) {
+        dropped.mark();
+        return;
+      }
+      entry = pending.computeIfAbsent(bucket, key -> new Pending(tracker.getId(), strategy.getName()));
+    }
+    entry.count.increment();
+  }
+
+  /**
+   * Send pending deltas to peers.
+   *
+   * Entries with nothing recorded since the previous sync are removed; drops recorded concurrently with removal may
+   * not be sent.
+   */
+  void sync() {
+    try {
+      List<Delta> deltas = new ArrayList<>();
+      Iterator<Pending> iter = pending.values().iterator();
+      while (iter.hasNext()) {
+        Pending entry = iter.next();
+        long count = entry.count.sumThenReset();
+        if (count == 0) {
+          iter.remove();
+        }
+        else {
+          deltas.add(new Delta(entry.id, entry.strategy, count));
+        }
+      }
+
+      if (!deltas.isEmpty()) {
+        transport.send(new GossipMessage(node, System.currentTimeMillis(), deltas));
+        sent.mark(deltas.size());
+        log.trace("Sent deltas: {}", deltas.size());
+      }
+    }
+    catch (Exception e) {
+      log.warn("Failed to send deltas", e);
+    }
+  }
+
+  /**
+   * Apply deltas from peer.
+   */
+  void receive(final GossipMessage message) {
+    if (node.equals(message.getNode())) {
+      return;
+    }
+    lastReceived = message.getTimestamp();
+    received.mark(message.getDeltas().size());
+
+    for (Delta delta : message.getDeltas()) {
+      if (delta.getCount() <= 0) {
+        continue;
+      }
+      RatelimitBucket bucket = resolver.apply(delta.getId(), delta.getStrategy());
+      long added = bucket != null ? bucket.add(delta.getCount()) : 0;
+      applied.mark(added);
+      discarded.mark(delta.getCount() - added);
+    }
+  }
+
+  /**
+   * Drops recorded locally not yet sent.
+   */
+  private long pendingCount() {
+    long total = 0;
+    for (Pending entry : pending.values()) {
+      total += entry.count.sum();
+    }
+    return total;
+  }
+
+  /**
+   * Age of the last message received; approximate as node clocks may differ.
+   */
+  private long lagMillis() {
+    long last = lastReceived;
+    return last == 0 ? 0 : Math.max(0, System.currentTimeMillis() - last);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("node", node)
+        .add("maxDeltas", maxDeltas)
+        .toString();
+  }
+}
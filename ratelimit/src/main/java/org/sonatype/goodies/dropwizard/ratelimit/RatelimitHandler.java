@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.io.IOException;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Mode;
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.goodies.dropwizard.ratelimit.RatelimitFilter.TOO_MANY_REQUESTS;
+
+/**
+ * Rate-limit Jetty handler; rejects anonymous requests before the servlet context filter chain.
+ *
+ * Applies the whitelist and anonymous remote-ip rate-limiting of {@link RatelimitService} without resolving the
+ * current user; so rejected requests never reach session handling or security filters.  Requests which
+ * {@link #isAnonymous may carry credentials} and strategies in {@link Mode#DELAY} are left to {@link RatelimitFilter},
+ * which skips requests this handler has already checked.
+ *
+ * @since ???
+ * @see RatelimitFilter
+ */
+@Named
+@Singleton
+public class RatelimitHandler
+    extends HandlerWrapper
+{
+  private static final Logger log = LoggerFactory.getLogger(RatelimitHandler.class);
+
+  private final RatelimitService ratelimitService;
+
+  private final Set<String> credentialCookies;
+
+  private final Meter rejected;
+
+  @Inject
+  public RatelimitHandler(final RatelimitConfiguration config,
+                          final RatelimitService ratelimitService,
+                          final MetricRegistry metricRegistry)
+  {
+    checkNotNull(config);
+    this.ratelimitService = checkNotNull(ratelimitService);
+    this.credentialCookies = ImmutableSet.copyOf(config.getCredentialCookies());
+    this.rejected = metricRegistry.meter("service.ratelimit.handler.rejected");
+  }
+
+  @Override
+  public void handle(final String target,
+                     final Request baseRequest,
+                     final HttpServletRequest request,
+                     final HttpServletResponse response)
+      throws IOException, ServletException
+  {
+    if (request.getDispatcherType() == DispatcherType.REQUEST && isAnonymous(request) && reject(request, response)) {
+      baseRequest.setHandled(true);
+      return;
+    }
+    super.handle(target, baseRequest, request, response);
+  }
+
+  /**
+   * Check if request is anonymous; requests which may be authenticated are left to the filter.
+   *
+   * Requests with an authorization header, a requested session or any of the
+   * {@link RatelimitConfiguration#getCredentialCookies() credential cookies} may be authenticated.
+   */
+  protected boolean isAnonymous(final HttpServletRequest request) {
+    if (request.getHeader(HttpHeaders.AUTHORIZATION) != null || request.getRequestedSessionId() != null) {
+      return false;
+    }
+    Cookie[] cookies = request.getCookies();
+    if (cookies != null) {
+      for (Cookie cookie : cookies) {
+        if (credentialCookies.contains(cookie.getName())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Apply rate-limit to request.
+   *
+   * @return {@code true} if request was rejected.
+   */
+  private boolean reject(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+    String address = request.getRemoteAddr();
+    RequestStrategy strategy = null;
+    if (!ratelimitService.isWhitelisted(address)) {
+      strategy = ratelimitService.strategy(request);
+      log.trace("Strategy: {}", strategy);
+
+      // delaying requires the filter to suspend request
+      if (strategy != null && strategy.getMode() == Mode.DELAY) {
+        return false;
+      }
+    }
+    request.setAttribute(RatelimitFilter.CHECKED_ATTR, Boolean.TRUE);
+
+    if (strategy == null) {
+      return false;
+    }
+
+    RatelimitTracker tracker = ratelimitService.anonymousTracker(address);
+    log.trace("Tracker: {}", tracker);
+    if (tracker == null || !ratelimitService.tickAnonymous(tracker, strategy)) {
+      return false;
+    }
+
+    rejected.mark();
+    RatelimitFilter.retryAfter(response, ratelimitService.retryAfter(tracker, strategy));
+    response.sendError(TOO_MANY_REQUESTS.getStatusCode(), TOO_MANY_REQUESTS.getReasonPhrase());
+    return true;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.io.PrintWriter;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.dropwizard.task.TaskSupport;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link RatelimitService} heavy-hitters task.
+ *
+ * Shows tracked identities with the highest estimated recent request counts.
+ *
+ * @since ???
+ */
+@Named
+@Singleton
+public class RatelimitHeavyHittersTask
+    extends TaskSupport
+{
+  private final RatelimitService ratelimitService;
+
+  @Inject
+  public RatelimitHeavyHittersTask(final RatelimitService ratelimitService) {
+    super("ratelimit-heavy-hitters");
+    this.ratelimitService = checkNotNull(ratelimitService);
+  }
+
+  @Override
+  protected void doExecute(final Parameters parameters, final PrintWriter output) throws Exception {
+    int limit = Integer.parseInt(parameters.value("limit", "10"));
+    log.debug("Limit: {}", limit);
+
+    for (HeavyHitter hitter : ratelimitService.heavyHitters(limit)) {
+      output.format("%d %s %s%n", hitter.getEstimate(), hitter.getId().type, hitter.getId().value);
+    }
+  }
+}
@@ -12,6 +12,8 @@
  */
 package org.sonatype.goodies.dropwizard.ratelimit;
 
+import java.util.List;
+
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
 
@@ -40,13 +42,60 @@ public interface RatelimitService
 
   /**
    * Lookup or create a user tracker for given request.
+   *
+   * @return {@code null} if the identity of the request is not (yet) tracked; such requests are not rate-limited.
    */
+  @Nullable
   RatelimitTracker tracker(HttpServletRequest request);
 
+  /**
+   * Lookup or create an anonymous tracker for given remote address; without consulting the current user.
+   *
+   * @return {@code null} if the address is not (yet) tracked.
+   * @since ???
+   */
+  @Nullable
+  RatelimitTracker anonymousTracker(String address);
+
   /**
    * Apply one tick to tracker.
    *
    * @return {@code true} if bucket has overflown.
    */
   boolean tick(RatelimitTracker tracker, RequestStrategy strategy);
+
+  /**
+   * Apply one tick to tracker using the anonymous bucket of strategy; without consulting the current user.
+   *
+   * @return {@code true} if bucket has overflown.
+   * @since ???
+   */
+  boolean tickAnonymous(RatelimitTracker tracker, RequestStrategy strategy);
+
+  /**
+   * Apply one tick to tracker for a request which may be delayed until admitted.
+   *
+   * An overflow is not counted as a rejection; callers which finally reject the request {@link #reject} it once.
+   *
+   * @return {@code true} if bucket has overflown.
+   * @since ???
+   */
+  boolean tickDelayable(RatelimitTracker tracker, RequestStrategy strategy);
+
+  /**
+   * Count rejection of a request ticked with {@link #tickDelayable}.
+   *
+   * @since ???
+   */
+  void reject(RatelimitTracker tracker, RequestStrategy strategy);
+
+  /**
+   * Returns nano-seconds until tracker could tick strategy again without overflowing.
+   */
+  long retryAfter(RatelimitTracker tracker, RequestStrategy strategy);
+
+  /**
+   * Returns up to limit tracked identities with the highest estimated recent request counts; highest first.
+   */
+  List<HeavyHitter> heavyHitters(int limit);
 }
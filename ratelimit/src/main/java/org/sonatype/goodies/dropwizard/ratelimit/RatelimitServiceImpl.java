@@ -12,14 +12,25 @@
  */
 package org.sonatype.goodies.dropwizard.ratelimit;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -27,27 +38,37 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.servlet.http.HttpServletRequest;
 
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Admission;
 import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Bucket;
 import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.DrainRate;
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Gossip;
 import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy;
 import org.sonatype.goodies.dropwizard.ratelimit.RatelimitTracker.Identifier;
+import org.sonatype.goodies.dropwizard.ratelimit.TrackerSnapshot.BucketState;
+import org.sonatype.goodies.dropwizard.ratelimit.TrackerSnapshot.TrackerState;
 import org.sonatype.goodies.dropwizard.shiro.authz.RoleMatchingHelper;
 import org.sonatype.goodies.dropwizard.shiro.subject.SubjectHelper;
 import org.sonatype.goodies.dropwizard.service.ServiceSupport;
+import org.sonatype.goodies.dropwizard.util.IpAddressParser;
 import org.sonatype.goodies.dropwizard.util.IpAddresses;
 
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
-import com.google.common.base.MoreObjects;
 import com.google.common.base.Ticker;
+import com.google.common.collect.Iterables;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.dropwizard.util.Duration;
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.subject.Subject;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.ANONYMOUS;
@@ -78,22 +99,130 @@ public class RatelimitServiceImpl
    */
   private final List<RequestStrategy> requestStrategies = new ArrayList<>();
 
+  /**
+   * {@link #requestStrategies} by name; first strategy wins for duplicate names.
+   */
+  private volatile Map<String, RequestStrategy> strategiesByName = Collections.emptyMap();
+
+  /**
+   * Compiled matcher for {@link #requestStrategies}.
+   */
+  private volatile RequestStrategyMatcher strategyMatcher = new RequestStrategyMatcher(Collections.emptyList(), 0);
+
   /**
    * Mapping of tracker identifier to tracker.
+   *
+   * Bounded by half of {@link RatelimitConfiguration#getMaxTrackers()}; uses W-TinyLFU admission and eviction so
+   * frequent identities stay tracked and one-off identities are dropped first.
    */
-  private final ConcurrentHashMap<Identifier, RatelimitTracker> trackers = new ConcurrentHashMap<>();
+  private final Cache<Identifier, RatelimitTracker> trackers;
+
+  /**
+   * Anonymous trackers keyed by parsed remote address.
+   *
+   * Bounded by the other half of {@link RatelimitConfiguration#getMaxTrackers()}.
+   */
+  private final RemoteIpTrackerTable remoteIpTrackers;
+
+  /**
+   * Approximate recent request counts per identity; used for pre-admission and to rank heavy hitters.
+   */
+  private final CountMinSketch sketch;
+
+  /**
+   * Estimated requests before an identity is tracked.
+   */
+  private final int admissionThreshold;
+
+  /**
+   * Host-wide shared bucket state; when configured.
+   */
+  @Nullable
+  private volatile SharedBucketTable sharedBuckets;
 
   private final Ticker ticker = Ticker.systemTicker();
 
   private final Meter rejected;
 
+  private final Meter sharedFallback;
+
+  /**
+   * Cluster gossip; when enabled.
+   */
+  @Nullable
+  private final RatelimitGossip gossip;
+
+  private final Meter untracked;
+
+  private final Meter trackersCreated;
+
+  private final Meter trackersExpired;
+
+  private final MetricRegistry metricRegistry;
+
+  /**
+   * Metrics by strategy name and bucket role.
+   */
+  private final Map<String, MeteredBucket.Metrics> bucketMetrics = new ConcurrentHashMap<>();
+
+  private final IdleTrackerSweeper sweeper;
+
   private ScheduledThreadPoolExecutor scheduler;
 
-  @Inject
   public RatelimitServiceImpl(final RatelimitConfiguration config, final MetricRegistry metricRegistry) {
+    this(config, metricRegistry, null);
+  }
+
+  @Inject
+  public RatelimitServiceImpl(final RatelimitConfiguration config,
+                              final MetricRegistry metricRegistry,
+                              @Nullable final GossipTransport gossipTransport)
+  {
     this.config = checkNotNull(config);
+    this.metricRegistry = checkNotNull(metricRegistry);
+    this.sweeper = new IdleTrackerSweeper(ticker, config.getIdlePeriod(), this::expire);
+
+    // trackers evicted for size are unscheduled; otherwise the sweeper would retain them until idle
+    long maxTrackers = config.getMaxTrackers();
+    this.trackers = Caffeine.newBuilder()
+        .maximumSize(maxTrackers / 2)
+        .executor(Runnable::run)
+        .removalListener((Identifier id, RatelimitTracker tracker, RemovalCause cause) -> {
+          if (tracker != null && cause == RemovalCause.SIZE) {
+            sweeper.unschedule(tracker);
+          }
+        })
+        .recordStats()
+        .build();
+    this.remoteIpTrackers = new RemoteIpTrackerTable((int) Math.min(maxTrackers - maxTrackers / 2,
+        Integer.MAX_VALUE / 2), sweeper::unschedule);
+    Admission admission = config.getAdmission();
+    this.sketch = new CountMinSketch(admission.getDepth(), Integer.highestOneBit(admission.getWidth() * 2 - 1));
+    this.admissionThreshold = admission.getThreshold();
     this.rejected = metricRegistry.meter("service.ratelimit.rejected");
-    metricRegistry.register("service.ratelimit.trackers.count", (Gauge<Integer>) trackers::size);
+    this.untracked = metricRegistry.meter("service.ratelimit.untracked");
+    this.trackersCreated = metricRegistry.meter("service.ratelimit.trackers.created");
+    this.trackersExpired = metricRegistry.meter("service.ratelimit.trackers.expired");
+    this.sharedFallback = metricRegistry.meter("service.ratelimit.shared.fallback");
+
+    Gossip gossipConfig = config.getGossip();
+    if (gossipConfig.isEnabled()) {
+      checkState(gossipTransport != null, "Gossip enabled without transport");
+      String node = gossipConfig.getNode() != null ? gossipConfig.getNode() : UUID.randomUUID().toString();
+      this.gossip = new RatelimitGossip(node, gossipTransport, gossipConfig.getMaxDeltas(), this::localBucket,
+          metricRegistry);
+    }
+    else {
+      this.gossip = null;
+    }
+    metricRegistry.register("service.ratelimit.trackers.count",
+        (Gauge<Long>) () -> trackers.estimatedSize() + remoteIpTrackers.size());
+    metricRegistry.register("service.ratelimit.trackers.hit-rate", (Gauge<Double>) () -> trackers.stats().hitRate());
+    metricRegistry.register("service.ratelimit.trackers.evictions",
+        (Gauge<Long>) () -> trackers.stats().evictionCount() + remoteIpTrackers.getEvictions());
+    metricRegistry.register("service.ratelimit.trackers.estimated-size", (Gauge<Long>) this::estimatedTrackerSize);
+    metricRegistry.register("service.ratelimit.sweep.duration.nanos", (Gauge<Long>) sweeper::getLastSweepNanos);
+    metricRegistry.register("service.ratelimit.sweep.evicted", (Gauge<Integer>) sweeper::getLastEvicted);
   }
 
   @Override
@@ -112,22 +241,81 @@ public class RatelimitServiceImpl
       checkState(buckets.get(ANONYMOUS) != null, "Missing bucket: %s", ANONYMOUS);
       checkState(buckets.get(AUTHENTICATED) != null, "Missing bucket: %s", AUTHENTICATED);
     }
+    strategyMatcher = new RequestStrategyMatcher(requestStrategies, config.getStrategyCacheSize());
+
+    Map<String, RequestStrategy> byName = new HashMap<>();
+    for (RequestStrategy strategy : requestStrategies) {
+      byName.putIfAbsent(strategy.getName(), strategy);
+    }
+    strategiesByName = byName;
+
+    File shared = config.getShared().getFile();
+    if (shared != null) {
+      // abandoned slots are reclaimed well after any tracker using them would be idle
+      Duration reclaimAfter = Duration.nanoseconds(config.getIdlePeriod().toNanoseconds() * 2);
+      sharedBuckets = new SharedBucketTable(shared.toPath(), config.getShared().getSlots(), reclaimAfter, ticker);
+      log.info("Shared buckets: {}", sharedBuckets);
+    }
+
+    // shared bucket state already outlives the process
+    Path snapshot = snapshotFile();
+    if (snapshot != null && sharedBuckets == null) {
+      restoreSnapshot(snapshot);
+    }
 
     ThreadFactory factory = new ThreadFactoryBuilder()
         .setNameFormat("ratelimit-reaper-%d")
         .build();
     scheduler = new ScheduledThreadPoolExecutor(1, factory);
     scheduler.setRemoveOnCancelPolicy(true);
+
+    // single periodic sweep expires idle trackers; cost per sweep is bound by trackers due, not trackers tracked
+    long tick = sweeper.getTickNanos();
+    scheduler.scheduleWithFixedDelay(sweeper, tick, tick, TimeUnit.NANOSECONDS);
+    log.debug("Scheduled tracker sweeper: {}", sweeper);
+
+    long decay = config.getAdmission().getDecayPeriod().toNanoseconds();
+    scheduler.scheduleAtFixedRate(sketch::decay, decay, decay, TimeUnit.NANOSECONDS);
+    log.debug("Scheduled sketch decay: {}; admission threshold: {}", sketch, admissionThreshold);
+
+    if (snapshot != null) {
+      long period = config.getSnapshot().getPeriod().toNanoseconds();
+      scheduler.scheduleWithFixedDelay(() -> writeSnapshot(snapshot), period, period, TimeUnit.NANOSECONDS);
+    }
+
+    if (gossip != null) {
+      gossip.start();
+      long interval = config.getGossip().getInterval().toNanoseconds();
+      scheduler.scheduleWithFixedDelay(gossip::sync, interval, interval, TimeUnit.NANOSECONDS);
+    }
   }
 
   @Override
   protected void doStop() throws Exception {
     if (scheduler != null) {
       scheduler.shutdownNow();
+      scheduler.awaitTermination(5, TimeUnit.SECONDS);
       scheduler = null;
     }
 
-    trackers.clear();
+    if (gossip != null) {
+      // share what remains before leaving
+      gossip.sync();
+      gossip.stop();
+    }
+
+    Path snapshot = snapshotFile();
+    if (snapshot != null) {
+      writeSnapshot(snapshot);
+    }
+
+    sharedBuckets = null;
+    sweeper.clear();
+    sketch.clear();
+    trackers.invalidateAll();
+    remoteIpTrackers.clear();
+    strategyMatcher = new RequestStrategyMatcher(Collections.emptyList(), 0);
+    strategiesByName = Collections.emptyMap();
     requestStrategies.clear();
     whitelist.clear();
   }
@@ -155,16 +343,7 @@ public class RatelimitServiceImpl
   @Nullable
   @Override
   public RequestStrategy strategy(final HttpServletRequest request) {
-    for (RequestStrategy strategy : requestStrategies) {
-      Pattern pattern = strategy.getPattern();
-      String path = request.getRequestURI();
-
-      log.trace("Checking path: {} -> {}", pattern, path);
-      if (pattern.matcher(path).matches()) {
-        return strategy;
-      }
-    }
-    return null;
+    return strategyMatcher.match(request.getRequestURI());
   }
 
   //
@@ -190,23 +369,30 @@ public class RatelimitServiceImpl
     }
   }
 
+  /**
+   * Lookup or create a user tracker for given request.
+   *
+   * Every call counts the identity; identities below the admission threshold are only tracked if already tracked.
+   */
+  @Nullable
   @Override
   public RatelimitTracker tracker(final HttpServletRequest request) {
     RatelimitTracker tracker = (RatelimitTracker) request.getAttribute(TRACKER_ATTR);
 
     // if there is no tracker in request-context then detect
     if (tracker == null) {
-      Identifier id = identify(request);
-      log.trace("Identifier: {}", id);
-
-      tracker = trackers.computeIfAbsent(id, (Function<Identifier, RatelimitTracker>) input -> {
-        RatelimitTracker result = new RatelimitTracker(input);
-        log.trace("Created tracker: {}", result);
+      String username = SubjectHelper.getUsername();
+      if (username != null) {
+        tracker = tracker(new Identifier(Identifier.Type.USERNAME, username));
+      }
+      else {
+        tracker = remoteIpTracker(request.getRemoteAddr());
+      }
 
-        // schedule idle expiration reaper
-        schedule(new IdleTrackerReaper(result));
-        return result;
-      });
+      if (tracker == null) {
+        untracked.mark();
+        return null;
+      }
 
       // attach tracker to request
       request.setAttribute(TRACKER_ATTR, tracker);
@@ -214,61 +400,283 @@ public class RatelimitServiceImpl
     return tracker;
   }
 
+  @Nullable
+  @Override
+  public RatelimitTracker anonymousTracker(final String address) {
+    checkNotNull(address);
+    RatelimitTracker tracker = remoteIpTracker(address);
+    if (tracker == null) {
+      untracked.mark();
+    }
+    return tracker;
+  }
+
   /**
-   * Scheduled task to reap idle trackers.
+   * Count identity; returns {@code true} if identity has reached admission threshold.
    */
-  private class IdleTrackerReaper
-      implements Runnable
-  {
-    private final RatelimitTracker tracker;
+  private boolean admit(final long hash) {
+    return sketch.increment(hash) >= admissionThreshold;
+  }
 
-    private final long idlePeriodNanos = config.getIdlePeriod().toNanoseconds();
+  /**
+   * Sketch hash of remote address.
+   */
+  private static long hash(final long hi, final long lo) {
+    return CountMinSketch.mix(hi * 0x9E3779B97F4A7C15L ^ lo);
+  }
 
-    public IdleTrackerReaper(final RatelimitTracker tracker) {
-      this.tracker = tracker;
+  /**
+   * Sketch hash of identifier; consistent with {@link #hash(long, long)} for parsable remote addresses.
+   */
+  private static long hash(final Identifier id) {
+    if (id.type == Identifier.Type.REMOTE_IP) {
+      long[] parsed = new long[2];
+      if (IpAddressParser.parse(id.value, parsed) != IpAddressParser.INVALID) {
+        return hash(parsed[0], parsed[1]);
+      }
+    }
+    return CountMinSketch.mix(((long) id.type.ordinal() << 32) ^ id.value.hashCode());
+  }
+
+  /**
+   * Per-thread buffer for parsed remote address.
+   */
+  private static final ThreadLocal<long[]> ADDRESS_BUFFER = ThreadLocal.withInitial(() -> new long[2]);
+
+  /**
+   * Lookup or create tracker for remote address.
+   *
+   * Parsed addresses are tracked in {@link #remoteIpTrackers} without allocation once the tracker exists; anything
+   * unparsable falls back to {@link #trackers}.
+   */
+  @Nullable
+  private RatelimitTracker remoteIpTracker(final String address) {
+    long[] parsed = ADDRESS_BUFFER.get();
+    if (IpAddressParser.parse(address, parsed) == IpAddressParser.INVALID) {
+      return tracker(new Identifier(Identifier.Type.REMOTE_IP, address));
+    }
+
+    long hi = parsed[0];
+    long lo = parsed[1];
+    boolean admitted = admit(hash(hi, lo));
+    RatelimitTracker tracker = remoteIpTrackers.get(hi, lo);
+    if (tracker == null && admitted) {
+      tracker = remoteIpTrackers.computeIfAbsent(hi, lo,
+          () -> newTracker(new Identifier(Identifier.Type.REMOTE_IP, address)));
     }
+    return tracker;
+  }
+
+  @Nullable
+  private RatelimitTracker tracker(final Identifier id) {
+    log.trace("Identifier: {}", id);
+    if (admit(hash(id))) {
+      return trackers.get(id, this::newTracker);
+    }
+    return trackers.getIfPresent(id);
+  }
 
-    @Override
-    public void run() {
-      long now = ticker.read();
-      long touched = tracker.getTimestamp();
-      long delta = now - touched;
+  private RatelimitTracker newTracker(final Identifier id) {
+    RatelimitTracker result = new RatelimitTracker(id);
+    log.trace("Created tracker: {}", result);
+    trackersCreated.mark();
 
-      // tracker is expired, never touched (ie. 0) or delta from last touch and now exceeds idle-period
-      boolean expired = touched == 0 || delta >= idlePeriodNanos;
+    // schedule idle expiration
+    sweeper.schedule(result);
+    return result;
+  }
 
-      if (expired) {
-        trackers.remove(tracker.getId());
-        if (log.isDebugEnabled()) {
-          log.trace("Removed idle ({} seconds) tracker: {}", Duration.nanoseconds(delta).toSeconds(), tracker);
+  /**
+   * Remove expired tracker.
+   */
+  private boolean expire(final RatelimitTracker tracker) {
+    Identifier id = tracker.getId();
+    boolean removed;
+    long[] parsed = new long[2];
+    if (id.type == Identifier.Type.REMOTE_IP && IpAddressParser.parse(id.value, parsed) != IpAddressParser.INVALID) {
+      removed = remoteIpTrackers.remove(parsed[0], parsed[1], tracker);
+    }
+    else {
+      removed = trackers.asMap().remove(id, tracker);
+    }
+    if (removed) {
+      trackersExpired.mark();
+    }
+    return removed;
+  }
+
+  /**
+   * All trackers; weakly-consistent.
+   */
+  private Iterable<RatelimitTracker> allTrackers() {
+    return Iterables.concat(trackers.asMap().values(), remoteIpTrackers);
+  }
+
+  //
+  // Snapshot
+  //
+
+  @Nullable
+  private Path snapshotFile() {
+    File file = config.getSnapshot().getFile();
+    return file != null ? file.toPath() : null;
+  }
+
+  private void writeSnapshot(final Path file) {
+    try {
+      int count = TrackerSnapshot.write(file, allTrackers(), System.currentTimeMillis());
+      log.debug("Wrote snapshot: {}; trackers: {}", file, count);
+    }
+    catch (Exception e) {
+      log.warn("Failed to write snapshot: {}", file, e);
+    }
+  }
+
+  /**
+   * Restore trackers from snapshot; buckets are aged by the time elapsed since written.
+   *
+   * Buckets are only restored if the strategy still has a bucket configuration with the same algorithm and rate.
+   */
+  private void restoreSnapshot(final Path file) {
+    if (!Files.exists(file)) {
+      log.debug("No snapshot: {}", file);
+      return;
+    }
+
+    try {
+      TrackerSnapshot.Reader reader = new TrackerSnapshot.Reader(file);
+      long elapsedNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - reader.getTimestamp()));
+      if (elapsedNanos >= config.getIdlePeriod().toNanoseconds()) {
+        log.info("Ignoring stale snapshot: {}", file);
+        return;
+      }
+
+      Map<String, RequestStrategy> strategies = strategiesByName;
+      int restored = 0;
+      while (reader.hasNext()) {
+        TrackerState state = reader.next();
+        RatelimitTracker tracker = null;
+        for (BucketState bucketState : state.buckets) {
+          RequestStrategy strategy = strategies.get(bucketState.strategy);
+          String role = strategy != null ? bucketRole(strategy, bucketState) : null;
+          if (role == null) {
+            continue;
+          }
+
+          RatelimitBucket bucket = metered(createBucket(strategy.getBuckets().get(role), state.id, strategy),
+              strategy, role);
+          bucket.restore(Math.min(bucketState.size, bucket.getCapacity()), elapsedNanos);
+          if (bucket.getSize() == 0) {
+            continue;
+          }
+
+          if (tracker == null) {
+            tracker = restoredTracker(state.id);
+            tracker.touch(ticker);
+          }
+          tracker.getBuckets().put(strategy, bucket);
+        }
+        if (tracker != null) {
+          restored++;
         }
       }
-      else {
-        // else re-schedule to expire again
-        schedule(this);
+      log.info("Restored snapshot: {}; trackers: {}", file, restored);
+    }
+    catch (Exception e) {
+      log.warn("Failed to restore snapshot: {}", file, e);
+    }
+  }
+
+  /**
+   * Find role of strategy bucket configuration matching recorded bucket.
+   */
+  @Nullable
+  private static String bucketRole(final RequestStrategy strategy, final BucketState state) {
+    for (Entry<String, Bucket> entry : strategy.getBuckets().entrySet()) {
+      Bucket bucket = entry.getValue();
+      DrainRate drainRate = bucket.getDrainRate();
+      if (bucket.getAlgorithm() == state.algorithm &&
+          bucket.getCapacity() == state.capacity &&
+          drainRate.getCount() == state.drainCount &&
+          drainRate.getPeriod().toNanoseconds() == state.drainPeriodNanos) {
+        return entry.getKey();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Lookup or create tracker for restored identity; not subject to admission.
+   */
+  private RatelimitTracker restoredTracker(final Identifier id) {
+    if (id.type == Identifier.Type.REMOTE_IP) {
+      long[] parsed = new long[2];
+      if (IpAddressParser.parse(id.value, parsed) != IpAddressParser.INVALID) {
+        return remoteIpTrackers.computeIfAbsent(parsed[0], parsed[1], () -> newTracker(id));
       }
     }
+    return trackers.get(id, this::newTracker);
+  }
 
-    @Override
-    public String toString() {
-      return MoreObjects.toStringHelper(this)
-          .add("tracker", tracker)
-          .toString();
+  @Override
+  public List<HeavyHitter> heavyHitters(final int limit) {
+    checkArgument(limit > 0);
+    Comparator<HeavyHitter> byEstimate = Comparator.comparingLong(HeavyHitter::getEstimate);
+
+    // keep the top estimates; lowest at head
+    PriorityQueue<HeavyHitter> top = new PriorityQueue<>(limit, byEstimate);
+    for (RatelimitTracker tracker : allTrackers()) {
+      long estimate = sketch.estimate(hash(tracker.getId()));
+      if (top.size() < limit) {
+        top.add(new HeavyHitter(tracker.getId(), estimate));
+      }
+      else if (estimate > top.peek().getEstimate()) {
+        top.poll();
+        top.add(new HeavyHitter(tracker.getId(), estimate));
+      }
     }
+
+    List<HeavyHitter> result = new ArrayList<>(top);
+    result.sort(byEstimate.reversed());
+    return result;
+  }
+
+  @VisibleForTesting
+  long trackerCount() {
+    trackers.cleanUp();
+    return trackers.estimatedSize() + remoteIpTrackers.size();
+  }
+
+  @VisibleForTesting
+  int scheduledCount() {
+    return sweeper.size();
   }
 
-  private void schedule(final IdleTrackerReaper reaper) {
-    Duration period = config.getIdlePeriod();
-    scheduler.schedule(reaper, period.getQuantity(), period.getUnit());
-    log.trace("Scheduled tracker reaper: {} -> {}", reaper, period);
+  /**
+   * Number of trackers sampled to estimate tracker size.
+   */
+  private static final int SIZE_SAMPLE = 64;
+
+  /**
+   * Estimated average retained size of a tracker in bytes, from a small sample of trackers.
+   */
+  private long estimatedTrackerSize() {
+    long total = 0;
+    int count = 0;
+    Iterator<RatelimitTracker> iter = allTrackers().iterator();
+    while (count < SIZE_SAMPLE && iter.hasNext()) {
+      total += iter.next().estimatedSize();
+      count++;
+    }
+    return count == 0 ? 0 : total / count;
   }
 
   /**
-   * Resolve the bucket configuration for current user and strategy.
+   * Resolve the bucket role for current user and strategy.
    *
    * This is called only when a new bucket is created.  No need to consider caching.
    */
-  private Bucket bucketConfiguration(final RequestStrategy strategy) {
+  private String bucketRole(final RequestStrategy strategy) {
     LinkedHashMap<String,Bucket> buckets = strategy.getBuckets();
     Subject subject = SecurityUtils.getSubject();
 
@@ -283,45 +691,184 @@ public class RatelimitServiceImpl
       }
     }
 
-    Bucket config = buckets.get(selected);
-    log.debug("Selected bucket configuration: {} -> {}", selected, config);
-    return config;
+    log.debug("Selected bucket configuration: {} -> {}", selected, buckets.get(selected));
+    return selected;
   }
 
   /**
    * Resolve the bucket or create.
+   *
+   * @param role  Bucket role for a new bucket; or {@code null} to resolve for current user.
    */
-  private LeakyBucket bucket(final RatelimitTracker tracker, final RequestStrategy strategy) {
+  private RatelimitBucket bucket(final RatelimitTracker tracker,
+                                 final RequestStrategy strategy,
+                                 @Nullable final String role)
+  {
     // resolve the bucket, or create
-    return tracker.getBuckets().computeIfAbsent(strategy, (Function<RequestStrategy, LeakyBucket>) input -> {
+    return tracker.getBuckets().computeIfAbsent(strategy, (Function<RequestStrategy, RatelimitBucket>) input -> {
       // resolve bucket configuration for current user
-      Bucket config = bucketConfiguration(input);
-      DrainRate drainRate = config.getDrainRate();
-      LeakyBucket bucket = new LeakyBucket(ticker, config.getCapacity(), drainRate.getCount(), drainRate.getPeriod());
+      String selected = role != null ? role : bucketRole(input);
+      RatelimitBucket bucket = metered(createBucket(input.getBuckets().get(selected), tracker.getId(), input), input,
+          selected);
       log.trace("Created bucket: {}", bucket);
 
       return bucket;
     });
   }
 
+  /**
+   * Decorate bucket to record fills to metrics of strategy and role.
+   */
+  private RatelimitBucket metered(final RatelimitBucket bucket, final RequestStrategy strategy, final String role) {
+    MeteredBucket.Metrics metrics = bucketMetrics.computeIfAbsent(MetricRegistry.name(strategy.getName(), role),
+        key -> new MeteredBucket.Metrics(metricRegistry, strategy.getName(), role));
+    return new MeteredBucket(bucket, metrics);
+  }
+
+  private RatelimitBucket createBucket(final Bucket config, final Identifier id, final RequestStrategy strategy) {
+    DrainRate drainRate = config.getDrainRate();
+
+    SharedBucketTable shared = sharedBuckets;
+    if (shared != null) {
+      long key = sharedKey(config, id, strategy);
+      int offset = shared.claim(key);
+      if (offset != -1) {
+        switch (config.getAlgorithm()) {
+          case LEAKY:
+            return new SharedBucketTable.Leaky(shared, offset, key, config.getCapacity(), drainRate.getCount(),
+                drainRate.getPeriod());
+          case GCRA:
+            return new SharedBucketTable.Gcra(shared, offset, key, config.getCapacity(), drainRate.getCount(),
+                drainRate.getPeriod());
+          default:
+            throw new IllegalStateException("Unsupported algorithm: " + config.getAlgorithm());
+        }
+      }
+      log.debug("No shared slot available; using local bucket: {}", id);
+      sharedFallback.mark();
+    }
+
+    switch (config.getAlgorithm()) {
+      case LEAKY:
+        return new LeakyBucket(ticker, config.getCapacity(), drainRate.getCount(), drainRate.getPeriod());
+      case GCRA:
+        return new GcraBucket(ticker, config.getCapacity(), drainRate.getCount(), drainRate.getPeriod());
+      default:
+        throw new IllegalStateException("Unsupported algorithm: " + config.getAlgorithm());
+    }
+  }
+
+  /**
+   * Resolve existing bucket for identity and strategy name; {@code null} if not tracked locally.
+   */
+  @Nullable
+  private RatelimitBucket localBucket(final Identifier id, final String strategyName) {
+    RequestStrategy strategy = strategiesByName.get(strategyName);
+    if (strategy == null) {
+      return null;
+    }
+
+    RatelimitTracker tracker = null;
+    if (id.type == Identifier.Type.REMOTE_IP) {
+      long[] parsed = ADDRESS_BUFFER.get();
+      if (IpAddressParser.parse(id.value, parsed) != IpAddressParser.INVALID) {
+        tracker = remoteIpTrackers.get(parsed[0], parsed[1]);
+      }
+      else {
+        tracker = trackers.getIfPresent(id);
+      }
+    }
+    else {
+      tracker = trackers.getIfPresent(id);
+    }
+    return tracker != null ? tracker.getBuckets().get(strategy) : null;
+  }
+
+  /**
+   * Key of shared slot; identity, strategy and bucket configuration must all agree between processes.
+   */
+  private static long sharedKey(final Bucket config, final Identifier id, final RequestStrategy strategy) {
+    DrainRate drainRate = config.getDrainRate();
+    long key = Hashing.murmur3_128().newHasher()
+        .putInt(id.type.ordinal())
+        .putString(id.value, StandardCharsets.UTF_8)
+        .putString(strategy.getName(), StandardCharsets.UTF_8)
+        .putInt(config.getAlgorithm().ordinal())
+        .putInt(config.getCapacity())
+        .putInt(drainRate.getCount())
+        .putLong(drainRate.getPeriod().toNanoseconds())
+        .hash()
+        .asLong();
+    return key != 0 ? key : 1;
+  }
+
   @Override
   public boolean tick(final RatelimitTracker tracker, final RequestStrategy strategy) {
+    return tick(tracker, strategy, null, false);
+  }
+
+  @Override
+  public boolean tickAnonymous(final RatelimitTracker tracker, final RequestStrategy strategy) {
+    return tick(tracker, strategy, ANONYMOUS, false);
+  }
+
+  @Override
+  public boolean tickDelayable(final RatelimitTracker tracker, final RequestStrategy strategy) {
+    return tick(tracker, strategy, null, true);
+  }
+
+  @Override
+  public void reject(final RatelimitTracker tracker, final RequestStrategy strategy) {
+    checkNotNull(tracker);
+    checkNotNull(strategy);
+
+    rejected.mark();
+    RatelimitBucket bucket = tracker.getBuckets().get(strategy);
+    if (bucket instanceof MeteredBucket) {
+      ((MeteredBucket) bucket).reject();
+    }
+  }
+
+  private boolean tick(final RatelimitTracker tracker,
+                       final RequestStrategy strategy,
+                       @Nullable final String role,
+                       final boolean delayable)
+  {
     checkNotNull(tracker);
     checkNotNull(strategy);
 
     log.trace("Tick; tracker: {}, strategy: {}", tracker, strategy);
     tracker.touch(ticker);
 
-    LeakyBucket bucket = bucket(tracker, strategy);
+    RatelimitBucket bucket = bucket(tracker, strategy, role);
     log.trace("Bucket: {}", bucket);
 
-    // fill one drop
-    boolean overflown = bucket.fill();
+    // fill one drop; overflow of a delayable request is only counted once it is rejected
+    boolean overflown;
+    if (delayable && bucket instanceof MeteredBucket) {
+      overflown = ((MeteredBucket) bucket).fillDelayable(1);
+    }
+    else {
+      overflown = bucket.fill();
+    }
 
     if (overflown) {
-      rejected.mark();
+      if (!delayable) {
+        rejected.mark();
+      }
+    }
+    else if (gossip != null) {
+      gossip.record(tracker, strategy, bucket);
     }
 
     return overflown;
   }
+
+  @Override
+  public long retryAfter(final RatelimitTracker tracker, final RequestStrategy strategy) {
+    checkNotNull(tracker);
+    checkNotNull(strategy);
+
+    return bucket(tracker, strategy, null).delayNanos(1);
+  }
 }
@@ -84,9 +84,21 @@ public class RatelimitTracker
 
   private final Identifier id;
 
-  private final Map<RequestStrategy, LeakyBucket> buckets = new ConcurrentHashMap<>();
+  private final Map<RequestStrategy, RatelimitBucket> buckets = new ConcurrentHashMap<>();
 
-  private long timestamp;
+  private volatile long timestamp;
+
+  //
+  // Idle expiration; guarded by IdleTrackerSweeper
+  //
+
+  RatelimitTracker sweepPrev;
+
+  RatelimitTracker sweepNext;
+
+  int sweepSlot = -1;
+
+  boolean sweepRetired;
 
   public RatelimitTracker(final Identifier id) {
     this.id = checkNotNull(id);
@@ -96,7 +108,7 @@ public class RatelimitTracker
     return id;
   }
 
-  public Map<RequestStrategy, LeakyBucket> getBuckets() {
+  public Map<RequestStrategy, RatelimitBucket> getBuckets() {
     return buckets;
   }
 
@@ -108,6 +120,19 @@ public class RatelimitTracker
     timestamp = ticker.read();
   }
 
+  /**
+   * Rough estimate of retained heap size in bytes; assumes compressed object pointers.
+   */
+  public long estimatedSize() {
+    // tracker + identifier + string value + bucket map
+    long size = 40 + 24 + 40 + id.value.length() + 64;
+
+    // map nodes + table slots + buckets + metered decorators
+    size += buckets.size() * (32L + 8 + 64 + 24);
+
+    return size;
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Open-addressing table of remote-ip {@link RatelimitTracker trackers} keyed by 128-bit address.
+ *
+ * Lookups are lock-free and allocation-free; they linearly probe an {@link AtomicReferenceArray} published through a
+ * volatile reference.  Mutations are serialized; they happen only when a tracker is created or expired.
+ *
+ * Table grows up to twice the length needed for {@link #capacity} trackers, so at capacity at least as many slots
+ * again are left for tombstones; removals also clear tombstones in place when they end a probe sequence.  Rebuilds
+ * to purge tombstones are then amortized over at least {@link #capacity} removals.
+ *
+ * Beyond capacity the least-recently touched of a small sample of trackers near the new entry is evicted, and passed
+ * to the eviction listener while the table is locked.
+ *
+ * @since ???
+ */
+class RemoteIpTrackerTable
+    implements Iterable<RatelimitTracker>
+{
+  private static final class Entry
+  {
+    private final long hi;
+
+    private final long lo;
+
+    private final RatelimitTracker tracker;
+
+    private Entry(final long hi, final long lo, final RatelimitTracker tracker) {
+      this.hi = hi;
+      this.lo = lo;
+      this.tracker = tracker;
+    }
+  }
+
+  /**
+   * Marks removed entry; keeps probe sequences intact.
+   */
+  private static final Entry TOMBSTONE = new Entry(0, 0, null);
+
+  private static final int INITIAL_LENGTH = 1024;
+
+  /**
+   * Number of live entries considered when evicting.
+   */
+  private static final int EVICTION_SAMPLE = 8;
+
+  private final int capacity;
+
+  private final int maxLength;
+
+  private final Consumer<RatelimitTracker> evicted;
+
+  private volatile AtomicReferenceArray<Entry> table;
+
+  /**
+   * Live entries; mutations guarded by {@code this}.
+   */
+  private volatile int size;
+
+  /**
+   * Tombstone entries; guarded by {@code this}.
+   */
+  private int tombstones;
+
+  private volatile long evictions;
+
+  private volatile long rebuilds;
+
+  RemoteIpTrackerTable(final int capacity, final Consumer<RatelimitTracker> evicted) {
+    checkArgument(capacity > 0);
+    this.capacity = capacity;
+    this.evicted = checkNotNull(evicted);
+    this.maxLength = lengthFor(capacity * 2L);
+    this.table = new AtomicReferenceArray<>(Math.min(INITIAL_LENGTH, maxLength));
+  }
+
+  /**
+   * Smallest power-of-two length keeping load-factor at or below 3/4 for given number of entries.
+   */
+  private static int lengthFor(final long entries) {
+    long required = Math.max(2, (entries * 4 + 2) / 3);
+    return (int) Math.min(1 << 30, Long.highestOneBit(required - 1) << 1);
+  }
+
+  private static int hash(final long hi, final long lo) {
+    // murmur3 fmix64
+    long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  int size() {
+    return size;
+  }
+
+  long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Number of times the table was rebuilt; to grow or purge tombstones.
+   */
+  long getRebuilds() {
+    return rebuilds;
+  }
+
+  int length() {
+    return table.length();
+  }
+
+  /**
+   * Lookup tracker for address.
+   */
+  RatelimitTracker get(final long hi, final long lo) {
+    AtomicReferenceArray<Entry> current = table;
+    int mask = current.length() - 1;
+    int index = hash(hi, lo) & mask;
+    for (int probe = 0; probe <= mask; probe++) {
+      Entry entry = current.get(index);
+      if (entry == null) {
+        return null;
+      }
+      if (entry != TOMBSTONE && entry.hi == hi && entry.lo == lo) {
+        return entry.tracker;
+      }
+      index = (index + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Lookup tracker for address; or create with given factory.
+   */
+  RatelimitTracker computeIfAbsent(final long hi, final long lo, final Supplier<RatelimitTracker> factory) {
+    RatelimitTracker tracker = get(hi, lo);
+    if (tracker != null) {
+      return tracker;
+    }
+
+    synchronized (this) {
+      // re-check; may have been added while waiting
+      tracker = get(hi, lo);
+      if (tracker != null) {
+        return tracker;
+      }
+
+      if (size >= capacity) {
+        evict(hi, lo);
+      }
+      if (size + tombstones + 1 > table.length() * 3L / 4) {
+        resize();
+      }
+
+      tracker = checkNotNull(factory.get());
+      AtomicReferenceArray<Entry> current = table;
+      int mask = current.length() - 1;
+      int index = hash(hi, lo) & mask;
+      while (true) {
+        Entry entry = current.get(index);
+        if (entry == null || entry == TOMBSTONE) {
+          if (entry == TOMBSTONE) {
+            tombstones--;
+          }
+          current.set(index, new Entry(hi, lo, tracker));
+          size++;
+          return tracker;
+        }
+        index = (index + 1) & mask;
+      }
+    }
+  }
+
+  /**
+   * Remove tracker for address; only if it is still the given tracker.
+   */
+  synchronized boolean remove(final long hi, final long lo, final RatelimitTracker tracker) {
+    AtomicReferenceArray<Entry> current = table;
+    int mask = current.length() - 1;
+    int index = hash(hi, lo) & mask;
+    for (int probe = 0; probe <= mask; probe++) {
+      Entry entry = current.get(index);
+      if (entry == null) {
+        return false;
+      }
+      if (entry != TOMBSTONE && entry.hi == hi && entry.lo == lo) {
+        if (entry.tracker != tracker) {
+          return false;
+        }
+        clear(current, index);
+        size--;
+        return true;
+      }
+      index = (index + 1) & mask;
+    }
+    return false;
+  }
+
+  synchronized void clear() {
+    table = new AtomicReferenceArray<>(Math.min(INITIAL_LENGTH, maxLength));
+    size = 0;
+    tombstones = 0;
+  }
+
+  /**
+   * Clear slot of removed entry.
+   *
+   * If the following slot is empty no probe sequence continues past this slot, so it and any tombstones directly
+   * before it are emptied instead; otherwise the slot becomes a tombstone.
+   */
+  private void clear(final AtomicReferenceArray<Entry> current, final int index) {
+    int mask = current.length() - 1;
+    if (current.get((index + 1) & mask) != null) {
+      current.set(index, TOMBSTONE);
+      tombstones++;
+      return;
+    }
+
+    current.set(index, null);
+    int previous = (index - 1) & mask;
+    while (previous != index && current.get(previous) == TOMBSTONE) {
+      current.set(previous, null);
+      tombstones--;
+      previous = (previous - 1) & mask;
+    }
+  }
+
+  /**
+   * Evict the least-recently touched of a sample of live entries following the home slot of given address.
+   */
+  private void evict(final long hi, final long lo) {
+    AtomicReferenceArray<Entry> current = table;
+    int mask = current.length() - 1;
+    int index = hash(hi, lo) & mask;
+    int victim = -1;
+    long oldest = Long.MAX_VALUE;
+    int sampled = 0;
+    for (int probe = 0; probe <= mask && sampled < EVICTION_SAMPLE; probe++) {
+      Entry entry = current.get(index);
+      if (entry != null && entry != TOMBSTONE) {
+        long touched = entry.tracker.getTimestamp();
+        if (victim == -1 || touched < oldest) {
+          victim = index;
+          oldest = touched;
+        }
+        sampled++;
+      }
+      index = (index + 1) & mask;
+    }
+    if (victim != -1) {
+      RatelimitTracker tracker = current.get(victim).tracker;
+      clear(current, victim);
+      size--;
+      evictions++;
+      evicted.accept(tracker);
+    }
+  }
+
+  /**
+   * Rebuild table dropping tombstones; grows to twice the length live entries need, up to the maximum length.
+   */
+  private void resize() {
+    AtomicReferenceArray<Entry> current = table;
+    int length = Math.max(current.length(), lengthFor(Math.min(capacity, size) * 2L));
+    AtomicReferenceArray<Entry> updated = new AtomicReferenceArray<>(length);
+    int mask = length - 1;
+    for (int i = 0; i < current.length(); i++) {
+      Entry entry = current.get(i);
+      if (entry != null && entry != TOMBSTONE) {
+        int index = hash(entry.hi, entry.lo) & mask;
+        while (updated.get(index) != null) {
+          index = (index + 1) & mask;
+        }
+        updated.set(index, entry);
+      }
+    }
+    tombstones = 0;
+    rebuilds++;
+    table = updated;
+  }
+
+  /**
+   * Weakly-consistent iterator over trackers.
+   */
+  @Override
+  public Iterator<RatelimitTracker> iterator() {
+    AtomicReferenceArray<Entry> current = table;
+    return new Iterator<RatelimitTracker>()
+    {
+      private int index;
+
+      private RatelimitTracker next = advance();
+
+      private RatelimitTracker advance() {
+        while (index < current.length()) {
+          Entry entry = current.get(index++);
+          if (entry != null && entry != TOMBSTONE) {
+            return entry.tracker;
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public RatelimitTracker next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        RatelimitTracker result = next;
+        next = advance();
+        return result;
+      }
+    };
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compiled {@link RequestStrategy} matcher.
+ *
+ * Each strategy pattern is reduced to the literal prefix any full match must start with, and prefixes are compiled
+ * into a trie.  A lookup walks the path through the trie once; the deepest node reached holds, in configuration order,
+ * the only strategies which could possibly match, and only those patterns are evaluated.  Strategies without a usable
+ * literal prefix (alternation, flags, leading wildcards) are candidates at every node.
+ *
+ * Recent path to strategy results are kept in a small bounded cache.
+ *
+ * @since ???
+ */
+class RequestStrategyMatcher
+{
+  private static final Logger log = LoggerFactory.getLogger(RequestStrategyMatcher.class);
+
+  /**
+   * Regular-expression meta-characters which end a literal prefix.
+   */
+  private static final String META = "\\^$.|?*+()[]{}";
+
+  /**
+   * Quantifiers which make the preceding character optional or repeatable.
+   */
+  private static final String QUANTIFIERS = "?*+{";
+
+  private static final int NONE = -1;
+
+  private static class Node
+  {
+    private final Map<Character, Node> children = new HashMap<>();
+
+    /**
+     * Indexes of strategies whose literal prefix is exactly the path to this node.
+     */
+    private final List<Integer> terminal = new ArrayList<>();
+
+    /**
+     * Sorted indexes of all strategies whose literal prefix is a prefix of the path to this node.
+     */
+    private int[] candidates;
+  }
+
+  private final RequestStrategy[] strategies;
+
+  private final Pattern[] patterns;
+
+  private final Node root = new Node();
+
+  @Nullable
+  private final Cache<String, Integer> cache;
+
+  RequestStrategyMatcher(final List<RequestStrategy> strategies, final int cacheSize) {
+    checkNotNull(strategies);
+    checkArgument(cacheSize >= 0);
+
+    int count = strategies.size();
+    this.strategies = strategies.toArray(new RequestStrategy[0]);
+    this.patterns = new Pattern[count];
+    for (int i = 0; i < count; i++) {
+      Pattern pattern = this.strategies[i].getPattern();
+      patterns[i] = pattern;
+
+      String prefix = literalPrefix(pattern);
+      log.trace("Strategy[{}] literal-prefix: {} -> '{}'", i, pattern, prefix);
+
+      Node node = root;
+      for (int c = 0; c < prefix.length(); c++) {
+        node = node.children.computeIfAbsent(prefix.charAt(c), key -> new Node());
+      }
+      node.terminal.add(i);
+    }
+    link(root, new TreeSet<>());
+
+    this.cache = cacheSize > 0 ? Caffeine.newBuilder().maximumSize(cacheSize).build() : null;
+  }
+
+  /**
+   * Compute cumulative candidates for each node.
+   */
+  private static void link(final Node node, final TreeSet<Integer> inherited) {
+    TreeSet<Integer> candidates = new TreeSet<>(inherited);
+    candidates.addAll(node.terminal);
+    node.candidates = candidates.stream().mapToInt(Integer::intValue).toArray();
+    for (Node child : node.children.values()) {
+      link(child, candidates);
+    }
+  }
+
+  /**
+   * Returns the literal prefix any full match of given pattern must start with; or empty string if unknown.
+   */
+  @VisibleForTesting
+  static String literalPrefix(final Pattern pattern) {
+    String regex = pattern.pattern();
+
+    // flags may change literal meaning; any alternation may apply to the whole expression
+    if (pattern.flags() != 0 || regex.indexOf('|') != -1) {
+      return "";
+    }
+
+    StringBuilder prefix = new StringBuilder();
+    int length = regex.length();
+    int i = regex.startsWith("^") ? 1 : 0;
+    while (i < length) {
+      char c = regex.charAt(i);
+      char literal;
+      int next;
+
+      if (c == '\\') {
+        // only escaped punctuation is literal; letters and digits are classes, references or quotes
+        if (i + 1 >= length || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+          break;
+        }
+        literal = regex.charAt(i + 1);
+        next = i + 2;
+      }
+      else if (META.indexOf(c) != -1) {
+        break;
+      }
+      else {
+        literal = c;
+        next = i + 1;
+      }
+
+      if (next < length && QUANTIFIERS.indexOf(regex.charAt(next)) != -1) {
+        break;
+      }
+
+      prefix.append(literal);
+      i = next;
+    }
+
+    return prefix.toString();
+  }
+
+  /**
+   * Returns the first strategy, in configuration order, which matches given path.
+   */
+  @Nullable
+  RequestStrategy match(final String path) {
+    checkNotNull(path);
+
+    if (cache != null) {
+      Integer cached = cache.getIfPresent(path);
+      if (cached != null) {
+        return cached == NONE ? null : strategies[cached];
+      }
+    }
+
+    int index = find(path);
+    if (cache != null) {
+      cache.put(path, index);
+    }
+    return index == NONE ? null : strategies[index];
+  }
+
+  private int find(final String path) {
+    // walk the trie to the deepest node matching a prefix of the path
+    Node node = root;
+    for (int i = 0, length = path.length(); i < length; i++) {
+      Node child = node.children.get(path.charAt(i));
+      if (child == null) {
+        break;
+      }
+      node = child;
+    }
+
+    for (int index : node.candidates) {
+      log.trace("Checking path: {} -> {}", patterns[index], path);
+      if (patterns[index].matcher(path).matches()) {
+        return index;
+      }
+    }
+    return NONE;
+  }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Ticker;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Table of bucket state slots in a memory-mapped file.
+ *
+ * All processes on a host which map the same file share bucket state; slots are updated with compare-and-set on the
+ * mapped buffer so the processes enforce one combined limit.
+ *
+ * Time is measured in epoch nano-seconds; each process anchors its clock to the wall clock once, so clocks of processes
+ * are skewed by a few milliseconds and drift apart over uptime.  Buckets tolerate skew: a process whose clock lags
+ * never moves a recorded period or arrival time backwards, nor drains from it.  So the combined limit may only be
+ * exceeded by the drops draining within the skew; for leaky buckets at most one period's drain while the skew is
+ * shorter than the drain period.
+ *
+ * Slots are claimed by 64-bit key with bounded linear probing; slots not updated for the reclaim period may be
+ * claimed by another key.  When no slot can be claimed callers should fall back to a local bucket.
+ *
+ * Reclaiming first fences the slot by compare-and-set of its last-access, so owners touching the slot meanwhile keep
+ * it; then swaps the key and resets state.  A {@link Slot} re-checks the key after loading and after updating state,
+ * so an owner which was idle past the reclaim period notices before its update lands in the new owner's bucket, or
+ * undoes it, and continues with local state.
+ *
+ * Layout; native byte order:
+ *
+ * <pre>
+ * header: int magic, int version, int slots, int slot-size; padded to 64 bytes
+ * slot:   long key, long state, long last-access (epoch nanos), long reserved
+ * </pre>
+ *
+ * @since ???
+ */
+class SharedBucketTable
+{
+  private static final Logger log = LoggerFactory.getLogger(SharedBucketTable.class);
+
+  private static final int MAGIC = 0x524C5354; // RLST
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 64;
+
+  private static final int SLOT_SIZE = 32;
+
+  private static final int KEY = 0;
+
+  private static final int STATE = 8;
+
+  private static final int ACCESS = 16;
+
+  /**
+   * Maximum slots probed to claim a key.
+   */
+  private static final int MAX_PROBE = 8;
+
+  /**
+   * Minimum change before last-access is updated; avoids a write on every update.
+   */
+  private static final long ACCESS_RESOLUTION_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+  private final Path file;
+
+  private final MappedByteBuffer buffer;
+
+  private final int slots;
+
+  private final long reclaimNanos;
+
+  /**
+   * Epoch nano-second clock.
+   */
+  private final Ticker clock;
+
+  SharedBucketTable(final Path file, final int slots, final Duration reclaimAfter, final Ticker ticker)
+      throws IOException
+  {
+    this.file = checkNotNull(file);
+    checkArgument(slots > 0 && slots <= (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE, "Invalid slots: %s", slots);
+    this.reclaimNanos = checkNotNull(reclaimAfter).toNanoseconds();
+    checkNotNull(ticker);
+
+    long offset = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - ticker.read();
+    this.clock = new Ticker()
+    {
+      @Override
+      public long read() {
+        return ticker.read() + offset;
+      }
+    };
+
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    try (FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      int count;
+      // exclusive while initializing or reading header; other processes may be opening concurrently
+      try (FileLock ignored = channel.lock()) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+        if (channel.size() == 0) {
+          count = slots;
+          header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(SLOT_SIZE).rewind();
+          channel.write(header, 0);
+          channel.write(ByteBuffer.allocate(1), HEADER_SIZE + (long) count * SLOT_SIZE - 1);
+          log.debug("Initialized: {}; slots: {}", file, count);
+        }
+        else {
+          channel.read(header, 0);
+          header.flip();
+          checkState(header.remaining() == HEADER_SIZE && header.getInt() == MAGIC, "Invalid table: %s", file);
+          int version = header.getInt();
+          checkState(version == VERSION, "Unsupported table version: %s", version);
+          count = header.getInt();
+          checkState(header.getInt() == SLOT_SIZE, "Unsupported slot size: %s", file);
+          if (count != slots) {
+            log.warn("Using existing table size: {}; configured: {}", count, slots);
+          }
+        }
+      }
+      this.slots = count;
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) count * SLOT_SIZE);
+    }
+  }
+
+  public int getSlots() {
+    return slots;
+  }
+
+  /**
+   * Epoch nano-second clock; buckets on shared slots must use this as ticker.
+   */
+  public Ticker getClock() {
+    return clock;
+  }
+
+  private static int offset(final int slot) {
+    return HEADER_SIZE + slot * SLOT_SIZE;
+  }
+
+  private long get(final int offset) {
+    return (long) LONGS.getVolatile(buffer, offset);
+  }
+
+  /**
+   * Claim slot for key.
+   *
+   * @return Slot offset; or {@code -1} if no slot is available.
+   */
+  int claim(final long key) {
+    checkArgument(key != 0);
+    long now = clock.read();
+    int start = (int) Math.floorMod(CountMinSketch.mix(key), (long) slots);
+
+    for (int i = 0; i < MAX_PROBE; i++) {
+      int offset = offset((start + i) % slots);
+      long current = get(offset + KEY);
+      if (current == key) {
+        touch(offset, now);
+        return offset;
+      }
+
+      // claim empty slot
+      if (current == 0) {
+        if (LONGS.compareAndSet(buffer, offset + KEY, 0L, key)) {
+          LONGS.setVolatile(buffer, offset + ACCESS, now);
+          return offset;
+        }
+        // lost race; may have been claimed for the same key
+        if (get(offset + KEY) == key) {
+          return offset;
+        }
+        continue;
+      }
+
+      // reclaim abandoned slot; fence out owners and competing claims before the key changes
+      long access = get(offset + ACCESS);
+      if (now - access > reclaimNanos && LONGS.compareAndSet(buffer, offset + ACCESS, access, now)) {
+        if (LONGS.compareAndSet(buffer, offset + KEY, current, key)) {
+          LONGS.setVolatile(buffer, offset + STATE, 0L);
+          return offset;
+        }
+      }
+      if (get(offset + KEY) == key) {
+        return offset;
+      }
+    }
+    return -1;
+  }
+
+  long loadState(final int offset) {
+    return get(offset + STATE);
+  }
+
+  boolean isClaimed(final int offset, final long key) {
+    return get(offset + KEY) == key;
+  }
+
+  boolean compareAndSetState(final int offset, final long expected, final long updated) {
+    if (LONGS.compareAndSet(buffer, offset + STATE, expected, updated)) {
+      touch(offset, clock.read());
+      return true;
+    }
+    return false;
+  }
+
+  void storeState(final int offset, final long updated) {
+    LONGS.setVolatile(buffer, offset + STATE, updated);
+    touch(offset, clock.read());
+  }
+
+  private void touch(final int offset, final long now) {
+    if (now - get(offset + ACCESS) >= ACCESS_RESOLUTION_NANOS) {
+      LONGS.setVolatile(buffer, offset + ACCESS, now);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("file", file)
+        .add("slots", slots)
+        .toString();
+  }
+
+  //
+  // Buckets
+  //
+
+  /**
+   * Bucket state in a slot claimed for key; moves to local state once the slot is found reclaimed by another key.
+   */
+  static final class Slot
+  {
+    private final SharedBucketTable table;
+
+    private final int offset;
+
+    private final long key;
+
+    private final AtomicLong local = new AtomicLong();
+
+    private volatile boolean lost;
+
+    Slot(final SharedBucketTable table, final int offset, final long key) {
+      this.table = checkNotNull(table);
+      this.offset = offset;
+      this.key = key;
+    }
+
+    boolean isLost() {
+      return lost;
+    }
+
+    private void lose(final long state) {
+      local.set(state);
+      lost = true;
+      log.debug("Slot reclaimed; continuing with local state: {}", offset);
+    }
+
+    long load() {
+      if (!lost) {
+        long state = table.loadState(offset);
+        // state is reset after the key changes; so if the key is still ours, so is the state
+        if (table.isClaimed(offset, key)) {
+          return state;
+        }
+        lose(0L);
+      }
+      return local.get();
+    }
+
+    boolean compareAndSet(final long expected, final long updated) {
+      if (!lost) {
+        if (!table.compareAndSetState(offset, expected, updated)) {
+          return false;
+        }
+        if (table.isClaimed(offset, key)) {
+          return true;
+        }
+        // reclaimed meanwhile; an update before the state reset was wiped by it, one after can only have matched the
+        // reset state, so undo that unless the new owner has updated since
+        if (expected == 0L) {
+          table.compareAndSetState(offset, updated, 0L);
+        }
+        lose(expected);
+      }
+      return local.compareAndSet(expected, updated);
+    }
+
+    void store(final long updated) {
+      if (!lost) {
+        if (table.isClaimed(offset, key)) {
+          table.storeState(offset, updated);
+          if (table.isClaimed(offset, key)) {
+            return;
+          }
+        }
+        lose(updated);
+      }
+      local.set(updated);
+    }
+  }
+
+  /**
+   * {@link LeakyBucket} with state in a shared slot.
+   */
+  static class Leaky
+      extends LeakyBucket
+  {
+    private final Slot slot;
+
+    Leaky(final SharedBucketTable table,
+          final int offset,
+          final long key,
+          final long capacity,
+          final long drainCountPerPeriod,
+          final Duration drainPeriod)
+    {
+      // periods are counted from the epoch so they agree between processes; up to clock skew
+      super(table.getClock(), capacity, drainCountPerPeriod, drainPeriod, 0L);
+      this.slot = new Slot(table, offset, key);
+    }
+
+    Slot getSlot() {
+      return slot;
+    }
+
+    @Override
+    protected long loadState() {
+      return slot.load();
+    }
+
+    @Override
+    protected boolean compareAndSetState(final long expected, final long updated) {
+      return slot.compareAndSet(expected, updated);
+    }
+
+    @Override
+    protected void storeState(final long updated) {
+      slot.store(updated);
+    }
+  }
+
+  /**
+   * {@link GcraBucket} with state in a shared slot.
+   */
+  static class Gcra
+      extends GcraBucket
+  {
+    private final Slot slot;
+
+    Gcra(final SharedBucketTable table,
+         final int offset,
+         final long key,
+         final long capacity,
+         final long drainCountPerPeriod,
+         final Duration drainPeriod)
+    {
+      // arrival time is relative to the epoch so it agrees between processes; up to clock skew
+      super(table.getClock(), capacity, drainCountPerPeriod, drainPeriod, 0L);
+      this.slot = new Slot(table, offset, key);
+    }
+
+    Slot getSlot() {
+      return slot;
+    }
+
+    @Override
+    protected long loadState() {
+      return slot.load();
+    }
+
+    @Override
+    protected boolean compareAndSetState(final long expected, final long updated) {
+      return slot.compareAndSet(expected, updated);
+    }
+
+    @Override
+    protected void storeState(final long updated) {
+      slot.store(updated);
+    }
+  }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Algorithm;
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy;
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitTracker.Identifier;
+
+import com.google.common.base.MoreObjects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Binary snapshot of tracker bucket levels.
+ *
+ * Layout; all values big-endian:
+ *
+ * <pre>
+ * header:  int magic, int version, long timestamp (epoch millis)
+ * tracker: byte type, string value, short bucket-count, bucket*
+ * bucket:  string strategy, byte algorithm, int capacity, int drain-count, long drain-period-nanos, int size
+ * string:  unsigned short length, UTF-8 bytes
+ * </pre>
+ *
+ * Trackers follow the header until end of file.  Only buckets which are not empty are recorded.
+ *
+ * Snapshots are written to a temporary file and moved into place, so readers never observe a partial snapshot.
+ * Snapshots are read from a memory-mapped buffer.
+ *
+ * @since ???
+ */
+final class TrackerSnapshot
+{
+  private static final Logger log = LoggerFactory.getLogger(TrackerSnapshot.class);
+
+  private static final int MAGIC = 0x524C534E; // RLSN
+
+  private static final int VERSION = 1;
+
+  private static final int MAX_STRING = 0xFFFF;
+
+  private TrackerSnapshot() {
+    // empty
+  }
+
+  /**
+   * Recorded bucket state.
+   */
+  static class BucketState
+  {
+    final String strategy;
+
+    final Algorithm algorithm;
+
+    final int capacity;
+
+    final int drainCount;
+
+    final long drainPeriodNanos;
+
+    final int size;
+
+    BucketState(final String strategy,
+                final Algorithm algorithm,
+                final int capacity,
+                final int drainCount,
+                final long drainPeriodNanos,
+                final int size)
+    {
+      this.strategy = checkNotNull(strategy);
+      this.algorithm = checkNotNull(algorithm);
+      this.capacity = capacity;
+      this.drainCount = drainCount;
+      this.drainPeriodNanos = drainPeriodNanos;
+      this.size = size;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("strategy", strategy)
+          .add("algorithm", algorithm)
+          .add("capacity", capacity)
+          .add("drainCount", drainCount)
+          .add("drainPeriodNanos", drainPeriodNanos)
+          .add("size", size)
+          .toString();
+    }
+  }
+
+  /**
+   * Recorded tracker state.
+   */
+  static class TrackerState
+  {
+    final Identifier id;
+
+    final List<BucketState> buckets;
+
+    TrackerState(final Identifier id, final List<BucketState> buckets) {
+      this.id = checkNotNull(id);
+      this.buckets = checkNotNull(buckets);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("id", id)
+          .add("buckets", buckets)
+          .toString();
+    }
+  }
+
+  //
+  // Write
+  //
+
+  /**
+   * Write snapshot of trackers; replacing any existing snapshot.
+   *
+   * @return Number of trackers written.
+   */
+  static int write(final Path file, final Iterable<RatelimitTracker> trackers, final long timestamp)
+      throws IOException
+  {
+    checkNotNull(file);
+    checkNotNull(trackers);
+
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    int count = 0;
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(timestamp);
+
+        for (RatelimitTracker tracker : trackers) {
+          if (write(out, tracker)) {
+            count++;
+          }
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+    return count;
+  }
+
+  private static boolean write(final DataOutputStream out, final RatelimitTracker tracker) throws IOException {
+    Identifier id = tracker.getId();
+    List<BucketState> buckets = new ArrayList<>();
+    for (Entry<RequestStrategy, RatelimitBucket> entry : tracker.getBuckets().entrySet()) {
+      BucketState state = state(entry.getKey(), entry.getValue());
+      if (state != null) {
+        buckets.add(state);
+      }
+    }
+    if (buckets.isEmpty() || id.value.length() > MAX_STRING / 3) {
+      return false;
+    }
+
+    out.writeByte(id.type.ordinal());
+    writeString(out, id.value);
+    out.writeShort(buckets.size());
+    for (BucketState bucket : buckets) {
+      writeString(out, bucket.strategy);
+      out.writeByte(bucket.algorithm.ordinal());
+      out.writeInt(bucket.capacity);
+      out.writeInt(bucket.drainCount);
+      out.writeLong(bucket.drainPeriodNanos);
+      out.writeInt(bucket.size);
+    }
+    return true;
+  }
+
+  /**
+   * Returns state of bucket; or {@code null} if empty or can not be recorded.
+   */
+  private static BucketState state(final RequestStrategy strategy, final RatelimitBucket bucket) {
+    RatelimitBucket target = bucket instanceof MeteredBucket ? ((MeteredBucket) bucket).getDelegate() : bucket;
+
+    Algorithm algorithm;
+    if (target instanceof LeakyBucket) {
+      algorithm = Algorithm.LEAKY;
+    }
+    else if (target instanceof GcraBucket) {
+      algorithm = Algorithm.GCRA;
+    }
+    else {
+      return null;
+    }
+
+    String name = strategy.getName();
+    long size = bucket.getSize();
+    if (size == 0 || name.length() > MAX_STRING / 3 || bucket.getCapacity() > Integer.MAX_VALUE
+        || bucket.getDrainCountPerPeriod() > Integer.MAX_VALUE) {
+      return null;
+    }
+    return new BucketState(name, algorithm, (int) bucket.getCapacity(), (int) bucket.getDrainCountPerPeriod(),
+        bucket.getDrainPeriodNanos(), (int) size);
+  }
+
+  private static void writeString(final DataOutputStream out, final String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  //
+  // Read
+  //
+
+  /**
+   * Snapshot reader.
+   */
+  static class Reader
+      implements Iterator<TrackerState>
+  {
+    private final ByteBuffer buffer;
+
+    private final long timestamp;
+
+    Reader(final Path file) throws IOException {
+      checkNotNull(file);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        // mapping remains valid after channel is closed
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      checkState(buffer.remaining() >= 16 && buffer.getInt() == MAGIC, "Invalid snapshot: %s", file);
+      int version = buffer.getInt();
+      checkState(version == VERSION, "Unsupported snapshot version: %s", version);
+      this.timestamp = buffer.getLong();
+      log.trace("Reading snapshot: {}; timestamp: {}", file, timestamp);
+    }
+
+    /**
+     * Time the snapshot was written in epoch millis.
+     */
+    long getTimestamp() {
+      return timestamp;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return buffer.hasRemaining();
+    }
+
+    @Override
+    public TrackerState next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Identifier.Type[] types = Identifier.Type.values();
+      Algorithm[] algorithms = Algorithm.values();
+
+      Identifier id = new Identifier(types[buffer.get()], readString());
+      int count = Short.toUnsignedInt(buffer.getShort());
+      List<BucketState> buckets = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        buckets.add(new BucketState(
+            readString(),
+            algorithms[buffer.get()],
+            buffer.getInt(),
+            buffer.getInt(),
+            buffer.getLong(),
+            buffer.getInt()
+        ));
+      }
+      return new TrackerState(id, buckets);
+    }
+
+    private String readString() {
+      int length = Short.toUnsignedInt(buffer.getShort());
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+}
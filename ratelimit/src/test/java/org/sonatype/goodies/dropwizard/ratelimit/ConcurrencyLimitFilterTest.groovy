@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import java.util.regex.Pattern
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy
+
+import com.codahale.metrics.MetricRegistry
+import org.junit.jupiter.api.Test
+
+import static org.mockito.Mockito.mock
+
+/**
+ * Tests for {@link ConcurrencyLimitFilter}.
+ */
+class ConcurrencyLimitFilterTest
+{
+  @Test
+  void 'duplicate strategy names are tolerated'() {
+    def config = new RatelimitConfiguration(
+        requestStrategies: [
+            new RequestStrategy(name: 'api', pattern: Pattern.compile('/api/.*')),
+            new RequestStrategy(name: 'api', pattern: Pattern.compile('/v2/api/.*'))
+        ]
+    )
+    def metricRegistry = new MetricRegistry()
+
+    new ConcurrencyLimitFilter(config, mock(RatelimitService.class), metricRegistry)
+
+    assert metricRegistry.gauges.keySet().findAll { it.startsWith('service.ratelimit.concurrency.api.') }.size() == 4
+  }
+}
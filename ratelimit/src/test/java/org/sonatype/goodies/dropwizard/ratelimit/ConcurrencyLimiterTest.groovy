@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Concurrency
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.LimitAlgorithm
+
+import com.google.common.base.Ticker
+import io.dropwizard.util.Duration
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+/**
+ * Tests for {@link ConcurrencyLimiter}.
+ */
+class ConcurrencyLimiterTest
+{
+  private class AdjustableTicker
+    extends Ticker
+  {
+    private long value = 0L
+
+    @Override
+    long read() {
+      return value
+    }
+
+    void advance(final Duration duration) {
+      value += duration.toNanoseconds()
+    }
+  }
+
+  private AdjustableTicker ticker
+
+  private Concurrency config
+
+  @BeforeEach
+  void setUp() {
+    ticker = new AdjustableTicker()
+    config = new Concurrency(
+        window: Duration.seconds(1),
+        minWindowSamples: 1,
+        latencyThreshold: Duration.milliseconds(100)
+    )
+  }
+
+  private static long millis(final long value) {
+    return Duration.milliseconds(value).toNanoseconds()
+  }
+
+  @Test
+  void 'acquire up to limit'() {
+    config.initialLimit = 2
+    def underTest = new ConcurrencyLimiter(ticker, config)
+
+    assert underTest.tryAcquire()
+    assert underTest.tryAcquire()
+    assert !underTest.tryAcquire()
+    assert underTest.inflight == 2
+
+    underTest.release(millis(10), false)
+    assert underTest.inflight == 1
+    assert underTest.tryAcquire()
+  }
+
+  @Test
+  void 'aimd backs off on latency and grows when utilized'() {
+    config.algorithm = LimitAlgorithm.AIMD
+    config.initialLimit = 10
+    def underTest = new ConcurrencyLimiter(ticker, config)
+
+    assert underTest.tryAcquire()
+    ticker.advance(Duration.seconds(1))
+    underTest.release(millis(500), false)
+    assert underTest.limit == 9
+    assert underTest.rttNanos == millis(500)
+
+    5.times { assert underTest.tryAcquire() }
+    ticker.advance(Duration.seconds(1))
+    underTest.release(millis(10), false)
+    assert underTest.limit == 10
+
+    // window not closed yet
+    4.times { underTest.release(millis(500), false) }
+    assert underTest.limit == 10
+  }
+
+  @Test
+  void 'aimd does not grow when not utilized'() {
+    config.algorithm = LimitAlgorithm.AIMD
+    config.initialLimit = 10
+    def underTest = new ConcurrencyLimiter(ticker, config)
+
+    assert underTest.tryAcquire()
+    ticker.advance(Duration.seconds(1))
+    underTest.release(millis(10), false)
+    assert underTest.limit == 10
+  }
+
+  @Test
+  void 'gradient shrinks when latency rises above baseline'() {
+    config.algorithm = LimitAlgorithm.GRADIENT
+    config.initialLimit = 20
+    config.smoothing = 1.0d
+    def underTest = new ConcurrencyLimiter(ticker, config)
+
+    10.times { assert underTest.tryAcquire() }
+    ticker.advance(Duration.seconds(1))
+    underTest.release(millis(10), false)
+    assert underTest.baselineRttNanos == millis(10)
+    assert underTest.limit == 25
+    9.times { underTest.release(millis(10), false) }
+
+    assert underTest.tryAcquire()
+    ticker.advance(Duration.seconds(1))
+    underTest.release(millis(100), false)
+    assert underTest.limit == 18
+  }
+
+  @Test
+  void 'limit is bounded'() {
+    config.algorithm = LimitAlgorithm.AIMD
+    config.initialLimit = 1
+    def underTest = new ConcurrencyLimiter(ticker, config)
+
+    3.times {
+      assert underTest.tryAcquire()
+      ticker.advance(Duration.seconds(1))
+      underTest.release(millis(10), true)
+    }
+    assert underTest.limit == 1
+  }
+}
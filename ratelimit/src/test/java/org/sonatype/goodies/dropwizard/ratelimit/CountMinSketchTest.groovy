@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import org.junit.jupiter.api.Test
+
+/**
+ * Tests for {@link CountMinSketch}.
+ */
+class CountMinSketchTest
+{
+  @Test
+  void 'counts never under-estimate'() {
+    def underTest = new CountMinSketch(4, 64)
+    def counts = [:]
+    (0..<1000).each {
+      long hash = CountMinSketch.mix(it % 200)
+      counts[hash] = (counts[hash] ?: 0) + 1
+      underTest.increment(hash)
+    }
+    counts.each { hash, count ->
+      assert underTest.estimate(hash) >= count
+    }
+  }
+
+  @Test
+  void 'increment returns estimate'() {
+    def underTest = new CountMinSketch(4, 1024)
+    long hash = CountMinSketch.mix(42)
+    assert underTest.estimate(hash) == 0
+    assert underTest.increment(hash) == 1
+    assert underTest.increment(hash) == 2
+    assert underTest.estimate(hash) == 2
+  }
+
+  @Test
+  void 'decay halves counts'() {
+    def underTest = new CountMinSketch(4, 1024)
+    long hash = CountMinSketch.mix(42)
+    9.times { underTest.increment(hash) }
+
+    underTest.decay()
+    assert underTest.estimate(hash) == 4
+
+    underTest.clear()
+    assert underTest.estimate(hash) == 0
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicLong
+
+import com.google.common.base.Ticker
+import io.dropwizard.util.Duration
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+/**
+ * Tests for {@link GcraBucket}.
+ */
+class GcraBucketTest
+{
+  private class AdjustableTicker
+    extends Ticker
+  {
+    private long value = 0L
+
+    @Override
+    long read() {
+      return value
+    }
+
+    void advance(final Duration duration) {
+      value += duration.toNanoseconds()
+    }
+  }
+
+  private AdjustableTicker ticker
+
+  @BeforeEach
+  void setUp() {
+    ticker = new AdjustableTicker()
+  }
+
+  @Test
+  void 'bucket overflow'() {
+    def underTest = new GcraBucket(ticker, 3, 1, Duration.hours(1))
+    assert underTest.capacity == 3
+    assert underTest.size == 0
+
+    assert !underTest.fill()
+    assert underTest.size == 1
+
+    assert !underTest.fill()
+    assert underTest.size == 2
+
+    assert !underTest.fill()
+    assert underTest.size == 3
+
+    assert underTest.fill() // overflown
+    assert underTest.size == 3
+
+    assert underTest.fill(4) // never fits
+  }
+
+  @Test
+  void 'drops release continuously'() {
+    def underTest = new GcraBucket(ticker, 3, 1, Duration.seconds(1))
+    3.times { assert !underTest.fill() }
+    assert underTest.fill() // overflow
+
+    ticker.advance(Duration.seconds(1))
+    assert underTest.size == 2
+    assert !underTest.fill()
+    assert underTest.size == 3
+
+    // part of an interval is not enough to admit another drop
+    ticker.advance(Duration.milliseconds(500))
+    assert underTest.size == 3
+    assert underTest.fill() // overflow
+
+    ticker.advance(Duration.milliseconds(500))
+    assert !underTest.fill()
+    assert underTest.fill() // overflow
+
+    ticker.advance(Duration.hours(1))
+    assert underTest.size == 0
+  }
+
+  @Test
+  void 'delay until admitted'() {
+    def underTest = new GcraBucket(ticker, 3, 2, Duration.seconds(1))
+    assert underTest.delayNanos(1) == 0
+    assert underTest.delayNanos(4) == Long.MAX_VALUE
+
+    3.times { assert !underTest.fill() }
+    assert underTest.delayNanos(1) == Duration.milliseconds(500).toNanoseconds()
+    assert underTest.delayNanos(2) == Duration.seconds(1).toNanoseconds()
+
+    ticker.advance(Duration.milliseconds(200))
+    assert underTest.delayNanos(1) == Duration.milliseconds(300).toNanoseconds()
+
+    ticker.advance(Duration.milliseconds(300))
+    assert underTest.delayNanos(1) == 0
+    assert !underTest.fill()
+  }
+
+  @Test
+  void 'concurrent fill does not lose updates'() {
+    def underTest = new GcraBucket(ticker, 10_000, 1, Duration.hours(1))
+    def accepted = new AtomicLong()
+    def start = new CountDownLatch(1)
+
+    def threads = (1..8).collect {
+      Thread.start {
+        start.await()
+        2_000.times {
+          if (!underTest.fill()) {
+            accepted.incrementAndGet()
+          }
+        }
+      }
+    }
+    start.countDown()
+    threads*.join()
+
+    assert accepted.get() == 10_000
+    assert underTest.size == 10_000
+    assert underTest.fill() // overflow
+  }
+}
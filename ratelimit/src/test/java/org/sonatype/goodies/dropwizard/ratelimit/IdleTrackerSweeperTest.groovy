@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitTracker.Identifier
+
+import com.google.common.base.Ticker
+import io.dropwizard.util.Duration
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+/**
+ * Tests for {@link IdleTrackerSweeper}.
+ */
+class IdleTrackerSweeperTest
+{
+  private class AdjustableTicker
+      extends Ticker
+  {
+    private long value = 0L
+
+    @Override
+    long read() {
+      return value
+    }
+
+    void advance(final Duration duration) {
+      value += duration.toNanoseconds()
+    }
+  }
+
+  private AdjustableTicker ticker
+
+  private List<RatelimitTracker> removed
+
+  private IdleTrackerSweeper underTest
+
+  @BeforeEach
+  void setUp() {
+    ticker = new AdjustableTicker()
+    removed = []
+    underTest = new IdleTrackerSweeper(ticker, Duration.seconds(16), { removed << it; true })
+  }
+
+  private RatelimitTracker tracker(final String name) {
+    def tracker = new RatelimitTracker(new Identifier(Identifier.Type.USERNAME, name))
+    tracker.touch(ticker)
+    underTest.schedule(tracker)
+    return tracker
+  }
+
+  @Test
+  void 'idle tracker expires after idle-period'() {
+    def tracker = tracker('idle')
+
+    ticker.advance(Duration.seconds(15))
+    underTest.run()
+    assert removed.isEmpty()
+
+    ticker.advance(Duration.seconds(2))
+    underTest.run()
+    assert removed == [tracker]
+    assert underTest.lastEvicted == 1
+  }
+
+  @Test
+  void 'touched tracker is rescheduled'() {
+    def tracker = tracker('active')
+
+    ticker.advance(Duration.seconds(10))
+    tracker.touch(ticker)
+
+    ticker.advance(Duration.seconds(7))
+    underTest.run()
+    assert removed.isEmpty()
+
+    ticker.advance(Duration.seconds(10))
+    underTest.run()
+    assert removed == [tracker]
+  }
+
+  @Test
+  void 'lagging sweep expires everything due'() {
+    def trackers = (1..100).collect { tracker("user-$it") }
+
+    ticker.advance(Duration.minutes(10))
+    underTest.run()
+    assert removed.size() == trackers.size()
+  }
+
+  @Test
+  void 'unscheduled tracker is released'() {
+    def trackers = (1..3).collect { tracker("user-$it") }
+    assert underTest.size() == 3
+
+    underTest.unschedule(trackers[1])
+    assert underTest.size() == 2
+
+    ticker.advance(Duration.seconds(17))
+    underTest.run()
+    assert removed == [trackers[0], trackers[2]]
+    assert underTest.size() == 0
+  }
+
+  @Test
+  void 'tracker unscheduled while sweeping is not re-queued'() {
+    def idle = new RatelimitTracker(new Identifier(Identifier.Type.USERNAME, 'idle'))
+    def active = new RatelimitTracker(new Identifier(Identifier.Type.USERNAME, 'active'))
+    idle.touch(ticker)
+    active.touch(ticker)
+    underTest = new IdleTrackerSweeper(ticker, Duration.seconds(16), {
+      // active tracker is evicted for size while its slot is swept
+      underTest.unschedule(active)
+      removed << it
+      return true
+    })
+    underTest.schedule(idle)
+    underTest.schedule(active)
+
+    ticker.advance(Duration.seconds(10))
+    active.touch(ticker)
+
+    ticker.advance(Duration.seconds(7))
+    underTest.run()
+    assert removed == [idle]
+    assert underTest.size() == 0
+  }
+}
@@ -12,6 +12,9 @@
  */
 package org.sonatype.goodies.dropwizard.ratelimit
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicLong
+
 import com.google.common.base.Ticker
 import io.dropwizard.util.Duration
 import org.junit.jupiter.api.BeforeEach
@@ -37,6 +40,24 @@ class LeakyBucketTest
     }
   }
 
+  /**
+   * Runs given action, standing in for another thread, after the next time is read.
+   */
+  private class InterleavingTicker
+      extends AdjustableTicker
+  {
+    private Closure interleaved
+
+    @Override
+    long read() {
+      long result = super.read()
+      Closure action = interleaved
+      interleaved = null
+      action?.call()
+      return result
+    }
+  }
+
   private AdjustableTicker ticker
 
   @BeforeEach
@@ -94,4 +115,80 @@ class LeakyBucketTest
     assert underTest.drain() == 2
     assert underTest.size == 1
   }
+
+  @Test
+  void 'delay until next drain'() {
+    def underTest = new LeakyBucket(ticker, 3, 1, Duration.seconds(1))
+    assert underTest.delayNanos(1) == 0
+    assert underTest.delayNanos(4) == Long.MAX_VALUE
+
+    3.times { assert !underTest.fill() }
+    assert underTest.delayNanos(1) == Duration.seconds(1).toNanoseconds()
+    assert underTest.delayNanos(2) == Duration.seconds(2).toNanoseconds()
+
+    ticker.advance(Duration.milliseconds(250))
+    assert underTest.delayNanos(1) == Duration.milliseconds(750).toNanoseconds()
+
+    ticker.advance(Duration.milliseconds(750))
+    assert underTest.delayNanos(1) == 0
+    assert !underTest.fill()
+  }
+
+  @Test
+  void 'add drops up to capacity'() {
+    def underTest = new LeakyBucket(ticker, 3, 1, Duration.seconds(1))
+    assert !underTest.fill()
+    assert underTest.add(5) == 2
+    assert underTest.size == 3
+    assert underTest.add(1) == 0
+    assert underTest.fill()
+  }
+
+  @Test
+  void 'concurrent fill does not lose updates'() {
+    def underTest = new LeakyBucket(ticker, 10_000, 1, Duration.hours(1))
+    def accepted = new AtomicLong()
+    def start = new CountDownLatch(1)
+
+    def threads = (1..8).collect {
+      Thread.start {
+        start.await()
+        2_000.times {
+          if (!underTest.fill()) {
+            accepted.incrementAndGet()
+          }
+        }
+      }
+    }
+    start.countDown()
+    threads*.join()
+
+    assert accepted.get() == 10_000
+    assert underTest.size == 10_000
+    assert underTest.fill() // overflow
+  }
+
+  @Test
+  void 'concurrent fill straddling period boundary keeps later period'() {
+    def clock = new InterleavingTicker()
+    def underTest = new LeakyBucket(clock, 100, 1, Duration.seconds(1))
+    9.times {
+      assert !underTest.fill()
+    }
+
+    // first fill reads time before the boundary; another fills after the boundary before the first updates state
+    clock.advance(Duration.milliseconds(500))
+    clock.interleaved = {
+      clock.advance(Duration.seconds(1))
+      assert !underTest.fill()
+      assert underTest.size == 9
+    }
+    assert !underTest.fill()
+    assert underTest.size == 10
+
+    // later period was kept; so only one more period has been missed
+    clock.advance(Duration.seconds(1))
+    assert !underTest.fill()
+    assert underTest.size == 10
+  }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import java.util.concurrent.TimeUnit
+
+import javax.servlet.AsyncContext
+import javax.servlet.FilterChain
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Mode
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy
+
+import com.codahale.metrics.MetricRegistry
+import io.dropwizard.util.Duration
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+import static org.mockito.ArgumentMatchers.any
+import static org.mockito.ArgumentMatchers.anyString
+import static org.mockito.ArgumentMatchers.eq
+import static org.mockito.Mockito.atLeast
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.never
+import static org.mockito.Mockito.timeout
+import static org.mockito.Mockito.times
+import static org.mockito.Mockito.verify
+import static org.mockito.Mockito.when
+
+/**
+ * Tests for {@link RatelimitFilter}.
+ */
+class RatelimitFilterTest
+{
+  private RatelimitService service
+
+  private RatelimitTracker tracker
+
+  private RequestStrategy strategy
+
+  private HttpServletRequest request
+
+  private HttpServletResponse response
+
+  private AsyncContext context
+
+  private FilterChain chain
+
+  private RatelimitFilter underTest
+
+  @BeforeEach
+  void setUp() {
+    service = mock(RatelimitService.class)
+    tracker = new RatelimitTracker(new RatelimitTracker.Identifier(RatelimitTracker.Identifier.Type.REMOTE_IP, '1.2.3.4'))
+    strategy = new RequestStrategy(mode: Mode.DELAY, maxDelay: Duration.seconds(1))
+
+    request = mock(HttpServletRequest.class)
+    response = mock(HttpServletResponse.class)
+    context = mock(AsyncContext.class)
+    chain = mock(FilterChain.class)
+    when(request.getRemoteAddr()).thenReturn('1.2.3.4')
+    when(request.isAsyncSupported()).thenReturn(true)
+    when(request.startAsync()).thenReturn(context)
+    when(context.getRequest()).thenReturn(request)
+    when(context.getResponse()).thenReturn(response)
+
+    when(service.strategy(request)).thenReturn(strategy)
+    when(service.tracker(request)).thenReturn(tracker)
+
+    underTest = new RatelimitFilter(service, new MetricRegistry())
+    underTest.init(null)
+  }
+
+  @AfterEach
+  void tearDown() {
+    underTest.destroy()
+  }
+
+  @Test
+  void 'reject sets retry-after'() {
+    strategy.mode = Mode.REJECT
+    when(service.tick(tracker, strategy)).thenReturn(true)
+    when(service.retryAfter(tracker, strategy)).thenReturn(TimeUnit.MILLISECONDS.toNanos(1500))
+
+    underTest.doFilter(request, response, chain)
+
+    verify(response).setHeader('Retry-After', '2')
+    verify(response).sendError(eq(429), anyString())
+    verify(chain, never()).doFilter(any(), any())
+    verify(request, never()).startAsync()
+  }
+
+  @Test
+  void 'delayed request is dispatched once admitted'() {
+    when(service.tickDelayable(tracker, strategy)).thenReturn(true, false)
+    when(service.retryAfter(tracker, strategy)).thenReturn(TimeUnit.MILLISECONDS.toNanos(10))
+
+    underTest.doFilter(request, response, chain)
+
+    verify(request).startAsync()
+    verify(context, timeout(1000)).dispatch()
+    verify(request).setAttribute(eq(RatelimitFilter.name + '.permit'), eq(Boolean.TRUE))
+    verify(response, never()).sendError(eq(429), anyString())
+    verify(chain, never()).doFilter(any(), any())
+    verify(service, never()).reject(tracker, strategy)
+  }
+
+  @Test
+  void 'delayed request is rejected after max delay'() {
+    when(service.tickDelayable(tracker, strategy)).thenReturn(true)
+    when(service.retryAfter(tracker, strategy)).thenReturn(TimeUnit.MILLISECONDS.toNanos(400))
+
+    underTest.doFilter(request, response, chain)
+
+    verify(request).startAsync()
+    verify(response, timeout(2000)).sendError(eq(429), anyString())
+    verify(context, timeout(1000)).complete()
+    verify(context, never()).dispatch()
+
+    // re-ticked while delayed, but rejected once
+    verify(service, atLeast(2)).tickDelayable(tracker, strategy)
+    verify(service, times(1)).reject(tracker, strategy)
+  }
+
+  @Test
+  void 'delay longer than max delay is rejected immediately'() {
+    when(service.tickDelayable(tracker, strategy)).thenReturn(true)
+    when(service.retryAfter(tracker, strategy)).thenReturn(TimeUnit.SECONDS.toNanos(10))
+
+    underTest.doFilter(request, response, chain)
+
+    verify(request, never()).startAsync()
+    verify(response).sendError(eq(429), anyString())
+    verify(service).reject(tracker, strategy)
+  }
+}
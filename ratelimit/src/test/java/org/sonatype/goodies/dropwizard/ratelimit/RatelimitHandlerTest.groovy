@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import java.util.concurrent.TimeUnit
+
+import javax.servlet.DispatcherType
+import javax.servlet.http.Cookie
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Mode
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy
+
+import com.codahale.metrics.MetricRegistry
+import org.eclipse.jetty.server.Handler
+import org.eclipse.jetty.server.Request
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+import static org.mockito.ArgumentMatchers.any
+import static org.mockito.ArgumentMatchers.anyString
+import static org.mockito.ArgumentMatchers.eq
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.never
+import static org.mockito.Mockito.verify
+import static org.mockito.Mockito.when
+
+/**
+ * Tests for {@link RatelimitHandler}.
+ */
+class RatelimitHandlerTest
+{
+  private RatelimitConfiguration config
+
+  private RatelimitService service
+
+  private RatelimitTracker tracker
+
+  private RequestStrategy strategy
+
+  private Request baseRequest
+
+  private HttpServletRequest request
+
+  private HttpServletResponse response
+
+  private Handler next
+
+  private RatelimitHandler underTest
+
+  @BeforeEach
+  void setUp() {
+    config = new RatelimitConfiguration()
+    service = mock(RatelimitService.class)
+    tracker = new RatelimitTracker(new RatelimitTracker.Identifier(RatelimitTracker.Identifier.Type.REMOTE_IP, '1.2.3.4'))
+    strategy = new RequestStrategy(mode: Mode.REJECT)
+
+    baseRequest = mock(Request.class)
+    request = mock(HttpServletRequest.class)
+    response = mock(HttpServletResponse.class)
+    next = mock(Handler.class)
+    when(request.getRemoteAddr()).thenReturn('1.2.3.4')
+    when(request.getDispatcherType()).thenReturn(DispatcherType.REQUEST)
+
+    when(service.strategy(request)).thenReturn(strategy)
+    when(service.anonymousTracker('1.2.3.4')).thenReturn(tracker)
+
+    underTest = handler()
+  }
+
+  private RatelimitHandler handler() {
+    def handler = new RatelimitHandler(config, service, new MetricRegistry())
+    handler.handler = next
+    return handler
+  }
+
+  @Test
+  void 'overflowing anonymous request is rejected'() {
+    when(service.tickAnonymous(tracker, strategy)).thenReturn(true)
+    when(service.retryAfter(tracker, strategy)).thenReturn(TimeUnit.MILLISECONDS.toNanos(1500))
+
+    underTest.handle('/', baseRequest, request, response)
+
+    verify(response).setHeader('Retry-After', '2')
+    verify(response).sendError(eq(429), anyString())
+    verify(baseRequest).setHandled(true)
+    verify(next, never()).handle(any(), any(), any(), any())
+  }
+
+  @Test
+  void 'admitted request is checked and handled by next'() {
+    when(service.tickAnonymous(tracker, strategy)).thenReturn(false)
+
+    underTest.handle('/', baseRequest, request, response)
+
+    verify(request).setAttribute(RatelimitFilter.CHECKED_ATTR, Boolean.TRUE)
+    verify(next).handle('/', baseRequest, request, response)
+  }
+
+  @Test
+  void 'requests with credentials are left to filter'() {
+    when(request.getHeader('Authorization')).thenReturn('Basic Zm9vOmJhcg==')
+
+    underTest.handle('/', baseRequest, request, response)
+
+    verify(service, never()).anonymousTracker(anyString())
+    verify(request, never()).setAttribute(anyString(), any())
+    verify(next).handle('/', baseRequest, request, response)
+  }
+
+  @Test
+  void 'requests with session cookie are left to filter'() {
+    when(request.getCookies()).thenReturn([new Cookie('JSESSIONID', 'node01abc')] as Cookie[])
+
+    underTest.handle('/', baseRequest, request, response)
+
+    verify(service, never()).anonymousTracker(anyString())
+    verify(service, never()).tickAnonymous(any(), any())
+    verify(request, never()).setAttribute(anyString(), any())
+    verify(next).handle('/', baseRequest, request, response)
+  }
+
+  @Test
+  void 'credential cookies are configurable'() {
+    config.credentialCookies = ['SESSION']
+    underTest = handler()
+    when(request.getCookies()).thenReturn([new Cookie('JSESSIONID', 'node01abc')] as Cookie[])
+    when(service.tickAnonymous(tracker, strategy)).thenReturn(false)
+
+    underTest.handle('/', baseRequest, request, response)
+    verify(request).setAttribute(RatelimitFilter.CHECKED_ATTR, Boolean.TRUE)
+
+    when(request.getCookies()).thenReturn([new Cookie('SESSION', 'abc')] as Cookie[])
+    assert !underTest.isAnonymous(request)
+  }
+
+  @Test
+  void 'delay strategies are left to filter'() {
+    strategy.mode = Mode.DELAY
+
+    underTest.handle('/', baseRequest, request, response)
+
+    verify(service, never()).anonymousTracker(anyString())
+    verify(request, never()).setAttribute(anyString(), any())
+    verify(next).handle('/', baseRequest, request, response)
+  }
+}
@@ -12,15 +12,28 @@
  */
 package org.sonatype.goodies.dropwizard.ratelimit
 
+import java.nio.file.Path
+import java.util.regex.Pattern
+
 import javax.servlet.http.HttpServletRequest
 
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Bucket
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.DrainRate
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Gossip
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Snapshot
+
 import com.codahale.metrics.MetricRegistry
+import io.dropwizard.util.Duration
 import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
 
 import static org.mockito.Mockito.mock
 import static org.mockito.Mockito.when
+import static org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.ANONYMOUS
+import static org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.AUTHENTICATED
 
 /**
  * Tests for {@link RatelimitServiceImpl}.
@@ -67,4 +80,170 @@ class RatelimitServiceImplTest
     assert id.type == RatelimitTracker.Identifier.Type.REMOTE_IP
     assert id.value == '1.2.3.4'
   }
+
+  @Test
+  void 'trackers are bounded'() {
+    underTest = new RatelimitServiceImpl(new RatelimitConfiguration(maxTrackers: 10), new MetricRegistry())
+
+    (1..1000).each {
+      def request = mock(HttpServletRequest.class)
+      when(request.getRemoteAddr()).thenReturn("10.0.${it.intdiv(256)}.${it % 256}".toString())
+      assert underTest.tracker(request) != null
+    }
+
+    // unparsable addresses are tracked by identifier
+    (1..1000).each {
+      def request = mock(HttpServletRequest.class)
+      when(request.getRemoteAddr()).thenReturn("host-$it".toString())
+      underTest.tracker(request)
+    }
+
+    def count = underTest.trackerCount()
+    assert count <= 10
+
+    // evicted trackers are not retained for idle expiration
+    assert underTest.scheduledCount() == count
+  }
+
+  private static HttpServletRequest request(final String address) {
+    def request = mock(HttpServletRequest.class)
+    when(request.getRemoteAddr()).thenReturn(address)
+    return request
+  }
+
+  /**
+   * Strategy matching all requests; anonymous and authenticated buckets drain one per hour.
+   */
+  private static RequestStrategy createStrategy(final int capacity) {
+    def bucket = new Bucket(capacity: capacity, drainRate: new DrainRate(count: 1, period: Duration.hours(1)))
+    return new RequestStrategy(
+        name: 'all',
+        pattern: Pattern.compile('/.*'),
+        buckets: [(ANONYMOUS): bucket, (AUTHENTICATED): bucket] as LinkedHashMap
+    )
+  }
+
+  @Test
+  void 'identities below admission threshold are not tracked'() {
+    def config = new RatelimitConfiguration()
+    config.admission.threshold = 3
+    underTest = new RatelimitServiceImpl(config, new MetricRegistry())
+
+    assert underTest.tracker(request('1.2.3.4')) == null
+    assert underTest.tracker(request('1.2.3.4')) == null
+    assert underTest.tracker(request('1.2.3.4')) != null
+    assert underTest.tracker(request('5.6.7.8')) == null
+    assert underTest.trackerCount() == 1
+  }
+
+  @Test
+  void 'heavy hitters are ranked by estimate'() {
+    5.times { underTest.tracker(request('1.2.3.4')) }
+    2.times { underTest.tracker(request('5.6.7.8')) }
+    underTest.tracker(request('9.9.9.9'))
+
+    def hitters = underTest.heavyHitters(2)
+    assert hitters.collect { it.id.value } == ['1.2.3.4', '5.6.7.8']
+    assert hitters.collect { it.estimate } == [5L, 2L]
+  }
+
+  @Test
+  void 'buckets are restored from snapshot'(@TempDir final Path directory) {
+    def strategy = createStrategy(10)
+    def config = new RatelimitConfiguration(
+        requestStrategies: [strategy],
+        snapshot: new Snapshot(file: directory.resolve('snapshot').toFile())
+    )
+
+    underTest = new RatelimitServiceImpl(config, new MetricRegistry())
+    underTest.start()
+    def tracker = underTest.tracker(request('1.2.3.4'))
+    3.times { assert !underTest.tick(tracker, strategy) }
+    underTest.stop()
+
+    underTest = new RatelimitServiceImpl(config, new MetricRegistry())
+    underTest.start()
+    assert underTest.trackerCount() == 1
+    tracker = underTest.tracker(request('1.2.3.4'))
+    assert tracker.buckets[strategy].size == 3
+    underTest.stop()
+  }
+
+  @Test
+  void 'fills are metered per strategy and role'() {
+    def strategy = createStrategy(2)
+    def metricRegistry = new MetricRegistry()
+    underTest = new RatelimitServiceImpl(new RatelimitConfiguration(requestStrategies: [strategy]), metricRegistry)
+    underTest.start()
+    try {
+      def tracker = underTest.tracker(request('1.2.3.4'))
+      3.times { underTest.tick(tracker, strategy) }
+
+      assert metricRegistry.meter('service.ratelimit.strategy.all.anonymous.accepted').count == 2
+      assert metricRegistry.meter('service.ratelimit.strategy.all.anonymous.rejected').count == 1
+      assert metricRegistry.meter('service.ratelimit.strategy.all.authenticated.accepted').count == 0
+      assert metricRegistry.meter('service.ratelimit.trackers.created').count == 1
+    }
+    finally {
+      underTest.stop()
+    }
+  }
+
+  @Test
+  void 'delayable overflow is metered once rejected'() {
+    def strategy = createStrategy(1)
+    def metricRegistry = new MetricRegistry()
+    underTest = new RatelimitServiceImpl(new RatelimitConfiguration(requestStrategies: [strategy]), metricRegistry)
+    underTest.start()
+    try {
+      def tracker = underTest.tracker(request('1.2.3.4'))
+      assert !underTest.tickDelayable(tracker, strategy)
+      3.times { assert underTest.tickDelayable(tracker, strategy) }
+
+      assert metricRegistry.meter('service.ratelimit.strategy.all.anonymous.accepted').count == 1
+      assert metricRegistry.meter('service.ratelimit.strategy.all.anonymous.rejected').count == 0
+      assert metricRegistry.meter('service.ratelimit.rejected').count == 0
+
+      underTest.reject(tracker, strategy)
+      assert metricRegistry.meter('service.ratelimit.strategy.all.anonymous.rejected').count == 1
+      assert metricRegistry.meter('service.ratelimit.rejected').count == 1
+    }
+    finally {
+      underTest.stop()
+    }
+  }
+
+  @Test
+  void 'consumption is gossiped to peers'() {
+    def strategy = createStrategy(10)
+    def hub = new InMemoryGossipTransport.Hub()
+    def node = { String name ->
+      def config = new RatelimitConfiguration(
+          requestStrategies: [strategy],
+          gossip: new Gossip(enabled: true, node: name, interval: Duration.hours(1))
+      )
+      def service = new RatelimitServiceImpl(config, new MetricRegistry(), new InMemoryGossipTransport(hub))
+      service.start()
+      return service
+    }
+
+    def a = node('a')
+    def b = node('b')
+    try {
+      def trackerA = a.tracker(request('1.2.3.4'))
+      3.times { assert !a.tick(trackerA, strategy) }
+
+      // only identities already tracked by peer are adjusted
+      def trackerB = b.tracker(request('1.2.3.4'))
+      assert !b.tick(trackerB, strategy)
+
+      // stopping sends pending deltas
+      a.stop()
+      assert trackerB.buckets[strategy].size == 4
+      assert b.tracker(request('5.6.7.8')).buckets.isEmpty()
+    }
+    finally {
+      b.stop()
+    }
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitTracker.Identifier
+
+import org.junit.jupiter.api.Test
+
+/**
+ * Tests for {@link RemoteIpTrackerTable}.
+ */
+class RemoteIpTrackerTableTest
+{
+  private static RatelimitTracker tracker(final long value) {
+    return new RatelimitTracker(new Identifier(Identifier.Type.REMOTE_IP, value.toString()))
+  }
+
+  @Test
+  void 'lookup create and remove'() {
+    def underTest = new RemoteIpTrackerTable(10_000, {})
+
+    def created = (0L..<5_000L).collect { value -> underTest.computeIfAbsent(0L, value, { tracker(value) }) }
+    assert underTest.size() == 5_000
+    (0L..<5_000L).each { assert underTest.get(0L, it).is(created[it as int]) }
+    assert underTest.get(1L, 0L) == null
+
+    // existing tracker is returned, not re-created
+    assert underTest.computeIfAbsent(0L, 42L, { tracker(-1L) }).is(created[42])
+
+    // only removed if tracker matches
+    assert !underTest.remove(0L, 42L, tracker(42L))
+    assert underTest.remove(0L, 42L, created[42])
+    assert underTest.get(0L, 42L) == null
+    assert underTest.size() == 4_999
+    assert underTest.iterator().size() == 4_999
+  }
+
+  @Test
+  void 'capacity is bounded'() {
+    def evicted = []
+    def underTest = new RemoteIpTrackerTable(100, { evicted << it })
+
+    (0L..<1_000L).each { value -> underTest.computeIfAbsent(value, 0L, { tracker(value) }) }
+    assert underTest.size() == 100
+    assert underTest.evictions == 900
+    assert evicted.size() == 900
+    evicted.each { assert underTest.get(it.id.value as long, 0L) == null }
+  }
+
+  @Test
+  void 'churn at capacity does not rebuild repeatedly'() {
+    // capacity is exactly 3/4 of a power-of-two length
+    def underTest = new RemoteIpTrackerTable(1_536, {})
+
+    (0L..<1_536L).each { value -> underTest.computeIfAbsent(value, 0L, { tracker(value) }) }
+    def length = underTest.length()
+    def rebuilds = underTest.rebuilds
+
+    // every insert evicts; removals clear tombstones in place or leave them for an amortized purge
+    (1_536L..<101_536L).each { value -> underTest.computeIfAbsent(value, 0L, { tracker(value) }) }
+    println "length: $length, rebuilds: ${underTest.rebuilds - rebuilds}"
+    assert underTest.size() == 1_536
+    assert underTest.length() == length
+    assert underTest.rebuilds - rebuilds <= 100
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import java.util.regex.Pattern
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy
+
+import org.junit.jupiter.api.Test
+
+/**
+ * Tests for {@link RequestStrategyMatcher}.
+ */
+class RequestStrategyMatcherTest
+{
+  private static String prefix(final String regex) {
+    return RequestStrategyMatcher.literalPrefix(Pattern.compile(regex))
+  }
+
+  private static RequestStrategy strategy(final String regex) {
+    return new RequestStrategy(pattern: Pattern.compile(regex))
+  }
+
+  @Test
+  void 'literal prefix'() {
+    assert prefix('/api/.*') == '/api/'
+    assert prefix('^/api/v1\\.0/.*') == '/api/v1.0/'
+    assert prefix('/ab?c') == '/a'
+    assert prefix('/x\\d+') == '/x'
+    assert prefix('.*\\.png') == ''
+    assert prefix('/a/.*|/b/.*') == ''
+    assert prefix('(?i)/api/.*') == ''
+  }
+
+  @Test
+  void 'first matching strategy in configuration order'() {
+    def strategies = [
+        strategy('/api/v2/.*'),
+        strategy('/api/.*'),
+        strategy('.*\\.png'),
+        strategy('/api/v2/special')
+    ]
+
+    [0, 16].each { cacheSize ->
+      def underTest = new RequestStrategyMatcher(strategies, cacheSize)
+
+      // repeat to exercise cached results
+      2.times {
+        assert underTest.match('/api/v2/special') == strategies[0]
+        assert underTest.match('/api/v1/foo') == strategies[1]
+        assert underTest.match('/images/logo.png') == strategies[2]
+        assert underTest.match('/api/v2/logo.png') == strategies[0]
+        assert underTest.match('/other') == null
+        assert underTest.match('/api') == null
+      }
+    }
+  }
+}
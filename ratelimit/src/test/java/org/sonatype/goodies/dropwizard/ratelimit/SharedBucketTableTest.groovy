@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import java.nio.file.Path
+
+import com.google.common.base.Ticker
+import io.dropwizard.util.Duration
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+
+/**
+ * Tests for {@link SharedBucketTable}.
+ */
+class SharedBucketTableTest
+{
+  private class AdjustableTicker
+      extends Ticker
+  {
+    private long value = 0L
+
+    @Override
+    long read() {
+      return value
+    }
+
+    void advance(final Duration duration) {
+      value += duration.toNanoseconds()
+    }
+  }
+
+  @TempDir
+  Path directory
+
+  private SharedBucketTable table(final int slots) {
+    return new SharedBucketTable(directory.resolve('buckets'), slots, Duration.minutes(10), Ticker.systemTicker())
+  }
+
+  @Test
+  void 'tables mapping same file share buckets'() {
+    // separate mappings of the same file stand in for separate processes
+    def first = table(16)
+    def second = table(16)
+
+    def offset = first.claim(42L)
+    assert offset != -1
+    assert second.claim(42L) == offset
+
+    def a = new SharedBucketTable.Leaky(first, offset, 42L, 3, 1, Duration.hours(1))
+    def b = new SharedBucketTable.Leaky(second, offset, 42L, 3, 1, Duration.hours(1))
+
+    assert !a.fill()
+    assert !b.fill()
+    assert a.size == 2
+    assert !a.fill()
+    assert b.fill() // overflow; combined limit
+    assert b.size == 3
+  }
+
+  @Test
+  void 'gcra buckets share arrival time'() {
+    def first = table(16)
+    def second = table(16)
+
+    def offset = first.claim(7L)
+    def a = new SharedBucketTable.Gcra(first, offset, 7L, 2, 1, Duration.hours(1))
+    def b = new SharedBucketTable.Gcra(second, second.claim(7L), 7L, 2, 1, Duration.hours(1))
+
+    assert !a.fill()
+    assert !b.fill()
+    assert a.fill() // overflow
+    assert b.size == 2
+  }
+
+  @Test
+  void 'claim fails when slots are in use'() {
+    def underTest = table(1)
+    assert underTest.claim(1L) != -1
+    assert underTest.claim(2L) == -1
+    assert underTest.claim(1L) != -1
+  }
+
+  @Test
+  void 'previous owner of reclaimed slot continues with local state'() {
+    def ticker = new AdjustableTicker()
+    def first = new SharedBucketTable(directory.resolve('buckets'), 1, Duration.minutes(1), ticker)
+    def second = new SharedBucketTable(directory.resolve('buckets'), 1, Duration.minutes(1), ticker)
+
+    def offset = first.claim(1L)
+    def a = new SharedBucketTable.Leaky(first, offset, 1L, 3, 1, Duration.hours(1))
+    assert !a.fill()
+    assert !a.fill()
+
+    // idle past reclaim period; slot is reclaimed for another key
+    ticker.advance(Duration.minutes(2))
+    assert second.claim(2L) == offset
+    def b = new SharedBucketTable.Leaky(second, offset, 2L, 3, 1, Duration.hours(1))
+    assert b.size == 0
+
+    // previous owner must not fill the new owner's bucket
+    assert !a.fill()
+    assert a.slot.lost
+    assert a.size == 1
+    assert b.size == 0
+  }
+
+  @Test
+  void 'lagging clock does not drain shared bucket'() {
+    def ticker = new AdjustableTicker()
+    def lagging = new AdjustableTicker()
+    def first = new SharedBucketTable(directory.resolve('buckets'), 16, Duration.minutes(10), ticker)
+    def second = new SharedBucketTable(directory.resolve('buckets'), 16, Duration.minutes(10), lagging)
+
+    // clocks drift apart after anchoring; move just past a period boundary, lagging clock still in previous period
+    long period = Duration.seconds(1).toNanoseconds()
+    long boundary = 2 * period - Math.floorMod(first.clock.read(), period)
+    ticker.advance(Duration.nanoseconds(boundary + Duration.milliseconds(50).toNanoseconds()))
+    lagging.advance(Duration.nanoseconds(boundary - Duration.milliseconds(50).toNanoseconds()))
+
+    def offset = first.claim(42L)
+    assert second.claim(42L) == offset
+    def a = new SharedBucketTable.Leaky(first, offset, 42L, 20, 1, Duration.seconds(1))
+    def b = new SharedBucketTable.Leaky(second, offset, 42L, 20, 1, Duration.seconds(1))
+
+    9.times {
+      assert !a.fill()
+    }
+    assert !b.fill()
+    assert b.size == 10
+    assert !a.fill()
+    assert a.size == 11
+
+    // lagging clock reaching the recorded period still finds nothing to drain
+    ticker.advance(Duration.milliseconds(100))
+    lagging.advance(Duration.milliseconds(100))
+    assert !b.fill()
+    assert a.size == 12
+  }
+
+  @Test
+  void 'existing table size is used'() {
+    assert table(4).slots == 4
+    assert table(8).slots == 4
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.ratelimit
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.regex.Pattern
+
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.Algorithm
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitConfiguration.RequestStrategy
+import org.sonatype.goodies.dropwizard.ratelimit.RatelimitTracker.Identifier
+
+import com.google.common.base.Ticker
+import io.dropwizard.util.Duration
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+
+/**
+ * Tests for {@link TrackerSnapshot}.
+ */
+class TrackerSnapshotTest
+{
+  @TempDir
+  Path directory
+
+  @Test
+  void 'write and read snapshot'() {
+    def strategy = new RequestStrategy(name: 'api', pattern: Pattern.compile('/api/.*'))
+    def ticker = Ticker.systemTicker()
+
+    def user = new RatelimitTracker(new Identifier(Identifier.Type.USERNAME, 'jdoe'))
+    def leaky = new LeakyBucket(ticker, 10, 2, Duration.seconds(30))
+    leaky.fill(4)
+    user.buckets[strategy] = leaky
+
+    def remote = new RatelimitTracker(new Identifier(Identifier.Type.REMOTE_IP, '::1'))
+    def gcra = new GcraBucket(ticker, 5, 1, Duration.seconds(1))
+    gcra.fill(2)
+    remote.buckets[strategy] = gcra
+
+    // empty buckets are not recorded
+    def idle = new RatelimitTracker(new Identifier(Identifier.Type.REMOTE_IP, '1.2.3.4'))
+    idle.buckets[strategy] = new LeakyBucket(ticker, 10, 1, Duration.seconds(1))
+
+    def file = directory.resolve('snapshot')
+    assert TrackerSnapshot.write(file, [user, remote, idle], 1234L) == 2
+    assert Files.list(directory).count() == 1
+
+    def reader = new TrackerSnapshot.Reader(file)
+    assert reader.timestamp == 1234L
+    def states = reader.collect()
+    assert states.size() == 2
+
+    assert states[0].id == user.id
+    assert states[0].buckets.size() == 1
+    with(states[0].buckets[0]) {
+      assert it.strategy == 'api'
+      assert it.algorithm == Algorithm.LEAKY
+      assert it.capacity == 10
+      assert it.drainCount == 2
+      assert it.drainPeriodNanos == Duration.seconds(30).toNanoseconds()
+      assert it.size == 4
+    }
+
+    assert states[1].id == remote.id
+    with(states[1].buckets[0]) {
+      assert it.algorithm == Algorithm.GCRA
+      assert it.capacity == 5
+      assert it.size == 2
+    }
+  }
+
+  @Test
+  void 'restored buckets are aged'() {
+    def ticker = Ticker.systemTicker()
+
+    def leaky = new LeakyBucket(ticker, 10, 2, Duration.seconds(1))
+    leaky.restore(7, Duration.seconds(2).toNanoseconds())
+    assert leaky.size == 3
+
+    def gcra = new GcraBucket(ticker, 10, 1, Duration.hours(1))
+    gcra.restore(7, Duration.hours(2).toNanoseconds())
+    assert gcra.size == 5
+
+    def drained = new GcraBucket(ticker, 10, 1, Duration.seconds(1))
+    drained.restore(7, Duration.seconds(10).toNanoseconds())
+    assert drained.size == 0
+  }
+
+  @Test
+  void 'invalid snapshot is rejected'() {
+    def file = directory.resolve('snapshot')
+    Files.write(file, 'not a snapshot at all'.bytes)
+
+    try {
+      new TrackerSnapshot.Reader(file)
+      assert false
+    }
+    catch (IllegalStateException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.dropwizard.text.MoreStrings;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable character trie of literals, each associated with rule slots.
+ *
+ * Collecting walks the subject once from the start (prefixes) or the end (suffixes) and accumulates the slots of
+ * every literal passed on the way; so cost is bound by the longest literal, not by the number of literals.
+ *
+ * @since ???
+ * @see RequestRuleDecision
+ */
+final class LiteralTrie
+{
+  private static final char[] NO_KEYS = {};
+
+  private static final Node[] NO_CHILDREN = {};
+
+  private static final class Node
+  {
+    /**
+     * Sorted child characters.
+     */
+    private final char[] keys;
+
+    private final Node[] children;
+
+    @Nullable
+    private final BitSet slots;
+
+    private Node(final char[] keys, final Node[] children, @Nullable final BitSet slots) {
+      this.keys = keys;
+      this.children = children;
+      this.slots = slots;
+    }
+
+    @Nullable
+    private Node child(final char c) {
+      int low = 0;
+      int high = keys.length - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        char key = keys[mid];
+        if (key < c) {
+          low = mid + 1;
+        }
+        else if (key > c) {
+          high = mid - 1;
+        }
+        else {
+          return children[mid];
+        }
+      }
+      return null;
+    }
+  }
+
+  private final Node root;
+
+  private final boolean reverse;
+
+  private final int size;
+
+  private LiteralTrie(final Node root, final boolean reverse, final int size) {
+    this.root = root;
+    this.reverse = reverse;
+    this.size = size;
+  }
+
+  /**
+   * Number of literals.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Add slots of all literals the subject starts with (or ends with if reverse) to given set.
+   */
+  public void collect(final String subject, final BitSet into) {
+    Node node = root;
+    int length = subject.length();
+    for (int i = 0; ; i++) {
+      if (node.slots != null) {
+        into.or(node.slots);
+      }
+      if (i == length) {
+        return;
+      }
+      node = node.child(subject.charAt(reverse ? length - 1 - i : i));
+      if (node == null) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Add slots of all literals the {@link MoreStrings#lower(String) lower-cased} subject starts with (or ends with
+   * if reverse) to given set.
+   *
+   * Folds US-ASCII while walking; only lower-cases the subject if a non-ASCII character is reached.
+   *
+   * @since ???
+   */
+  public void collectIgnoreCase(final String subject, final BitSet into) {
+    Node node = root;
+    int length = subject.length();
+    for (int i = 0; ; i++) {
+      if (node.slots != null) {
+        into.or(node.slots);
+      }
+      if (i == length) {
+        return;
+      }
+      char c = subject.charAt(reverse ? length - 1 - i : i);
+      if (c >= 0x80) {
+        // slots collected so far are still valid; lower-casing does not change the US-ASCII walked
+        collect(MoreStrings.lower(subject), into);
+        return;
+      }
+      if (c >= 'A' && c <= 'Z') {
+        c += 'a' - 'A';
+      }
+      node = node.child(c);
+      if (node == null) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Builder of {@link LiteralTrie}.
+   */
+  static final class Builder
+  {
+    private final boolean reverse;
+
+    private final Draft root = new Draft();
+
+    private int size;
+
+    /**
+     * @param reverse   Match literals at the end of the subject (suffixes) instead of the start (prefixes).
+     */
+    Builder(final boolean reverse) {
+      this.reverse = reverse;
+    }
+
+    private static final class Draft
+    {
+      private final TreeMap<Character, Draft> children = new TreeMap<>();
+
+      @Nullable
+      private BitSet slots;
+
+      private Node freeze() {
+        if (children.isEmpty()) {
+          return new Node(NO_KEYS, NO_CHILDREN, slots);
+        }
+        char[] keys = new char[children.size()];
+        Node[] nodes = new Node[children.size()];
+        int i = 0;
+        for (Map.Entry<Character, Draft> entry : children.entrySet()) {
+          keys[i] = entry.getKey();
+          nodes[i] = entry.getValue().freeze();
+          i++;
+        }
+        return new Node(keys, nodes, slots);
+      }
+    }
+
+    Builder add(final String literal, final int slot) {
+      checkNotNull(literal);
+      Draft node = root;
+      int length = literal.length();
+      for (int i = 0; i < length; i++) {
+        node = node.children.computeIfAbsent(literal.charAt(reverse ? length - 1 - i : i), c -> new Draft());
+      }
+      if (node.slots == null) {
+        node.slots = new BitSet();
+      }
+      node.slots.set(slot);
+      size++;
+      return this;
+    }
+
+    LiteralTrie build() {
+      return new LiteralTrie(root.freeze(), reverse, size);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s{%d}", reverse ? "suffixes" : "prefixes", size);
+  }
+}
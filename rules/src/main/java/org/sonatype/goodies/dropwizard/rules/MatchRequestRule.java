@@ -136,20 +136,64 @@ public abstract class MatchRequestRule
       }
 
       if (matcher.matches(request)) {
-        RequestRuleResult result = matched(matcher, request);
+        return result(matcher, request);
+      }
+    }
 
-        if (meter != null) {
-          meter.mark();
-          log.debug("Marked");
-        }
+    return null;
+  }
 
-        return result;
+  /**
+   * Evaluate as {@link #evaluate(HttpServletRequest)}, recording each matcher in given profile.
+   */
+  @Nullable
+  RequestRuleResult evaluate(final HttpServletRequest request, final RequestRuleProfiler.Profile profile) {
+    for (RequestMatcher matcher : matchers) {
+      long start = System.nanoTime();
+      boolean matched = matcher.matches(request);
+      profile.record(matcher, System.nanoTime() - start, matched);
+      if (matched) {
+        return result(matcher, request);
       }
     }
-
     return null;
   }
 
+  /**
+   * Returns {@code true} if rule uses the standard match evaluation; rules overriding it can only be evaluated whole.
+   */
+  static boolean isStandard(final RequestRule rule) {
+    if (!(rule instanceof MatchRequestRule)) {
+      return false;
+    }
+    try {
+      return rule.getClass().getMethod("evaluate", HttpServletRequest.class).getDeclaringClass()
+          == MatchRequestRule.class;
+    }
+    catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Create result for request matched by given matcher and mark the meter.
+   */
+  RequestRuleResult result(final RequestMatcher matcher, final HttpServletRequest request) {
+    RequestRuleResult result = matched(matcher, request);
+    mark();
+    return result;
+  }
+
+  /**
+   * Mark the meter; if configured.
+   */
+  void mark() {
+    if (meter != null) {
+      meter.mark();
+      log.debug("Marked");
+    }
+  }
+
   /**
    * Create result for matched request.
    */
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+
+import org.sonatype.goodies.dropwizard.rules.matcher.request.AndRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.HeaderRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.MethodRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.NotRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.OrRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.PathRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RemoteIpRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.string.AndStringMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.string.NotStringMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.string.OrStringMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.string.RegexStringMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.string.StringMatcher;
+
+import com.google.common.base.MoreObjects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reorders children of {@link AndRequestMatcher AND} and {@link OrRequestMatcher OR} matchers.
+ *
+ * Children are ordered by cost divided by the probability they decide the result; rejection for AND and acceptance
+ * for OR.  For independent children this minimizes expected cost.  On construction cost is estimated from matcher
+ * types, with even odds.  Afterwards cost and odds are {@link #sample measured} on sampled requests, evaluating every
+ * child, and children are {@link #optimize() reordered} from measurements.
+ *
+ * Only nodes whose children are all standard matchers are reordered.  These have no side effects, so order can not
+ * change the result.  Top-level matchers of rules are not reordered; the matcher which matched is given to the rule.
+ *
+ * @since ???
+ * @see RequestRuleServiceImpl
+ */
+final class RequestMatcherOptimizer
+{
+  private static final Logger log = LoggerFactory.getLogger(RequestMatcherOptimizer.class);
+
+  /**
+   * A reorderable AND or OR matcher.
+   */
+  private static final class Node
+  {
+    private final String name;
+
+    private final RequestMatcher matcher;
+
+    private final boolean and;
+
+    /**
+     * Children in configured order.
+     */
+    private final List<RequestMatcher> children;
+
+    private final LongAdder samples = new LongAdder();
+
+    private final LongAdder[] nanos;
+
+    private final LongAdder[] matches;
+
+    private Node(final String name, final RequestMatcher matcher) {
+      this.name = name;
+      this.matcher = matcher;
+      this.and = matcher instanceof AndRequestMatcher;
+      this.children = and
+          ? ((AndRequestMatcher) matcher).getMatchers()
+          : ((OrRequestMatcher) matcher).getMatchers();
+      this.nanos = new LongAdder[children.size()];
+      this.matches = new LongAdder[children.size()];
+      for (int i = 0; i < children.size(); i++) {
+        nanos[i] = new LongAdder();
+        matches[i] = new LongAdder();
+      }
+    }
+
+    private void sample(final HttpServletRequest request) {
+      for (int i = 0; i < children.size(); i++) {
+        long start = System.nanoTime();
+        boolean matched = children.get(i).matches(request);
+        nanos[i].add(System.nanoTime() - start);
+        if (matched) {
+          matches[i].increment();
+        }
+      }
+      samples.increment();
+    }
+
+    /**
+     * Rank children from measurements; or {@code null} if not enough samples.
+     */
+    @Nullable
+    private double[] measured(final long minimumSamples) {
+      long count = samples.sum();
+      if (count < minimumSamples) {
+        return null;
+      }
+      double[] rank = new double[children.size()];
+      for (int i = 0; i < rank.length; i++) {
+        double cost = (double) nanos[i].sum() / count;
+        // smoothed; never zero
+        double matched = (matches[i].sum() + 1d) / (count + 2d);
+        rank[i] = cost / (and ? 1d - matched : matched);
+      }
+      return rank;
+    }
+
+    /**
+     * Rank children from estimated cost; with even odds rank is proportional to cost.
+     */
+    private double[] estimated() {
+      double[] rank = new double[children.size()];
+      for (int i = 0; i < rank.length; i++) {
+        rank[i] = cost(children.get(i));
+      }
+      return rank;
+    }
+
+    private void reset() {
+      samples.reset();
+      for (int i = 0; i < children.size(); i++) {
+        nanos[i].reset();
+        matches[i].reset();
+      }
+    }
+
+    /**
+     * Apply order by ascending rank; ties keep configured order.
+     */
+    private void apply(final double[] rank) {
+      Integer[] indexes = new Integer[rank.length];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = i;
+      }
+      Arrays.sort(indexes, Comparator.comparingDouble(i -> rank[i]));
+
+      List<RequestMatcher> order = new ArrayList<>(indexes.length);
+      for (int index : indexes) {
+        order.add(children.get(index));
+      }
+      if (order.equals(getOrder())) {
+        return;
+      }
+
+      if (and) {
+        ((AndRequestMatcher) matcher).setEvaluationOrder(order);
+      }
+      else {
+        ((OrRequestMatcher) matcher).setEvaluationOrder(order);
+      }
+      log.info("Reordered {}: {}", name, Arrays.asList(indexes));
+      log.debug("Order: {} -> {}", name, order);
+    }
+
+    private List<RequestMatcher> getOrder() {
+      return and
+          ? ((AndRequestMatcher) matcher).getEvaluationOrder()
+          : ((OrRequestMatcher) matcher).getEvaluationOrder();
+    }
+  }
+
+  private final Node[] nodes;
+
+  private final int sampleRate;
+
+  private final long minimumSamples;
+
+  /**
+   * Find reorderable matchers of given rules and order them by estimated cost.
+   */
+  RequestMatcherOptimizer(final RequestRule[] rules, final RequestRuleConfiguration.Optimizer config) {
+    checkNotNull(rules);
+    checkNotNull(config);
+    checkArgument(config.getSampleRate() >= 0, "Invalid sample-rate: %s", config.getSampleRate());
+    this.sampleRate = config.getSampleRate();
+    this.minimumSamples = config.getMinimumSamples();
+
+    List<Node> found = new ArrayList<>();
+    for (int i = 0; i < rules.length; i++) {
+      if (rules[i] instanceof MatchRequestRule) {
+        List<RequestMatcher> matchers = ((MatchRequestRule) rules[i]).getMatchers();
+        for (int j = 0; j < matchers.size(); j++) {
+          walk(String.format("rule[%d].matchers[%d]", i, j), matchers.get(j), found);
+        }
+      }
+    }
+    this.nodes = found.toArray(new Node[0]);
+
+    for (Node node : nodes) {
+      node.apply(node.estimated());
+    }
+  }
+
+  /**
+   * Collect reorderable nodes; inner nodes first.
+   */
+  private static void walk(final String name, final RequestMatcher matcher, final List<Node> nodes) {
+    Class<?> type = matcher.getClass();
+    if (type == NotRequestMatcher.class) {
+      walk(name + ".matcher", ((NotRequestMatcher) matcher).getMatcher(), nodes);
+    }
+    else if (type == AndRequestMatcher.class || type == OrRequestMatcher.class) {
+      Node node = new Node(name, matcher);
+      for (int i = 0; i < node.children.size(); i++) {
+        walk(String.format("%s.matchers[%d]", name, i), node.children.get(i), nodes);
+      }
+      if (node.children.stream().allMatch(RequestMatcherOptimizer::isStandard)) {
+        nodes.add(node);
+      }
+    }
+  }
+
+  /**
+   * Standard matchers only examine the request; so can be evaluated in any order, and more than once.
+   */
+  private static boolean isStandard(final RequestMatcher matcher) {
+    Class<?> type = matcher.getClass();
+    if (type == MethodRequestMatcher.class || type == RemoteIpRequestMatcher.class
+        || type == PathRequestMatcher.class || type == HeaderRequestMatcher.class) {
+      return true;
+    }
+    if (type == NotRequestMatcher.class) {
+      return isStandard(((NotRequestMatcher) matcher).getMatcher());
+    }
+    if (type == AndRequestMatcher.class) {
+      return ((AndRequestMatcher) matcher).getMatchers().stream().allMatch(RequestMatcherOptimizer::isStandard);
+    }
+    if (type == OrRequestMatcher.class) {
+      return ((OrRequestMatcher) matcher).getMatchers().stream().allMatch(RequestMatcherOptimizer::isStandard);
+    }
+    return false;
+  }
+
+  /**
+   * Estimated relative cost of matching.
+   */
+  private static double cost(final RequestMatcher matcher) {
+    Class<?> type = matcher.getClass();
+    if (type == MethodRequestMatcher.class) {
+      return 1;
+    }
+    if (type == RemoteIpRequestMatcher.class) {
+      return 2;
+    }
+    if (type == PathRequestMatcher.class) {
+      return 1 + stringCost(((PathRequestMatcher) matcher).getMatcher());
+    }
+    if (type == HeaderRequestMatcher.class) {
+      return 2 + stringCost(((HeaderRequestMatcher) matcher).getMatcher());
+    }
+    if (type == NotRequestMatcher.class) {
+      return cost(((NotRequestMatcher) matcher).getMatcher());
+    }
+    if (type == AndRequestMatcher.class) {
+      return ((AndRequestMatcher) matcher).getMatchers().stream().mapToDouble(RequestMatcherOptimizer::cost).sum();
+    }
+    if (type == OrRequestMatcher.class) {
+      return ((OrRequestMatcher) matcher).getMatchers().stream().mapToDouble(RequestMatcherOptimizer::cost).sum();
+    }
+    return 10;
+  }
+
+  private static double stringCost(final StringMatcher matcher) {
+    Class<?> type = matcher.getClass();
+    if (type == RegexStringMatcher.class) {
+      return 20;
+    }
+    if (type == NotStringMatcher.class) {
+      return stringCost(((NotStringMatcher) matcher).getMatcher());
+    }
+    if (type == AndStringMatcher.class) {
+      return ((AndStringMatcher) matcher).getMatchers().stream().mapToDouble(RequestMatcherOptimizer::stringCost).sum();
+    }
+    if (type == OrStringMatcher.class) {
+      return ((OrStringMatcher) matcher).getMatchers().stream().mapToDouble(RequestMatcherOptimizer::stringCost).sum();
+    }
+    return 2;
+  }
+
+  /**
+   * Returns {@code true} if there is anything to reorder from measurements.
+   */
+  boolean isAdaptive() {
+    return sampleRate != 0 && nodes.length != 0;
+  }
+
+  /**
+   * Measure children of each node; for one in {@code sampleRate} requests.
+   */
+  void sample(final HttpServletRequest request) {
+    if (!isAdaptive() || ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+      return;
+    }
+    for (Node node : nodes) {
+      node.sample(request);
+    }
+  }
+
+  /**
+   * Reorder nodes with enough samples from measurements, then start measuring again.
+   */
+  void optimize() {
+    for (Node node : nodes) {
+      double[] rank = node.measured(minimumSamples);
+      if (rank != null) {
+        node.apply(rank);
+        node.reset();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("nodes", nodes.length)
+        .add("sampleRate", sampleRate)
+        .add("minimumSamples", minimumSamples)
+        .toString();
+  }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+
+import org.sonatype.goodies.dropwizard.rules.RequestRuleConfiguration.DecisionCache;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.AndRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.HeaderRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.MethodRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.NotRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.OrRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.PathRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RemoteIpRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.standard.BlacklistRequestRule;
+import org.sonatype.goodies.dropwizard.rules.standard.WhitelistRequestRule;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.MoreObjects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Bounded cache of {@link RequestRuleDecision} results keyed by a fingerprint of the request attributes the rules
+ * examine.
+ *
+ * The fingerprint is found by walking the matchers of all rules; so only standard rules and matchers, whose results
+ * depend only on method, path, remote address and named headers, can be cached.  Cached decisions still mark the
+ * meter of the matched rule, and are discarded when remote address sources change.
+ *
+ * @since ???
+ * @see RequestRuleServiceImpl
+ */
+final class RequestRuleCache
+{
+  /**
+   * Request attributes examined by rules.
+   */
+  static final class Fingerprint
+  {
+    private final boolean path;
+
+    private final boolean method;
+
+    private final boolean remoteAddress;
+
+    private final String[] headers;
+
+    private final int size;
+
+    private Fingerprint(final boolean path, final boolean method, final boolean remoteAddress, final String[] headers) {
+      this.path = path;
+      this.method = method;
+      this.remoteAddress = remoteAddress;
+      this.headers = headers;
+      this.size = (path ? 1 : 0) + (method ? 1 : 0) + (remoteAddress ? 1 : 0) + headers.length;
+    }
+
+    /**
+     * Returns fingerprint of given rules; or {@code null} if any rule or matcher may examine anything else.
+     */
+    @Nullable
+    static Fingerprint of(final RequestRule[] rules) {
+      Walker walker = new Walker();
+      for (RequestRule rule : rules) {
+        Class<?> type = rule.getClass();
+        if (type != WhitelistRequestRule.class && type != BlacklistRequestRule.class) {
+          return null;
+        }
+        for (RequestMatcher matcher : ((MatchRequestRule) rule).getMatchers()) {
+          if (!walker.walk(matcher)) {
+            return null;
+          }
+        }
+      }
+      return new Fingerprint(walker.path, walker.method, walker.remoteAddress, walker.headers.toArray(new String[0]));
+    }
+
+    /**
+     * Names of headers examined.
+     */
+    String[] getHeaders() {
+      return headers.clone();
+    }
+
+    Key key(final HttpServletRequest request) {
+      String[] values = new String[size];
+      int i = 0;
+      if (path) {
+        values[i++] = request.getRequestURI();
+      }
+      if (method) {
+        values[i++] = request.getMethod();
+      }
+      if (remoteAddress) {
+        values[i++] = request.getRemoteAddr();
+      }
+      for (String header : headers) {
+        values[i++] = request.getHeader(header);
+      }
+      return new Key(values);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("path", path)
+          .add("method", method)
+          .add("remoteAddress", remoteAddress)
+          .add("headers", Arrays.asList(headers))
+          .toString();
+    }
+  }
+
+  /**
+   * Collects attributes examined by matchers.
+   */
+  private static final class Walker
+  {
+    private boolean path;
+
+    private boolean method;
+
+    private boolean remoteAddress;
+
+    private final Set<String> headers = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    private boolean walk(final RequestMatcher matcher) {
+      // exact class only; sub-classes may examine anything
+      Class<?> type = matcher.getClass();
+      if (type == PathRequestMatcher.class) {
+        path = true;
+      }
+      else if (type == MethodRequestMatcher.class) {
+        method = true;
+      }
+      else if (type == RemoteIpRequestMatcher.class) {
+        remoteAddress = true;
+      }
+      else if (type == HeaderRequestMatcher.class) {
+        headers.add(((HeaderRequestMatcher) matcher).getName());
+      }
+      else if (type == NotRequestMatcher.class) {
+        return walk(((NotRequestMatcher) matcher).getMatcher());
+      }
+      else if (type == AndRequestMatcher.class) {
+        return ((AndRequestMatcher) matcher).getMatchers().stream().allMatch(this::walk);
+      }
+      else if (type == OrRequestMatcher.class) {
+        return ((OrRequestMatcher) matcher).getMatchers().stream().allMatch(this::walk);
+      }
+      else {
+        return false;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Request attribute values.
+   */
+  private static final class Key
+  {
+    private final String[] values;
+
+    private final int hash;
+
+    private Key(final String[] values) {
+      this.values = values;
+      this.hash = Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return hash == key.hash && Arrays.equals(values, key.values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * Cached decision.
+   */
+  private static final class Entry
+  {
+    /**
+     * Matched rule; or {@code null} if no rule matched.
+     */
+    @Nullable
+    private final MatchRequestRule rule;
+
+    @Nullable
+    private final RequestRuleResult result;
+
+    private final Object addressVersion;
+
+    private Entry(@Nullable final MatchRequestRule rule,
+                  @Nullable final RequestRuleResult result,
+                  final Object addressVersion)
+    {
+      this.rule = rule;
+      this.result = result;
+      this.addressVersion = addressVersion;
+    }
+  }
+
+  private final RequestRuleDecision decision;
+
+  private final Fingerprint fingerprint;
+
+  private final Cache<Key, Entry> entries;
+
+  private final Meter hits;
+
+  private final Meter misses;
+
+  RequestRuleCache(final RequestRuleDecision decision,
+                   final Fingerprint fingerprint,
+                   final DecisionCache config,
+                   final MetricRegistry metricRegistry)
+  {
+    this.decision = checkNotNull(decision);
+    this.fingerprint = checkNotNull(fingerprint);
+    checkNotNull(config);
+    checkArgument(decision.isCompiled(), "Decision is not compiled");
+    this.entries = Caffeine.newBuilder()
+        .maximumSize(config.getMaximumSize())
+        .expireAfterWrite(config.getExpireAfterWrite().getQuantity(), config.getExpireAfterWrite().getUnit())
+        .build();
+    this.hits = metricRegistry.meter("service.rules.cache.hits");
+    this.misses = metricRegistry.meter("service.rules.cache.misses");
+  }
+
+  /**
+   * Evaluate request; same result as {@link RequestRuleDecision#evaluate(HttpServletRequest)}.
+   */
+  @Nullable
+  RequestRuleResult evaluate(final HttpServletRequest request) {
+    Key key = fingerprint.key(request);
+    Object addressVersion = decision.addressVersion();
+
+    Entry entry = entries.getIfPresent(key);
+    if (entry != null && entry.addressVersion == addressVersion) {
+      hits.mark();
+      if (entry.rule != null) {
+        entry.rule.mark();
+      }
+      return entry.result;
+    }
+    misses.mark();
+
+    int slot = decision.slot(request);
+    if (slot == -1) {
+      entries.put(key, new Entry(null, null, addressVersion));
+      return null;
+    }
+    RequestRuleResult result = decision.result(slot, request);
+    entries.put(key, new Entry(decision.rule(slot), result, addressVersion));
+    return result;
+  }
+
+  long size() {
+    return entries.estimatedSize();
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("fingerprint", fingerprint)
+        .add("size", entries.estimatedSize())
+        .toString();
+  }
+}
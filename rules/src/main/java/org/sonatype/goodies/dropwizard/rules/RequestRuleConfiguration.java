@@ -12,14 +12,19 @@
  */
 package org.sonatype.goodies.dropwizard.rules;
 
+import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import io.dropwizard.util.Duration;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -43,4 +48,377 @@ public class RequestRuleConfiguration
   public void setRules(@Nonnull final List<RequestRule> rules) {
     this.rules = checkNotNull(rules);
   }
+
+  /**
+   * Apply rules with a Jetty handler ahead of the servlet context.
+   *
+   * @since ???
+   * @see RequestRuleHandler
+   */
+  @JsonProperty
+  private boolean earlyRejection = false;
+
+  public boolean isEarlyRejection() {
+    return earlyRejection;
+  }
+
+  public void setEarlyRejection(final boolean earlyRejection) {
+    this.earlyRejection = earlyRejection;
+  }
+
+  /**
+   * Cache of decisions by the request attributes rules examine.
+   *
+   * Only applies when every rule and matcher is a standard type whose result depends only on the request method,
+   * path, remote address and headers.
+   *
+   * @since ???
+   * @see RequestRuleCache
+   */
+  public static class DecisionCache
+  {
+    @JsonProperty
+    private boolean enabled = false;
+
+    @Min(1)
+    @JsonProperty
+    private long maximumSize = 10000;
+
+    @NotNull
+    @JsonProperty
+    private Duration expireAfterWrite = Duration.minutes(1);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+      return maximumSize;
+    }
+
+    public void setMaximumSize(final long maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+      return expireAfterWrite;
+    }
+
+    public void setExpireAfterWrite(@NotNull final Duration expireAfterWrite) {
+      this.expireAfterWrite = checkNotNull(expireAfterWrite);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("enabled", enabled)
+          .add("maximumSize", maximumSize)
+          .add("expireAfterWrite", expireAfterWrite)
+          .toString();
+    }
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty
+  private DecisionCache cache = new DecisionCache();
+
+  public DecisionCache getCache() {
+    return cache;
+  }
+
+  public void setCache(@NotNull final DecisionCache cache) {
+    this.cache = checkNotNull(cache);
+  }
+
+  /**
+   * Reloading rules at runtime.
+   *
+   * @since ???
+   * @see RequestRuleReloadTask
+   */
+  public static class Reload
+  {
+    /**
+     * File to load rules from, as a YAML {@link RequestRuleConfiguration}; used instead of configured rules if set.
+     */
+    @Nullable
+    @JsonProperty
+    private File file;
+
+    /**
+     * Reload when {@link #file} changes.
+     */
+    @JsonProperty
+    private boolean watch = false;
+
+    /**
+     * Period between checking {@link #file} for changes.
+     */
+    @NotNull
+    @JsonProperty
+    private Duration interval = Duration.seconds(5);
+
+    @Nullable
+    public File getFile() {
+      return file;
+    }
+
+    public void setFile(@Nullable final File file) {
+      this.file = file;
+    }
+
+    public boolean isWatch() {
+      return watch;
+    }
+
+    public void setWatch(final boolean watch) {
+      this.watch = watch;
+    }
+
+    public Duration getInterval() {
+      return interval;
+    }
+
+    public void setInterval(@NotNull final Duration interval) {
+      this.interval = checkNotNull(interval);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("file", file)
+          .add("watch", watch)
+          .add("interval", interval)
+          .toString();
+    }
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty
+  private Reload reload = new Reload();
+
+  public Reload getReload() {
+    return reload;
+  }
+
+  public void setReload(@NotNull final Reload reload) {
+    this.reload = checkNotNull(reload);
+  }
+
+  /**
+   * Sampled profiling of rule and matcher evaluation.
+   *
+   * @since ???
+   * @see RequestRuleProfiler
+   */
+  public static class Profile
+  {
+    /**
+     * Profile one in this many evaluations; {@code 0} disables profiling.
+     */
+    @Min(0)
+    @JsonProperty
+    private int sampleRate = 0;
+
+    public int getSampleRate() {
+      return sampleRate;
+    }
+
+    public void setSampleRate(final int sampleRate) {
+      this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("sampleRate", sampleRate)
+          .toString();
+    }
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty
+  private Profile profile = new Profile();
+
+  public Profile getProfile() {
+    return profile;
+  }
+
+  public void setProfile(@NotNull final Profile profile) {
+    this.profile = checkNotNull(profile);
+  }
+
+  /**
+   * Reordering of {@link org.sonatype.goodies.dropwizard.rules.matcher.request.AndRequestMatcher AND} and
+   * {@link org.sonatype.goodies.dropwizard.rules.matcher.request.OrRequestMatcher OR} matchers by cost and selectivity.
+   *
+   * @since ???
+   * @see RequestMatcherOptimizer
+   */
+  public static class Optimizer
+  {
+    @JsonProperty
+    private boolean enabled = false;
+
+    /**
+     * Sample one in this many requests to measure matchers; {@code 0} only orders by estimated cost on start.
+     */
+    @Min(0)
+    @JsonProperty
+    private int sampleRate = 100;
+
+    /**
+     * Period between reordering from sampled measurements.
+     */
+    @NotNull
+    @JsonProperty
+    private Duration interval = Duration.minutes(1);
+
+    /**
+     * Samples required before a matcher is reordered from measurements.
+     */
+    @Min(1)
+    @JsonProperty
+    private long minimumSamples = 1000;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getSampleRate() {
+      return sampleRate;
+    }
+
+    public void setSampleRate(final int sampleRate) {
+      this.sampleRate = sampleRate;
+    }
+
+    public Duration getInterval() {
+      return interval;
+    }
+
+    public void setInterval(@NotNull final Duration interval) {
+      this.interval = checkNotNull(interval);
+    }
+
+    public long getMinimumSamples() {
+      return minimumSamples;
+    }
+
+    public void setMinimumSamples(final long minimumSamples) {
+      this.minimumSamples = minimumSamples;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("enabled", enabled)
+          .add("sampleRate", sampleRate)
+          .add("interval", interval)
+          .add("minimumSamples", minimumSamples)
+          .toString();
+    }
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty
+  private Optimizer optimizer = new Optimizer();
+
+  public Optimizer getOptimizer() {
+    return optimizer;
+  }
+
+  public void setOptimizer(@NotNull final Optimizer optimizer) {
+    this.optimizer = checkNotNull(optimizer);
+  }
+
+  /**
+   * Evaluation of candidate rules in shadow of live rules.
+   *
+   * @since ???
+   * @see RequestRuleShadow
+   */
+  public static class Shadow
+  {
+    /**
+     * File to load candidate rules from, as a YAML {@link RequestRuleConfiguration}; shadow evaluation is disabled if
+     * not set, unless started by {@link RequestRuleShadowTask}.
+     */
+    @Nullable
+    @JsonProperty
+    private File file;
+
+    /**
+     * Shadow one in this many requests.
+     */
+    @Min(1)
+    @JsonProperty
+    private int sampleRate = 100;
+
+    /**
+     * Maximum requests waiting for evaluation; further samples are dropped.
+     */
+    @Min(1)
+    @JsonProperty
+    private int queueSize = 10000;
+
+    @Nullable
+    public File getFile() {
+      return file;
+    }
+
+    public void setFile(@Nullable final File file) {
+      this.file = file;
+    }
+
+    public int getSampleRate() {
+      return sampleRate;
+    }
+
+    public void setSampleRate(final int sampleRate) {
+      this.sampleRate = sampleRate;
+    }
+
+    public int getQueueSize() {
+      return queueSize;
+    }
+
+    public void setQueueSize(final int queueSize) {
+      this.queueSize = queueSize;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("file", file)
+          .add("sampleRate", sampleRate)
+          .add("queueSize", queueSize)
+          .toString();
+    }
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty
+  private Shadow shadow = new Shadow();
+
+  public Shadow getShadow() {
+    return shadow;
+  }
+
+  public void setShadow(@NotNull final Shadow shadow) {
+    this.shadow = checkNotNull(shadow);
+  }
 }
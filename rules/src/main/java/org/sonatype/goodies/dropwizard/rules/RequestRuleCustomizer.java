@@ -21,10 +21,12 @@ import javax.servlet.FilterRegistration;
 
 import org.sonatype.goodies.dropwizard.app.ApplicationCustomizer;
 import org.sonatype.goodies.dropwizard.app.ApplicationSupport;
+import org.sonatype.goodies.dropwizard.rules.replay.RequestRuleReplayCommand;
 
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Module;
 import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +44,11 @@ public abstract class RequestRuleCustomizer<T extends ApplicationSupport<C>, C e
 
   protected abstract RequestRuleConfiguration getRequestRuleConfiguration(final C config);
 
+  @Override
+  public void initialize(final Bootstrap<C> bootstrap) throws Exception {
+    bootstrap.addCommand(new RequestRuleReplayCommand());
+  }
+
   @Override
   public List<Module> modules(final C config, final Environment environment) {
     return ImmutableList.of(
@@ -54,6 +61,12 @@ public abstract class RequestRuleCustomizer<T extends ApplicationSupport<C>, C e
                         final C config,
                         final Environment environment)
   {
+    if (getRequestRuleConfiguration(config).isEarlyRejection()) {
+      RequestRuleHandler handler = application.getInstance(RequestRuleHandler.class);
+      environment.getApplicationContext().insertHandler(handler);
+      log.debug("Added handler: {}", handler);
+    }
+
     Class<? extends Filter> type = RequestRuleFilter.class;
     Filter filter = application.getInstance(type);
     String urlPattern = "/*";
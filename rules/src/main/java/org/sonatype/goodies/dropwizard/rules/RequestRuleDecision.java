@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+
+import org.sonatype.goodies.dropwizard.rules.matcher.request.MethodRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.OrRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.PathRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RemoteIpRequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RequestMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RequestMethod;
+import org.sonatype.goodies.dropwizard.rules.matcher.string.OrStringMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.string.PrefixStringMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.string.StringMatcher;
+import org.sonatype.goodies.dropwizard.rules.matcher.string.StringMatcherSupport;
+import org.sonatype.goodies.dropwizard.rules.matcher.string.SuffixStringMatcher;
+import org.sonatype.goodies.dropwizard.text.MoreStrings;
+import org.sonatype.goodies.dropwizard.util.IpAddressTrie;
+import org.sonatype.goodies.dropwizard.util.IpAddresses;
+
+import com.google.common.base.MoreObjects;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compiled decision structure for a list of {@link RequestRule rules}.
+ *
+ * Each top-level matcher of each {@link MatchRequestRule} (and each other rule) gets a slot, numbered in evaluation
+ * order.  Matchers which only examine one request attribute are indexed by attribute: path prefix and suffix
+ * literals into {@link LiteralTrie tries}, methods into per-method slot sets and remote addresses into one
+ * {@link IpAddressTrie} with slots.  Each attribute is then examined once per request, yielding the set of matched
+ * indexed slots.  Remaining matchers and rules are probed in slot order, only up to the first matched indexed slot;
+ * so the first matching slot, and the result, is the same as evaluating every rule and matcher in order.
+ *
+ * Remote addresses may change at runtime; the address trie is recompiled when any source changes.
+ *
+ * @since ???
+ * @see RequestRuleServiceImpl
+ */
+final class RequestRuleDecision
+{
+  /**
+   * Evaluates a slot which could not be indexed.
+   */
+  private interface Probe
+  {
+    @Nullable
+    RequestRuleResult evaluate(HttpServletRequest request);
+  }
+
+  /**
+   * Compiled remote addresses and the source versions they were compiled from.
+   */
+  private static final class AddressIndex
+  {
+    private final IpAddressTrie trie;
+
+    private final IpAddressTrie[] compiledFrom;
+
+    private AddressIndex(final IpAddressTrie trie, final IpAddressTrie[] compiledFrom) {
+      this.trie = trie;
+      this.compiledFrom = compiledFrom;
+    }
+  }
+
+  private final int slots;
+
+  /**
+   * Rule of indexed slot.
+   */
+  private final MatchRequestRule[] slotRules;
+
+  /**
+   * Matcher of indexed slot.
+   */
+  private final RequestMatcher[] slotMatchers;
+
+  /**
+   * Slots of {@link #probes}; ascending.
+   */
+  private final int[] probeSlots;
+
+  private final Probe[] probes;
+
+  /**
+   * Matcher of each {@link #probes probe}; or {@code null} if the probe evaluates a whole rule.
+   */
+  private final RequestMatcher[] probeMatchers;
+
+  private final LiteralTrie pathPrefixes;
+
+  private final LiteralTrie pathSuffixes;
+
+  private final LiteralTrie pathPrefixesIgnoreCase;
+
+  private final LiteralTrie pathSuffixesIgnoreCase;
+
+  /**
+   * Slots by upper-case method.
+   */
+  private final Map<String, BitSet> methods;
+
+  private final IpAddresses[] addressSources;
+
+  private final int[] addressSlots;
+
+  private volatile AddressIndex addressIndex;
+
+  private final boolean indexed;
+
+  private RequestRuleDecision(final Compiler compiler) {
+    this.slots = compiler.slotRules.size();
+    this.slotRules = compiler.slotRules.toArray(new MatchRequestRule[0]);
+    this.slotMatchers = compiler.slotMatchers.toArray(new RequestMatcher[0]);
+    this.probeSlots = compiler.probeSlots.stream().mapToInt(Integer::intValue).toArray();
+    this.probes = compiler.probes.toArray(new Probe[0]);
+    this.probeMatchers = compiler.probeMatchers.toArray(new RequestMatcher[0]);
+    this.pathPrefixes = compiler.pathPrefixes.build();
+    this.pathSuffixes = compiler.pathSuffixes.build();
+    this.pathPrefixesIgnoreCase = compiler.pathPrefixesIgnoreCase.build();
+    this.pathSuffixesIgnoreCase = compiler.pathSuffixesIgnoreCase.build();
+    this.methods = new HashMap<>(compiler.methods);
+    this.addressSources = compiler.addressSources.toArray(new IpAddresses[0]);
+    this.addressSlots = compiler.addressSlots.stream().mapToInt(Integer::intValue).toArray();
+    this.addressIndex = compileAddresses();
+    this.indexed = probes.length < slots;
+  }
+
+  /**
+   * Compile rules; rules must not change afterwards.
+   */
+  static RequestRuleDecision compile(final RequestRule[] rules) {
+    checkNotNull(rules);
+    Compiler compiler = new Compiler();
+    for (RequestRule rule : rules) {
+      compiler.add(rule);
+    }
+    return new RequestRuleDecision(compiler);
+  }
+
+  /**
+   * Evaluate request; same result as evaluating each rule in order.
+   */
+  @Nullable
+  RequestRuleResult evaluate(final HttpServletRequest request) {
+    int next = indexed ? collect(request).nextSetBit(0) : -1;
+
+    for (int i = 0; i < probes.length; i++) {
+      // an earlier indexed slot matched
+      if (next != -1 && next < probeSlots[i]) {
+        break;
+      }
+      RequestRuleResult result = probes[i].evaluate(request);
+      if (result != null) {
+        return result;
+      }
+    }
+
+    if (next != -1) {
+      return slotRules[next].result(slotMatchers[next], request);
+    }
+    return null;
+  }
+
+  /**
+   * Returns {@code true} if every slot is a matcher of a compiled rule; so {@link #slot(HttpServletRequest)} applies.
+   */
+  boolean isCompiled() {
+    for (RequestMatcher matcher : probeMatchers) {
+      if (matcher == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the first matching slot; or {@code -1} if none.  Only when {@link #isCompiled() compiled}.
+   */
+  int slot(final HttpServletRequest request) {
+    int next = indexed ? collect(request).nextSetBit(0) : -1;
+
+    for (int i = 0; i < probes.length; i++) {
+      if (next != -1 && next < probeSlots[i]) {
+        break;
+      }
+      if (probeMatchers[i].matches(request)) {
+        return probeSlots[i];
+      }
+    }
+    return next;
+  }
+
+  MatchRequestRule rule(final int slot) {
+    return slotRules[slot];
+  }
+
+  RequestRuleResult result(final int slot, final HttpServletRequest request) {
+    return slotRules[slot].result(slotMatchers[slot], request);
+  }
+
+  /**
+   * Returns a token which changes whenever remote address sources change.
+   */
+  Object addressVersion() {
+    if (addressSources.length == 0) {
+      return this;
+    }
+    addresses();
+    return addressIndex;
+  }
+
+  /**
+   * Examine each indexed attribute once; returns matched indexed slots.
+   */
+  private BitSet collect(final HttpServletRequest request) {
+    BitSet matched = new BitSet(slots);
+
+    String path = request.getRequestURI();
+    if (path != null) {
+      pathPrefixes.collect(path, matched);
+      pathSuffixes.collect(path, matched);
+      pathPrefixesIgnoreCase.collectIgnoreCase(path, matched);
+      pathSuffixesIgnoreCase.collectIgnoreCase(path, matched);
+    }
+
+    if (!methods.isEmpty()) {
+      String name = request.getMethod();
+      RequestMethod resolved = RequestMethod.of(name);
+      BitSet method = methods.get(resolved != null ? resolved.name() : MoreStrings.upper(name));
+      if (method != null) {
+        matched.or(method);
+      }
+    }
+
+    if (addressSources.length != 0) {
+      addresses().collect(request.getRemoteAddr(), matched);
+    }
+
+    return matched;
+  }
+
+  /**
+   * Returns compiled remote addresses; recompiled if any source has changed.
+   */
+  private IpAddressTrie addresses() {
+    AddressIndex index = addressIndex;
+    for (int i = 0; i < addressSources.length; i++) {
+      if (addressSources[i].getTrie() != index.compiledFrom[i]) {
+        return recompileAddresses();
+      }
+    }
+    return index.trie;
+  }
+
+  private synchronized IpAddressTrie recompileAddresses() {
+    AddressIndex index = compileAddresses();
+    addressIndex = index;
+    return index.trie;
+  }
+
+  private AddressIndex compileAddresses() {
+    IpAddressTrie.Builder builder = IpAddressTrie.builder();
+    IpAddressTrie[] compiledFrom = new IpAddressTrie[addressSources.length];
+    for (int i = 0; i < addressSources.length; i++) {
+      // version first; a concurrent change is then seen again on next lookup
+      compiledFrom[i] = addressSources[i].getTrie();
+      for (String address : addressSources[i].getAddresses()) {
+        builder.add(address, addressSlots[i]);
+      }
+    }
+    return new AddressIndex(builder.build(), compiledFrom);
+  }
+
+  /**
+   * Collects slots while compiling.
+   */
+  private static final class Compiler
+  {
+    private final List<MatchRequestRule> slotRules = new ArrayList<>();
+
+    private final List<RequestMatcher> slotMatchers = new ArrayList<>();
+
+    private final List<Integer> probeSlots = new ArrayList<>();
+
+    private final List<Probe> probes = new ArrayList<>();
+
+    private final List<RequestMatcher> probeMatchers = new ArrayList<>();
+
+    private final LiteralTrie.Builder pathPrefixes = new LiteralTrie.Builder(false);
+
+    private final LiteralTrie.Builder pathSuffixes = new LiteralTrie.Builder(true);
+
+    private final LiteralTrie.Builder pathPrefixesIgnoreCase = new LiteralTrie.Builder(false);
+
+    private final LiteralTrie.Builder pathSuffixesIgnoreCase = new LiteralTrie.Builder(true);
+
+    private final Map<String, BitSet> methods = new HashMap<>();
+
+    private final List<IpAddresses> addressSources = new ArrayList<>();
+
+    private final List<Integer> addressSlots = new ArrayList<>();
+
+    private void add(final RequestRule rule) {
+      // only rules using the standard match evaluation can be compiled; others are probed as a whole
+      if (!MatchRequestRule.isStandard(rule)) {
+        int slot = slot(null, null);
+        probe(slot, rule::evaluate, null);
+        return;
+      }
+
+      MatchRequestRule matchRule = (MatchRequestRule) rule;
+      for (RequestMatcher matcher : matchRule.getMatchers()) {
+        int slot = slot(matchRule, matcher);
+        if (indexable(matcher)) {
+          index(matcher, slot);
+        }
+        else {
+          probe(slot, request -> matcher.matches(request) ? matchRule.result(matcher, request) : null, matcher);
+        }
+      }
+    }
+
+    private int slot(@Nullable final MatchRequestRule rule, @Nullable final RequestMatcher matcher) {
+      slotRules.add(rule);
+      slotMatchers.add(matcher);
+      return slotRules.size() - 1;
+    }
+
+    private void probe(final int slot, final Probe probe, @Nullable final RequestMatcher matcher) {
+      probeSlots.add(slot);
+      probes.add(probe);
+      probeMatchers.add(matcher);
+    }
+
+    private static boolean indexable(final RequestMatcher matcher) {
+      Class<?> type = matcher.getClass();
+      if (type == MethodRequestMatcher.class || type == RemoteIpRequestMatcher.class) {
+        return true;
+      }
+      if (type == PathRequestMatcher.class) {
+        return indexablePath(((PathRequestMatcher) matcher).getMatcher());
+      }
+      if (type == OrRequestMatcher.class) {
+        return ((OrRequestMatcher) matcher).getMatchers().stream().allMatch(Compiler::indexable);
+      }
+      return false;
+    }
+
+    private static boolean indexablePath(final StringMatcher matcher) {
+      Class<?> type = matcher.getClass();
+      if (type == PrefixStringMatcher.class || type == SuffixStringMatcher.class) {
+        return true;
+      }
+      if (type == OrStringMatcher.class) {
+        return ((OrStringMatcher) matcher).getMatchers().stream().allMatch(Compiler::indexablePath);
+      }
+      return false;
+    }
+
+    private void index(final RequestMatcher matcher, final int slot) {
+      if (matcher instanceof MethodRequestMatcher) {
+        for (String method : ((MethodRequestMatcher) matcher).getMethods()) {
+          methods.computeIfAbsent(method, key -> new BitSet()).set(slot);
+        }
+      }
+      else if (matcher instanceof RemoteIpRequestMatcher) {
+        addressSources.add(((RemoteIpRequestMatcher) matcher).getAddresses());
+        addressSlots.add(slot);
+      }
+      else if (matcher instanceof PathRequestMatcher) {
+        indexPath(((PathRequestMatcher) matcher).getMatcher(), slot);
+      }
+      else {
+        for (RequestMatcher child : ((OrRequestMatcher) matcher).getMatchers()) {
+          index(child, slot);
+        }
+      }
+    }
+
+    private void indexPath(final StringMatcher matcher, final int slot) {
+      if (matcher instanceof OrStringMatcher) {
+        for (StringMatcher child : ((OrStringMatcher) matcher).getMatchers()) {
+          indexPath(child, slot);
+        }
+        return;
+      }
+
+      // values of ignore-case matchers are already lower-case
+      StringMatcherSupport literal = (StringMatcherSupport) matcher;
+      if (literal instanceof PrefixStringMatcher) {
+        (literal.isIgnoreCase() ? pathPrefixesIgnoreCase : pathPrefixes).add(literal.getValue(), slot);
+      }
+      else {
+        (literal.isIgnoreCase() ? pathSuffixesIgnoreCase : pathSuffixes).add(literal.getValue(), slot);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("slots", slots)
+        .add("probes", probes.length)
+        .add("pathPrefixes", pathPrefixes.getSize() + pathPrefixesIgnoreCase.getSize())
+        .add("pathSuffixes", pathSuffixes.getSize() + pathSuffixesIgnoreCase.getSize())
+        .add("methods", methods.size())
+        .add("addressSources", addressSources.length)
+        .toString();
+  }
+}
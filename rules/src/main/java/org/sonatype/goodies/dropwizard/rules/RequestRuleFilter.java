@@ -47,6 +47,12 @@ public class RequestRuleFilter
   protected void filter(final HttpServletRequest request, final HttpServletResponse response, final FilterChain chain)
       throws IOException, ServletException
   {
+    // already evaluated ahead of servlet context
+    if (request.getAttribute(RequestRuleHandler.EVALUATED_ATTR) != null) {
+      chain.doFilter(request, response);
+      return;
+    }
+
     RequestRuleResult result = ruleService.evaluate(request);
 
     // if there is a result then apply
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link RequestRuleService} Jetty handler; applies rules before the servlet context filter chain.
+ *
+ * Rules are evaluated once per request, ahead of session handling and security filters; so rejected requests cost
+ * as little as possible.  Rules must only depend on the request itself (address, method, URI and headers); the
+ * current user is not yet known.  {@link RequestRuleFilter} skips requests this handler has already evaluated.
+ *
+ * @since ???
+ * @see RequestRuleFilter
+ */
+@Named
+@Singleton
+public class RequestRuleHandler
+    extends HandlerWrapper
+{
+  private static final Logger log = LoggerFactory.getLogger(RequestRuleHandler.class);
+
+  /**
+   * Attribute marking a request already evaluated by the handler.
+   */
+  static final String EVALUATED_ATTR = RequestRuleHandler.class.getName() + ".evaluated";
+
+  private final RequestRuleService ruleService;
+
+  @Inject
+  public RequestRuleHandler(final RequestRuleService ruleService) {
+    this.ruleService = checkNotNull(ruleService);
+  }
+
+  @Override
+  public void handle(final String target,
+                     final Request baseRequest,
+                     final HttpServletRequest request,
+                     final HttpServletResponse response)
+      throws IOException, ServletException
+  {
+    if (request.getDispatcherType() != DispatcherType.REQUEST) {
+      super.handle(target, baseRequest, request, response);
+      return;
+    }
+
+    request.setAttribute(EVALUATED_ATTR, Boolean.TRUE);
+    RequestRuleResult result = ruleService.evaluate(request);
+    if (result == null) {
+      super.handle(target, baseRequest, request, response);
+      return;
+    }
+
+    log.trace("Applying: {}", result);
+    boolean[] continued = new boolean[1];
+    FilterChain chain = (req, res) -> {
+      continued[0] = true;
+      super.handle(target, baseRequest, (HttpServletRequest) req, (HttpServletResponse) res);
+    };
+    result.apply(request, response, chain);
+
+    // result responded itself
+    if (!continued[0]) {
+      baseRequest.setHandled(true);
+    }
+  }
+}
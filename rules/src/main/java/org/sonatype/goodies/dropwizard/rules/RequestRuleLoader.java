@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.io.File;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.validation.Validator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.configuration.YamlConfigurationFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Loads and validates {@link RequestRuleConfiguration} from YAML files.
+ *
+ * @since ???
+ */
+@Named
+@Singleton
+public class RequestRuleLoader
+{
+  private static final Logger log = LoggerFactory.getLogger(RequestRuleLoader.class);
+
+  private final YamlConfigurationFactory<RequestRuleConfiguration> factory;
+
+  @Inject
+  public RequestRuleLoader(final ObjectMapper objectMapper, final Validator validator) {
+    checkNotNull(objectMapper);
+    checkNotNull(validator);
+    this.factory = new YamlConfigurationFactory<>(RequestRuleConfiguration.class, validator, objectMapper, "rules");
+  }
+
+  /**
+   * Load configuration from file.
+   *
+   * @throws io.dropwizard.configuration.ConfigurationException if the configuration is invalid.
+   */
+  public RequestRuleConfiguration load(final File file) throws Exception {
+    checkNotNull(file);
+    log.debug("Loading: {}", file);
+    return factory.build(file);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.dropwizard.task.TaskSupport;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Report {@link RequestRuleProfiler profiled} rules and matchers, most expensive first.
+ *
+ * Parameters: {@code limit} entries to report (default 10), {@code reset} statistics after reporting.
+ *
+ * @since ???
+ */
+@Named
+@Singleton
+public class RequestRuleProfileTask
+    extends TaskSupport
+{
+  private final RequestRuleProfiler profiler;
+
+  @Inject
+  public RequestRuleProfileTask(final RequestRuleProfiler profiler) {
+    super("request-rules-profile");
+    this.profiler = checkNotNull(profiler);
+  }
+
+  @Override
+  protected void doExecute(final Parameters parameters, final PrintWriter output) throws Exception {
+    int limit = Integer.parseInt(parameters.value("limit", "10"));
+    boolean reset = Boolean.parseBoolean(parameters.value("reset", "false"));
+
+    RequestRuleProfiler.Profile profile = profiler.getProfile();
+    if (profile == null) {
+      output.println(profiler.isEnabled() ? "No rules profiled" : "Profiling disabled; configure profile.sampleRate");
+      return;
+    }
+
+    output.format("Samples: %d (1/%d)%n", profile.getSamples(), profiler.getSampleRate());
+    output.println("Rules:");
+    report(profile.getRules(), limit, output);
+    output.println("Matchers:");
+    report(profile.getMatchers(), limit, output);
+
+    if (reset) {
+      profile.reset();
+      output.println("Reset");
+    }
+  }
+
+  private static void report(final List<RequestRuleProfiler.Stats> stats, final int limit, final PrintWriter output) {
+    for (RequestRuleProfiler.Stats entry : stats.subList(0, Math.min(limit, stats.size()))) {
+      output.format("  %s: evaluations=%d, matches=%d, total=%dns, mean=%dns%n",
+          entry.getName(), entry.getEvaluations(), entry.getMatches(), entry.getNanos(), entry.getMeanNanos());
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.http.HttpServletRequest;
+
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RequestMatcher;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.google.common.base.MoreObjects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Sampled profiling of {@link RequestRule rule} and {@link RequestMatcher matcher} evaluation.
+ *
+ * Sampled requests are evaluated rule by rule, in order, recording evaluations, matches and elapsed nanoseconds
+ * per rule and per matcher type; other requests are evaluated as usual.  Each set of rules gets a new
+ * {@link Profile}, so statistics always refer to the current rules.
+ *
+ * @since ???
+ * @see RequestRuleProfileTask
+ */
+@Named
+@Singleton
+public class RequestRuleProfiler
+{
+  private final int sampleRate;
+
+  @Nullable
+  private volatile Profile profile;
+
+  @Inject
+  public RequestRuleProfiler(final RequestRuleConfiguration config) {
+    this(config.getProfile().getSampleRate());
+  }
+
+  public RequestRuleProfiler(final int sampleRate) {
+    checkArgument(sampleRate >= 0, "Invalid sample-rate: %s", sampleRate);
+    this.sampleRate = sampleRate;
+  }
+
+  public boolean isEnabled() {
+    return sampleRate != 0;
+  }
+
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Returns profile of current rules; or {@code null} if disabled or no rules have been profiled.
+   */
+  @Nullable
+  public Profile getProfile() {
+    return profile;
+  }
+
+  /**
+   * Begin profiling given rules; returns {@code null} if disabled.
+   */
+  @Nullable
+  Profile start(final RequestRule[] rules) {
+    checkNotNull(rules);
+    if (!isEnabled()) {
+      return null;
+    }
+    Profile started = new Profile(rules, sampleRate);
+    profile = started;
+    return started;
+  }
+
+  /**
+   * Evaluation statistics.
+   */
+  public static final class Stats
+  {
+    private final String name;
+
+    private final LongAdder evaluations = new LongAdder();
+
+    private final LongAdder matches = new LongAdder();
+
+    private final LongAdder nanos = new LongAdder();
+
+    private Stats(final String name) {
+      this.name = name;
+    }
+
+    private void record(final long elapsed, final boolean matched) {
+      evaluations.increment();
+      if (matched) {
+        matches.increment();
+      }
+      nanos.add(elapsed);
+    }
+
+    private void reset() {
+      evaluations.reset();
+      matches.reset();
+      nanos.reset();
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getEvaluations() {
+      return evaluations.sum();
+    }
+
+    public long getMatches() {
+      return matches.sum();
+    }
+
+    public long getNanos() {
+      return nanos.sum();
+    }
+
+    public long getMeanNanos() {
+      long count = getEvaluations();
+      return count == 0 ? 0 : getNanos() / count;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("name", name)
+          .add("evaluations", getEvaluations())
+          .add("matches", getMatches())
+          .add("nanos", getNanos())
+          .toString();
+    }
+  }
+
+  /**
+   * Profile of one set of rules.
+   */
+  public static final class Profile
+  {
+    private final RequestRule[] rules;
+
+    private final int sampleRate;
+
+    /**
+     * Whether rule uses the standard {@link MatchRequestRule} evaluation; so its matchers can be profiled.
+     */
+    private final boolean[] standard;
+
+    private final Stats[] ruleStats;
+
+    private final ConcurrentMap<Class<?>, Stats> matcherStats = new ConcurrentHashMap<>();
+
+    private final LongAdder samples = new LongAdder();
+
+    private Profile(final RequestRule[] rules, final int sampleRate) {
+      this.rules = rules;
+      this.sampleRate = sampleRate;
+      this.standard = new boolean[rules.length];
+      this.ruleStats = new Stats[rules.length];
+      for (int i = 0; i < rules.length; i++) {
+        standard[i] = MatchRequestRule.isStandard(rules[i]);
+        ruleStats[i] = new Stats(String.format("[%d] %s", i, rules[i]));
+      }
+    }
+
+    /**
+     * Returns {@code true} if this evaluation should be profiled.
+     */
+    boolean sample() {
+      return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    /**
+     * Evaluate each rule in order, recording statistics.
+     */
+    @Nullable
+    RequestRuleResult evaluate(final HttpServletRequest request) {
+      samples.increment();
+      for (int i = 0; i < rules.length; i++) {
+        long start = System.nanoTime();
+        RequestRuleResult result = standard[i]
+            ? ((MatchRequestRule) rules[i]).evaluate(request, this)
+            : rules[i].evaluate(request);
+        ruleStats[i].record(System.nanoTime() - start, result != null);
+        if (result != null) {
+          return result;
+        }
+      }
+      return null;
+    }
+
+    void record(final RequestMatcher matcher, final long elapsed, final boolean matched) {
+      Class<?> type = matcher.getClass();
+      Stats stats = matcherStats.get(type);
+      if (stats == null) {
+        stats = matcherStats.computeIfAbsent(type, key -> new Stats(typeName(key)));
+      }
+      stats.record(elapsed, matched);
+    }
+
+    private static String typeName(final Class<?> type) {
+      JsonTypeName name = type.getAnnotation(JsonTypeName.class);
+      return name != null ? name.value() : type.getSimpleName();
+    }
+
+    public long getSamples() {
+      return samples.sum();
+    }
+
+    /**
+     * Returns rule statistics, most expensive first.
+     */
+    public List<Stats> getRules() {
+      return ranked(Arrays.asList(ruleStats));
+    }
+
+    /**
+     * Returns matcher statistics by type, most expensive first.
+     */
+    public List<Stats> getMatchers() {
+      return ranked(matcherStats.values());
+    }
+
+    private static List<Stats> ranked(final Iterable<Stats> stats) {
+      List<Stats> result = new ArrayList<>();
+      stats.forEach(result::add);
+      result.sort(Comparator.comparingLong(Stats::getNanos).reversed());
+      return result;
+    }
+
+    public void reset() {
+      samples.reset();
+      for (Stats stats : ruleStats) {
+        stats.reset();
+      }
+      matcherStats.clear();
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("rules", rules.length)
+          .add("sampleRate", sampleRate)
+          .add("samples", getSamples())
+          .toString();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.dropwizard.task.TaskSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reload {@link RequestRuleServiceImpl} rules.
+ *
+ * Loads from {@code file} parameter, or the configured {@link RequestRuleConfiguration.Reload#getFile() reload file}.
+ * Invalid configuration is reported and current rules are left in place.
+ *
+ * @since ???
+ */
+@Named
+@Singleton
+public class RequestRuleReloadTask
+    extends TaskSupport
+{
+  private final RequestRuleServiceImpl service;
+
+  private final RequestRuleLoader loader;
+
+  private final RequestRuleConfiguration config;
+
+  @Inject
+  public RequestRuleReloadTask(final RequestRuleServiceImpl service,
+                               final RequestRuleLoader loader,
+                               final RequestRuleConfiguration config)
+  {
+    super("request-rules-reload");
+    this.service = checkNotNull(service);
+    this.loader = checkNotNull(loader);
+    this.config = checkNotNull(config);
+  }
+
+  @Override
+  protected void doExecute(final Parameters parameters, final PrintWriter output) throws Exception {
+    File file = config.getReload().getFile();
+    String path = parameters.value("file");
+    if (path != null) {
+      file = new File(path);
+    }
+    checkArgument(file != null, "Missing parameter: file");
+
+    RequestRuleConfiguration rules = loader.load(file);
+    service.reload(rules);
+    output.format("Reloaded %d rules from: %s%n", rules.getRules().size(), file);
+  }
+}
@@ -12,9 +12,12 @@
  */
 package org.sonatype.goodies.dropwizard.rules;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -24,14 +27,21 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.sonatype.goodies.dropwizard.service.ServiceSupport;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Injector;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Default {@link RequestRuleService}.
  *
+ * Rules, and their compiled forms, are published as one immutable snapshot; {@link #reload reloading} compiles a new
+ * snapshot off the request path and swaps it in, so evaluation never locks and in-flight requests complete with the
+ * rules they started with.
+ *
  * @since 1.2.0
  */
 @Named
@@ -40,60 +50,319 @@ public class RequestRuleServiceImpl
     extends ServiceSupport
     implements RequestRuleService
 {
+  /**
+   * Rules and their compiled forms.
+   */
+  private static final class Snapshot
+  {
+    private static final Snapshot EMPTY =
+        new Snapshot(new RequestRule[0], RequestRuleDecision.compile(new RequestRule[0]), null, null, null);
+
+    private final RequestRule[] rules;
+
+    private final RequestRuleDecision decision;
+
+    @Nullable
+    private final RequestRuleCache cache;
+
+    @Nullable
+    private final RequestRuleProfiler.Profile profile;
+
+    @Nullable
+    private final RequestMatcherOptimizer optimizer;
+
+    private Snapshot(final RequestRule[] rules,
+                     final RequestRuleDecision decision,
+                     @Nullable final RequestRuleCache cache,
+                     @Nullable final RequestRuleProfiler.Profile profile,
+                     @Nullable final RequestMatcherOptimizer optimizer)
+    {
+      this.rules = rules;
+      this.decision = decision;
+      this.cache = cache;
+      this.profile = profile;
+      this.optimizer = optimizer;
+    }
+  }
+
   private final RequestRuleConfiguration config;
 
   @Nullable
   private final Injector injector;
 
+  private final MetricRegistry metricRegistry;
+
+  @Nullable
+  private final RequestRuleLoader loader;
+
   @Nullable
-  private RequestRule[] rules;
+  private final RequestRuleProfiler profiler;
+
+  private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+  @Nullable
+  private volatile RequestRuleShadow shadow;
+
+  /**
+   * Runs file watching and matcher optimization; if either is enabled.
+   */
+  @Nullable
+  private ScheduledThreadPoolExecutor scheduler;
 
   @Inject
   public RequestRuleServiceImpl(final RequestRuleConfiguration config,
-                                @Nullable final Injector injector)
+                                @Nullable final Injector injector,
+                                final MetricRegistry metricRegistry,
+                                @Nullable final RequestRuleLoader loader,
+                                @Nullable final RequestRuleProfiler profiler)
   {
     this.config = checkNotNull(config);
     this.injector = injector;
+    this.metricRegistry = checkNotNull(metricRegistry);
+    this.loader = loader;
+    this.profiler = profiler;
+  }
+
+  public RequestRuleServiceImpl(final RequestRuleConfiguration config,
+                                @Nullable final Injector injector,
+                                final MetricRegistry metricRegistry)
+  {
+    this(config, injector, metricRegistry, null, null);
+  }
+
+  public RequestRuleServiceImpl(final RequestRuleConfiguration config, @Nullable final Injector injector) {
+    this(config, injector, new MetricRegistry());
   }
 
   @Override
   protected void doStart() throws Exception {
-    List<RequestRule> configured = config.getRules();
-    if (configured.isEmpty()) {
-      log.debug("No rules");
+    RequestRuleConfiguration.Reload reload = config.getReload();
+    File file = reload.getFile();
+    if (file != null) {
+      snapshot = compile(load(file).getRules());
+      if (reload.isWatch()) {
+        watch(file);
+      }
     }
     else {
-      int count = configured.size();
-      log.debug("{} rules:", count);
-      rules = new RequestRule[count];
-      for (int i=0; i<count; i++) {
-        RequestRule rule = configured.get(i);
-
-        // if injection is enabled, then inject rule
-        if (injector != null) {
-          injector.injectMembers(rule);
-        }
+      snapshot = compile(config.getRules());
+    }
 
-        log.info("Rule[{}]: {}", i, rule);
-        rules[i] = rule;
-      }
+    RequestRuleConfiguration.Optimizer optimizer = config.getOptimizer();
+    if (optimizer.isEnabled() && optimizer.getSampleRate() != 0) {
+      optimize(optimizer.getInterval().toNanoseconds());
+    }
+
+    File shadowFile = config.getShadow().getFile();
+    if (shadowFile != null) {
+      replaceShadow(load(shadowFile));
     }
   }
 
   @Override
   protected void doStop() throws Exception {
-    rules = null;
+    replaceShadow(null);
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler.awaitTermination(5, TimeUnit.SECONDS);
+      scheduler = null;
+    }
+    snapshot = Snapshot.EMPTY;
   }
 
-  @Override
-  public List<RequestRule> getRules() {
+  private RequestRuleConfiguration load(final File file) throws Exception {
+    checkState(loader != null, "Loader required to load rules from file");
+    return loader.load(file);
+  }
+
+  /**
+   * Inject and compile rules.
+   *
+   * Rules may come from a loaded file; cache, optimizer and profiler are always configured by the service.
+   */
+  private Snapshot compile(final List<RequestRule> configured) {
+    if (configured.isEmpty()) {
+      log.debug("No rules");
+      return Snapshot.EMPTY;
+    }
+
+    int count = configured.size();
+    log.debug("{} rules:", count);
+    RequestRule[] rules = new RequestRule[count];
+    for (int i=0; i<count; i++) {
+      RequestRule rule = configured.get(i);
+
+      // if injection is enabled, then inject rule
+      if (injector != null) {
+        injector.injectMembers(rule);
+      }
+
+      log.info("Rule[{}]: {}", i, rule);
+      rules[i] = rule;
+    }
+
+    RequestMatcherOptimizer optimizer = null;
+    if (config.getOptimizer().isEnabled()) {
+      optimizer = new RequestMatcherOptimizer(rules, config.getOptimizer());
+      log.info("Optimizer: {}", optimizer);
+    }
+
+    RequestRuleDecision decision = RequestRuleDecision.compile(rules);
+    log.debug("Decision: {}", decision);
+
+    RequestRuleCache cache = null;
+    if (config.getCache().isEnabled()) {
+      RequestRuleCache.Fingerprint fingerprint = RequestRuleCache.Fingerprint.of(rules);
+      if (fingerprint != null) {
+        log.info("Decision cache: {}", fingerprint);
+        cache = new RequestRuleCache(decision, fingerprint, config.getCache(), metricRegistry);
+      }
+      else {
+        log.warn("Decision cache disabled; rules examine more than method, path, remote-address and headers");
+      }
+    }
+
+    RequestRuleProfiler.Profile profile = profiler != null ? profiler.start(rules) : null;
+    if (profile != null) {
+      log.info("Profiling; sample-rate: 1/{}", profiler.getSampleRate());
+    }
+
+    return new Snapshot(rules, decision, cache, profile, optimizer);
+  }
+
+  //
+  // Reload
+  //
+
+  /**
+   * Replace rules with those from given configuration; its other settings are ignored.
+   *
+   * Rules are compiled before being published; requests already evaluating complete against the previous rules.
+   *
+   * @since ???
+   */
+  public synchronized void reload(final RequestRuleConfiguration config) {
+    checkNotNull(config);
     ensureStarted();
 
-    if (rules == null) {
-      return Collections.emptyList();
+    Snapshot next = compile(config.getRules());
+    snapshot = next;
+    log.info("Reloaded {} rules", next.rules.length);
+  }
+
+  /**
+   * Reload rules from configured {@link RequestRuleConfiguration.Reload#getFile() file}.
+   *
+   * @since ???
+   */
+  public void reload() throws Exception {
+    File file = config.getReload().getFile();
+    checkState(file != null, "Reload file not configured");
+    reload(load(file));
+  }
+
+  /**
+   * Periodically reload rules when file changes; invalid files are logged and leave current rules in place.
+   */
+  private void watch(final File file) {
+    long[] stamp = { file.lastModified(), file.length() };
+    long interval = config.getReload().getInterval().toNanoseconds();
+    scheduler().scheduleWithFixedDelay(() -> {
+      long modified = file.lastModified();
+      long length = file.length();
+      if (modified == stamp[0] && length == stamp[1]) {
+        return;
+      }
+      stamp[0] = modified;
+      stamp[1] = length;
+      try {
+        reload(load(file));
+      }
+      catch (Exception e) {
+        log.warn("Failed to reload rules from: {}; keeping current rules", file, e);
+      }
+    }, interval, interval, TimeUnit.NANOSECONDS);
+    log.debug("Watching: {}", file);
+  }
+
+  /**
+   * Periodically reorder matchers of current rules from sampled measurements.
+   */
+  private void optimize(final long interval) {
+    scheduler().scheduleWithFixedDelay(() -> {
+      RequestMatcherOptimizer optimizer = snapshot.optimizer;
+      if (optimizer != null) {
+        try {
+          optimizer.optimize();
+        }
+        catch (Exception e) {
+          log.warn("Failed to optimize matchers", e);
+        }
+      }
+    }, interval, interval, TimeUnit.NANOSECONDS);
+  }
+
+  private ScheduledThreadPoolExecutor scheduler() {
+    if (scheduler == null) {
+      ThreadFactory factory = new ThreadFactoryBuilder()
+          .setNameFormat("request-rules-%d")
+          .setDaemon(true)
+          .build();
+      scheduler = new ScheduledThreadPoolExecutor(1, factory);
+      scheduler.setRemoveOnCancelPolicy(true);
+    }
+    return scheduler;
+  }
+
+  //
+  // Shadow
+  //
+
+  /**
+   * Evaluate rules from given configuration in shadow of current rules; replacing any previous candidate.  Stops
+   * shadow evaluation if {@code null}.
+   *
+   * @since ???
+   */
+  public synchronized void shadow(@Nullable final RequestRuleConfiguration candidate) {
+    ensureStarted();
+    replaceShadow(candidate);
+  }
+
+  /**
+   * Returns current shadow evaluation; or {@code null} if none.
+   *
+   * @since ???
+   */
+  @Nullable
+  public RequestRuleShadow getShadow() {
+    return shadow;
+  }
+
+  private void replaceShadow(@Nullable final RequestRuleConfiguration candidate) {
+    RequestRuleShadow next = null;
+    if (candidate != null) {
+      next = new RequestRuleShadow(candidate.getRules().toArray(new RequestRule[0]), config.getShadow());
+      log.info("Shadowing {} candidate rules; sample-rate: 1/{}", next.getRuleCount(), next.getSampleRate());
+    }
+
+    RequestRuleShadow previous = shadow;
+    shadow = next;
+    if (previous != null) {
+      previous.close();
+      log.info("Stopped shadowing: {}", previous);
     }
+  }
+
+  //
+  // Access
+  //
+
+  @Override
+  public List<RequestRule> getRules() {
+    ensureStarted();
 
-    return ImmutableList.copyOf(rules);
+    return ImmutableList.copyOf(snapshot.rules);
   }
 
   @SuppressWarnings("unchecked")
@@ -103,11 +372,9 @@ public class RequestRuleServiceImpl
     ensureStarted();
     checkNotNull(type);
 
-    if (rules != null) {
-      for (RequestRule rule : rules) {
-        if (type.isAssignableFrom(rule.getClass())) {
-          return (T) rule;
-        }
+    for (RequestRule rule : snapshot.rules) {
+      if (type.isAssignableFrom(rule.getClass())) {
+        return (T) rule;
       }
     }
 
@@ -120,12 +387,8 @@ public class RequestRuleServiceImpl
     ensureStarted();
     checkNotNull(type);
 
-    if (rules == null) {
-      return Collections.emptyList();
-    }
-
     List<T> result = new ArrayList<>();
-    for (RequestRule rule : rules) {
+    for (RequestRule rule : snapshot.rules) {
       if (type.isAssignableFrom(rule.getClass())) {
         result.add((T) rule);
       }
@@ -140,29 +403,40 @@ public class RequestRuleServiceImpl
     checkNotNull(request);
     ensureStarted();
 
-    if (rules != null && rules.length != 0) {
+    // single read; evaluation completes against this snapshot even if reloaded meanwhile
+    Snapshot current = snapshot;
+    RequestRuleResult result = null;
+    if (current.rules.length != 0) {
+      if (current.optimizer != null) {
+        current.optimizer.sample(request);
+      }
+
       final boolean trace = log.isTraceEnabled();
 
       if (trace) {
         log.trace("Evaluating: {}", request);
       }
 
-      for (int i=0; i<rules.length; i++) {
-        RequestRule rule = rules[i];
-        if (trace) {
-          log.trace("Rule[{}]: {}", i, rule);
-        }
-        RequestRuleResult result = rule.evaluate(request);
-
-        if (result != null) {
-          if (trace) {
-            log.trace("Result: {}", result);
-          }
-          return result;
-        }
+      if (current.profile != null && current.profile.sample()) {
+        // sampled requests are evaluated rule by rule; same result, but skips the compiled decision and cache
+        result = current.profile.evaluate(request);
+      }
+      else if (current.cache != null) {
+        result = current.cache.evaluate(request);
+      }
+      else {
+        result = current.decision.evaluate(request);
+      }
+      if (trace) {
+        log.trace("Result: {}", result);
       }
     }
 
-    return null;
+    RequestRuleShadow shadow = this.shadow;
+    if (shadow != null) {
+      shadow.offer(request, result);
+    }
+
+    return result;
   }
 }
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+
+import org.sonatype.goodies.dropwizard.rules.replay.ReplayRequest;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Evaluates candidate rules in shadow of live rules; recording where results differ.
+ *
+ * One in {@code sampleRate} requests is copied, with its live result, onto a bounded lock-free queue; when the queue
+ * is full the sample is dropped, and requests missing a required attribute are counted as incomplete.  A background
+ * worker evaluates candidate rules against each copy.  The request path only pays for sampling, and for copying
+ * sampled requests.
+ *
+ * Copies hold the request method, URI, query, protocol, remote address and the headers candidate matchers examine;
+ * or all headers if candidates include custom rules or matchers.  Candidate rules are not injected; so do not mark
+ * metrics.
+ *
+ * @since ???
+ * @see RequestRuleShadowTask
+ */
+public final class RequestRuleShadow
+{
+  private static final Logger log = LoggerFactory.getLogger(RequestRuleShadow.class);
+
+  /**
+   * Describes requests no rule matched.
+   */
+  public static final String NONE = "none";
+
+  /**
+   * Copied request and its live result.
+   */
+  private static final class Sample
+  {
+    private final ReplayRequest request;
+
+    @Nullable
+    private final RequestRuleResult live;
+
+    private Sample(final ReplayRequest request, @Nullable final RequestRuleResult live) {
+      this.request = request;
+      this.live = live;
+    }
+  }
+
+  private final RequestRule[] rules;
+
+  private final RequestRuleDecision decision;
+
+  /**
+   * Headers to copy; or {@code null} for all.
+   */
+  @Nullable
+  private final String[] headers;
+
+  private final int sampleRate;
+
+  private final int capacity;
+
+  private final ConcurrentLinkedQueue<Sample> queue = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final LongAdder agreed = new LongAdder();
+
+  private final LongAdder differed = new LongAdder();
+
+  private final LongAdder dropped = new LongAdder();
+
+  private final LongAdder incomplete = new LongAdder();
+
+  private final LongAdder failed = new LongAdder();
+
+  /**
+   * Counts by {@code live -> candidate} result.
+   */
+  private final ConcurrentMap<String, LongAdder> deltas = new ConcurrentHashMap<>();
+
+  @Nullable
+  private final ScheduledThreadPoolExecutor worker;
+
+  RequestRuleShadow(final RequestRule[] rules, final RequestRuleConfiguration.Shadow config) {
+    this(rules, config, true);
+  }
+
+  /**
+   * @param background  {@code false} to evaluate samples only when {@link #drain()} is called.
+   */
+  @VisibleForTesting
+  RequestRuleShadow(final RequestRule[] rules, final RequestRuleConfiguration.Shadow config, final boolean background) {
+    this.rules = checkNotNull(rules);
+    checkNotNull(config);
+    checkArgument(config.getSampleRate() > 0, "Invalid sample-rate: %s", config.getSampleRate());
+    checkArgument(config.getQueueSize() > 0, "Invalid queue-size: %s", config.getQueueSize());
+    this.decision = RequestRuleDecision.compile(rules);
+    RequestRuleCache.Fingerprint fingerprint = RequestRuleCache.Fingerprint.of(rules);
+    this.headers = fingerprint != null ? fingerprint.getHeaders() : null;
+    this.sampleRate = config.getSampleRate();
+    this.capacity = config.getQueueSize();
+
+    if (background) {
+      worker = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+          .setNameFormat("request-rules-shadow-%d")
+          .setDaemon(true)
+          .build());
+      worker.scheduleWithFixedDelay(this::drain, 10, 10, TimeUnit.MILLISECONDS);
+    }
+    else {
+      worker = null;
+    }
+  }
+
+  /**
+   * Stop evaluating; waiting samples are discarded.
+   */
+  void close() {
+    if (worker != null) {
+      worker.shutdownNow();
+    }
+    queue.clear();
+  }
+
+  //
+  // Request path
+  //
+
+  /**
+   * Sample request and its live result.
+   */
+  void offer(final HttpServletRequest request, @Nullable final RequestRuleResult live) {
+    if (sampleRate != 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+      return;
+    }
+    if (size.incrementAndGet() > capacity) {
+      size.decrementAndGet();
+      dropped.increment();
+      return;
+    }
+    ReplayRequest copy = copy(request);
+    if (copy == null) {
+      size.decrementAndGet();
+      incomplete.increment();
+      return;
+    }
+    queue.offer(new Sample(copy, live));
+  }
+
+  /**
+   * Copy request attributes; or {@code null} if any required attribute is missing.
+   */
+  @Nullable
+  private ReplayRequest copy(final HttpServletRequest request) {
+    String method = request.getMethod();
+    String uri = request.getRequestURI();
+    String protocol = request.getProtocol();
+    String remoteAddr = request.getRemoteAddr();
+    if (method == null || uri == null || protocol == null || remoteAddr == null) {
+      return null;
+    }
+
+    String[] values;
+    if (headers != null) {
+      values = new String[headers.length * 2];
+      int count = 0;
+      for (String name : headers) {
+        String value = request.getHeader(name);
+        if (value != null) {
+          values[count++] = name;
+          values[count++] = value;
+        }
+      }
+      if (count != values.length) {
+        String[] present = new String[count];
+        System.arraycopy(values, 0, present, 0, count);
+        values = present;
+      }
+    }
+    else {
+      List<String> all = new ArrayList<>();
+      Enumeration<String> names = request.getHeaderNames();
+      while (names != null && names.hasMoreElements()) {
+        String name = names.nextElement();
+        all.add(name);
+        all.add(request.getHeader(name));
+      }
+      values = all.toArray(new String[0]);
+    }
+
+    return new ReplayRequest(method, uri, request.getQueryString(), protocol, remoteAddr, values);
+  }
+
+  //
+  // Worker
+  //
+
+  /**
+   * Evaluate waiting samples.
+   */
+  @VisibleForTesting
+  void drain() {
+    Sample sample;
+    while ((sample = queue.poll()) != null) {
+      size.decrementAndGet();
+      evaluate(sample);
+    }
+  }
+
+  private void evaluate(final Sample sample) {
+    String live;
+    String candidate;
+    try {
+      live = describe(sample.live);
+      candidate = describe(decision.evaluate(sample.request));
+    }
+    catch (Exception e) {
+      failed.increment();
+      log.debug("Candidate rules failed: {}", sample.request, e);
+      return;
+    }
+
+    if (live.equals(candidate)) {
+      agreed.increment();
+    }
+    else {
+      // record delta before counting; so reports never count more differences than deltas hold
+      deltas.computeIfAbsent(live + " -> " + candidate, key -> new LongAdder()).increment();
+      differed.increment();
+    }
+  }
+
+  private static String describe(@Nullable final RequestRuleResult result) {
+    return result != null ? result.toString() : NONE;
+  }
+
+  //
+  // Report
+  //
+
+  public int getRuleCount() {
+    return rules.length;
+  }
+
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Samples evaluated by candidate rules.
+   */
+  public long getEvaluated() {
+    return agreed.sum() + differed.sum();
+  }
+
+  /**
+   * Samples where candidate and live results are the same.
+   */
+  public long getAgreed() {
+    return agreed.sum();
+  }
+
+  /**
+   * Samples where candidate and live results differ.
+   */
+  public long getDiffered() {
+    return differed.sum();
+  }
+
+  /**
+   * Samples dropped; as the queue was full.
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * Sampled requests not evaluated; as a required attribute was missing.
+   */
+  public long getIncomplete() {
+    return incomplete.sum();
+  }
+
+  /**
+   * Samples candidate rules failed to evaluate.
+   */
+  public long getFailed() {
+    return failed.sum();
+  }
+
+  /**
+   * Returns counts by {@code live -> candidate} result, most frequent first.
+   */
+  public Map<String, Long> getDeltas() {
+    List<Entry<String, LongAdder>> entries = new ArrayList<>(deltas.entrySet());
+    entries.sort((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()));
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (Entry<String, LongAdder> entry : entries) {
+      result.put(entry.getKey(), entry.getValue().sum());
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("rules", rules.length)
+        .add("sampleRate", sampleRate)
+        .add("evaluated", getEvaluated())
+        .add("differed", getDiffered())
+        .add("dropped", getDropped())
+        .add("incomplete", getIncomplete())
+        .add("failed", getFailed())
+        .toString();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.dropwizard.task.TaskSupport;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Control and report {@link RequestRuleShadow shadow evaluation} of candidate rules.
+ *
+ * Parameters: {@code file} to start shadowing candidate rules loaded from file, {@code stop} to stop shadowing.
+ * Reports how results of candidate rules differ from live rules.
+ *
+ * @since ???
+ */
+@Named
+@Singleton
+public class RequestRuleShadowTask
+    extends TaskSupport
+{
+  private final RequestRuleServiceImpl service;
+
+  private final RequestRuleLoader loader;
+
+  @Inject
+  public RequestRuleShadowTask(final RequestRuleServiceImpl service, final RequestRuleLoader loader) {
+    super("request-rules-shadow");
+    this.service = checkNotNull(service);
+    this.loader = checkNotNull(loader);
+  }
+
+  @Override
+  protected void doExecute(final Parameters parameters, final PrintWriter output) throws Exception {
+    RequestRuleShadow shadow = service.getShadow();
+    if (shadow != null) {
+      report(shadow, output);
+    }
+
+    String file = parameters.value("file");
+    if (file != null) {
+      service.shadow(loader.load(new File(file)));
+      output.format("Shadowing candidate rules from: %s%n", file);
+    }
+    else if (Boolean.parseBoolean(parameters.value("stop", "false"))) {
+      service.shadow(null);
+      output.println("Stopped");
+    }
+    else if (shadow == null) {
+      output.println("Not shadowing; configure shadow.file or pass file parameter");
+    }
+  }
+
+  private static void report(final RequestRuleShadow shadow, final PrintWriter output) {
+    output.format("Candidate rules: %d (1/%d)%n", shadow.getRuleCount(), shadow.getSampleRate());
+    output.format("Evaluated: %d, agreed: %d, differed: %d, dropped: %d, incomplete: %d, failed: %d%n",
+        shadow.getEvaluated(), shadow.getAgreed(), shadow.getDiffered(), shadow.getDropped(), shadow.getIncomplete(),
+        shadow.getFailed());
+    for (Map.Entry<String, Long> entry : shadow.getDeltas().entrySet()) {
+      output.format("  %s: %d%n", entry.getKey(), entry.getValue());
+    }
+  }
+}
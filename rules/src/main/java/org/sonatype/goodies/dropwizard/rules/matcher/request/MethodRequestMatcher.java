@@ -12,6 +12,7 @@
  */
 package org.sonatype.goodies.dropwizard.rules.matcher.request;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -41,11 +42,18 @@ public class MethodRequestMatcher
 
   private final Set<String> methods = new HashSet<>();
 
+  private final Set<RequestMethod> standard = EnumSet.noneOf(RequestMethod.class);
+
   @JsonCreator
   public MethodRequestMatcher(@NotNull @JsonProperty("methods") final Set<String> methods) {
     checkNotNull(methods);
     for (String method : methods) {
-      this.methods.add(MoreStrings.upper(method));
+      String value = MoreStrings.upper(method);
+      this.methods.add(value);
+      RequestMethod resolved = RequestMethod.of(value);
+      if (resolved != null) {
+        standard.add(resolved);
+      }
     }
   }
 
@@ -58,9 +66,17 @@ public class MethodRequestMatcher
     return ImmutableSet.copyOf(methods);
   }
 
+  /**
+   * Matches standard methods without allocating; others are upper-cased first.
+   */
   @Override
   public boolean matches(final HttpServletRequest request) {
-    return methods.contains(MoreStrings.upper(request.getMethod()));
+    String method = request.getMethod();
+    RequestMethod resolved = RequestMethod.of(method);
+    if (resolved != null) {
+      return standard.contains(resolved);
+    }
+    return methods.contains(MoreStrings.upper(method));
   }
 
   @Override
@@ -13,7 +13,10 @@
 package org.sonatype.goodies.dropwizard.rules.matcher.request;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
@@ -23,6 +26,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
 import com.google.common.collect.ImmutableList;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -39,20 +43,50 @@ public class OrRequestMatcher
 
   private final RequestMatcher[] matchers;
 
+  /**
+   * {@link #matchers} in evaluation order.
+   */
+  private volatile RequestMatcher[] order;
+
   @JsonCreator
   public OrRequestMatcher(@NotNull @JsonProperty("matchers") final List<RequestMatcher> matchers) {
     checkNotNull(matchers);
     checkState(matchers.size() > 1, "At least two matchers are required");
     this.matchers = matchers.toArray(new RequestMatcher[0]);
+    this.order = this.matchers;
   }
 
   public List<RequestMatcher> getMatchers() {
     return Arrays.asList(matchers);
   }
 
+  /**
+   * Returns matchers in evaluation order; initially as configured.
+   *
+   * @since ???
+   */
+  public List<RequestMatcher> getEvaluationOrder() {
+    return Collections.unmodifiableList(Arrays.asList(order));
+  }
+
+  /**
+   * Change evaluation order; must contain each matcher once.  Matchers must not have side effects, so any order has
+   * the same result.
+   *
+   * @since ???
+   */
+  public void setEvaluationOrder(final List<RequestMatcher> order) {
+    checkNotNull(order);
+    Set<RequestMatcher> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+    distinct.addAll(order);
+    checkArgument(order.size() == matchers.length && distinct.size() == matchers.length
+        && distinct.containsAll(Arrays.asList(matchers)), "Order must contain each matcher once: %s", order);
+    this.order = order.toArray(new RequestMatcher[0]);
+  }
+
   @Override
   public boolean matches(final HttpServletRequest request) {
-    for (RequestMatcher matcher : matchers) {
+    for (RequestMatcher matcher : order) {
       if (matcher.matches(request)) {
         return true;
       }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.matcher.request;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Standard HTTP request methods.
+ *
+ * @since ???
+ */
+public enum RequestMethod
+{
+  GET, HEAD, POST, PUT, DELETE, CONNECT, OPTIONS, TRACE, PATCH;
+
+  private static final RequestMethod[] VALUES = values();
+
+  /**
+   * Resolve method name ignoring US-ASCII case; without allocating.
+   *
+   * @return the standard method; or {@code null} if not a standard method name.
+   */
+  @Nullable
+  public static RequestMethod of(final String method) {
+    checkNotNull(method);
+    for (RequestMethod candidate : VALUES) {
+      if (candidate.is(method)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private boolean is(final String method) {
+    String name = name();
+    int length = name.length();
+    if (method.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = method.charAt(i);
+      if (c >= 'a' && c <= 'z') {
+        c -= 'a' - 'A';
+      }
+      if (c != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
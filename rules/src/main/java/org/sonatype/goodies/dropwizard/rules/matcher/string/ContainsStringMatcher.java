@@ -14,6 +14,8 @@ package org.sonatype.goodies.dropwizard.rules.matcher.string;
 
 import javax.validation.constraints.NotNull;
 
+import org.sonatype.goodies.dropwizard.text.MoreStrings;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
@@ -40,4 +42,9 @@ public class ContainsStringMatcher
   protected boolean doMatch(final String subject) {
     return subject.contains(value);
   }
+
+  @Override
+  protected boolean doMatchIgnoreCase(final String subject) {
+    return MoreStrings.containsIgnoreCase(subject, value);
+  }
 }
@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.matcher.string;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.dropwizard.text.MoreStrings;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable Aho-Corasick automaton over contains, prefix and suffix literals.
+ *
+ * All literals are matched in a single pass over the subject; so cost is bound by the length of the subject, not by
+ * the number of literals.
+ *
+ * When case is ignored literals are lower-cased with {@link MoreStrings#lower(String)} and ASCII subjects are folded
+ * while scanning; subjects with any non-ASCII character are lower-cased up front, as {@link StringMatcherSupport}
+ * would, to keep exactly the same semantics.
+ *
+ * @since ???
+ */
+final class LiteralAutomaton
+{
+  enum Kind
+  {
+    contains, prefix, suffix
+  }
+
+  /**
+   * State (or one of its failure ancestors) terminates a contains literal.
+   */
+  private static final byte CONTAINS = 1;
+
+  /**
+   * State (or one of its failure ancestors) terminates a suffix literal.
+   */
+  private static final byte SUFFIX = 2;
+
+  /**
+   * State itself terminates a prefix literal.
+   */
+  private static final byte PREFIX = 4;
+
+  private static final int ROOT = 0;
+
+  private static final int ASCII = 128;
+
+  private final boolean ignoreCase;
+
+  /**
+   * Matches any non-null subject; when an empty literal was added.
+   */
+  private final boolean matchesAll;
+
+  private final boolean hasContains;
+
+  private final boolean hasSuffix;
+
+  /**
+   * Dense root transitions for ASCII characters.
+   */
+  private final int[] rootAscii;
+
+  /**
+   * Per-state offset into {@link #edgeKeys}; {@code states + 1} entries.
+   */
+  private final int[] edgeStart;
+
+  /**
+   * Per-state sorted edge characters.
+   */
+  private final char[] edgeKeys;
+
+  private final int[] edgeTargets;
+
+  private final int[] fail;
+
+  private final int[] depth;
+
+  private final byte[] flags;
+
+  private final int size;
+
+  private LiteralAutomaton(final Builder builder) {
+    this.ignoreCase = builder.ignoreCase;
+    this.matchesAll = builder.matchesAll;
+    this.hasContains = builder.hasContains;
+    this.hasSuffix = builder.hasSuffix;
+    this.size = builder.size;
+
+    // number states breadth-first, so failure links always point at already numbered states
+    List<Node> states = new ArrayList<>();
+    Deque<Node> queue = new ArrayDeque<>();
+    queue.add(builder.root);
+    int edges = 0;
+    while (!queue.isEmpty()) {
+      Node node = queue.remove();
+      node.id = states.size();
+      states.add(node);
+      edges += node.children.size();
+      queue.addAll(node.children.values());
+    }
+
+    int count = states.size();
+    this.edgeStart = new int[count + 1];
+    this.edgeKeys = new char[edges];
+    this.edgeTargets = new int[edges];
+    this.fail = new int[count];
+    this.depth = new int[count];
+    this.flags = new byte[count];
+
+    int edge = 0;
+    for (Node node : states) {
+      edgeStart[node.id] = edge;
+      for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+        edgeKeys[edge] = entry.getKey();
+        edgeTargets[edge] = entry.getValue().id;
+        edge++;
+      }
+      depth[node.id] = node.depth;
+      flags[node.id] = node.flags;
+    }
+    edgeStart[count] = edge;
+
+    this.rootAscii = new int[ASCII];
+    Arrays.fill(rootAscii, ROOT);
+    for (int i = edgeStart[ROOT]; i < edgeStart[ROOT + 1] && edgeKeys[i] < ASCII; i++) {
+      rootAscii[edgeKeys[i]] = edgeTargets[i];
+    }
+
+    // breadth-first order visits parents before children; propagate contains/suffix outputs along failure links
+    for (int state = 0; state < count; state++) {
+      for (int i = edgeStart[state]; i < edgeStart[state + 1]; i++) {
+        int child = edgeTargets[i];
+        fail[child] = state == ROOT ? ROOT : next(fail[state], edgeKeys[i]);
+        flags[child] |= flags[fail[child]] & (CONTAINS | SUFFIX);
+      }
+    }
+  }
+
+  /**
+   * Number of literals.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isIgnoreCase() {
+    return ignoreCase;
+  }
+
+  private int edge(final int state, final char c) {
+    int low = edgeStart[state];
+    int high = edgeStart[state + 1] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      char key = edgeKeys[mid];
+      if (key < c) {
+        low = mid + 1;
+      }
+      else if (key > c) {
+        high = mid - 1;
+      }
+      else {
+        return edgeTargets[mid];
+      }
+    }
+    return -1;
+  }
+
+  private int next(int state, final char c) {
+    while (state != ROOT) {
+      int target = edge(state, c);
+      if (target != -1) {
+        return target;
+      }
+      state = fail[state];
+    }
+    if (c < ASCII) {
+      return rootAscii[c];
+    }
+    int target = edge(ROOT, c);
+    return target != -1 ? target : ROOT;
+  }
+
+  public boolean matches(@Nullable final String subject) {
+    if (subject == null) {
+      return false;
+    }
+    if (matchesAll) {
+      return true;
+    }
+    if (ignoreCase) {
+      int result = scan(subject, true);
+      if (result >= 0) {
+        return result == 1;
+      }
+      // non-ascii subject; fall back to full lower-casing
+      return scan(MoreStrings.lower(subject), false) == 1;
+    }
+    return scan(subject, false) == 1;
+  }
+
+  /**
+   * Returns {@code 1} if matched, {@code 0} if not, or {@code -1} if folding met a non-ASCII character.
+   */
+  private int scan(final String subject, final boolean fold) {
+    int length = subject.length();
+    int state = ROOT;
+    boolean prefix = true;
+    for (int i = 0; i < length; i++) {
+      char c = subject.charAt(i);
+      if (fold) {
+        if (c >= ASCII) {
+          return -1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+          c += 'a' - 'A';
+        }
+      }
+      state = next(state, c);
+      byte flag = flags[state];
+      if ((flag & CONTAINS) != 0) {
+        return 1;
+      }
+      if (prefix) {
+        if (depth[state] != i + 1) {
+          // fell off the literal which started at the beginning of the subject
+          prefix = false;
+          if (!hasContains && !hasSuffix) {
+            return 0;
+          }
+        }
+        else if ((flag & PREFIX) != 0) {
+          return 1;
+        }
+      }
+    }
+    return (flags[state] & SUFFIX) != 0 ? 1 : 0;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "size=" + size +
+        ", states=" + depth.length +
+        ", ignoreCase=" + ignoreCase +
+        '}';
+  }
+
+  //
+  // Compile
+  //
+
+  /**
+   * Compile automata from given matchers if they are all literal matchers, or OR of such.
+   *
+   * @return one automaton per case-sensitivity present, or {@code null} if any matcher is not a plain literal.
+   */
+  @Nullable
+  static LiteralAutomaton[] compile(final List<StringMatcher> matchers) {
+    checkNotNull(matchers);
+    Builder sensitive = new Builder(false);
+    Builder insensitive = new Builder(true);
+    if (!collect(matchers, sensitive, insensitive)) {
+      return null;
+    }
+    List<LiteralAutomaton> result = new ArrayList<>(2);
+    if (sensitive.size() != 0) {
+      result.add(sensitive.build());
+    }
+    if (insensitive.size() != 0) {
+      result.add(insensitive.build());
+    }
+    return result.toArray(new LiteralAutomaton[0]);
+  }
+
+  private static boolean collect(final List<StringMatcher> matchers, final Builder sensitive, final Builder insensitive) {
+    for (StringMatcher matcher : matchers) {
+      // exact class only; sub-classes may have changed matching
+      Class<?> type = matcher.getClass();
+      if (type == OrStringMatcher.class) {
+        if (!collect(((OrStringMatcher) matcher).getMatchers(), sensitive, insensitive)) {
+          return false;
+        }
+      }
+      else if (type == ContainsStringMatcher.class) {
+        add((StringMatcherSupport) matcher, Kind.contains, sensitive, insensitive);
+      }
+      else if (type == PrefixStringMatcher.class) {
+        add((StringMatcherSupport) matcher, Kind.prefix, sensitive, insensitive);
+      }
+      else if (type == SuffixStringMatcher.class) {
+        add((StringMatcherSupport) matcher, Kind.suffix, sensitive, insensitive);
+      }
+      else if (type == StringMatcher2.class) {
+        StringMatcher2 literal = (StringMatcher2) matcher;
+        Kind kind = Kind.valueOf(literal.getFunction().name());
+        (literal.isIgnoreCase() ? insensitive : sensitive).add(kind, literal.getValue());
+      }
+      else if (type == LiteralsStringMatcher.class) {
+        LiteralsStringMatcher literals = (LiteralsStringMatcher) matcher;
+        Builder builder = literals.isIgnoreCase() ? insensitive : sensitive;
+        literals.getContains().forEach(value -> builder.add(Kind.contains, value));
+        literals.getPrefix().forEach(value -> builder.add(Kind.prefix, value));
+        literals.getSuffix().forEach(value -> builder.add(Kind.suffix, value));
+      }
+      else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void add(final StringMatcherSupport matcher,
+                          final Kind kind,
+                          final Builder sensitive,
+                          final Builder insensitive)
+  {
+    (matcher.isIgnoreCase() ? insensitive : sensitive).add(kind, matcher.getValue());
+  }
+
+  //
+  // Builder
+  //
+
+  private static final class Node
+  {
+    private final Map<Character, Node> children = new TreeMap<>();
+
+    private final int depth;
+
+    private byte flags;
+
+    private int id;
+
+    private Node(final int depth) {
+      this.depth = depth;
+    }
+  }
+
+  static final class Builder
+  {
+    private final boolean ignoreCase;
+
+    private final Node root = new Node(0);
+
+    private boolean matchesAll;
+
+    private boolean hasContains;
+
+    private boolean hasSuffix;
+
+    private int size;
+
+    Builder(final boolean ignoreCase) {
+      this.ignoreCase = ignoreCase;
+    }
+
+    int size() {
+      return size;
+    }
+
+    Builder add(final Kind kind, final String literal) {
+      checkNotNull(kind);
+      checkNotNull(literal);
+      String value = ignoreCase ? MoreStrings.lower(literal) : literal;
+      size++;
+      if (value.isEmpty()) {
+        matchesAll = true;
+        return this;
+      }
+
+      Node node = root;
+      for (int i = 0; i < value.length(); i++) {
+        int depth = i + 1;
+        node = node.children.computeIfAbsent(value.charAt(i), key -> new Node(depth));
+      }
+      switch (kind) {
+        case contains:
+          node.flags |= CONTAINS;
+          hasContains = true;
+          break;
+        case prefix:
+          node.flags |= PREFIX;
+          break;
+        case suffix:
+          node.flags |= SUFFIX;
+          hasSuffix = true;
+          break;
+      }
+      return this;
+    }
+
+    LiteralAutomaton build() {
+      return new LiteralAutomaton(this);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.matcher.string;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.google.common.collect.ImmutableList;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Match if string contains, starts with or ends with any of many literals.
+ *
+ * All literals are compiled once into an Aho-Corasick automaton and matched in a single pass over the string;
+ * prefer this over an {@code or} of many {@code contains}, {@code prefix} or {@code suffix} matchers.
+ *
+ * @since ???
+ */
+@JsonTypeName(LiteralsStringMatcher.TYPE)
+public class LiteralsStringMatcher
+    implements StringMatcher
+{
+  public static final String TYPE = "literals";
+
+  private final List<String> contains;
+
+  private final List<String> prefix;
+
+  private final List<String> suffix;
+
+  private final boolean ignoreCase;
+
+  private final LiteralAutomaton automaton;
+
+  @JsonCreator
+  public LiteralsStringMatcher(@Nullable @JsonProperty("contains") final List<String> contains,
+                               @Nullable @JsonProperty("prefix") final List<String> prefix,
+                               @Nullable @JsonProperty("suffix") final List<String> suffix,
+                               @JsonProperty("ignoreCase") final boolean ignoreCase)
+  {
+    this.contains = contains != null ? ImmutableList.copyOf(contains) : ImmutableList.of();
+    this.prefix = prefix != null ? ImmutableList.copyOf(prefix) : ImmutableList.of();
+    this.suffix = suffix != null ? ImmutableList.copyOf(suffix) : ImmutableList.of();
+    this.ignoreCase = ignoreCase;
+
+    LiteralAutomaton.Builder builder = new LiteralAutomaton.Builder(ignoreCase);
+    this.contains.forEach(value -> builder.add(LiteralAutomaton.Kind.contains, value));
+    this.prefix.forEach(value -> builder.add(LiteralAutomaton.Kind.prefix, value));
+    this.suffix.forEach(value -> builder.add(LiteralAutomaton.Kind.suffix, value));
+    checkArgument(builder.size() != 0, "At least one literal is required");
+    this.automaton = builder.build();
+  }
+
+  public List<String> getContains() {
+    return contains;
+  }
+
+  public List<String> getPrefix() {
+    return prefix;
+  }
+
+  public List<String> getSuffix() {
+    return suffix;
+  }
+
+  public boolean isIgnoreCase() {
+    return ignoreCase;
+  }
+
+  @Override
+  public boolean matches(@Nullable final String string) {
+    return automaton.matches(string);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s{contains=%s, prefix=%s, suffix=%s%s}", TYPE, contains, prefix, suffix,
+        ignoreCase ? " ignore-case" : "");
+  }
+}
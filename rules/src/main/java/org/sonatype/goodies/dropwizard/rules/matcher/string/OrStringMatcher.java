@@ -28,6 +28,9 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * OR {@link StringMatcher}.
  *
+ * When all matchers are plain {@code contains}, {@code prefix}, {@code suffix} or {@code literals} matchers (or OR of
+ * such) they are compiled into {@link LiteralAutomaton automata} and matched in a single pass.
+ *
  * @since 1.2.0
  */
 @JsonTypeName(OrStringMatcher.TYPE)
@@ -38,10 +41,17 @@ public class OrStringMatcher
 
   private final StringMatcher[] matchers;
 
+  /**
+   * Compiled literals; or {@code null} if not all matchers are literal.
+   */
+  @Nullable
+  private final LiteralAutomaton[] automata;
+
   public OrStringMatcher(@NotNull @JsonProperty("matchers") final List<StringMatcher> matchers) {
     checkNotNull(matchers);
     checkState(matchers.size() > 1, "At least two matchers are required");
     this.matchers = matchers.toArray(new StringMatcher[0]);
+    this.automata = LiteralAutomaton.compile(matchers);
   }
 
   public List<StringMatcher> getMatchers() {
@@ -50,6 +60,15 @@ public class OrStringMatcher
 
   @Override
   public boolean matches(@Nullable final String string) {
+    if (automata != null) {
+      for (LiteralAutomaton automaton : automata) {
+        if (automaton.matches(string)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
     for (StringMatcher matcher : matchers) {
       if (matcher.matches(string)) {
         return true;
@@ -0,0 +1,927 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.matcher.string;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Regular-expression compiled to a deterministic automaton; matches in time linear to the subject.
+ *
+ * Supports the backtracking-free subset of {@link Pattern} syntax: literals, {@code .}, character classes with
+ * ranges and negation, {@code \d \w \s} (and negations), {@code \t \n \r \f \a \e \xhh \x{h..h} \\uhhhh},
+ * {@code \Q..\E} quoting, groups (capturing, non-capturing and named), alternation, greedy and reluctant
+ * {@code * + ? {n} {n,} {n,m}} quantifiers and {@code ^}/{@code $} at the ends of the pattern.
+ *
+ * Supported flags are {@link Pattern#CASE_INSENSITIVE} (US-ASCII only), {@link Pattern#DOTALL},
+ * {@link Pattern#LITERAL}, {@link Pattern#MULTILINE} and {@link Pattern#UNIX_LINES}.
+ *
+ * Anything else; back-references, look-around, possessive quantifiers, boundaries, inline flags, class unions and
+ * intersections or property classes, fails with {@link PatternSyntaxException}.
+ *
+ * Like {@link java.util.regex.Matcher#matches()}, the whole subject must match.
+ *
+ * @since ???
+ */
+final class RegexDfa
+{
+  static final int SUPPORTED_FLAGS =
+      Pattern.CASE_INSENSITIVE | Pattern.DOTALL | Pattern.LITERAL | Pattern.MULTILINE | Pattern.UNIX_LINES;
+
+  /**
+   * Maximum NFA states; bounds expansion of counted repetition.
+   */
+  private static final int MAX_NFA_STATES = 10_000;
+
+  /**
+   * Maximum DFA states.
+   */
+  private static final int MAX_DFA_STATES = 10_000;
+
+  /**
+   * Maximum DFA transition table entries.
+   */
+  private static final int MAX_TRANSITIONS = 1 << 20;
+
+  private static final int ASCII = 128;
+
+  private static final int DEAD = -1;
+
+  private final String pattern;
+
+  /**
+   * Sorted lower bounds of character classes; class {@code k} covers {@code [bounds[k], bounds[k + 1])}.
+   */
+  private final int[] bounds;
+
+  private final int[] asciiClasses;
+
+  private final int classes;
+
+  /**
+   * Flat transition table; {@code states * classes} entries.
+   */
+  private final int[] transitions;
+
+  private final boolean[] accepting;
+
+  private RegexDfa(final String pattern,
+                   final int[] bounds,
+                   final int[] transitions,
+                   final boolean[] accepting)
+  {
+    this.pattern = pattern;
+    this.bounds = bounds;
+    this.classes = bounds.length;
+    this.transitions = transitions;
+    this.accepting = accepting;
+    this.asciiClasses = new int[ASCII];
+    for (int c = 0; c < ASCII; c++) {
+      asciiClasses[c] = classOf(c);
+    }
+  }
+
+  public String getPattern() {
+    return pattern;
+  }
+
+  public int getStates() {
+    return accepting.length;
+  }
+
+  private int classOf(final int codePoint) {
+    int index = Arrays.binarySearch(bounds, codePoint);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  /**
+   * Check if the whole subject matches.
+   */
+  public boolean matches(final String subject) {
+    int state = 0;
+    int length = subject.length();
+    for (int i = 0; i < length; ) {
+      int codePoint = subject.codePointAt(i);
+      i += Character.charCount(codePoint);
+      int type = codePoint < ASCII ? asciiClasses[codePoint] : classOf(codePoint);
+      state = transitions[state * classes + type];
+      if (state == DEAD) {
+        return false;
+      }
+    }
+    return accepting[state];
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "pattern='" + pattern + '\'' +
+        ", states=" + accepting.length +
+        ", classes=" + classes +
+        '}';
+  }
+
+  /**
+   * Compile pattern with given {@link Pattern} flags.
+   *
+   * @throws PatternSyntaxException if pattern is invalid or not supported.
+   */
+  public static RegexDfa compile(final String pattern, final int flags) {
+    checkNotNull(pattern);
+    if ((flags & ~SUPPORTED_FLAGS) != 0) {
+      throw new PatternSyntaxException("Unsupported flags for dfa engine: 0x" + Integer.toHexString(flags & ~SUPPORTED_FLAGS),
+          pattern, -1);
+    }
+    Node root = new Parser(pattern, flags).parse();
+    Nfa nfa = new Nfa(pattern);
+    int start = nfa.compile(root, nfa.match());
+    return nfa.determinize(start);
+  }
+
+  //
+  // Code-point sets; sorted, disjoint, non-adjacent inclusive [low, high] pairs
+  //
+
+  private static final int[] NONE = {};
+
+  private static final int[] ALL = {0, Character.MAX_CODE_POINT};
+
+  private static int[] range(final int low, final int high) {
+    return new int[]{low, high};
+  }
+
+  private static int[] union(final int[] a, final int[] b) {
+    int[] pairs = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, pairs, a.length, b.length);
+    Integer[] order = new Integer[pairs.length / 2];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (x, y) -> Integer.compare(pairs[x * 2], pairs[y * 2]));
+    int[] result = new int[pairs.length];
+    int size = 0;
+    for (int index : order) {
+      int low = pairs[index * 2];
+      int high = pairs[index * 2 + 1];
+      if (size > 0 && low <= result[size - 1] + 1) {
+        result[size - 1] = Math.max(result[size - 1], high);
+      }
+      else {
+        result[size++] = low;
+        result[size++] = high;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  private static int[] complement(final int[] set) {
+    int[] result = new int[set.length + 2];
+    int size = 0;
+    int next = 0;
+    for (int i = 0; i < set.length; i += 2) {
+      if (set[i] > next) {
+        result[size++] = next;
+        result[size++] = set[i] - 1;
+      }
+      next = set[i + 1] + 1;
+    }
+    if (next <= Character.MAX_CODE_POINT) {
+      result[size++] = next;
+      result[size++] = Character.MAX_CODE_POINT;
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  private static boolean contains(final int[] set, final int codePoint) {
+    for (int i = 0; i < set.length; i += 2) {
+      if (codePoint < set[i]) {
+        return false;
+      }
+      if (codePoint <= set[i + 1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Add the other US-ASCII case of any letters in set; as {@link Pattern#CASE_INSENSITIVE} does.
+   */
+  private static int[] foldAscii(final int[] set) {
+    int[] result = set;
+    for (int i = 0; i < set.length; i += 2) {
+      result = union(result, shift(set[i], set[i + 1], 'a', 'z', 'A' - 'a'));
+      result = union(result, shift(set[i], set[i + 1], 'A', 'Z', 'a' - 'A'));
+    }
+    return result;
+  }
+
+  private static int[] shift(final int low, final int high, final int from, final int to, final int delta) {
+    int start = Math.max(low, from);
+    int end = Math.min(high, to);
+    return start <= end ? range(start + delta, end + delta) : NONE;
+  }
+
+  //
+  // AST
+  //
+
+  private abstract static class Node
+  {
+    // empty
+  }
+
+  private static final class Chars
+      extends Node
+  {
+    private final int[] set;
+
+    private Chars(final int[] set) {
+      this.set = set;
+    }
+  }
+
+  private static final class Sequence
+      extends Node
+  {
+    private final List<Node> nodes;
+
+    private Sequence(final List<Node> nodes) {
+      this.nodes = nodes;
+    }
+  }
+
+  private static final class Alternation
+      extends Node
+  {
+    private final List<Node> nodes;
+
+    private Alternation(final List<Node> nodes) {
+      this.nodes = nodes;
+    }
+  }
+
+  private static final class Repeat
+      extends Node
+  {
+    private final Node node;
+
+    private final int min;
+
+    /**
+     * Maximum repetitions; or {@code -1} if unbounded.
+     */
+    private final int max;
+
+    private Repeat(final Node node, final int min, final int max) {
+      this.node = node;
+      this.min = min;
+      this.max = max;
+    }
+  }
+
+  //
+  // Parser
+  //
+
+  private static final class Parser
+  {
+    private final String pattern;
+
+    private final int[] input;
+
+    private final boolean ignoreCase;
+
+    private final boolean dotAll;
+
+    private final boolean unixLines;
+
+    private final boolean literal;
+
+    private int position;
+
+    private int depth;
+
+    private Parser(final String pattern, final int flags) {
+      this.pattern = pattern;
+      this.input = pattern.codePoints().toArray();
+      this.ignoreCase = (flags & Pattern.CASE_INSENSITIVE) != 0;
+      this.dotAll = (flags & Pattern.DOTALL) != 0;
+      this.unixLines = (flags & Pattern.UNIX_LINES) != 0;
+      this.literal = (flags & Pattern.LITERAL) != 0;
+    }
+
+    private PatternSyntaxException error(final String description) {
+      return new PatternSyntaxException(description + " (dfa engine)", pattern, position);
+    }
+
+    private boolean more() {
+      return position < input.length;
+    }
+
+    private int peek() {
+      return input[position];
+    }
+
+    private boolean peek(final int c) {
+      return more() && input[position] == c;
+    }
+
+    private int next() {
+      if (!more()) {
+        throw error("Unexpected end of pattern");
+      }
+      return input[position++];
+    }
+
+    private Node parse() {
+      if (literal) {
+        List<Node> nodes = new ArrayList<>();
+        while (more()) {
+          nodes.add(chars(next()));
+        }
+        return new Sequence(nodes);
+      }
+      Node node = alternation();
+      if (more()) {
+        throw error("Unmatched closing ')'");
+      }
+      return node;
+    }
+
+    private Node alternation() {
+      List<Node> nodes = new ArrayList<>();
+      nodes.add(sequence());
+      while (peek('|')) {
+        position++;
+        nodes.add(sequence());
+      }
+      return nodes.size() == 1 ? nodes.get(0) : new Alternation(nodes);
+    }
+
+    private Node sequence() {
+      List<Node> nodes = new ArrayList<>();
+      boolean first = true;
+      while (more() && peek() != '|' && peek() != ')') {
+        int c = peek();
+        if (c == '^') {
+          // only where it can not constrain a whole-subject match
+          if (depth != 0 || !first) {
+            throw error("Unsupported '^' anchor");
+          }
+          position++;
+        }
+        else if (c == '$') {
+          position++;
+          if (depth != 0 || (more() && peek() != '|')) {
+            throw error("Unsupported '$' anchor");
+          }
+        }
+        else if (c == '\\' && position + 1 < input.length && input[position + 1] == 'Q') {
+          // quoted characters are individual atoms; any quantifier applies to the last one only
+          position += 2;
+          List<Node> quoted = quoted();
+          if (!quoted.isEmpty()) {
+            nodes.addAll(quoted.subList(0, quoted.size() - 1));
+            nodes.add(repeat(quoted.get(quoted.size() - 1)));
+            first = false;
+          }
+        }
+        else {
+          nodes.add(repeat(atom()));
+          first = false;
+        }
+      }
+      return nodes.size() == 1 ? nodes.get(0) : new Sequence(nodes);
+    }
+
+    private Node repeat(final Node atom) {
+      if (!more()) {
+        return atom;
+      }
+      int min;
+      int max;
+      switch (peek()) {
+        case '*':
+          position++;
+          min = 0;
+          max = -1;
+          break;
+        case '+':
+          position++;
+          min = 1;
+          max = -1;
+          break;
+        case '?':
+          position++;
+          min = 0;
+          max = 1;
+          break;
+        case '{':
+          position++;
+          min = number();
+          if (peek(',')) {
+            position++;
+            max = peek('}') ? -1 : number();
+          }
+          else {
+            max = min;
+          }
+          if (next() != '}') {
+            throw error("Unclosed counted closure");
+          }
+          if (max != -1 && max < min) {
+            throw error("Illegal repetition range");
+          }
+          break;
+        default:
+          return atom;
+      }
+      if (peek('?')) {
+        // reluctant; same language for a whole-subject match
+        position++;
+      }
+      else if (peek('+')) {
+        throw error("Unsupported possessive quantifier");
+      }
+      return new Repeat(atom, min, max);
+    }
+
+    private int number() {
+      int start = position;
+      int value = 0;
+      while (more() && peek() >= '0' && peek() <= '9') {
+        value = value * 10 + (next() - '0');
+        if (value > MAX_NFA_STATES) {
+          throw error("Repetition too large");
+        }
+      }
+      if (position == start) {
+        throw error("Illegal repetition");
+      }
+      return value;
+    }
+
+    private Node atom() {
+      int c = next();
+      switch (c) {
+        case '(':
+          return group();
+        case '[':
+          return new Chars(characterClass());
+        case '.':
+          return new Chars(dot());
+        case '\\':
+          return escape();
+        case '*':
+        case '+':
+        case '?':
+          throw error("Dangling meta character '" + (char) c + "'");
+        case '{':
+          throw error("Illegal repetition");
+        default:
+          return chars(c);
+      }
+    }
+
+    private Node group() {
+      if (peek('?')) {
+        position++;
+        int c = next();
+        if (c == '<' && more() && peek() != '=' && peek() != '!') {
+          // named group; name is irrelevant for matching
+          while (next() != '>') {
+            // skip
+          }
+        }
+        else if (c != ':') {
+          throw error("Unsupported group construct");
+        }
+      }
+      depth++;
+      Node node = alternation();
+      depth--;
+      if (next() != ')') {
+        throw error("Unclosed group");
+      }
+      return node;
+    }
+
+    private Node chars(final int c) {
+      int[] set = range(c, c);
+      return new Chars(ignoreCase ? foldAscii(set) : set);
+    }
+
+    /**
+     * Characters up to {@code \E} or the end of pattern.
+     */
+    private List<Node> quoted() {
+      List<Node> nodes = new ArrayList<>();
+      while (more()) {
+        if (peek() == '\\' && position + 1 < input.length && input[position + 1] == 'E') {
+          position += 2;
+          break;
+        }
+        nodes.add(chars(next()));
+      }
+      return nodes;
+    }
+
+    private int[] dot() {
+      if (dotAll) {
+        return ALL;
+      }
+      if (unixLines) {
+        return complement(range('\n', '\n'));
+      }
+      int[] terminators = union(union(range('\n', '\n'), range('\r', '\r')), union(range(0x85, 0x85), range(0x2028, 0x2029)));
+      return complement(terminators);
+    }
+
+    private Node escape() {
+      int c = next();
+      int[] set = predefined(c);
+      if (set != null) {
+        return new Chars(set);
+      }
+      return chars(escapedCharacter(c));
+    }
+
+    /**
+     * Returns set of predefined class escape; or {@code null} if not a class escape.
+     */
+    private int[] predefined(final int c) {
+      switch (c) {
+        case 'd':
+          return range('0', '9');
+        case 'D':
+          return complement(range('0', '9'));
+        case 'w':
+          return word();
+        case 'W':
+          return complement(word());
+        case 's':
+          return space();
+        case 'S':
+          return complement(space());
+        default:
+          return null;
+      }
+    }
+
+    private int[] word() {
+      return union(union(range('a', 'z'), range('A', 'Z')), union(range('0', '9'), range('_', '_')));
+    }
+
+    private int[] space() {
+      return union(range('\t', '\r'), range(' ', ' '));
+    }
+
+    private int escapedCharacter(final int c) {
+      switch (c) {
+        case 't':
+          return '\t';
+        case 'n':
+          return '\n';
+        case 'r':
+          return '\r';
+        case 'f':
+          return '\f';
+        case 'a':
+          return 0x07;
+        case 'e':
+          return 0x1B;
+        case 'x':
+          if (peek('{')) {
+            position++;
+            int value = hex(-1);
+            if (next() != '}') {
+              throw error("Unclosed hexadecimal escape sequence");
+            }
+            return value;
+          }
+          return hex(2);
+        case 'u':
+          return hex(4);
+        default:
+          if (Character.isLetterOrDigit(c)) {
+            throw error("Unsupported escape sequence '\\" + new String(Character.toChars(c)) + "'");
+          }
+          return c;
+      }
+    }
+
+    private int hex(final int digits) {
+      int value = 0;
+      int count = 0;
+      while ((digits == -1 || count < digits) && more() && Character.digit(peek(), 16) != -1) {
+        value = value * 16 + Character.digit(next(), 16);
+        count++;
+        if (value > Character.MAX_CODE_POINT) {
+          throw error("Hexadecimal codepoint is too big");
+        }
+      }
+      if (count == 0 || (digits != -1 && count != digits)) {
+        throw error("Illegal hexadecimal escape sequence");
+      }
+      return value;
+    }
+
+    private int[] characterClass() {
+      boolean negate = false;
+      if (peek('^')) {
+        position++;
+        negate = true;
+      }
+      int[] set = NONE;
+      boolean first = true;
+      while (true) {
+        int c = next();
+        if (c == ']' && !first) {
+          break;
+        }
+        first = false;
+        if (c == '[') {
+          throw error("Unsupported nested character class");
+        }
+        if (c == '&' && peek('&')) {
+          throw error("Unsupported character class intersection");
+        }
+        if (c == ']') {
+          throw error("Unsupported empty character class");
+        }
+        int low;
+        if (c == '\\') {
+          int escaped = next();
+          int[] predefined = predefined(escaped);
+          if (predefined != null) {
+            set = union(set, predefined);
+            continue;
+          }
+          if (escaped == 'Q' || escaped == 'p' || escaped == 'P') {
+            throw error("Unsupported escape sequence in character class");
+          }
+          low = escapedCharacter(escaped);
+        }
+        else {
+          low = c;
+        }
+        int high = low;
+        if (peek('-') && position + 1 < input.length && input[position + 1] != ']') {
+          position++;
+          int end = next();
+          if (end == '[') {
+            throw error("Unsupported nested character class");
+          }
+          if (end == '\\') {
+            int escaped = next();
+            if (predefined(escaped) != null) {
+              throw error("Illegal character range");
+            }
+            end = escapedCharacter(escaped);
+          }
+          if (end < low) {
+            throw error("Illegal character range");
+          }
+          high = end;
+        }
+        set = union(set, range(low, high));
+      }
+      if (ignoreCase) {
+        set = foldAscii(set);
+      }
+      return negate ? complement(set) : set;
+    }
+  }
+
+  //
+  // NFA
+  //
+
+  private static final class Nfa
+  {
+    private static final int CHARS = 0;
+
+    private static final int SPLIT = 1;
+
+    private static final int MATCH = 2;
+
+    private final String pattern;
+
+    private final List<int[]> sets = new ArrayList<>();
+
+    private int[] types = new int[16];
+
+    private int[] out1 = new int[16];
+
+    private int[] out2 = new int[16];
+
+    private int size;
+
+    private Nfa(final String pattern) {
+      this.pattern = pattern;
+    }
+
+    private int add(final int type, final int first, final int second, final int[] set) {
+      if (size == MAX_NFA_STATES) {
+        throw new PatternSyntaxException("Pattern too complex (dfa engine)", pattern, -1);
+      }
+      if (size == types.length) {
+        types = Arrays.copyOf(types, size * 2);
+        out1 = Arrays.copyOf(out1, size * 2);
+        out2 = Arrays.copyOf(out2, size * 2);
+      }
+      types[size] = type;
+      out1[size] = first;
+      out2[size] = second;
+      sets.add(set);
+      return size++;
+    }
+
+    private int match() {
+      return add(MATCH, -1, -1, null);
+    }
+
+    /**
+     * Compile node to states leading to {@code next}; returns entry state.
+     */
+    private int compile(final Node node, final int next) {
+      if (node instanceof Chars) {
+        return add(CHARS, next, -1, ((Chars) node).set);
+      }
+      if (node instanceof Sequence) {
+        List<Node> nodes = ((Sequence) node).nodes;
+        int entry = next;
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+          entry = compile(nodes.get(i), entry);
+        }
+        return entry;
+      }
+      if (node instanceof Alternation) {
+        List<Node> nodes = ((Alternation) node).nodes;
+        int entry = compile(nodes.get(nodes.size() - 1), next);
+        for (int i = nodes.size() - 2; i >= 0; i--) {
+          entry = add(SPLIT, compile(nodes.get(i), next), entry, null);
+        }
+        return entry;
+      }
+      Repeat repeat = (Repeat) node;
+      int entry;
+      if (repeat.max == -1) {
+        int loop = add(SPLIT, -1, next, null);
+        // compile may grow arrays; resolve body before storing
+        int body = compile(repeat.node, loop);
+        out1[loop] = body;
+        entry = loop;
+      }
+      else {
+        entry = next;
+        for (int i = repeat.min; i < repeat.max; i++) {
+          entry = add(SPLIT, compile(repeat.node, entry), next, null);
+        }
+      }
+      for (int i = 0; i < repeat.min; i++) {
+        entry = compile(repeat.node, entry);
+      }
+      return entry;
+    }
+
+    /**
+     * Sorted CHARS and MATCH states reachable from given states without consuming input.
+     */
+    private int[] closure(final int[] states) {
+      BitSet seen = new BitSet(size);
+      BitSet result = new BitSet(size);
+      Deque<Integer> stack = new ArrayDeque<>();
+      for (int state : states) {
+        stack.push(state);
+      }
+      while (!stack.isEmpty()) {
+        int state = stack.pop();
+        if (seen.get(state)) {
+          continue;
+        }
+        seen.set(state);
+        if (types[state] == SPLIT) {
+          stack.push(out2[state]);
+          stack.push(out1[state]);
+        }
+        else {
+          result.set(state);
+        }
+      }
+      return result.stream().toArray();
+    }
+
+    private RegexDfa determinize(final int start) {
+      TreeSet<Integer> boundaries = new TreeSet<>();
+      boundaries.add(0);
+      for (int state = 0; state < size; state++) {
+        if (types[state] == CHARS) {
+          int[] set = sets.get(state);
+          for (int i = 0; i < set.length; i += 2) {
+            boundaries.add(set[i]);
+            if (set[i + 1] < Character.MAX_CODE_POINT) {
+              boundaries.add(set[i + 1] + 1);
+            }
+          }
+        }
+      }
+      int[] bounds = boundaries.stream().mapToInt(Integer::intValue).toArray();
+      int classes = bounds.length;
+
+      BitSet[] accepts = new BitSet[size];
+      for (int state = 0; state < size; state++) {
+        if (types[state] == CHARS) {
+          accepts[state] = new BitSet(classes);
+          for (int k = 0; k < classes; k++) {
+            if (contains(sets.get(state), bounds[k])) {
+              accepts[state].set(k);
+            }
+          }
+        }
+      }
+
+      Map<List<Integer>, Integer> ids = new HashMap<>();
+      List<int[]> dstates = new ArrayList<>();
+      int[] transitions = new int[Math.min(classes * 16, MAX_TRANSITIONS)];
+      dstates.add(closure(new int[]{start}));
+      ids.put(key(dstates.get(0)), 0);
+
+      for (int current = 0; current < dstates.size(); current++) {
+        if ((current + 1) * classes > transitions.length) {
+          if ((long) (current + 1) * classes > MAX_TRANSITIONS) {
+            throw new PatternSyntaxException("Pattern too complex (dfa engine)", pattern, -1);
+          }
+          transitions = Arrays.copyOf(transitions, (int) Math.min((long) transitions.length * 2, MAX_TRANSITIONS));
+        }
+        int[] members = dstates.get(current);
+        for (int k = 0; k < classes; k++) {
+          int count = 0;
+          int[] targets = new int[members.length];
+          for (int state : members) {
+            if (types[state] == CHARS && accepts[state].get(k)) {
+              targets[count++] = out1[state];
+            }
+          }
+          int target = DEAD;
+          if (count != 0) {
+            int[] closure = closure(Arrays.copyOf(targets, count));
+            List<Integer> key = key(closure);
+            Integer id = ids.get(key);
+            if (id == null) {
+              if (dstates.size() == MAX_DFA_STATES) {
+                throw new PatternSyntaxException("Pattern too complex (dfa engine)", pattern, -1);
+              }
+              id = dstates.size();
+              dstates.add(closure);
+              ids.put(key, id);
+            }
+            target = id;
+          }
+          transitions[current * classes + k] = target;
+        }
+      }
+
+      boolean[] accepting = new boolean[dstates.size()];
+      for (int i = 0; i < accepting.length; i++) {
+        for (int state : dstates.get(i)) {
+          if (types[state] == MATCH) {
+            accepting[i] = true;
+            break;
+          }
+        }
+      }
+      return new RegexDfa(pattern, bounds, Arrays.copyOf(transitions, dstates.size() * classes), accepting);
+    }
+
+    private static List<Integer> key(final int[] states) {
+      List<Integer> key = new ArrayList<>(states.length);
+      for (int state : states) {
+        key.add(state);
+      }
+      return key;
+    }
+  }
+}
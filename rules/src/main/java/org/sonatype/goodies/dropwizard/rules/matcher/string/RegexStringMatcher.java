@@ -27,6 +27,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * Match if string matches regular-expression.
  *
+ * The pattern is compiled eagerly, and again whenever flags or engine change; so invalid patterns fail when
+ * configuration is loaded.
+ *
  * @since 1.2.0
  */
 @JsonTypeName(RegexStringMatcher.TYPE)
@@ -35,29 +38,101 @@ public class RegexStringMatcher
 {
   public static final String TYPE = "regex";
 
-  private final String pattern;
+  /**
+   * Regular-expression engine.
+   *
+   * @since ???
+   */
+  public enum Engine
+  {
+    /**
+     * {@link Pattern}; full syntax, but backtracking may take time exponential to the subject.
+     */
+    jdk,
 
-  @Nullable
-  private Pattern compiled;
+    /**
+     * {@link RegexDfa}; linear time, but only supports a subset of syntax and flags.
+     */
+    dfa
+  }
+
+  private final String pattern;
 
   private int flags = 0;
 
   private boolean invert;
 
+  private Engine engine = Engine.jdk;
+
+  @Nullable
+  private Pattern compiled;
+
+  @Nullable
+  private RegexDfa dfa;
+
   @JsonCreator
   public RegexStringMatcher(@NotNull @JsonProperty("pattern") final String pattern) {
     this.pattern = checkNotNull(pattern);
+    compile();
+  }
+
+  /**
+   * @since ???
+   */
+  public RegexStringMatcher(final String pattern, final Engine engine) {
+    this.pattern = checkNotNull(pattern);
+    this.engine = checkNotNull(engine);
+    compile();
+  }
+
+  /**
+   * Compile pattern for the current engine and flags.
+   *
+   * @throws java.util.regex.PatternSyntaxException if the pattern is invalid, or not supported by the engine.
+   */
+  private void compile() {
+    switch (engine) {
+      case jdk:
+        compiled = Pattern.compile(pattern, flags);
+        dfa = null;
+        break;
+      case dfa:
+        dfa = RegexDfa.compile(pattern, flags);
+        compiled = null;
+        break;
+    }
   }
 
   public String getPattern() {
     return pattern;
   }
 
+  /**
+   * Returns compiled pattern; or {@code null} if not using the {@link Engine#jdk} engine.
+   */
   @Nullable
   public Pattern getCompiled() {
     return compiled;
   }
 
+  /**
+   * @since ???
+   */
+  public Engine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Select regular-expression engine; defaults to {@link Engine#jdk}.
+   *
+   * @since ???
+   */
+  @JsonProperty
+  public void setEngine(final Engine engine) {
+    this.engine = checkNotNull(engine);
+    compile();
+  }
+
   public int getFlags() {
     return flags;
   }
@@ -69,6 +144,7 @@ public class RegexStringMatcher
   private void flag(final int flag, final boolean enable) {
     if (enable) {
       flags = flags | flag;
+      compile();
     }
   }
 
@@ -148,10 +224,7 @@ public class RegexStringMatcher
 
   @VisibleForTesting
   boolean doMatch(final String subject) {
-    if (compiled == null) {
-      compiled = Pattern.compile(pattern, flags);
-    }
-    boolean match = compiled.matcher(subject).matches();
+    boolean match = dfa != null ? dfa.matches(subject) : compiled.matcher(subject).matches();
     return invert != match;
   }
 
@@ -162,4 +235,9 @@ public class RegexStringMatcher
     }
     return doMatch(string);
   }
+
+  @Override
+  public String toString() {
+    return String.format("%s{'%s' %s%s}", TYPE, pattern, engine, invert ? " invert" : "");
+  }
 }
@@ -44,21 +44,41 @@ public class StringMatcher2
       public boolean matches(final String basis, final String value) {
         return value.contains(basis);
       }
+
+      @Override
+      public boolean matchesIgnoreCase(final String basis, final String value) {
+        return MoreStrings.containsIgnoreCase(value, basis);
+      }
     },
     prefix() {
       @Override
       public boolean matches(final String basis, final String value) {
         return value.startsWith(basis);
       }
+
+      @Override
+      public boolean matchesIgnoreCase(final String basis, final String value) {
+        return MoreStrings.startsWithIgnoreCase(value, basis);
+      }
     },
     suffix() {
       @Override
       public boolean matches(final String basis, final String value) {
         return value.endsWith(basis);
       }
+
+      @Override
+      public boolean matchesIgnoreCase(final String basis, final String value) {
+        return MoreStrings.endsWithIgnoreCase(value, basis);
+      }
     };
 
     public abstract boolean matches(final String basis, final String value);
+
+    /**
+     * Match where basis is already lower-case; and value is not.
+     */
+    public abstract boolean matchesIgnoreCase(final String basis, final String value);
   }
 
   private final Function function;
@@ -92,7 +112,8 @@ public class StringMatcher2
   /**
    * Matches given string.
    *
-   * If {@link #ignoreCase} then the given string is converted to lower-case before evaluating function.
+   * If {@link #ignoreCase} then the function matches ignoring case of the given string; without allocating for
+   * US-ASCII strings.
    */
   @Override
   public boolean matches(@Nullable final String string) {
@@ -100,7 +121,7 @@ public class StringMatcher2
       return false;
     }
     if (ignoreCase) {
-      return function.matches(value, MoreStrings.lower(string));
+      return function.matchesIgnoreCase(value, string);
     }
     return function.matches(value, string);
   }
@@ -52,10 +52,22 @@ public abstract class StringMatcherSupport
    */
   protected abstract boolean doMatch(final String subject);
 
+  /**
+   * Check if given string matches ignoring case.
+   *
+   * Default converts the given string to lower-case before calling {@link #doMatch(String)}; implementations
+   * should override to avoid allocating.
+   *
+   * @since ???
+   */
+  protected boolean doMatchIgnoreCase(final String subject) {
+    return doMatch(MoreStrings.lower(subject));
+  }
+
   /**
    * Matches given string.
    *
-   * If {@link #ignoreCase} then the given string is converted to lower-case before calling {@link #doMatch(String)}.
+   * If {@link #ignoreCase} then delegates to {@link #doMatchIgnoreCase(String)}.
    */
   @Override
   public boolean matches(@Nullable final String string) {
@@ -63,7 +75,7 @@ public abstract class StringMatcherSupport
       return false;
     }
     if (ignoreCase) {
-      return doMatch(MoreStrings.lower(string));
+      return doMatchIgnoreCase(string);
     }
     return doMatch(string);
   }
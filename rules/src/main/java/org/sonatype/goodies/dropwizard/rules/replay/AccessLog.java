@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.replay;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads recorded requests from an NCSA access log; as written by Jetty and Dropwizard request logs.
+ *
+ * Lines are expected in common or combined format:
+ *
+ * <pre>
+ * host ident user [time] "method target protocol" status bytes ["referer" "user-agent"] ...
+ * </pre>
+ *
+ * {@code Referer} and {@code User-Agent} headers are recorded when present; fields after them are ignored.
+ *
+ * @since ???
+ */
+final class AccessLog
+{
+  private final List<ReplayRequest> requests;
+
+  private final int skipped;
+
+  private AccessLog(final List<ReplayRequest> requests, final int skipped) {
+    this.requests = requests;
+    this.skipped = skipped;
+  }
+
+  public List<ReplayRequest> getRequests() {
+    return requests;
+  }
+
+  /**
+   * Number of lines which could not be parsed.
+   */
+  public int getSkipped() {
+    return skipped;
+  }
+
+  /**
+   * Read at most {@code limit} requests from given file.
+   */
+  static AccessLog read(final File file, final int limit) throws IOException {
+    checkNotNull(file);
+    checkArgument(limit > 0, "Invalid limit: %s", limit);
+
+    List<ReplayRequest> requests = new ArrayList<>();
+    int skipped = 0;
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while (requests.size() < limit && (line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        ReplayRequest request = parse(line);
+        if (request != null) {
+          requests.add(request);
+        }
+        else {
+          skipped++;
+        }
+      }
+    }
+    return new AccessLog(requests, skipped);
+  }
+
+  /**
+   * Parse request from log line; or {@code null} if malformed.
+   */
+  @Nullable
+  static ReplayRequest parse(final String line) {
+    Scanner scanner = new Scanner(line);
+
+    String host = scanner.token();
+    // ident and user
+    if (host == null || scanner.token() == null || scanner.token() == null) {
+      return null;
+    }
+    if (!scanner.skipBracketed()) {
+      return null;
+    }
+
+    String requestLine = scanner.quoted();
+    if (requestLine == null) {
+      return null;
+    }
+    String[] parts = requestLine.split(" ");
+    if (parts.length != 3) {
+      return null;
+    }
+
+    // status and bytes
+    if (scanner.token() == null || scanner.token() == null) {
+      return null;
+    }
+
+    String referer = scanner.quoted();
+    String userAgent = referer != null ? scanner.quoted() : null;
+
+    String target = path(parts[1]);
+    String query = null;
+    int mark = target.indexOf('?');
+    if (mark != -1) {
+      query = target.substring(mark + 1);
+      target = target.substring(0, mark);
+    }
+
+    List<String> headers = new ArrayList<>(4);
+    header(headers, "Referer", referer);
+    header(headers, "User-Agent", userAgent);
+
+    return new ReplayRequest(parts[0], target, query, parts[2], host, headers.toArray(new String[0]));
+  }
+
+  /**
+   * Strip scheme and authority from absolute-form request target.
+   */
+  private static String path(final String target) {
+    int scheme = target.indexOf("://");
+    if (scheme == -1) {
+      return target;
+    }
+    int path = target.indexOf('/', scheme + 3);
+    return path != -1 ? target.substring(path) : "/";
+  }
+
+  private static void header(final List<String> headers, final String name, @Nullable final String value) {
+    if (value != null && !value.equals("-")) {
+      headers.add(name);
+      headers.add(value);
+    }
+  }
+
+  /**
+   * Scans space separated fields of a log line.
+   */
+  private static final class Scanner
+  {
+    private final String line;
+
+    private int position;
+
+    private Scanner(final String line) {
+      this.line = line;
+    }
+
+    private void skipSpaces() {
+      while (position < line.length() && line.charAt(position) == ' ') {
+        position++;
+      }
+    }
+
+    /**
+     * Next space delimited token; or {@code null} if none.
+     */
+    @Nullable
+    private String token() {
+      skipSpaces();
+      if (position >= line.length()) {
+        return null;
+      }
+      int start = position;
+      while (position < line.length() && line.charAt(position) != ' ') {
+        position++;
+      }
+      return line.substring(start, position);
+    }
+
+    /**
+     * Skip {@code [...]} field.
+     */
+    private boolean skipBracketed() {
+      skipSpaces();
+      if (position >= line.length() || line.charAt(position) != '[') {
+        return false;
+      }
+      int end = line.indexOf(']', position);
+      if (end == -1) {
+        return false;
+      }
+      position = end + 1;
+      return true;
+    }
+
+    /**
+     * Next {@code "..."} field, with backslash escapes; or {@code null} if none.
+     */
+    @Nullable
+    private String quoted() {
+      skipSpaces();
+      if (position >= line.length() || line.charAt(position) != '"') {
+        return null;
+      }
+      StringBuilder buff = new StringBuilder();
+      for (int i = position + 1; i < line.length(); i++) {
+        char c = line.charAt(i);
+        if (c == '\\' && i + 1 < line.length()) {
+          buff.append(line.charAt(++i));
+        }
+        else if (c == '"') {
+          position = i + 1;
+          return buff.toString();
+        }
+        else {
+          buff.append(c);
+        }
+      }
+      return null;
+    }
+  }
+}
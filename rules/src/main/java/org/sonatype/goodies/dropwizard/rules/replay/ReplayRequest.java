@@ -0,0 +1,615 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.replay;
+
+import java.io.BufferedReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.Part;
+
+import com.google.common.base.MoreObjects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Recorded request; stand-in for {@link HttpServletRequest} when replaying.
+ *
+ * Only what an access log records is available: method, URI, query, protocol, remote address and headers; given as
+ * alternating names and values.  Cookies, query parameters, locales and content type are derived from those.
+ * Attributes are held by the request; otherwise it appears as an unauthenticated request without session or body.
+ * Operations which need what is not recorded, such as reading the body or connection details, throw
+ * {@link UnsupportedOperationException}.
+ *
+ * Not thread-safe.
+ *
+ * @since ???
+ * @see AccessLog
+ */
+public final class ReplayRequest
+    implements HttpServletRequest
+{
+  private final String method;
+
+  private final String uri;
+
+  @Nullable
+  private final String query;
+
+  private final String protocol;
+
+  private final String remoteAddr;
+
+  /**
+   * Header names and values; alternating.
+   */
+  private final String[] headers;
+
+  @Nullable
+  private Map<String, String[]> parameters;
+
+  @Nullable
+  private Map<String, Object> attributes;
+
+  @Nullable
+  private String characterEncoding;
+
+  public ReplayRequest(final String method,
+                       final String uri,
+                       @Nullable final String query,
+                       final String protocol,
+                       final String remoteAddr,
+                       final String... headers)
+  {
+    this.method = checkNotNull(method);
+    this.uri = checkNotNull(uri);
+    this.query = query;
+    this.protocol = checkNotNull(protocol);
+    this.remoteAddr = checkNotNull(remoteAddr);
+    checkArgument(headers.length % 2 == 0, "Header names and values required");
+    this.headers = headers;
+  }
+
+  private static UnsupportedOperationException unsupported() {
+    return new UnsupportedOperationException("Not recorded");
+  }
+
+  //
+  // Recorded
+  //
+
+  @Override
+  public String getMethod() {
+    return method;
+  }
+
+  @Override
+  public String getRequestURI() {
+    return uri;
+  }
+
+  @Nullable
+  @Override
+  public String getQueryString() {
+    return query;
+  }
+
+  @Override
+  public String getProtocol() {
+    return protocol;
+  }
+
+  @Override
+  public String getRemoteAddr() {
+    return remoteAddr;
+  }
+
+  @Override
+  public String getRemoteHost() {
+    return remoteAddr;
+  }
+
+  @Nullable
+  @Override
+  public String getHeader(final String name) {
+    for (int i = 0; i < headers.length; i += 2) {
+      if (headers[i].equalsIgnoreCase(name)) {
+        return headers[i + 1];
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Enumeration<String> getHeaders(final String name) {
+    String value = getHeader(name);
+    return value != null ? Collections.enumeration(Collections.singleton(value)) : Collections.emptyEnumeration();
+  }
+
+  @Override
+  public Enumeration<String> getHeaderNames() {
+    String[] names = new String[headers.length / 2];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = headers[i * 2];
+    }
+    return Collections.enumeration(Arrays.asList(names));
+  }
+
+  @Override
+  public int getIntHeader(final String name) {
+    String value = getHeader(name);
+    return value != null ? Integer.parseInt(value) : -1;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("method", method)
+        .add("uri", uri)
+        .add("query", query)
+        .add("remoteAddr", remoteAddr)
+        .toString();
+  }
+
+  //
+  // Derived from recorded
+  //
+
+  /**
+   * Parsed from {@code Cookie} header; or {@code null} if none.  Malformed cookies are ignored.
+   */
+  @Nullable
+  @Override
+  public Cookie[] getCookies() {
+    String header = getHeader("Cookie");
+    if (header == null) {
+      return null;
+    }
+    List<Cookie> cookies = new ArrayList<>();
+    for (String pair : header.split(";")) {
+      int index = pair.indexOf('=');
+      if (index > 0) {
+        try {
+          cookies.add(new Cookie(pair.substring(0, index).trim(), pair.substring(index + 1).trim()));
+        }
+        catch (IllegalArgumentException e) {
+          // ignore malformed cookie
+        }
+      }
+    }
+    return cookies.isEmpty() ? null : cookies.toArray(new Cookie[0]);
+  }
+
+  @Override
+  public long getDateHeader(final String name) {
+    String value = getHeader(name);
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+    }
+    catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid date header: " + name, e);
+    }
+  }
+
+  @Nullable
+  @Override
+  public String getContentType() {
+    return getHeader("Content-Type");
+  }
+
+  /**
+   * Parameters of the query; the body is not recorded.
+   */
+  @Override
+  public Map<String, String[]> getParameterMap() {
+    if (parameters == null) {
+      Map<String, List<String>> values = new LinkedHashMap<>();
+      if (query != null) {
+        for (String pair : query.split("&")) {
+          if (pair.isEmpty()) {
+            continue;
+          }
+          int index = pair.indexOf('=');
+          String name = decode(index == -1 ? pair : pair.substring(0, index));
+          String value = index == -1 ? "" : decode(pair.substring(index + 1));
+          values.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+      }
+      Map<String, String[]> result = new LinkedHashMap<>();
+      values.forEach((name, list) -> result.put(name, list.toArray(new String[0])));
+      parameters = Collections.unmodifiableMap(result);
+    }
+    return parameters;
+  }
+
+  private static String decode(final String value) {
+    try {
+      return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+    }
+    catch (UnsupportedEncodingException | IllegalArgumentException e) {
+      return value;
+    }
+  }
+
+  @Nullable
+  @Override
+  public String getParameter(final String name) {
+    String[] values = getParameterMap().get(name);
+    return values != null ? values[0] : null;
+  }
+
+  @Override
+  public Enumeration<String> getParameterNames() {
+    return Collections.enumeration(getParameterMap().keySet());
+  }
+
+  @Nullable
+  @Override
+  public String[] getParameterValues(final String name) {
+    String[] values = getParameterMap().get(name);
+    return values != null ? values.clone() : null;
+  }
+
+  /**
+   * Preferred locale from {@code Accept-Language} header; or the default locale.
+   */
+  @Override
+  public Locale getLocale() {
+    return getLocales().nextElement();
+  }
+
+  @Override
+  public Enumeration<Locale> getLocales() {
+    List<Locale> locales = new ArrayList<>();
+    String header = getHeader("Accept-Language");
+    if (header != null) {
+      try {
+        for (Locale.LanguageRange range : Locale.LanguageRange.parse(header)) {
+          if (!range.getRange().contains("*")) {
+            locales.add(Locale.forLanguageTag(range.getRange()));
+          }
+        }
+      }
+      catch (IllegalArgumentException e) {
+        // ignore malformed header
+      }
+    }
+    if (locales.isEmpty()) {
+      locales.add(Locale.getDefault());
+    }
+    return Collections.enumeration(locales);
+  }
+
+  //
+  // Held by copy
+  //
+
+  @Nullable
+  @Override
+  public Object getAttribute(final String name) {
+    return attributes != null ? attributes.get(name) : null;
+  }
+
+  @Override
+  public Enumeration<String> getAttributeNames() {
+    return attributes != null ? Collections.enumeration(attributes.keySet()) : Collections.emptyEnumeration();
+  }
+
+  @Override
+  public void setAttribute(final String name, @Nullable final Object o) {
+    checkNotNull(name);
+    if (o == null) {
+      removeAttribute(name);
+      return;
+    }
+    if (attributes == null) {
+      attributes = new HashMap<>();
+    }
+    attributes.put(name, o);
+  }
+
+  @Override
+  public void removeAttribute(final String name) {
+    if (attributes != null) {
+      attributes.remove(name);
+    }
+  }
+
+  @Nullable
+  @Override
+  public String getCharacterEncoding() {
+    return characterEncoding;
+  }
+
+  @Override
+  public void setCharacterEncoding(final String env) {
+    this.characterEncoding = env;
+  }
+
+  //
+  // Absent; as for an unauthenticated request without session or body
+  //
+
+  @Nullable
+  @Override
+  public String getAuthType() {
+    return null;
+  }
+
+  @Nullable
+  @Override
+  public String getPathInfo() {
+    return null;
+  }
+
+  @Nullable
+  @Override
+  public String getPathTranslated() {
+    return null;
+  }
+
+  @Override
+  public String getContextPath() {
+    return "";
+  }
+
+  @Override
+  public String getServletPath() {
+    return "";
+  }
+
+  @Nullable
+  @Override
+  public String getRemoteUser() {
+    return null;
+  }
+
+  @Override
+  public boolean isUserInRole(final String role) {
+    return false;
+  }
+
+  @Nullable
+  @Override
+  public Principal getUserPrincipal() {
+    return null;
+  }
+
+  @Nullable
+  @Override
+  public String getRequestedSessionId() {
+    return null;
+  }
+
+  /**
+   * Returns {@code null} unless creating a session; which is not supported.
+   */
+  @Nullable
+  @Override
+  public HttpSession getSession(final boolean create) {
+    if (create) {
+      throw unsupported();
+    }
+    return null;
+  }
+
+  @Override
+  public HttpSession getSession() {
+    return getSession(true);
+  }
+
+  @Override
+  public String changeSessionId() {
+    throw new IllegalStateException("No session");
+  }
+
+  @Override
+  public boolean isRequestedSessionIdValid() {
+    return false;
+  }
+
+  @Override
+  public boolean isRequestedSessionIdFromCookie() {
+    return false;
+  }
+
+  @Override
+  public boolean isRequestedSessionIdFromURL() {
+    return false;
+  }
+
+  @Deprecated
+  @Override
+  public boolean isRequestedSessionIdFromUrl() {
+    return false;
+  }
+
+  @Override
+  public int getContentLength() {
+    return -1;
+  }
+
+  @Override
+  public long getContentLengthLong() {
+    return -1;
+  }
+
+  @Override
+  public boolean isSecure() {
+    return false;
+  }
+
+  @Nullable
+  @Override
+  public RequestDispatcher getRequestDispatcher(final String path) {
+    return null;
+  }
+
+  @Nullable
+  @Deprecated
+  @Override
+  public String getRealPath(final String path) {
+    return null;
+  }
+
+  @Override
+  public boolean isAsyncStarted() {
+    return false;
+  }
+
+  @Override
+  public boolean isAsyncSupported() {
+    return false;
+  }
+
+  @Override
+  public AsyncContext getAsyncContext() {
+    throw new IllegalStateException("Not asynchronous");
+  }
+
+  @Override
+  public DispatcherType getDispatcherType() {
+    return DispatcherType.REQUEST;
+  }
+
+  //
+  // Not supported
+  //
+
+  @Override
+  public StringBuffer getRequestURL() {
+    throw unsupported();
+  }
+
+  @Override
+  public String getScheme() {
+    throw unsupported();
+  }
+
+  @Override
+  public String getServerName() {
+    throw unsupported();
+  }
+
+  @Override
+  public int getServerPort() {
+    throw unsupported();
+  }
+
+  @Override
+  public int getRemotePort() {
+    throw unsupported();
+  }
+
+  @Override
+  public String getLocalName() {
+    throw unsupported();
+  }
+
+  @Override
+  public String getLocalAddr() {
+    throw unsupported();
+  }
+
+  @Override
+  public int getLocalPort() {
+    throw unsupported();
+  }
+
+  @Override
+  public ServletContext getServletContext() {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean authenticate(final HttpServletResponse response) {
+    throw unsupported();
+  }
+
+  @Override
+  public void login(final String username, final String password) {
+    throw unsupported();
+  }
+
+  @Override
+  public void logout() {
+    throw unsupported();
+  }
+
+  @Override
+  public Collection<Part> getParts() {
+    throw unsupported();
+  }
+
+  @Override
+  public Part getPart(final String name) {
+    throw unsupported();
+  }
+
+  @Override
+  public <T extends HttpUpgradeHandler> T upgrade(final Class<T> handlerClass) {
+    throw unsupported();
+  }
+
+  @Override
+  public ServletInputStream getInputStream() {
+    throw unsupported();
+  }
+
+  @Override
+  public BufferedReader getReader() {
+    throw unsupported();
+  }
+
+  @Override
+  public AsyncContext startAsync() {
+    throw unsupported();
+  }
+
+  @Override
+  public AsyncContext startAsync(final ServletRequest servletRequest, final ServletResponse servletResponse) {
+    throw unsupported();
+  }
+}
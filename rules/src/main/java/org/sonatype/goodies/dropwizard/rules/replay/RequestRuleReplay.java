@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.replay;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.sonatype.goodies.dropwizard.rules.RequestRule;
+import org.sonatype.goodies.dropwizard.rules.RequestRuleResult;
+import org.sonatype.goodies.dropwizard.rules.RequestRuleService;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Replays requests through {@link RequestRuleService#evaluate(HttpServletRequest)} on multiple threads, measuring
+ * throughput, latency and allocation.
+ *
+ * Each {@link #run() iteration} evaluates every request once; requests are divided between threads.  Latency is
+ * measured per evaluation, so includes the cost of reading the clock.  Allocation is measured per thread, where the
+ * JVM supports it.
+ *
+ * @since ???
+ * @see RequestRuleReplayCommand
+ */
+public final class RequestRuleReplay
+{
+  private final RequestRuleService service;
+
+  private final HttpServletRequest[] requests;
+
+  private final int threads;
+
+  public RequestRuleReplay(final RequestRuleService service,
+                           final List<? extends HttpServletRequest> requests,
+                           final int threads)
+  {
+    this.service = checkNotNull(service);
+    checkNotNull(requests);
+    checkArgument(!requests.isEmpty(), "At least one request is required");
+    checkArgument(threads > 0, "Invalid threads: %s", threads);
+    this.requests = requests.toArray(new HttpServletRequest[0]);
+    this.threads = threads;
+  }
+
+  /**
+   * Measurements of one iteration.
+   */
+  public static final class Iteration
+  {
+    private final long evaluations;
+
+    private final long matched;
+
+    private final long nanos;
+
+    private final long p50;
+
+    private final long p99;
+
+    private final long max;
+
+    private final long allocated;
+
+    private Iteration(final long evaluations,
+                      final long matched,
+                      final long nanos,
+                      final long p50,
+                      final long p99,
+                      final long max,
+                      final long allocated)
+    {
+      this.evaluations = evaluations;
+      this.matched = matched;
+      this.nanos = nanos;
+      this.p50 = p50;
+      this.p99 = p99;
+      this.max = max;
+      this.allocated = allocated;
+    }
+
+    public long getEvaluations() {
+      return evaluations;
+    }
+
+    /**
+     * Evaluations with a result.
+     */
+    public long getMatched() {
+      return matched;
+    }
+
+    /**
+     * Elapsed wall-clock nanoseconds.
+     */
+    public long getNanos() {
+      return nanos;
+    }
+
+    /**
+     * Evaluations per second.
+     */
+    public double getThroughput() {
+      return evaluations * 1_000_000_000d / Math.max(nanos, 1);
+    }
+
+    /**
+     * Median evaluation nanoseconds.
+     */
+    public long getP50() {
+      return p50;
+    }
+
+    /**
+     * 99th percentile evaluation nanoseconds.
+     */
+    public long getP99() {
+      return p99;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    /**
+     * Bytes allocated by evaluating threads; or {@code -1} if not supported.
+     */
+    public long getAllocated() {
+      return allocated;
+    }
+
+    /**
+     * Bytes allocated per evaluation; or {@code -1} if not supported.
+     */
+    public double getAllocatedPerEvaluation() {
+      return allocated < 0 ? -1 : (double) allocated / evaluations;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%.0f evaluations/s, matched=%d, p50=%dns, p99=%dns, max=%dns, allocated=%s",
+          getThroughput(), matched, p50, p99, max,
+          allocated < 0 ? "n/a" : String.format("%.1f bytes/evaluation", getAllocatedPerEvaluation()));
+    }
+  }
+
+  /**
+   * Evaluate each request once.
+   */
+  public Iteration run() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setNameFormat("rules-replay-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      CountDownLatch ready = new CountDownLatch(threads);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Worker>> futures = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        Worker worker = new Worker(i);
+        futures.add(executor.submit(() -> {
+          ready.countDown();
+          start.await();
+          worker.run();
+          return worker;
+        }));
+      }
+
+      ready.await();
+      long begin = System.nanoTime();
+      start.countDown();
+      List<Worker> workers = new ArrayList<>(threads);
+      for (Future<Worker> future : futures) {
+        workers.add(future.get());
+      }
+      long nanos = System.nanoTime() - begin;
+
+      return measure(workers, nanos);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Iteration measure(final List<Worker> workers, final long nanos) {
+    long[] latencies = new long[requests.length];
+    int count = 0;
+    long matched = 0;
+    long allocated = 0;
+    for (Worker worker : workers) {
+      matched += worker.matched;
+      System.arraycopy(worker.latencies, 0, latencies, count, worker.latencies.length);
+      count += worker.latencies.length;
+      allocated = worker.allocated < 0 || allocated < 0 ? -1 : allocated + worker.allocated;
+    }
+    Arrays.sort(latencies);
+    return new Iteration(
+        latencies.length,
+        matched,
+        nanos,
+        percentile(latencies, 0.50),
+        percentile(latencies, 0.99),
+        latencies[latencies.length - 1],
+        allocated
+    );
+  }
+
+  private static long percentile(final long[] sorted, final double quantile) {
+    return sorted[(int) Math.round(quantile * (sorted.length - 1))];
+  }
+
+  /**
+   * Evaluates every {@link #threads}-th request.
+   */
+  private final class Worker
+  {
+    private final int index;
+
+    private final long[] latencies;
+
+    private long matched;
+
+    private long allocated;
+
+    private Worker(final int index) {
+      this.index = index;
+      this.latencies = new long[(requests.length - index + threads - 1) / threads];
+    }
+
+    private void run() {
+      long before = allocated();
+      for (int i = index, j = 0; i < requests.length; i += threads, j++) {
+        long start = System.nanoTime();
+        RequestRuleResult result = service.evaluate(requests[i]);
+        latencies[j] = System.nanoTime() - start;
+        if (result != null) {
+          matched++;
+        }
+      }
+      long after = allocated();
+      allocated = before < 0 || after < 0 ? -1 : after - before;
+    }
+  }
+
+  /**
+   * Bytes allocated by current thread; or {@code -1} if not supported.
+   */
+  private static long allocated() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+      if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Count which rule first matches each request; by evaluating rules in order.
+   *
+   * @return Counts by rule, in rule order, followed by requests no rule matched.
+   */
+  public static Map<String, Long> matches(final List<RequestRule> rules,
+                                          final List<? extends HttpServletRequest> requests)
+  {
+    checkNotNull(rules);
+    checkNotNull(requests);
+
+    long[] counts = new long[rules.size() + 1];
+    for (HttpServletRequest request : requests) {
+      int matched = rules.size();
+      for (int i = 0; i < rules.size(); i++) {
+        RequestRuleResult result = rules.get(i).evaluate(request);
+        if (result != null) {
+          matched = i;
+          break;
+        }
+      }
+      counts[matched]++;
+    }
+
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (int i = 0; i < rules.size(); i++) {
+      result.put(String.format("[%d] %s", i, rules.get(i)), counts[i]);
+    }
+    result.put("none", counts[rules.size()]);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("requests", requests.length)
+        .add("threads", threads)
+        .toString();
+  }
+}
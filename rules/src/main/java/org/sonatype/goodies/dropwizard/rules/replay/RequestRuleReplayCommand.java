@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.replay;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Map;
+
+import org.sonatype.goodies.dropwizard.rules.RequestRuleConfiguration;
+import org.sonatype.goodies.dropwizard.rules.RequestRuleLoader;
+import org.sonatype.goodies.dropwizard.rules.RequestRuleServiceImpl;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.dropwizard.cli.Command;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Replay an access log through request rules, reporting cost and what matched.
+ *
+ * <pre>
+ * java -jar app.jar rules-replay [--threads N] [--iterations N] [--warmup N] [--limit N] rules.yml access.log
+ * </pre>
+ *
+ * Rules are loaded as a {@link RequestRuleConfiguration} YAML file; the log in NCSA common or combined format.
+ *
+ * @since ???
+ * @see RequestRuleReplay
+ */
+public class RequestRuleReplayCommand
+    extends Command
+{
+  public static final String NAME = "rules-replay";
+
+  public RequestRuleReplayCommand() {
+    super(NAME, "Replay access log through request rules");
+  }
+
+  @Override
+  public void configure(final Subparser subparser) {
+    subparser.addArgument("--threads")
+        .type(Integer.class)
+        .setDefault(Runtime.getRuntime().availableProcessors())
+        .help("evaluating threads");
+
+    subparser.addArgument("--iterations")
+        .type(Integer.class)
+        .setDefault(5)
+        .help("measured iterations");
+
+    subparser.addArgument("--warmup")
+        .type(Integer.class)
+        .setDefault(2)
+        .help("iterations before measuring");
+
+    subparser.addArgument("--limit")
+        .type(Integer.class)
+        .setDefault(Integer.MAX_VALUE)
+        .help("maximum requests to read from log");
+
+    subparser.addArgument("rules")
+        .type(File.class)
+        .help("request rules configuration file");
+
+    subparser.addArgument("log")
+        .type(File.class)
+        .help("access log file");
+  }
+
+  @Override
+  public void run(final Bootstrap<?> bootstrap, final Namespace namespace) throws Exception {
+    int threads = namespace.getInt("threads");
+    int iterations = namespace.getInt("iterations");
+    int warmup = namespace.getInt("warmup");
+    checkArgument(iterations > 0, "Invalid iterations: %s", iterations);
+    checkArgument(warmup >= 0, "Invalid warmup: %s", warmup);
+
+    PrintStream out = System.out;
+
+    RequestRuleLoader loader =
+        new RequestRuleLoader(bootstrap.getObjectMapper(), bootstrap.getValidatorFactory().getValidator());
+    File rulesFile = namespace.get("rules");
+    RequestRuleConfiguration config = loader.load(rulesFile);
+
+    File logFile = namespace.get("log");
+    AccessLog log = AccessLog.read(logFile, namespace.getInt("limit"));
+    checkArgument(!log.getRequests().isEmpty(), "No requests in: %s", logFile);
+    out.format("Requests: %d (skipped %d lines)%n", log.getRequests().size(), log.getSkipped());
+
+    // rules are injected as by the application; so rule metrics are marked
+    MetricRegistry metricRegistry = new MetricRegistry();
+    Injector injector = Guice.createInjector(binder -> binder.bind(MetricRegistry.class).toInstance(metricRegistry));
+    RequestRuleServiceImpl service = new RequestRuleServiceImpl(config, injector, metricRegistry, loader, null);
+    service.start();
+    try {
+      out.format("Rules: %d%n", service.getRules().size());
+
+      RequestRuleReplay replay = new RequestRuleReplay(service, log.getRequests(), threads);
+      out.format("Threads: %d%n", threads);
+      for (int i = 1; i <= warmup; i++) {
+        out.format("Warmup %d: %s%n", i, replay.run());
+      }
+      for (int i = 1; i <= iterations; i++) {
+        out.format("Iteration %d: %s%n", i, replay.run());
+      }
+
+      out.println("Matches:");
+      long total = log.getRequests().size();
+      for (Map.Entry<String, Long> entry : RequestRuleReplay.matches(service.getRules(), log.getRequests()).entrySet()) {
+        out.format("  %s: %d (%.2f%%)%n", entry.getKey(), entry.getValue(), entry.getValue() * 100d / total);
+      }
+    }
+    finally {
+      service.stop();
+    }
+  }
+}
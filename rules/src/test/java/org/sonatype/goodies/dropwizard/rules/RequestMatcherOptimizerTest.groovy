@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules
+
+import javax.servlet.http.HttpServletRequest
+
+import org.sonatype.goodies.dropwizard.rules.matcher.request.AndRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.request.HeaderRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.request.MethodRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.request.OrRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.string.RegexStringMatcher
+import org.sonatype.goodies.dropwizard.rules.standard.BlacklistRequestRule
+
+import org.junit.jupiter.api.Test
+
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+/**
+ * {@link RequestMatcherOptimizer} tests.
+ */
+class RequestMatcherOptimizerTest
+{
+  private static RequestRuleConfiguration.Optimizer config(final int sampleRate) {
+    return new RequestRuleConfiguration.Optimizer(enabled: true, sampleRate: sampleRate, minimumSamples: 10)
+  }
+
+  @Test
+  void 'order by estimated cost'() {
+    def header = new HeaderRequestMatcher('User-Agent', new RegexStringMatcher('.*bot.*'))
+    def method = new MethodRequestMatcher('POST')
+    def and = new AndRequestMatcher([ header, method ])
+    def rules = [ new BlacklistRequestRule([ and ]) ] as RequestRule[]
+
+    new RequestMatcherOptimizer(rules, config(0)).with {
+      assert !it.adaptive
+    }
+
+    assert and.evaluationOrder == [ method, header ]
+    assert and.matchers == [ header, method ]
+  }
+
+  @Test
+  void 'order by measured selectivity'() {
+    def header = new HeaderRequestMatcher('User-Agent', new RegexStringMatcher('.*bot.*'))
+    def method = new MethodRequestMatcher('POST')
+    def and = new AndRequestMatcher([ header, method ])
+    def or = new OrRequestMatcher([ header, method ])
+    def rules = [ new BlacklistRequestRule([ and, or ]) ] as RequestRule[]
+
+    def underTest = new RequestMatcherOptimizer(rules, config(1))
+    assert underTest.adaptive
+    assert and.evaluationOrder == [ method, header ]
+    assert or.evaluationOrder == [ method, header ]
+
+    // method always matches; header never does
+    def request = mock(HttpServletRequest.class)
+    when(request.getMethod()).thenReturn('POST')
+    when(request.getHeader('User-Agent')).thenReturn('curl')
+
+    // not enough samples
+    5.times {
+      underTest.sample(request)
+    }
+    underTest.optimize()
+    assert and.evaluationOrder == [ method, header ]
+
+    1000.times {
+      underTest.sample(request)
+    }
+    underTest.optimize()
+
+    // header decides and; method decides or
+    assert and.evaluationOrder == [ header, method ]
+    assert or.evaluationOrder == [ method, header ]
+  }
+
+  @Test
+  void 'custom matchers are not reordered'() {
+    def custom = mock(RequestMatcher.class)
+    def header = new HeaderRequestMatcher('User-Agent', new RegexStringMatcher('.*bot.*'))
+    def method = new MethodRequestMatcher('POST')
+    def and = new AndRequestMatcher([ custom, new OrRequestMatcher([ header, method ]) ])
+    def inner = and.matchers[1] as OrRequestMatcher
+    def rules = [ new BlacklistRequestRule([ and ]) ] as RequestRule[]
+
+    new RequestMatcherOptimizer(rules, config(0))
+
+    assert and.evaluationOrder == and.matchers
+    assert inner.evaluationOrder == [ method, header ]
+  }
+}
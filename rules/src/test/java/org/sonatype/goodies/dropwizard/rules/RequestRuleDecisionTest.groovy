@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules
+
+import javax.servlet.http.HttpServletRequest
+
+import org.sonatype.goodies.dropwizard.rules.matcher.request.HeaderRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.request.MethodRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.request.PathRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RemoteIpRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.string.ContainsStringMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.string.PrefixStringMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.string.SuffixStringMatcher
+import org.sonatype.goodies.dropwizard.rules.standard.BlacklistRequestRule
+import org.sonatype.goodies.dropwizard.rules.standard.WhitelistRequestRule
+
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.never
+import static org.mockito.Mockito.verify
+import static org.mockito.Mockito.when
+
+/**
+ * {@link RequestRuleDecision} tests.
+ */
+class RequestRuleDecisionTest
+{
+  private RemoteIpRequestMatcher whitelisted
+
+  private HeaderRequestMatcher badAgent
+
+  private BlacklistRequestRule blacklist
+
+  private WhitelistRequestRule whitelist
+
+  private RequestRuleDecision underTest
+
+  @BeforeEach
+  void setUp() {
+    whitelisted = new RemoteIpRequestMatcher([ '10.0.0.0/8' ])
+    badAgent = new HeaderRequestMatcher('User-Agent', new ContainsStringMatcher('bot', true))
+    whitelist = new WhitelistRequestRule([ whitelisted ])
+    blacklist = new BlacklistRequestRule([
+        new PathRequestMatcher(new PrefixStringMatcher('/admin', false)),
+        badAgent,
+        new PathRequestMatcher(new SuffixStringMatcher('.php', true)),
+        new MethodRequestMatcher('TRACE')
+    ])
+    underTest = RequestRuleDecision.compile([ whitelist, blacklist ] as RequestRule[])
+  }
+
+  private static HttpServletRequest request(final String address, final String method, final String path) {
+    def request = mock(HttpServletRequest.class)
+    when(request.getRemoteAddr()).thenReturn(address)
+    when(request.getMethod()).thenReturn(method)
+    when(request.getRequestURI()).thenReturn(path)
+    return request
+  }
+
+  @Test
+  void 'first matching rule wins'() {
+    assert underTest.evaluate(request('10.1.2.3', 'TRACE', '/admin')).toString() == 'continue-chain'
+    assert underTest.evaluate(request('1.2.3.4', 'GET', '/admin/x')).toString().startsWith('send-error{403')
+    assert underTest.evaluate(request('1.2.3.4', 'GET', '/INDEX.PHP')).toString().startsWith('send-error{403')
+    assert underTest.evaluate(request('1.2.3.4', 'trace', '/')).toString().startsWith('send-error{403')
+    assert underTest.evaluate(request('1.2.3.4', 'GET', '/index.html')) == null
+  }
+
+  @Test
+  void 'matchers after indexed match are not probed'() {
+    def request = request('1.2.3.4', 'GET', '/admin')
+    underTest.evaluate(request)
+    verify(request, never()).getHeader('User-Agent')
+  }
+
+  @Test
+  void 'probed matchers before indexed match are evaluated'() {
+    def request = request('1.2.3.4', 'GET', '/index.php')
+    when(request.getHeader('User-Agent')).thenReturn('SomeBot/1.0')
+    assert underTest.evaluate(request) != null
+    verify(request).getHeader('User-Agent')
+  }
+
+  @Test
+  void 'address changes are recompiled'() {
+    def request = request('1.2.3.4', 'GET', '/admin')
+    assert underTest.evaluate(request).toString().startsWith('send-error')
+
+    whitelisted.addresses.addAddress('1.2.3.4')
+    assert underTest.evaluate(request).toString() == 'continue-chain'
+  }
+}
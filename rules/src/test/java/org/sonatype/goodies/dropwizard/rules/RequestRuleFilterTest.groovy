@@ -73,4 +73,14 @@ class RequestRuleFilterTest
     verify(requestRuleService).evaluate(request)
     verify(chain).doFilter(request, response)
   }
+
+  @Test
+  void 'requests evaluated by handler are not evaluated again'() {
+    when(request.getAttribute(RequestRuleHandler.EVALUATED_ATTR)).thenReturn(Boolean.TRUE)
+
+    underTest.filter(request, response, chain)
+
+    verifyNoInteractions(requestRuleService)
+    verify(chain).doFilter(request, response)
+  }
 }
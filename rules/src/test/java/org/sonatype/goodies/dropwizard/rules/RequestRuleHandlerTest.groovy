@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules
+
+import javax.servlet.DispatcherType
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+import org.eclipse.jetty.server.Handler
+import org.eclipse.jetty.server.Request
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import org.mockito.Mock
+import org.mockito.junit.jupiter.MockitoExtension
+
+import static org.mockito.ArgumentMatchers.any
+import static org.mockito.Mockito.never
+import static org.mockito.Mockito.verify
+import static org.mockito.Mockito.when
+
+/**
+ * {@link RequestRuleHandler} tests.
+ */
+@ExtendWith(MockitoExtension.class)
+class RequestRuleHandlerTest
+{
+  @Mock
+  private RequestRuleService requestRuleService
+
+  @Mock
+  private Request baseRequest
+
+  @Mock
+  private HttpServletRequest request
+
+  @Mock
+  private HttpServletResponse response
+
+  @Mock
+  private Handler next
+
+  private RequestRuleHandler underTest
+
+  @BeforeEach
+  void setUp() {
+    underTest = new RequestRuleHandler(requestRuleService)
+    underTest.handler = next
+    when(request.getDispatcherType()).thenReturn(DispatcherType.REQUEST)
+  }
+
+  @Test
+  void 'rejecting result handles request'() {
+    when(requestRuleService.evaluate(request)).thenReturn(RequestRuleResults.sendError(403, 'Blacklisted'))
+
+    underTest.handle('/', baseRequest, request, response)
+
+    verify(response).sendError(403, 'Blacklisted')
+    verify(baseRequest).setHandled(true)
+    verify(next, never()).handle(any(), any(), any(), any())
+  }
+
+  @Test
+  void 'continue-chain result delegates to next'() {
+    when(requestRuleService.evaluate(request)).thenReturn(RequestRuleResults.continueChain())
+
+    underTest.handle('/', baseRequest, request, response)
+
+    verify(request).setAttribute(RequestRuleHandler.EVALUATED_ATTR, Boolean.TRUE)
+    verify(next).handle('/', baseRequest, request, response)
+    verify(baseRequest, never()).setHandled(true)
+  }
+
+  @Test
+  void 'delegate to next with no result'() {
+    when(requestRuleService.evaluate(request)).thenReturn(null)
+
+    underTest.handle('/', baseRequest, request, response)
+
+    verify(next).handle('/', baseRequest, request, response)
+  }
+}
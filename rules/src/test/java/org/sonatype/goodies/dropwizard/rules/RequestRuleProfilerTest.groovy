@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules
+
+import javax.servlet.http.HttpServletRequest
+
+import org.sonatype.goodies.dropwizard.rules.matcher.request.PathRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RemoteIpRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.string.PrefixStringMatcher
+import org.sonatype.goodies.dropwizard.rules.standard.BlacklistRequestRule
+import org.sonatype.goodies.dropwizard.rules.standard.WhitelistRequestRule
+
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import org.mockito.Mock
+import org.mockito.junit.jupiter.MockitoExtension
+
+import static org.mockito.Mockito.when
+
+/**
+ * {@link RequestRuleProfiler} tests.
+ */
+@ExtendWith(MockitoExtension.class)
+class RequestRuleProfilerTest
+{
+  @Mock
+  HttpServletRequest request
+
+  private static RequestRule[] createRules() {
+    return [
+        new WhitelistRequestRule([
+            new RemoteIpRequestMatcher([ '1.2.3.4' ])
+        ]),
+        new BlacklistRequestRule([
+            new PathRequestMatcher(new PrefixStringMatcher('/admin', false))
+        ])
+    ] as RequestRule[]
+  }
+
+  @Test
+  void 'disabled'() {
+    def underTest = new RequestRuleProfiler(0)
+    assert !underTest.enabled
+    assert underTest.start(createRules()) == null
+    assert underTest.profile == null
+  }
+
+  @Test
+  void 'profile rules'() {
+    def underTest = new RequestRuleProfiler(1)
+    def profile = underTest.start(createRules())
+    assert profile != null
+    assert underTest.profile == profile
+    assert profile.sample()
+
+    when(request.getRemoteAddr()).thenReturn('6.6.6.6')
+    when(request.getRequestURI()).thenReturn('/admin/x')
+
+    3.times {
+      assert profile.evaluate(request) != null
+    }
+
+    assert profile.samples == 3
+
+    profile.rules.with {
+      assert it.size() == 2
+      it.each {
+        assert it.evaluations == 3
+      }
+      def blacklist = it.find { it.name.startsWith('[1]') }
+      assert blacklist.matches == 3
+      def whitelist = it.find { it.name.startsWith('[0]') }
+      assert whitelist.matches == 0
+    }
+
+    profile.matchers.with {
+      assert it.size() == 2
+      assert it*.name.toSet() == [ 'remote-ip', 'path' ].toSet()
+      assert it.find { it.name == 'path' }.matches == 3
+    }
+
+    profile.reset()
+    assert profile.samples == 0
+    assert profile.rules.every { it.evaluations == 0 }
+    assert profile.matchers.isEmpty()
+  }
+}
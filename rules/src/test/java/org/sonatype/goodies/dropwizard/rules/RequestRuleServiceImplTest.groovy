@@ -16,16 +16,20 @@ import javax.servlet.FilterChain
 import javax.servlet.http.HttpServletRequest
 import javax.servlet.http.HttpServletResponse
 
+import org.sonatype.goodies.dropwizard.rules.matcher.request.PathRequestMatcher
 import org.sonatype.goodies.dropwizard.rules.matcher.request.RemoteIpRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.string.PrefixStringMatcher
 import org.sonatype.goodies.dropwizard.rules.standard.BlacklistRequestRule
 import org.sonatype.goodies.dropwizard.rules.standard.WhitelistRequestRule
 
+import com.codahale.metrics.MetricRegistry
 import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.extension.ExtendWith
 import org.mockito.Mock
 import org.mockito.junit.jupiter.MockitoExtension
 
+import static org.mockito.Mockito.times
 import static org.mockito.Mockito.verify
 import static org.mockito.Mockito.verifyNoInteractions
 import static org.mockito.Mockito.when
@@ -54,6 +58,9 @@ class RequestRuleServiceImplTest
   @Mock
   private RequestRule lastRule
 
+  @Mock
+  private RequestRuleLoader loader
+
   private RequestRuleServiceImpl underTest
 
   @AfterEach
@@ -185,4 +192,194 @@ class RequestRuleServiceImplTest
     verify(middleRule).evaluate(request)
     verify(lastRule).evaluate(request)
   }
+
+  @Test
+  void 'cached decisions'() {
+    def blacklist = new BlacklistRequestRule([
+        new PathRequestMatcher(new PrefixStringMatcher('/admin', false))
+    ])
+    blacklist.metric = 'blacklisted'
+    def config = new RequestRuleConfiguration(
+        rules: [
+            new WhitelistRequestRule([
+                new RemoteIpRequestMatcher([ '1.2.3.4' ])
+            ]),
+            blacklist
+        ]
+    )
+    config.cache.enabled = true
+    def metricRegistry = new MetricRegistry()
+    blacklist.configure(metricRegistry)
+    underTest = new RequestRuleServiceImpl(config, null, metricRegistry)
+    underTest.start()
+
+    when(request.getRemoteAddr()).thenReturn('6.6.6.6')
+    when(request.getRequestURI()).thenReturn('/admin/x')
+
+    3.times {
+      assert underTest.evaluate(request) != null
+    }
+
+    assert metricRegistry.meter('service.rules.cache.misses').count == 1
+    assert metricRegistry.meter('service.rules.cache.hits').count == 2
+    assert metricRegistry.meter('blacklisted').count == 3
+
+    // address changes discard cached decisions
+    underTest.getRule(WhitelistRequestRule.class).getMatcher(RemoteIpRequestMatcher.class).addresses
+        .addAddress('6.6.6.6')
+    assert underTest.evaluate(request).toString() == 'continue-chain'
+    assert metricRegistry.meter('service.rules.cache.misses').count == 2
+  }
+
+  @Test
+  void 'custom rules are not cached'() {
+    def config = new RequestRuleConfiguration(
+        rules: [
+            firstRule
+        ]
+    )
+    config.cache.enabled = true
+    def metricRegistry = new MetricRegistry()
+    underTest = new RequestRuleServiceImpl(config, null, metricRegistry)
+    underTest.start()
+
+    2.times {
+      assert underTest.evaluate(request) == null
+    }
+
+    verify(firstRule, times(2)).evaluate(request)
+    assert metricRegistry.meter('service.rules.cache.misses').count == 0
+  }
+
+  @Test
+  void 'reload rules'() {
+    def config = new RequestRuleConfiguration(
+        rules: [
+            new BlacklistRequestRule([
+                new RemoteIpRequestMatcher([ '6.6.6.0' ])
+            ])
+        ]
+    )
+    underTest = new RequestRuleServiceImpl(config, null)
+    underTest.start()
+
+    when(request.getRemoteAddr()).thenReturn('6.6.6.0')
+
+    assert underTest.evaluate(request).toString() != 'continue-chain'
+
+    underTest.reload(new RequestRuleConfiguration(
+        rules: [
+            new WhitelistRequestRule([
+                new RemoteIpRequestMatcher([ '6.6.6.0' ])
+            ])
+        ]
+    ))
+    assert underTest.getRules(BlacklistRequestRule.class).isEmpty()
+    assert underTest.evaluate(request).toString() == 'continue-chain'
+
+    underTest.reload(new RequestRuleConfiguration())
+    assert underTest.getRules().isEmpty()
+    assert underTest.evaluate(request) == null
+  }
+
+  @Test
+  void 'reloaded rules use service cache settings'() {
+    def file = new File('rules.yml')
+    def config = new RequestRuleConfiguration()
+    config.reload.file = file
+    config.cache.enabled = true
+    def metricRegistry = new MetricRegistry()
+    underTest = new RequestRuleServiceImpl(config, null, metricRegistry, loader, null)
+
+    // file only configures rules; cache settings are defaults
+    when(loader.load(file)).thenAnswer {
+      new RequestRuleConfiguration(
+          rules: [
+              new BlacklistRequestRule([
+                  new RemoteIpRequestMatcher([ '6.6.6.0' ])
+              ])
+          ]
+      )
+    }
+    underTest.start()
+
+    when(request.getRemoteAddr()).thenReturn('6.6.6.0')
+
+    2.times {
+      assert underTest.evaluate(request) != null
+    }
+    assert metricRegistry.meter('service.rules.cache.misses').count == 1
+    assert metricRegistry.meter('service.rules.cache.hits').count == 1
+
+    underTest.reload()
+
+    2.times {
+      assert underTest.evaluate(request) != null
+    }
+    assert metricRegistry.meter('service.rules.cache.misses').count == 2
+    assert metricRegistry.meter('service.rules.cache.hits').count == 2
+  }
+
+  @Test
+  void 'profiled evaluation'() {
+    def config = new RequestRuleConfiguration(
+        rules: [
+            firstRule,
+            new BlacklistRequestRule([
+                new RemoteIpRequestMatcher([ '6.6.6.0' ])
+            ])
+        ]
+    )
+    def profiler = new RequestRuleProfiler(1)
+    underTest = new RequestRuleServiceImpl(config, null, new MetricRegistry(), null, profiler)
+    underTest.start()
+
+    when(request.getRemoteAddr()).thenReturn('6.6.6.0')
+
+    assert underTest.evaluate(request) != null
+
+    verify(firstRule).evaluate(request)
+    profiler.profile.with {
+      assert it.samples == 1
+      assert it.rules*.evaluations == [ 1, 1 ]
+      assert it.matchers*.name == [ 'remote-ip' ]
+    }
+  }
+
+  @Test
+  void 'shadow evaluation'() {
+    def config = new RequestRuleConfiguration(
+        shadow: new RequestRuleConfiguration.Shadow(sampleRate: 1)
+    )
+    underTest = new RequestRuleServiceImpl(config, null)
+    underTest.start()
+    assert underTest.shadow == null
+
+    underTest.shadow(new RequestRuleConfiguration(
+        rules: [
+            new WhitelistRequestRule([
+                new RemoteIpRequestMatcher([ '6.6.6.0' ])
+            ])
+        ]
+    ))
+
+    when(request.getMethod()).thenReturn('GET')
+    when(request.getRequestURI()).thenReturn('/')
+    when(request.getProtocol()).thenReturn('HTTP/1.1')
+    when(request.getRemoteAddr()).thenReturn('6.6.6.0')
+
+    // live rules are unchanged; candidate is evaluated off the request path
+    assert underTest.evaluate(request) == null
+
+    def shadow = underTest.shadow
+    long deadline = System.currentTimeMillis() + 5000
+    while (shadow.evaluated == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10)
+    }
+    assert shadow.evaluated == 1
+    assert shadow.deltas == [ 'none -> continue-chain': 1L ]
+
+    underTest.shadow(null)
+    assert underTest.shadow == null
+  }
 }
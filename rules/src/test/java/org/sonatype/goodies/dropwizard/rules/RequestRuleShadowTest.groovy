@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules
+
+import javax.servlet.FilterChain
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+import org.sonatype.goodies.dropwizard.rules.matcher.request.PathRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.string.PrefixStringMatcher
+import org.sonatype.goodies.dropwizard.rules.replay.ReplayRequest
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+
+import static org.junit.jupiter.api.Assertions.fail
+import static org.mockito.Mockito.mock
+
+/**
+ * {@link RequestRuleShadow} tests.
+ */
+class RequestRuleShadowTest
+{
+  private static class NamedResult
+      implements RequestRuleResult
+  {
+    private final String name
+
+    NamedResult(final String name) {
+      this.name = name
+    }
+
+    @Override
+    void apply(final HttpServletRequest request, final HttpServletResponse response, final FilterChain chain) {
+      // empty
+    }
+
+    @Override
+    String toString() {
+      return name
+    }
+  }
+
+  private RequestRuleShadow underTest
+
+  @AfterEach
+  void tearDown() {
+    underTest?.close()
+  }
+
+  private static RequestRule createRule(final String name, final String prefix) {
+    return new MatchRequestRule(name, [ new PathRequestMatcher(new PrefixStringMatcher(prefix, false)) ]) {
+      @Override
+      protected RequestRuleResult matched(final RequestMatcher matcher, final HttpServletRequest request) {
+        return new NamedResult(name)
+      }
+    }
+  }
+
+  private static RequestRuleShadow createShadow(final int queueSize, final boolean background = true) {
+    def config = new RequestRuleConfiguration.Shadow(sampleRate: 1, queueSize: queueSize)
+    return new RequestRuleShadow([ createRule('deny', '/admin') ] as RequestRule[], config, background)
+  }
+
+  private static ReplayRequest request(final String uri) {
+    return new ReplayRequest('GET', uri, null, 'HTTP/1.1', '1.2.3.4')
+  }
+
+  private void awaitEvaluated(final long count) {
+    long deadline = System.currentTimeMillis() + 5000
+    while (underTest.evaluated < count) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("Timed out waiting for evaluation: $underTest")
+      }
+      Thread.sleep(10)
+    }
+  }
+
+  @Test
+  void 'records deltas'() {
+    underTest = createShadow(10)
+
+    underTest.offer(request('/admin'), null)
+    underTest.offer(request('/'), null)
+    underTest.offer(request('/admin/x'), new NamedResult('deny'))
+    awaitEvaluated(3)
+
+    underTest.with {
+      println it
+      assert it.ruleCount == 1
+      assert it.evaluated == 3
+      assert it.agreed == 2
+      assert it.differed == 1
+      assert it.dropped == 0
+      assert it.incomplete == 0
+      assert it.failed == 0
+      assert it.deltas == [ ("${RequestRuleShadow.NONE} -> deny".toString()): 1L ]
+    }
+  }
+
+  @Test
+  void 'drops samples when queue is full'() {
+    // samples are only evaluated when drained; so the queue stays full
+    underTest = createShadow(2, false)
+
+    10.times {
+      underTest.offer(request('/'), null)
+    }
+    assert underTest.dropped == 8
+    assert underTest.evaluated == 0
+
+    underTest.drain()
+    underTest.offer(request('/'), null)
+    underTest.drain()
+
+    underTest.with {
+      println it
+      assert it.evaluated == 3
+      assert it.agreed == 3
+      assert it.dropped == 8
+      assert it.incomplete == 0
+    }
+  }
+
+  @Test
+  void 'drops requests missing required attributes'() {
+    underTest = createShadow(10)
+
+    underTest.offer(mock(HttpServletRequest.class), null)
+
+    assert underTest.incomplete == 1
+    assert underTest.dropped == 0
+  }
+
+  @Test
+  void 'invalid configuration'() {
+    try {
+      new RequestRuleShadow(new RequestRule[0], new RequestRuleConfiguration.Shadow(sampleRate: 0))
+      fail()
+    }
+    catch (IllegalArgumentException expected) {
+      println expected
+    }
+  }
+}
@@ -65,4 +65,17 @@ class MethodRequestMatcherTest
     verify(request).getMethod()
     verifyNoMoreInteractions(request)
   }
+
+  @Test
+  void 'match non-standard method'() {
+    def request = mock(HttpServletRequest.class)
+    when(request.getMethod()).thenReturn('propfind')
+
+    def underTest = new MethodRequestMatcher('PROPFIND', HttpMethod.GET)
+
+    assert underTest.matches(request)
+
+    when(request.getMethod()).thenReturn('head')
+    assert !underTest.matches(request)
+  }
 }
@@ -102,4 +102,49 @@ class OrRequestMatcherTest
     verify(matcher2, never()).matches(any(HttpServletRequest.class))
     verifyNoMoreInteractions(matcher1, matcher2)
   }
+
+  @Test
+  void 'evaluation order'() {
+    def request = mock(HttpServletRequest.class)
+    def matcher1 = mock(RequestMatcher.class)
+    def matcher2 = mock(RequestMatcher.class)
+    def underTest = new OrRequestMatcher([ matcher1, matcher2 ])
+
+    underTest.evaluationOrder = [ matcher2, matcher1 ]
+    assert underTest.evaluationOrder == [ matcher2, matcher1 ]
+    assert underTest.matchers == [ matcher1, matcher2 ]
+
+    when(matcher2.matches(request)).thenReturn(true)
+
+    assert underTest.matches(request)
+
+    verify(matcher2).matches(request)
+    verify(matcher1, never()).matches(request)
+    verifyNoMoreInteractions(matcher1, matcher2)
+  }
+
+  @Test
+  void 'evaluation order requires each matcher once'() {
+    def matcher1 = mock(RequestMatcher.class)
+    def matcher2 = mock(RequestMatcher.class)
+    def underTest = new OrRequestMatcher([ matcher1, matcher2 ])
+
+    try {
+      underTest.evaluationOrder = [ matcher1, matcher1 ]
+      fail()
+    }
+    catch (IllegalArgumentException expected) {
+      println expected
+    }
+
+    try {
+      underTest.evaluationOrder = [ matcher1 ]
+      fail()
+    }
+    catch (IllegalArgumentException expected) {
+      println expected
+    }
+
+    assert underTest.evaluationOrder == [ matcher1, matcher2 ]
+  }
 }
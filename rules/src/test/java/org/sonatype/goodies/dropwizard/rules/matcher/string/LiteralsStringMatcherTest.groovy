@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.matcher.string
+
+import org.junit.jupiter.api.Test
+
+import static org.junit.jupiter.api.Assertions.fail
+
+/**
+ * {@link LiteralsStringMatcher} tests.
+ */
+class LiteralsStringMatcherTest
+{
+  @Test
+  void 'at least 1 literal required'() {
+    try {
+      new LiteralsStringMatcher(null, [], null, false)
+      fail()
+    }
+    catch (IllegalArgumentException expected) {
+      println expected
+    }
+  }
+
+  @Test
+  void 'match contains'() {
+    def underTest = new LiteralsStringMatcher([ 'bot', 'crawl', 'spider' ], null, null, false)
+    assert underTest.matches('Googlebot/2.1')
+    assert underTest.matches('a crawler')
+    assert !underTest.matches('Mozilla/5.0')
+    assert !underTest.matches('BOT')
+    assert !underTest.matches(null)
+  }
+
+  @Test
+  void 'match prefix and suffix'() {
+    def underTest = new LiteralsStringMatcher(null, [ '/admin' ], [ '.php' ], false)
+    assert underTest.matches('/admin/users')
+    assert underTest.matches('/index.php')
+    assert !underTest.matches('/x/admin')
+    assert !underTest.matches('/index.php/x')
+  }
+
+  @Test
+  void 'match overlapping literals'() {
+    def underTest = new LiteralsStringMatcher([ 'she', 'hers' ], [ 'ush' ], [ 'his' ], false)
+    assert underTest.matches('ushers')
+    assert underTest.matches('this')
+    assert underTest.matches('ushx')
+    assert !underTest.matches('xush')
+    assert !underTest.matches('ish')
+  }
+
+  @Test
+  void 'match ignore-case'() {
+    def underTest = new LiteralsStringMatcher([ 'Bot' ], null, [ '.PHP' ], true)
+    assert underTest.matches('GOOGLEBOT')
+    assert underTest.matches('/Index.Php')
+    assert underTest.matches('\u00dcnic\u00f6de bot')
+    assert !underTest.matches('robo')
+  }
+
+  @Test
+  void 'empty literal matches all'() {
+    def underTest = new LiteralsStringMatcher([ '' ], null, null, false)
+    assert underTest.matches('')
+    assert underTest.matches('anything')
+    assert !underTest.matches(null)
+  }
+}
@@ -91,4 +91,24 @@ class OrStringMatcherTest
     verify(matcher2, never()).matches(anyString())
     verifyNoMoreInteractions(matcher1, matcher2)
   }
+
+  @Test
+  void 'match compiled literals'() {
+    def underTest = new OrStringMatcher([
+        new ContainsStringMatcher('foo', true),
+        new PrefixStringMatcher('bar', false),
+        new OrStringMatcher([
+            new SuffixStringMatcher('baz', false),
+            new StringMatcher2(StringMatcher2.Function.contains, 'qux', false)
+        ])
+    ])
+
+    assert underTest.matches('a FOO b')
+    assert underTest.matches('bar b c')
+    assert underTest.matches('a b baz')
+    assert underTest.matches('a qux c')
+    assert !underTest.matches('a bar baz c')
+    assert !underTest.matches('a QUX c')
+    assert !underTest.matches(null)
+  }
 }
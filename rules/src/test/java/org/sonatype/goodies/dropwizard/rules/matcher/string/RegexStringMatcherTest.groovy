@@ -12,8 +12,14 @@
  */
 package org.sonatype.goodies.dropwizard.rules.matcher.string
 
+import java.util.regex.PatternSyntaxException
+
+import org.sonatype.goodies.dropwizard.rules.matcher.string.RegexStringMatcher.Engine
+
 import org.junit.jupiter.api.Test
 
+import static org.junit.jupiter.api.Assertions.fail
+
 /**
  * {@link RegexStringMatcher} tests.
  */
@@ -70,4 +76,57 @@ class RegexStringMatcherTest
     assert underTest.matches('a b c')
     assert underTest.matches('A B C')
   }
+
+  @Test
+  void 'invalid pattern fails eagerly'() {
+    try {
+      new RegexStringMatcher('foo(')
+      fail()
+    }
+    catch (PatternSyntaxException expected) {
+      println expected
+    }
+  }
+
+  @Test
+  void 'dfa engine'() {
+    def underTest = new RegexStringMatcher('(?:/[a-z0-9_-]+)+\\.(php|asp)x?', Engine.dfa)
+
+    assert underTest.compiled == null
+    assert underTest.matches('/wp-admin/index.php')
+    assert underTest.matches('/a/b.aspx')
+    assert !underTest.matches('/a/b.jsp')
+    assert !underTest.matches('/A/b.php')
+
+    underTest.ignoreCase = true
+    assert underTest.matches('/A/B.PHP')
+  }
+
+  @Test
+  void 'dfa engine is linear'() {
+    def underTest = new RegexStringMatcher('(a+)+b', Engine.dfa)
+    assert !underTest.matches('a' * 100_000)
+  }
+
+  @Test
+  void 'dfa engine rejects unsupported features'() {
+    [ '(a)\\1', '(?=a)a', 'a*+', '\\bfoo', '(?i)foo', '[a&&b]', '\\p{L}' ].each { pattern ->
+      try {
+        new RegexStringMatcher(pattern, Engine.dfa)
+        fail()
+      }
+      catch (PatternSyntaxException expected) {
+        println expected
+      }
+    }
+
+    def underTest = new RegexStringMatcher('foo', Engine.dfa)
+    try {
+      underTest.comments = true
+      fail()
+    }
+    catch (PatternSyntaxException expected) {
+      println expected
+    }
+  }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.replay
+
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+
+/**
+ * {@link AccessLog} tests.
+ */
+class AccessLogTest
+{
+  @TempDir
+  File tempDir
+
+  @Test
+  void 'parse combined'() {
+    def request = AccessLog.parse(
+        '1.2.3.4 - - [10/Oct/2000:13:55:36 -0700] "GET /admin/x?a=b HTTP/1.1" 200 2326 "http://example.com/" "Mozilla/5.0" 12')
+    assert request != null
+    assert request.method == 'GET'
+    assert request.requestURI == '/admin/x'
+    assert request.queryString == 'a=b'
+    assert request.protocol == 'HTTP/1.1'
+    assert request.remoteAddr == '1.2.3.4'
+    assert request.getHeader('referer') == 'http://example.com/'
+    assert request.getHeader('User-Agent') == 'Mozilla/5.0'
+    assert request.getHeader('Accept') == null
+  }
+
+  @Test
+  void 'parse common'() {
+    def request = AccessLog.parse('::1 - frank [10/Oct/2000:13:55:36 +0000] "POST http://example.com/api HTTP/1.0" 403 -')
+    assert request != null
+    assert request.method == 'POST'
+    assert request.requestURI == '/api'
+    assert request.queryString == null
+    assert request.remoteAddr == '::1'
+    assert request.getHeader('User-Agent') == null
+  }
+
+  @Test
+  void 'parse escaped and missing headers'() {
+    def request = AccessLog.parse('1.2.3.4 - - [10/Oct/2000:13:55:36 -0700] "GET / HTTP/1.1" 200 5 "-" "curl \\"x\\""')
+    assert request != null
+    assert request.getHeader('Referer') == null
+    assert request.getHeader('User-Agent') == 'curl "x"'
+  }
+
+  @Test
+  void 'malformed lines'() {
+    assert AccessLog.parse('garbage') == null
+    assert AccessLog.parse('1.2.3.4 - - [10/Oct/2000:13:55:36 -0700] "-" 400 0') == null
+    assert AccessLog.parse('1.2.3.4 - - 10/Oct/2000 "GET / HTTP/1.1" 200 0') == null
+  }
+
+  @Test
+  void 'read with limit'() {
+    def file = new File(tempDir, 'access.log')
+    file.text = [
+        '1.2.3.4 - - [10/Oct/2000:13:55:36 -0700] "GET /a HTTP/1.1" 200 5',
+        'garbage',
+        '',
+        '1.2.3.4 - - [10/Oct/2000:13:55:36 -0700] "GET /b HTTP/1.1" 200 5',
+        '1.2.3.4 - - [10/Oct/2000:13:55:36 -0700] "GET /c HTTP/1.1" 200 5'
+    ].join('\n')
+
+    AccessLog.read(file, 2).with {
+      assert it.requests*.requestURI == [ '/a', '/b' ]
+      assert it.skipped == 1
+    }
+  }
+}
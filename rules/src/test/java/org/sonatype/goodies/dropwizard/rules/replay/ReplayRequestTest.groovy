@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.replay
+
+import javax.servlet.DispatcherType
+
+import org.junit.jupiter.api.Test
+
+import static org.junit.jupiter.api.Assertions.fail
+
+/**
+ * {@link ReplayRequest} tests.
+ */
+class ReplayRequestTest
+{
+  @Test
+  void 'absent attributes of anonymous request'() {
+    def request = new ReplayRequest('GET', '/', null, 'HTTP/1.1', '1.2.3.4')
+
+    assert request.cookies == null
+    assert request.requestedSessionId == null
+    assert !request.requestedSessionIdValid
+    assert request.userPrincipal == null
+    assert request.remoteUser == null
+    assert request.getSession(false) == null
+    assert request.getAttribute('foo') == null
+    assert request.getParameter('foo') == null
+    assert request.getDateHeader('Date') == -1
+    assert request.contentLength == -1
+    assert request.dispatcherType == DispatcherType.REQUEST
+  }
+
+  @Test
+  void 'derived from recorded headers and query'() {
+    def request = new ReplayRequest('GET', '/x', 'a=1&b=%20x&a=2', 'HTTP/1.1', '1.2.3.4',
+        'Cookie', 'JSESSIONID=abc; rememberMe=x',
+        'Accept-Language', 'de-CH, fr;q=0.9',
+        'If-Modified-Since', 'Wed, 21 Oct 2015 07:28:00 GMT')
+
+    assert request.cookies*.name == [ 'JSESSIONID', 'rememberMe' ]
+    assert request.getParameterValues('a') == [ '1', '2' ] as String[]
+    assert request.getParameter('b') == ' x'
+    assert request.locale == Locale.forLanguageTag('de-CH')
+    assert request.getDateHeader('If-Modified-Since') == 1445412480000L
+
+    request.setAttribute('foo', 'bar')
+    assert request.getAttribute('foo') == 'bar'
+  }
+
+  @Test
+  void 'body is not recorded'() {
+    def request = new ReplayRequest('POST', '/', null, 'HTTP/1.1', '1.2.3.4')
+    try {
+      request.inputStream
+      fail()
+    }
+    catch (UnsupportedOperationException expected) {
+      println expected
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018-present Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.sonatype.goodies.dropwizard.rules.replay
+
+import org.sonatype.goodies.dropwizard.rules.RequestRuleConfiguration
+import org.sonatype.goodies.dropwizard.rules.RequestRuleServiceImpl
+import org.sonatype.goodies.dropwizard.rules.matcher.request.PathRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.request.RemoteIpRequestMatcher
+import org.sonatype.goodies.dropwizard.rules.matcher.string.PrefixStringMatcher
+import org.sonatype.goodies.dropwizard.rules.standard.BlacklistRequestRule
+import org.sonatype.goodies.dropwizard.rules.standard.WhitelistRequestRule
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+import static org.junit.jupiter.api.Assertions.fail
+
+/**
+ * {@link RequestRuleReplay} tests.
+ */
+class RequestRuleReplayTest
+{
+  private RequestRuleServiceImpl service
+
+  private List<ReplayRequest> requests
+
+  @BeforeEach
+  void setUp() {
+    def config = new RequestRuleConfiguration(
+        rules: [
+            new WhitelistRequestRule([
+                new RemoteIpRequestMatcher([ '1.2.3.4' ])
+            ]),
+            new BlacklistRequestRule([
+                new PathRequestMatcher(new PrefixStringMatcher('/admin', false))
+            ])
+        ]
+    )
+    service = new RequestRuleServiceImpl(config, null)
+    service.start()
+
+    requests = [
+        new ReplayRequest('GET', '/admin', null, 'HTTP/1.1', '1.2.3.4'),
+        new ReplayRequest('GET', '/admin', null, 'HTTP/1.1', '6.6.6.6'),
+        new ReplayRequest('GET', '/', null, 'HTTP/1.1', '6.6.6.6'),
+        new ReplayRequest('GET', '/admin/x', null, 'HTTP/1.1', '6.6.6.6')
+    ]
+  }
+
+  @AfterEach
+  void tearDown() {
+    service?.stop()
+  }
+
+  @Test
+  void 'run iteration'() {
+    def underTest = new RequestRuleReplay(service, requests, 3)
+
+    underTest.run().with {
+      println it
+      assert it.evaluations == 4
+      assert it.matched == 3
+      assert it.nanos > 0
+      assert it.throughput > 0
+      assert it.p50 <= it.p99
+      assert it.p99 <= it.max
+    }
+  }
+
+  @Test
+  void 'match distribution'() {
+    def matches = RequestRuleReplay.matches(service.rules, requests)
+    assert matches.values().toList() == [ 1L, 2L, 1L ]
+    assert matches.keySet().last() == 'none'
+  }
+
+  @Test
+  void 'requests required'() {
+    try {
+      new RequestRuleReplay(service, [], 1)
+      fail()
+    }
+    catch (IllegalArgumentException expected) {
+      println expected
+    }
+  }
+}